@@ -0,0 +1,65 @@
+package ca.uwo.eng.sel.cepsim.bench;
+
+import ca.uwo.eng.sel.cepsim.example.CepSimAvgWindow;
+import ca.uwo.eng.sel.cepsim.example.CepSimAvgWindowNetwork;
+import ca.uwo.eng.sel.cepsim.integr.AdaptiveIntervalController;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+import static ca.uwo.eng.sel.cepsim.example.CepSimAvgWindow.AllocStrategyEnum.*;
+import static ca.uwo.eng.sel.cepsim.example.CepSimAvgWindow.SchedStrategyEnum.*;
+
+/**
+ * Compares the wall-clock time of the bundled examples when the cloudlets are updated at a fixed interval
+ * and when the interval is adapted by an AdaptiveIntervalController. The runs with an error budget of 0 use the
+ * fixed interval, so that the error budget is only swept for the adaptive runs.
+ */
+@State(Scope.Benchmark)
+public class AdaptiveIntervalBenchmark {
+
+    @Param({"0.1"})
+    public double simInterval;
+
+    @Param({"1.0"})
+    public double maxInterval;
+
+    /** Error budget of the adaptive runs. The cloudlets are updated at the fixed interval if it is 0. */
+    @Param({"0.0", "0.05", "0.5"})
+    public double errorBudget;
+
+    private AdaptiveIntervalController controller() {
+        return (errorBudget > 0) ? new AdaptiveIntervalController(simInterval, maxInterval, errorBudget) : null;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Fork(5)
+    public void avgWindow() throws InterruptedException {
+        new CepSimAvgWindow().simulate(DYNAMIC, UNIFORM, simInterval, 1, controller());
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Fork(5)
+    public void avgWindowNetwork() throws InterruptedException {
+        new CepSimAvgWindowNetwork().simulate(simInterval, 1, controller());
+    }
+
+
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+                .include(AdaptiveIntervalBenchmark.class.getSimpleName())
+                .forks(1)
+                .build();
+
+        new Runner(opt).run();
+    }
+
+}
@@ -19,13 +19,16 @@ public class CepSimBenchmark {
     @Param({"10"})
     public int queriesPerVm;
 
+    @Param({"1", "4"})
+    public int parallelism;
+
     @Benchmark
     @BenchmarkMode(Mode.SingleShotTime)
     @OutputTimeUnit(TimeUnit.MILLISECONDS)
     @Timeout(time = 900)
     @Fork(10)
     public void testMethod() throws InterruptedException {
-        new ResourceConsumptionTest().simulate(numberOfVms, queriesPerVm);
+        new ResourceConsumptionTest().simulate(numberOfVms, queriesPerVm, parallelism);
     }
 
 
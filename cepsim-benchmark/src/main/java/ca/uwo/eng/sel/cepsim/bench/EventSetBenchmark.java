@@ -0,0 +1,102 @@
+package ca.uwo.eng.sel.cepsim.bench;
+
+import ca.uwo.eng.sel.cepsim.event.EventSet;
+import ca.uwo.eng.sel.cepsim.event.EventSetQueue;
+import ca.uwo.eng.sel.cepsim.gen.UniformGenerator;
+import ca.uwo.eng.sel.cepsim.query.EventProducer;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import scala.Tuple2;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Microbenchmarks of the EventSet and EventSetQueue operations. The number of producers defines the size of the
+ * totals map of the event sets, and the queue depth is the number of event sets in the queue. The benchmarks
+ * that modify the state restore it in the same invocation, so the reported cost includes both operations.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(3)
+public class EventSetBenchmark {
+
+    @Param({"1", "10", "100"})
+    public int producers;
+
+    @Param({"1", "10", "100"})
+    public int queueDepth;
+
+    private EventSet base;
+    private EventSet other;
+    private EventSetQueue queue;
+
+
+    @Setup
+    public void setup() {
+        Map<EventProducer, Object> totals = new HashMap<EventProducer, Object>();
+        for (int i = 0; i < producers; i++) {
+            totals.put(new EventProducer("p" + i, 1000, new UniformGenerator(1000), false), 10.0);
+        }
+        base = eventSet(10.0 * producers, 100.0, 5.0, totals);
+        other = eventSet(10.0 * producers, 110.0, 2.0, totals);
+
+        queue = new EventSetQueue();
+        for (int i = 0; i < queueDepth; i++) {
+            queue.enqueue(eventSet(10.0 * producers, 100.0 + i, 5.0, totals), 1.0);
+        }
+    }
+
+    private static EventSet eventSet(double size, double ts, double latency, Map<EventProducer, Object> totals) {
+        return new EventSet(size, ts, latency, totals);
+    }
+
+
+    @Benchmark
+    public EventSet eventSetAdd() {
+        EventSet es = base.copy(base.size(), base.ts(), base.latency(), base.totals());
+        es.add(other, 1.0);
+        return es;
+    }
+
+    @Benchmark
+    public EventSet eventSetExtract() {
+        EventSet es = base.copy(base.size(), base.ts(), base.latency(), base.totals());
+        return es.extract(base.size() / 3);
+    }
+
+    @Benchmark
+    public Tuple2<EventSet, EventSet> eventSetSplit() {
+        return base.split(0.3);
+    }
+
+    @Benchmark
+    public EventSet queueEnqueueDequeue() {
+        queue.enqueue(other, 1.0);
+        return queue.dequeue(other.size());
+    }
+
+    @Benchmark
+    public EventSet queueAggregate() {
+        return queue.es();
+    }
+
+
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+                .include(EventSetBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build();
+
+        new Runner(opt).run();
+    }
+
+}
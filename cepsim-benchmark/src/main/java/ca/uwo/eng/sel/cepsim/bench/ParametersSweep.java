@@ -0,0 +1,61 @@
+package ca.uwo.eng.sel.cepsim.bench;
+
+import ca.uwo.eng.sel.cepsim.example.CepSimAvgWindow;
+import ca.uwo.eng.sel.cepsim.sweep.SweepResult;
+import ca.uwo.eng.sel.cepsim.sweep.SweepRun;
+import ca.uwo.eng.sel.cepsim.sweep.SweepRunner;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static ca.uwo.eng.sel.cepsim.example.CepSimAvgWindow.AllocStrategyEnum.*;
+import static ca.uwo.eng.sel.cepsim.example.CepSimAvgWindow.SchedStrategyEnum.*;
+
+/**
+ * Sweeps the same parameters as the ParametersBenchmark, but instead of measuring the wall-clock time, it collects
+ * the latency and throughput of the consumers. The runs are executed in parallel in the same process, using all
+ * available processors unless the number of threads is informed as the first argument. The seed of each replication
+ * perturbs the rate of the event producers.
+ */
+public class ParametersSweep implements SweepRun {
+
+    private static final int REPLICATIONS = 5;
+    private static final double RATE_DEVIATION = 0.01;
+
+    @Override
+    public Map<String, Double> run(Map<String, String> parameters, long seed) throws Exception {
+        // each replication perturbs the producer rate, so that the replications of a point are not identical
+        CepSimAvgWindow simulation = new CepSimAvgWindow();
+        simulation.setRate(simulation.getRate() * (1 + RATE_DEVIATION * new Random(seed).nextGaussian()));
+        return simulation.simulate(
+                CepSimAvgWindow.SchedStrategyEnum.valueOf(parameters.get("sched")),
+                CepSimAvgWindow.AllocStrategyEnum.valueOf(parameters.get("alloc")),
+                Double.parseDouble(parameters.get("simInterval")),
+                Integer.parseInt(parameters.get("iterations")));
+    }
+
+
+    public static void main(String[] args) throws Exception {
+        Map<String, List<String>> parameters = new LinkedHashMap<String, List<String>>();
+        parameters.put("sched", Arrays.asList(DEFAULT.name(), DYNAMIC.name()));
+        parameters.put("alloc", Arrays.asList(UNIFORM.name(), WEIGHTED.name()));
+        parameters.put("simInterval", Arrays.asList("0.1", "1.0"));
+        parameters.put("iterations", Arrays.asList("1", "10", "100"));
+
+        SweepRunner runner = (args.length > 0) ? new SweepRunner(ParametersSweep.class, Integer.parseInt(args[0])) :
+                new SweepRunner(ParametersSweep.class);
+
+        long start = System.nanoTime();
+        List<SweepResult> results = runner.run(SweepRunner.grid(parameters), REPLICATIONS, 1L);
+        double time = (System.nanoTime() - start) / 1E6;
+
+        for (SweepResult result : results) {
+            System.out.println(result);
+        }
+        System.out.println("Threads [" + runner.getThreads() + "] Time [" + time + "]");
+    }
+
+}
@@ -0,0 +1,347 @@
+package ca.uwo.eng.sel.cepsim.bench;
+
+import ca.uwo.eng.sel.cepsim.PlacementExecutor;
+import ca.uwo.eng.sel.cepsim.gen.UniformGenerator;
+import ca.uwo.eng.sel.cepsim.integr.CepQueryCloudlet;
+import ca.uwo.eng.sel.cepsim.placement.Placement;
+import ca.uwo.eng.sel.cepsim.query.EventConsumer;
+import ca.uwo.eng.sel.cepsim.query.EventProducer;
+import ca.uwo.eng.sel.cepsim.query.InputVertex;
+import ca.uwo.eng.sel.cepsim.query.Operator;
+import ca.uwo.eng.sel.cepsim.query.OutputVertex;
+import ca.uwo.eng.sel.cepsim.query.Query;
+import ca.uwo.eng.sel.cepsim.query.Vertex;
+import ca.uwo.eng.sel.cepsim.query.WindowedOperator;
+import ca.uwo.eng.sel.cepsim.sched.DynOpScheduleStrategy;
+import ca.uwo.eng.sel.cepsim.sched.alloc.UniformAllocationStrategy;
+import scala.Tuple3;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Measures the memory footprint and the startup time of scenarios of increasing size. The scenarios are built as
+ * in the ResourceConsumptionTest, with a number of VMs and the same number of five-vertex queries on each VM. For
+ * each size, the harness measures the construction time of the queries, placements, placement executors and
+ * cloudlets, the time of the first simulated tick of all cloudlets, and the heap retained by the scenario.
+ *
+ * The retained heap is the difference between the used heap after and before the scenario is built, measured
+ * after forcing full collections. The JVM must run with a fixed heap size (-Xms equal to -Xmx) and with the
+ * parallel or G1 collector, as the serial collector does not report the objects that remain in the young
+ * generation after a full collection (e.g. -XX:+UseParallelGC -Xms4g -Xmx4g for the default sizes).
+ *
+ * The scaling curves are written as CSV to the file informed as the first argument (footprint.csv by default),
+ * and the sizes can be informed as the second argument (e.g. 1x100,10x100). The run fails when the largest size
+ * exceeds one of the regression thresholds, which can be overridden by system properties.
+ *
+ * The startup time includes the construction of the placements. Their iteration order is built in linear time on
+ * the number of vertices, so the placements share the startup scaling threshold rather than having a looser one.
+ */
+public class ScenarioFootprintBenchmark {
+
+    private static final String DEFAULT_SIZES = "1x100,10x100,10x500,20x500,20x1000";
+    private static final int REPETITIONS = 3;
+
+    private static final int VERTICES_PER_QUERY = 5;
+    private static final int NUM_SENSORS = 10;
+    private static final long DURATION = 301L;
+
+    /** Capacity of each VM (in MIPS) and the simulation interval (in seconds). */
+    private static final int MIPS = 2500;
+    private static final double SIM_INTERVAL = 0.1;
+
+    /** Maximum heap retained by the scenario after the first tick (in bytes per vertex). */
+    private static final double MAX_BYTES_PER_VERTEX =
+            Double.parseDouble(System.getProperty("footprint.maxBytesPerVertex", "1500"));
+
+    /** Maximum time from the start of the construction until the end of the first tick (in us per vertex). */
+    private static final double MAX_STARTUP_PER_VERTEX =
+            Double.parseDouble(System.getProperty("footprint.maxStartupPerVertex", "150"));
+
+    /** Maximum exponent of the startup time growth between the two largest sizes (1.0 is linear). */
+    private static final double MAX_SCALING_EXPONENT =
+            Double.parseDouble(System.getProperty("footprint.maxScalingExponent", "1.3"));
+
+    /** Objects that must remain reachable while the heap is measured. */
+    private static final List<Object> retained = new ArrayList<Object>();
+
+
+    /** Measurements of one scenario size. Times are in milliseconds and the minimum of all repetitions. */
+    public static class Footprint {
+
+        private int vms;
+        private int queriesPerVm;
+
+        private double queryTime = Double.MAX_VALUE;
+        private double placementTime = Double.MAX_VALUE;
+        private double executorTime = Double.MAX_VALUE;
+        private double cloudletTime = Double.MAX_VALUE;
+        private double firstTickTime = Double.MAX_VALUE;
+        private double startupTime = Double.MAX_VALUE;
+
+        private long queryHeap;
+        private long scenarioHeap;
+        private long tickHeap;
+
+        public Footprint(int vms, int queriesPerVm) {
+            this.vms = vms;
+            this.queriesPerVm = queriesPerVm;
+        }
+
+        public int getQueries() {
+            return vms * queriesPerVm;
+        }
+
+        public int getVertices() {
+            return getQueries() * VERTICES_PER_QUERY;
+        }
+
+        public double getStartupTime() {
+            return startupTime;
+        }
+
+        /** Heap retained by the queries only, before they are placed (in bytes per query). */
+        public double getBytesPerQuery() {
+            return (double) queryHeap / getQueries();
+        }
+
+        /** Heap retained by the complete scenario before the first tick (in bytes per vertex). */
+        public double getBytesPerVertex() {
+            return (double) scenarioHeap / getVertices();
+        }
+
+        /** Heap retained by the complete scenario after the first tick (in bytes per vertex). */
+        public double getTickBytesPerVertex() {
+            return (double) tickHeap / getVertices();
+        }
+
+        /** Startup time normalized by the number of vertices (in us per vertex). */
+        public double getStartupPerVertex() {
+            return (startupTime * 1000) / getVertices();
+        }
+
+        public static String csvHeader() {
+            return "vms,queriesPerVm,queries,vertices,queryMs,placementMs,executorMs,cloudletMs,firstTickMs," +
+                    "startupMs,startupUsPerVertex,bytesPerQuery,bytesPerVertex,tickBytesPerVertex";
+        }
+
+        public String toCsv() {
+            return String.format("%d,%d,%d,%d,%.3f,%.3f,%.3f,%.3f,%.3f,%.3f,%.3f,%.1f,%.1f,%.1f", vms, queriesPerVm,
+                    getQueries(), getVertices(), queryTime, placementTime, executorTime, cloudletTime, firstTickTime,
+                    startupTime, getStartupPerVertex(), getBytesPerQuery(), getBytesPerVertex(),
+                    getTickBytesPerVertex());
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%5d %6d %8d %10.1f %10.1f %10.1f %10.1f %10.1f %10.1f %10.2f %10.1f %10.1f %10.1f",
+                    vms, queriesPerVm, getVertices(), queryTime, placementTime, executorTime, cloudletTime,
+                    firstTickTime, startupTime, getStartupPerVertex(), getBytesPerQuery(), getBytesPerVertex(),
+                    getTickBytesPerVertex());
+        }
+    }
+
+
+    /**
+     * Builds and ticks a scenario of the informed size a number of times.
+     * @param vms Number of VMs.
+     * @param queriesPerVm Number of queries on each VM.
+     * @param repetitions Number of times the scenario is built.
+     * @return the measurements.
+     */
+    public static Footprint measure(int vms, int queriesPerVm, int repetitions) {
+        Footprint footprint = new Footprint(vms, queriesPerVm);
+        for (int r = 0; r < repetitions; r++) {
+            // each repetition runs in its own frame, so that no local variable keeps the previous scenario alive
+            measureOnce(footprint);
+            retained.clear();
+        }
+        return footprint;
+    }
+
+    private static void measureOnce(Footprint footprint) {
+        int vms = footprint.vms;
+        long baseline = usedHeap();
+
+        long start = System.nanoTime();
+        List<Set<Query>> queries = new ArrayList<Set<Query>>();
+        for (int i = 1; i <= vms; i++) {
+            queries.add(createQueries(i, footprint.queriesPerVm));
+        }
+        long queriesBuilt = System.nanoTime();
+
+        // the collections are not included in the startup time
+        retained.add(queries);
+        footprint.queryHeap = usedHeap() - baseline;
+
+        long placementStart = System.nanoTime();
+        List<Placement> placements = new ArrayList<Placement>();
+        for (int i = 1; i <= vms; i++) {
+            placements.add(Placement.withQueries(queries.get(i - 1), i));
+        }
+        long placementsBuilt = System.nanoTime();
+
+        List<PlacementExecutor> executors = new ArrayList<PlacementExecutor>();
+        for (int i = 1; i <= vms; i++) {
+            executors.add(PlacementExecutor.apply("cl" + i, placements.get(i - 1),
+                    DynOpScheduleStrategy.apply(UniformAllocationStrategy.apply()), 1));
+        }
+        long executorsBuilt = System.nanoTime();
+
+        List<CepQueryCloudlet> cloudlets = new ArrayList<CepQueryCloudlet>();
+        for (int i = 1; i <= vms; i++) {
+            cloudlets.add(new CepQueryCloudlet(i, executors.get(i - 1), false));
+        }
+        long cloudletsBuilt = System.nanoTime();
+
+        retained.add(cloudlets);
+        placements = null;
+        executors = null;
+
+        footprint.scenarioHeap = usedHeap() - baseline;
+
+        long tickStart = System.nanoTime();
+        long instructions = (long) (MIPS * 1E6 * SIM_INTERVAL);
+        for (CepQueryCloudlet cloudlet : cloudlets) {
+            cloudlet.updateQuery(instructions, SIM_INTERVAL, 0.0, MIPS);
+        }
+        long tickEnd = System.nanoTime();
+
+        footprint.tickHeap = usedHeap() - baseline;
+
+        footprint.queryTime = Math.min(footprint.queryTime, (queriesBuilt - start) / 1E6);
+        footprint.placementTime = Math.min(footprint.placementTime, (placementsBuilt - placementStart) / 1E6);
+        footprint.executorTime = Math.min(footprint.executorTime, (executorsBuilt - placementsBuilt) / 1E6);
+        footprint.cloudletTime = Math.min(footprint.cloudletTime, (cloudletsBuilt - executorsBuilt) / 1E6);
+        footprint.firstTickTime = Math.min(footprint.firstTickTime, (tickEnd - tickStart) / 1E6);
+        footprint.startupTime = Math.min(footprint.startupTime,
+                ((queriesBuilt - start) + (cloudletsBuilt - placementStart) + (tickEnd - tickStart)) / 1E6);
+    }
+
+    private static Set<Query> createQueries(int vm, int queriesPerVm) {
+        Set<Query> queries = new HashSet<Query>();
+        for (int j = 1; j <= queriesPerVm; j++) {
+            int id = ((vm - 1) * queriesPerVm) + j;
+
+            EventProducer p = new EventProducer("spout" + id, 1000, new UniformGenerator(NUM_SENSORS * 10), true);
+            Operator outlierDetector = new Operator("outlierDetector" + id, 18000, 2048);
+            Operator average = WindowedOperator.apply("average" + id, 18000, 15000, 15000,
+                    WindowedOperator.constant(NUM_SENSORS), 2048);
+            Operator db = new Operator("db" + id, 11000000, 2048);
+            EventConsumer c = new EventConsumer("end" + id, 1000, 2048);
+
+            Set<Vertex> vertices = new HashSet<Vertex>();
+            vertices.add(p);
+            vertices.add(outlierDetector);
+            vertices.add(average);
+            vertices.add(db);
+            vertices.add(c);
+
+            Set<Tuple3<OutputVertex, InputVertex, Object>> edges = new HashSet<Tuple3<OutputVertex, InputVertex, Object>>();
+            edges.add(new Tuple3<OutputVertex, InputVertex, Object>(p, outlierDetector, 1.0));
+            edges.add(new Tuple3<OutputVertex, InputVertex, Object>(outlierDetector, average, 0.95));
+            edges.add(new Tuple3<OutputVertex, InputVertex, Object>(average, db, 1.0));
+            edges.add(new Tuple3<OutputVertex, InputVertex, Object>(db, c, 1.0));
+
+            queries.add(Query.apply("testavg" + id, vertices, edges, DURATION));
+        }
+        return queries;
+    }
+
+    /**
+     * Heap used after forcing full collections until it stops decreasing. The usage is read from the state of the
+     * memory pools right after the collections, as the current usage includes the allocation buffers of the threads.
+     */
+    private static long usedHeap() {
+        long used = Long.MAX_VALUE;
+        for (int i = 0; i < 10; i++) {
+            System.gc();
+            long current = 0;
+            for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+                if ((pool.getType() == MemoryType.HEAP) && (pool.getCollectionUsage() != null)) {
+                    current += pool.getCollectionUsage().getUsed();
+                }
+            }
+            if (current >= used) break;
+            used = current;
+        }
+        return used;
+    }
+
+    /** Checks the regression thresholds against the largest sizes, returning the violations. */
+    private static List<String> check(List<Footprint> footprints) {
+        List<String> violations = new ArrayList<String>();
+        Footprint largest = footprints.get(footprints.size() - 1);
+
+        if (largest.getTickBytesPerVertex() > MAX_BYTES_PER_VERTEX) {
+            violations.add(String.format("Heap per vertex [%.1f] exceeds [%.1f] bytes",
+                    largest.getTickBytesPerVertex(), MAX_BYTES_PER_VERTEX));
+        }
+        if (largest.getStartupPerVertex() > MAX_STARTUP_PER_VERTEX) {
+            violations.add(String.format("Startup time per vertex [%.2f] exceeds [%.2f] us",
+                    largest.getStartupPerVertex(), MAX_STARTUP_PER_VERTEX));
+        }
+        if (footprints.size() > 1) {
+            Footprint previous = footprints.get(footprints.size() - 2);
+            double exponent = Math.log(largest.getStartupTime() / previous.getStartupTime()) /
+                    Math.log((double) largest.getVertices() / previous.getVertices());
+            if (exponent > MAX_SCALING_EXPONENT) {
+                violations.add(String.format("Startup time scaling exponent [%.2f] exceeds [%.2f]",
+                        exponent, MAX_SCALING_EXPONENT));
+            }
+        }
+        return violations;
+    }
+
+
+    public static void main(String[] args) throws IOException {
+        String file = (args.length > 0) ? args[0] : "footprint.csv";
+        String sizes = (args.length > 1) ? args[1] : DEFAULT_SIZES;
+
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            if (collector.getName().equals("MarkSweepCompact")) {
+                System.out.println("WARNING: the heap is not correctly measured with the serial collector");
+            }
+        }
+
+        List<Footprint> footprints = new ArrayList<Footprint>();
+        System.out.println(String.format("%5s %6s %8s %10s %10s %10s %10s %10s %10s %10s %10s %10s %10s",
+                "vms", "q/vm", "vertices", "query ms", "place ms", "exec ms", "cloud ms", "tick ms", "startup",
+                "us/vertex", "B/query", "B/vertex", "B/v tick"));
+        for (String size : sizes.split(",")) {
+            String[] dimensions = size.trim().split("x");
+            Footprint footprint = measure(Integer.parseInt(dimensions[0]), Integer.parseInt(dimensions[1]),
+                    REPETITIONS);
+            footprints.add(footprint);
+            System.out.println(footprint);
+        }
+
+        PrintWriter writer = new PrintWriter(new FileWriter(file));
+        try {
+            writer.println(Footprint.csvHeader());
+            for (Footprint footprint : footprints) {
+                writer.println(footprint.toCsv());
+            }
+        } finally {
+            writer.close();
+        }
+
+        List<String> violations = check(footprints);
+        for (String violation : violations) {
+            System.out.println("REGRESSION: " + violation);
+        }
+        if (!violations.isEmpty()) {
+            System.exit(1);
+        }
+    }
+
+}
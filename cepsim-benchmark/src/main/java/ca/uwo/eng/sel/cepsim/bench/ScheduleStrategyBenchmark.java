@@ -0,0 +1,318 @@
+package ca.uwo.eng.sel.cepsim.bench;
+
+import ca.uwo.eng.sel.cepsim.PlacementExecutor;
+import ca.uwo.eng.sel.cepsim.event.EventSet;
+import ca.uwo.eng.sel.cepsim.gen.UniformGenerator;
+import ca.uwo.eng.sel.cepsim.metric.LatencyMetric;
+import ca.uwo.eng.sel.cepsim.metric.LatencyThroughputCalculator;
+import ca.uwo.eng.sel.cepsim.metric.ThroughputMetric;
+import ca.uwo.eng.sel.cepsim.placement.Placement;
+import ca.uwo.eng.sel.cepsim.query.EventConsumer;
+import ca.uwo.eng.sel.cepsim.query.EventProducer;
+import ca.uwo.eng.sel.cepsim.query.InputVertex;
+import ca.uwo.eng.sel.cepsim.query.Operator;
+import ca.uwo.eng.sel.cepsim.query.OutputVertex;
+import ca.uwo.eng.sel.cepsim.query.Query;
+import ca.uwo.eng.sel.cepsim.query.Vertex;
+import ca.uwo.eng.sel.cepsim.sched.DefaultOpScheduleStrategy;
+import ca.uwo.eng.sel.cepsim.sched.DynOpScheduleStrategy;
+import ca.uwo.eng.sel.cepsim.sched.OpScheduleStrategy;
+import ca.uwo.eng.sel.cepsim.sched.alloc.AllocationStrategy;
+import ca.uwo.eng.sel.cepsim.sched.alloc.UniformAllocationStrategy;
+import ca.uwo.eng.sel.cepsim.sched.alloc.WeightedAllocationStrategy;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import scala.Tuple3;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the combinations of scheduling and allocation strategies on synthetic placements. The benchmark
+ * measures the wall-clock time of one placement iteration, which includes the scheduling and the execution of
+ * the scheduled actions, as the dynamic strategy decides the next vertex based on the execution of the previous
+ * ones. The main method also simulates each combination for a fixed period, and prints a single report with
+ * the cost and the resulting latency and throughput of the consumers.
+ *
+ * The placements are generated as chains, fan-outs (one branch per consumer) or sequences of diamonds, and the
+ * operators have different instructions per event, so that the uniform and weighted allocations differ. The
+ * pending actions parameter is the number of event sets received from a remote producer at each iteration.
+ */
+@State(Scope.Thread)
+public class ScheduleStrategyBenchmark {
+
+    public enum Shape { CHAIN, FANOUT, DIAMOND }
+
+    /** Capacity of the simulated processor (in MIPS). */
+    private static final double CAPACITY = 2500;
+
+    /** Length of each iteration (in ms). */
+    private static final double TICK = 10.0;
+
+    /** Fraction of the capacity used by the producer events. */
+    private static final double UTILIZATION = 0.7;
+
+    /** Number of iterations executed before the measurements, so that the queues reach a steady state. */
+    private static final int WARMUP_TICKS = 100;
+
+    /** Number of iterations simulated to obtain the latency and throughput. */
+    private static final int FIDELITY_TICKS = 6000;
+
+    @Param({"DEFAULT", "DYNAMIC"})
+    public String sched;
+
+    @Param({"UNIFORM", "WEIGHTED"})
+    public String alloc;
+
+    @Param({"CHAIN", "FANOUT", "DIAMOND"})
+    public String shape;
+
+    @Param({"8", "32"})
+    public int vertices;
+
+    @Param({"0", "4"})
+    public int pendingActions;
+
+    private Scenario scenario;
+
+
+    /** Synthetic placement and the executor that runs it. */
+    public static class Scenario {
+
+        private PlacementExecutor executor;
+        private EventProducer remote;
+        private InputVertex entry;
+        private List<EventConsumer> consumers = new ArrayList<EventConsumer>();
+        private Map<Vertex, Double> flow = new HashMap<Vertex, Double>();
+        private Set<Vertex> vertexSet = new HashSet<Vertex>();
+        private Set<Tuple3<OutputVertex, InputVertex, Object>> edges =
+                new HashSet<Tuple3<OutputVertex, InputVertex, Object>>();
+
+        private int pendingActions;
+        private double remoteRate;
+        private int tick = 0;
+
+        /**
+         * Builds a synthetic placement.
+         * @param sched Scheduling strategy (DEFAULT or DYNAMIC).
+         * @param alloc Allocation strategy (UNIFORM or WEIGHTED).
+         * @param shape Shape of the query graph.
+         * @param vertices Approximate number of vertices, including the producer.
+         * @param pendingActions Number of event sets received from the remote producer at each iteration.
+         * @param metrics Indicates if the latency and throughput are calculated.
+         */
+        public Scenario(String sched, String alloc, Shape shape, int vertices, int pendingActions,
+                        boolean metrics) {
+            this.pendingActions = pendingActions;
+
+            // the first operator receives all events from the producer
+            Operator first = operator(0);
+            flow.put(first, 1.0);
+
+            switch (shape) {
+                case CHAIN:
+                    OutputVertex last = first;
+                    for (int i = 1; i < vertices - 2; i++) {
+                        Operator op = operator(i);
+                        edge(last, op);
+                        last = op;
+                    }
+                    edge(last, consumer(0));
+                    break;
+
+                case FANOUT:
+                    for (int i = 1; i <= (vertices - 2) / 2; i++) {
+                        Operator op = operator(i);
+                        edge(first, op);
+                        edge(op, consumer(i));
+                    }
+                    break;
+
+                case DIAMOND:
+                    OutputVertex split = first;
+                    for (int i = 0; i < (vertices - 3) / 3; i++) {
+                        Operator a = operator(3 * i + 1);
+                        Operator b = operator(3 * i + 2);
+                        Operator join = operator(3 * i + 3);
+                        edge(split, a);
+                        edge(split, b);
+                        // each branch sends half of the events, so the flow is the same in all diamonds
+                        edge(a, join, 0.5);
+                        edge(b, join, 0.5);
+                        split = join;
+                    }
+                    edge(split, consumer(0));
+                    break;
+            }
+
+            // the remote events are received by a dedicated operator, because the placement only schedules
+            // vertices whose predecessors are either all local or all remote
+            Operator ingress = new Operator("ingress", 1000, 0);
+            add(ingress);
+            edge(ingress, first);
+            entry = ingress;
+
+            // the producer rate is chosen so that the utilization is the same for all shapes
+            double demand = 1000;
+            for (Map.Entry<Vertex, Double> e : flow.entrySet()) {
+                demand += e.getValue() * e.getKey().ipe();
+            }
+            double rate = UTILIZATION * CAPACITY * 1E6 / demand;
+            remoteRate = (pendingActions > 0) ? 0.1 * rate : 0.0;
+
+            EventProducer producer = new EventProducer("p", 1000, new UniformGenerator(rate), false);
+            remote = new EventProducer("remote", 1000, new UniformGenerator(remoteRate), false);
+            vertexSet.add(producer);
+            vertexSet.add(remote);
+            edges.add(new Tuple3<OutputVertex, InputVertex, Object>(producer, first, 1.0));
+            edges.add(new Tuple3<OutputVertex, InputVertex, Object>(remote, ingress, 1.0));
+            Query.apply("q", vertexSet, edges, Long.MAX_VALUE);
+
+            Set<Vertex> placementVertices = new HashSet<Vertex>(vertexSet);
+            placementVertices.remove(remote);
+            Placement placement = Placement.apply(placementVertices, 1);
+
+            executor = (metrics) ?
+                    PlacementExecutor.apply("cl1", placement, strategy(sched, alloc), 1,
+                            LatencyThroughputCalculator.apply(placement)) :
+                    PlacementExecutor.apply("cl1", placement, strategy(sched, alloc), 1);
+            executor.init(0.0);
+        }
+
+        private static OpScheduleStrategy strategy(String sched, String alloc) {
+            AllocationStrategy allocStrategy = ("WEIGHTED".equals(alloc)) ?
+                    WeightedAllocationStrategy.apply() : UniformAllocationStrategy.apply();
+            return ("DYNAMIC".equals(sched)) ?
+                    DynOpScheduleStrategy.apply(allocStrategy) : DefaultOpScheduleStrategy.apply(allocStrategy);
+        }
+
+        private Operator operator(int i) {
+            // operators with different costs, so that the allocation strategies produce different results
+            Operator op = new Operator("op" + i, 1000 * (1 + (i % 4)), 0);
+            add(op);
+            return op;
+        }
+
+        private EventConsumer consumer(int i) {
+            EventConsumer c = new EventConsumer("c" + i, 1000, 0);
+            consumers.add(c);
+            add(c);
+            return c;
+        }
+
+        private void add(Vertex v) {
+            vertexSet.add(v);
+            flow.put(v, 0.0);
+        }
+
+        private void edge(OutputVertex from, InputVertex to) {
+            edge(from, to, 1.0);
+        }
+
+        private void edge(OutputVertex from, InputVertex to, double selectivity) {
+            // the edges are created in topological order, so the flow of the origin is already known
+            edges.add(new Tuple3<OutputVertex, InputVertex, Object>(from, to, selectivity));
+            flow.put(to, flow.get(to) + selectivity * flow.get(from));
+        }
+
+        /** Executes the next iteration of the placement. */
+        public void tick() {
+            double start = tick * TICK;
+            for (int i = 0; i < pendingActions; i++) {
+                double at = start + (i * TICK / pendingActions);
+                double size = remoteRate * (TICK / 1000.0) / pendingActions;
+                executor.enqueue(at, remote, entry,
+                        new EventSet(size, at, 0.0, Collections.<EventProducer, Object>singletonMap(remote, size)));
+            }
+            executor.run(CAPACITY * 1E6 * TICK / 1000.0, start, CAPACITY);
+            tick++;
+        }
+
+        /** Average latency of the consumers (in ms). */
+        public double latency() {
+            double sum = 0.0;
+            for (EventConsumer c : consumers) {
+                sum += executor.metric(LatencyMetric.ID(), c);
+            }
+            return sum / consumers.size();
+        }
+
+        /** Total throughput of the consumers (in events per second). */
+        public double throughput() {
+            double sum = 0.0;
+            for (EventConsumer c : consumers) {
+                sum += executor.metric(ThroughputMetric.ID(), c);
+            }
+            return sum;
+        }
+    }
+
+
+    @Setup
+    public void setup() {
+        scenario = new Scenario(sched, alloc, Shape.valueOf(shape), vertices, pendingActions, false);
+        for (int i = 0; i < WARMUP_TICKS; i++) {
+            scenario.tick();
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    @Warmup(iterations = 5, time = 1)
+    @Measurement(iterations = 5, time = 1)
+    @Fork(1)
+    public void iteration() {
+        scenario.tick();
+    }
+
+
+    /**
+     * Runs the benchmark and prints the report. The arguments are parsed as JMH command line options, so
+     * that the parameters and iterations can be restricted.
+     */
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        Options opt = new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .include(ScheduleStrategyBenchmark.class.getSimpleName())
+                .build();
+
+        Collection<RunResult> results = new Runner(opt).run();
+
+        System.out.println();
+        System.out.println(String.format("%-8s %-9s %-8s %8s %8s %14s %14s %14s", "sched", "alloc", "shape",
+                "vertices", "pending", "cost (us/it)", "latency (ms)", "throughput"));
+        for (RunResult result : results) {
+            Map<String, String> params = new LinkedHashMap<String, String>();
+            for (String key : result.getParams().getParamsKeys()) {
+                params.put(key, result.getParams().getParam(key));
+            }
+
+            Scenario scenario = new Scenario(params.get("sched"), params.get("alloc"),
+                    Shape.valueOf(params.get("shape")), Integer.parseInt(params.get("vertices")),
+                    Integer.parseInt(params.get("pendingActions")), true);
+            for (int i = 0; i < FIDELITY_TICKS; i++) {
+                scenario.tick();
+            }
+
+            System.out.println(String.format("%-8s %-9s %-8s %8s %8s %14.3f %14.3f %14.3f", params.get("sched"),
+                    params.get("alloc"), params.get("shape"), params.get("vertices"), params.get("pendingActions"),
+                    result.getPrimaryResult().getScore(), scenario.latency(), scenario.throughput()));
+        }
+    }
+
+}
@@ -0,0 +1,116 @@
+package ca.uwo.eng.sel.cepsim.bench;
+
+import ca.uwo.eng.sel.cepsim.event.EventSet;
+import ca.uwo.eng.sel.cepsim.gen.UniformGenerator;
+import ca.uwo.eng.sel.cepsim.query.EventConsumer;
+import ca.uwo.eng.sel.cepsim.query.EventProducer;
+import ca.uwo.eng.sel.cepsim.query.Operator;
+import ca.uwo.eng.sel.cepsim.query.Vertex;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import scala.collection.JavaConversions;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Microbenchmarks of the input and output queues of a vertex. The operator has one producer as predecessor and
+ * one bounded consumer as successor for each unit of fan-in, and each queue holds a number of event sets equal
+ * to the queue depth. The benchmarks that modify the queues restore them in the same invocation.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(3)
+public class VertexQueueBenchmark {
+
+    private static final double SET_SIZE = 10.0;
+
+    @Param({"1", "4", "16"})
+    public int fanIn;
+
+    @Param({"1", "10", "100"})
+    public int queueDepth;
+
+    private Operator operator;
+    private List<EventProducer> producers;
+    private List<EventConsumer> consumers;
+    private EventSet eventSet;
+
+
+    @Setup
+    public void setup() {
+        operator = new Operator("f", 1000, 0);
+        producers = new ArrayList<EventProducer>();
+        consumers = new ArrayList<EventConsumer>();
+
+        for (int i = 0; i < fanIn; i++) {
+            EventProducer p = new EventProducer("p" + i, 1000, new UniformGenerator(1000), false);
+            EventConsumer c = new EventConsumer("c" + i, 1000, (int) (2 * SET_SIZE * (queueDepth + 1)));
+            producers.add(p);
+            consumers.add(c);
+
+            operator.addInputQueue(p);
+            operator.addOutputQueue(c, 1.0);
+            for (int j = 0; j < queueDepth; j++) {
+                operator.enqueueIntoInput(p, eventSet(p, 100.0 + j));
+            }
+        }
+
+        for (int j = 0; j < queueDepth; j++) {
+            operator.sendToAllOutputs(eventSet(producers.get(0), 100.0 + j));
+        }
+        eventSet = eventSet(producers.get(0), 200.0);
+    }
+
+    private static EventSet eventSet(EventProducer p, double ts) {
+        return new EventSet(SET_SIZE, ts, 5.0, Collections.<EventProducer, Object>singletonMap(p, SET_SIZE));
+    }
+
+
+    @Benchmark
+    public scala.collection.immutable.Map<Vertex, EventSet> retrieveFromInput() {
+        // retrieves one event set from each input queue, and enqueues them back
+        scala.collection.immutable.Map<Vertex, EventSet> retrieved =
+                operator.retrieveFromInput(fanIn * SET_SIZE * operator.ipe(), Double.MAX_VALUE);
+        for (Map.Entry<Vertex, EventSet> entry : JavaConversions.mapAsJavaMap(retrieved).entrySet()) {
+            operator.enqueueIntoInput(entry.getKey(), entry.getValue());
+        }
+        return retrieved;
+    }
+
+    @Benchmark
+    public double maximumNumberOfEvents() {
+        return operator.maximumNumberOfEvents();
+    }
+
+    @Benchmark
+    public double sendToAllOutputs() {
+        operator.sendToAllOutputs(eventSet);
+        double total = 0.0;
+        for (EventConsumer c : consumers) {
+            total += operator.dequeueFromOutput(c, SET_SIZE).size();
+        }
+        return total;
+    }
+
+
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+                .include(VertexQueueBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build();
+
+        new Runner(opt).run();
+    }
+
+}
@@ -9,7 +9,10 @@ import ca.uwo.eng.sel.cepsim.query._
 import ca.uwo.eng.sel.cepsim.sched.OpScheduleStrategy._
 import ca.uwo.eng.sel.cepsim.sched.{EnqueueAction, Action, ExecuteAction, OpScheduleStrategy}
 
+import java.util.{Set => JavaSet}
+
 import scala.annotation.varargs
+import scala.collection.JavaConversions.asScalaSet
 import scala.collection.immutable.TreeSet
 import scala.collection.mutable.ListBuffer
 
@@ -33,11 +36,32 @@ object PlacementExecutor {
             networkInterface: NetworkInterface, calculator: MetricCalculator*) =
     new PlacementExecutor(id, placement, opSchedStrategy, iterations, networkInterface, calculator:_*)
 
+  /** Tolerance used when comparing simulation events from different iterations. */
+  private val Epsilon = 0.0001
+
+  /**
+    * Executed iteration that can be replayed when the placement is in steady state.
+    *
+    * @param start Iteration start time (in milliseconds).
+    * @param length Iteration duration (in milliseconds).
+    * @param instructions Number of instructions allocated to the iteration.
+    * @param capacity Processor capacity (in MIPS) used in the iteration.
+    * @param generated Simulation events generated by the producers.
+    * @param executed Simulation events resulting from the vertices execution.
+    * @param messages Messages sent to remote vertices (timestamp, origin, destination and event set).
+    * @param accumulations Events accumulated by the windowed vertices, by predecessor.
+    * @param used Number of instructions used by the vertices in the iteration.
+    */
+  private case class IterationTemplate(start: Double, length: Double, instructions: Double, capacity: Double,
+                                       generated: Seq[SimEvent], executed: Seq[SimEvent],
+                                       messages: Seq[(Double, OutputVertex, InputVertex, EventSet)],
+                                       accumulations: Seq[(WindowAccumulated, Map[Vertex, EventSet])], used: Double)
+
 }
 
-@varargs class PlacementExecutor(val id: String, val placement: Placement, opSchedStrategy: OpScheduleStrategy,
-                                 val iterations: Int, var networkInterface: NetworkInterface,
-                                 metricCalculators: MetricCalculator*) {
+@varargs class PlacementExecutor(val id: String, val placement: Placement, var opSchedStrategy: OpScheduleStrategy,
+                                 val iterations: Int, @transient var networkInterface: NetworkInterface,
+                                 metricCalculators: MetricCalculator*) extends Serializable {
 
   // --------------- Metric manipulation
 
@@ -60,9 +84,11 @@ object PlacementExecutor {
   // register all metrics
   metricCalculators.foreach(registerCalculator(_))
 
+  def calculator(id: String) = calculatorsMap(id)
   def metric(id: String, v: Vertex) = calculatorsMap(id).consolidate(id, v)
   def metrics(id: String, v: Vertex) = calculatorsMap(id).consolidateByMinute(id ,v)
   def metricList(id: String, v: Vertex) = calculatorsMap(id).results(id, v)
+  def metricList(id: String, v: Vertex, from: Int) = calculatorsMap(id).results(id, v, from)
 
   // ---------------------------------------
 
@@ -70,6 +96,76 @@ object PlacementExecutor {
   var lastExecution = 0.0
   var pendingActions = TreeSet.empty[Action]
 
+  // --------------- Credit-based flow control
+
+  /** Credits received from remote vertices (timestamp, origin, destination and credits) not applied yet. */
+  var pendingCredits = List.empty[(Double, InputVertex, OutputVertex, Double)]
+
+  /** Events received from remote predecessors of bounded vertices that have not been returned as credits. */
+  private var outstanding = Map.empty[(OutputVertex, InputVertex), Double] withDefaultValue(0.0)
+
+  /** Indicates if credits have been used in the current iteration. */
+  private var iterationCredits = false
+
+  // --------------- Event-driven execution
+
+  /**
+    * Flag that enables the event-driven mode. When enabled, the executor skips all iterations that finish
+    * before the next timestamp at which a vertex is ready or an event / credit is received from the network.
+    */
+  var eventDriven = false
+
+  /** Next timestamp (in milliseconds) at which the placement has work to do. Updated at the end of each run. */
+  var nextEventTime = 0.0
+
+  // --------------- Fast-forward
+
+  /**
+    * Flag that enables fast-forwarding. When enabled, the executor skips iterations on which the placement is
+    * idle, and replays the last executed iteration (shifted in time) when the placement is in steady state. A
+    * placement is in steady state when an iteration starts and ends with all queues empty and the next iteration
+    * generates the same events using the same number of instructions.
+    *
+    * Replayed iterations are still processed one at a time: the events are generated and the metric calculators
+    * are updated at every iteration, so that the results are identical to the normal execution. Only the cost of
+    * the scheduling strategy and of the vertices execution is saved.
+    */
+  var fastForward = false
+
+  /** Total simulated time (in milliseconds) that has been fast-forwarded. */
+  var fastForwardedTime = 0.0
+
+  /** Last executed iteration that can be replayed. */
+  private var template: Option[PlacementExecutor.IterationTemplate] = None
+
+  /** Messages sent to remote vertices during the current iteration. */
+  private val iterationMessages = ListBuffer.empty[(Double, OutputVertex, InputVertex, EventSet)]
+
+  /** Events accumulated by the windowed vertices during the current iteration. */
+  private val iterationAccumulations = ListBuffer.empty[(WindowAccumulated, Map[Vertex, EventSet])]
+
+  // --------------- Memory
+
+  /** Memory available to the placement vertices (in bytes). */
+  var memoryLimit = Double.MaxValue
+
+  /**
+    * Number of instructions spent at each iteration for every byte of state that exceeds the memory limit. It
+    * models the cost of garbage collection or of spilling the state to disk. The penalty is disabled if it is 0.
+    */
+  var memoryPenalty = 0.0
+
+  /** Total number of instructions spent because the memory limit has been exceeded. */
+  var penaltyInstructions = 0.0
+
+  // --------------- Utilization
+
+  /** Total number of instructions made available to the executor. */
+  var totalInstructions = 0.0
+
+  /** Total number of instructions used by the vertices to process events. */
+  var usedInstructions = 0.0
+
 
 
   /**
@@ -98,6 +194,65 @@ object PlacementExecutor {
     pendingActions += EnqueueAction(v, orig, receivedTime, es)
   }
 
+  /**
+    * Enqueue credits received from a remote bounded vertex. The credits are applied to the limits of the target
+    * vertex at the first iteration that finishes after the received time.
+    * @param receivedTime Timestamp at which the credits have been received.
+    * @param orig Bounded vertex that has sent the credits.
+    * @param v Vertex to which the credits are sent.
+    * @param credits Number of events that can be sent to the bounded vertex.
+    */
+  def enqueueCredits(receivedTime: Double, orig: InputVertex, v: OutputVertex, credits: Double): Unit = {
+    if (!placement.vertices.contains(v))
+      throw new IllegalStateException("This cloudlet does not contain the target vertex")
+
+    pendingCredits = pendingCredits :+ ((receivedTime, orig, v, credits))
+  }
+
+
+  /**
+    * Add a query to the placement while it is being executed. The new vertices are initialized at the informed
+    * time, and the metric calculators are notified about them.
+    * @param q Query to be added.
+    * @param vertices Vertices of the query that are assigned to this placement.
+    * @param time Time at which the query is added (in milliseconds).
+    */
+  def addQuery(q: Query, vertices: Set[Vertex], time: Double): Unit = {
+    val added = vertices -- placement.vertices
+    placement.addQuery(q, vertices)
+    added.foreach(_.init(time))
+    calculators.foreach(_.queryAdded(q, added))
+
+    template = None
+    nextEventTime = nextEventTime.min(time)
+  }
+
+  def addQuery(q: Query, vertices: JavaSet[Vertex], time: Double): Unit =
+    addQuery(q, asScalaSet(vertices).toSet, time)
+
+  /**
+    * Remove a query from the placement while it is being executed. Events and credits that have been received
+    * by the removed vertices, or exchanged through the edges of the query, and not processed yet are discarded.
+    * @param q Query to be removed.
+    * @return Vertices that have been removed from the placement.
+    */
+  def removeQuery(q: Query): Set[Vertex] = {
+    val placed = placement.queries.contains(q)
+    val removed = placement.removeQuery(q)
+    if (!removed.isEmpty) {
+      pendingActions = pendingActions.filter((action) => !removed.contains(action.v))
+    }
+
+    // calculators are notified even if all vertices are shared, as the query paths no longer exist
+    if (placed) calculators.foreach(_.queryRemoved(q, removed))
+
+    // credits and outstanding events of the edges dropped from the shared vertices are discarded as well
+    pendingCredits = pendingCredits.filter((credit) => credit._3.successors.contains(credit._2))
+    outstanding = outstanding.filter((entry) => entry._1._1.successors.contains(entry._1._2))
+
+    template = None
+    removed
+  }
 
   /**
    * Run the placement for the specified number of instructions.
@@ -111,6 +266,7 @@ object PlacementExecutor {
     var simEvents = ListBuffer.empty[SimEvent]
 
     if (instructions > 0) {
+      totalInstructions += instructions
 
       val instructionsPerIteration = Math.floor(instructions / iterations).toLong
       var iterationStartTime = startTime
@@ -122,7 +278,10 @@ object PlacementExecutor {
         // last iteration uses all remaining instructions
         val availableInstructions = if (i == iterations) instructions - ((i - 1) * instructionsPerIteration)
                                     else instructionsPerIteration
+        val iterationEndTime = iterationStartTime + instructionsInMs(availableInstructions, capacity)
 
+        // idleness must be checked before the new events are generated
+        val idle = fastForward && placement.vertices.forall(_.isIdle(iterationEndTime))
 
         // generate the events before calling the scheduling strategy
         // in theory this enables more complex strategies that consider the number of
@@ -136,19 +295,60 @@ object PlacementExecutor {
         })
         lastExecution = iterationStartTime
 
+        // in the event-driven mode, iterations that finish before the placement is ready are skipped
+        val ready = !eventDriven || (nextReadyTime(iterationStartTime) < iterationEndTime)
+
         // Vertices execution
-        val iterationEndTime = iterationStartTime + instructionsInMs(availableInstructions, capacity)
         val (p1, p2) = pendingActions.partition(_.to < iterationEndTime)
         pendingActions = p2
 
-        val verticesList = opSchedStrategy.allocate(availableInstructions, iterationStartTime, capacity, placement, p1)
-        var count = 0
-        verticesList.foreach { (elem) =>
-          elem match {
-            case executeAction: ExecuteAction => iterationSimEvents ++= execute(executeAction)
-            case enqueueAction: EnqueueAction => execute(enqueueAction)
+        val (c1, c2) = pendingCredits.partition(_._1 < iterationEndTime)
+        pendingCredits = c2
+        c1.foreach((credit) => credit._3.setLimit(credit._2, credit._3.limits(credit._2) + credit._4))
+        iterationCredits = c1.nonEmpty
+
+        val generated = iterationSimEvents.toList
+        if (!ready) {
+          // nothing happens until the next ready time
+
+        } else if (idle && p1.isEmpty && c1.isEmpty && generated.isEmpty) {
+          // nothing happens in this iteration
+          fastForwardedTime += iterationEndTime - iterationStartTime
+
+        } else if (idle && p1.isEmpty && c1.isEmpty && canReplay(generated, availableInstructions, capacity, iterationStartTime)) {
+          iterationSimEvents ++= replay(iterationStartTime, generated)
+          fastForwardedTime += iterationEndTime - iterationStartTime
+
+        } else {
+          iterationMessages.clear()
+          iterationAccumulations.clear()
+          val usedBefore = usedInstructions
+
+          // part of the instructions is lost when the state does not fit in memory
+          val penalty = memoryPenaltyInstructions(availableInstructions)
+          penaltyInstructions += penalty
+
+          val verticesList = opSchedStrategy.allocate(availableInstructions - penalty, iterationStartTime, capacity,
+            placement, p1)
+          var count = 0
+          verticesList.foreach { (elem) =>
+            elem match {
+              case executeAction: ExecuteAction => iterationSimEvents ++= execute(executeAction)
+              case enqueueAction: EnqueueAction => iterationSimEvents ++= execute(enqueueAction)
+            }
+            count += 1
           }
-          count += 1
+
+          // only iterations that started with all queues empty can be replayed. If the queues are
+          // also empty at the end, this is verified before the replay at the next iteration. Iterations
+          // that use credits cannot be replayed because the vertices limits are modified
+          val executed = iterationSimEvents.drop(generated.size).toList
+          template =
+            if (idle && p1.isEmpty && !iterationCredits && (penalty == 0) && isReplayable(executed))
+              Some(PlacementExecutor.IterationTemplate(iterationStartTime, iterationEndTime - iterationStartTime,
+                availableInstructions, capacity, generated, executed, iterationMessages.toList,
+                iterationAccumulations.toList, usedInstructions - usedBefore))
+            else None
         }
         iterationStartTime = iterationEndTime
 
@@ -158,13 +358,202 @@ object PlacementExecutor {
         history.log(iterationSimEvents)
         simEvents = simEvents ++ iterationSimEvents
       })
+
+      nextEventTime = nextReadyTime(iterationStartTime)
    }
 
     history
   }
 
-  private def execute(action: EnqueueAction) = {
-    action.v.enqueueIntoInput(action.fromVertex, action.es)
+  /**
+    * Obtains the next timestamp at which the placement has work to do. It is the earliest timestamp among
+    * the vertices ready times, and the events and credits received from the network.
+    * @param now Current timestamp (in milliseconds).
+    * @return The next timestamp at which the placement has work to do, or Double.MaxValue if it is idle
+    *         until new events are received.
+    */
+  def nextReadyTime(now: Double): Double = {
+    val vertices = placement.vertices.foldLeft(Double.MaxValue)((acc, v) => acc.min(v.nextReadyTime(now)))
+    val actions = pendingActions.foldLeft(Double.MaxValue)((acc, action) => acc.min(action.to))
+    val credits = pendingCredits.foldLeft(Double.MaxValue)((acc, credit) => acc.min(credit._1))
+
+    vertices.min(actions).min(credits)
+  }
+
+  /**
+    * Obtains the total number of events waiting in the placement. It includes the events in the vertices input
+    * queues and the events that the producers could not generate because their successors queues are full.
+    * @return Number of queued events.
+    */
+  def queuedEvents: Double = placement.vertices.foldLeft(0.0)((acc, v) => v match {
+    case iv: InputVertex => acc + iv.totalInputEvents
+    case prod: EventProducer => acc + prod.inputQueue + prod.generator.nonProcessed
+    case _ => acc
+  })
+
+  /**
+    * Obtains the total number of events consumed by the placement consumers since the simulation start.
+    * @return Number of consumed events.
+    */
+  def consumedEvents: Double = placement.vertices.foldLeft(0.0)((acc, v) => v match {
+    case cons: EventConsumer => acc + cons.outputQueue
+    case _ => acc
+  })
+
+  /**
+    * Obtains the next timestamp at which a window of a placement operator closes.
+    * @param now Current timestamp (in milliseconds).
+    * @return The next window boundary after now, or Double.MaxValue if there are no windowed operators.
+    */
+  def nextWindowBoundary(now: Double): Double = placement.vertices.foldLeft(Double.MaxValue)((acc, v) => v match {
+    case wo: WindowedOperator if wo.processAt >= now => acc.min(wo.processAt)
+    case wv: WindowedVertex if wv.windowBoundary >= now => acc.min(wv.windowBoundary)
+    case _ => acc
+  })
+
+  /**
+    * Obtains the memory used by the state of the placement vertices.
+    * @return memory used by the vertices (in bytes).
+    */
+  def stateSize: Double = placement.vertices.foldLeft(0.0)((acc, v) => acc + v.stateSize)
+
+  /**
+    * Calculates the number of instructions lost in an iteration because the state exceeds the memory limit.
+    * @param instructions Number of instructions available to the iteration.
+    * @return number of lost instructions.
+    */
+  private def memoryPenaltyInstructions(instructions: Double): Double =
+    if ((memoryPenalty == 0) || (memoryLimit == Double.MaxValue)) 0.0
+    else ((stateSize - memoryLimit).max(0.0) * memoryPenalty).min(instructions)
+
+  /**
+    * Checks if the last executed iteration can be replayed as the iteration starting at the informed time.
+    * @param generated Simulation events generated at the beginning of the iteration.
+    * @param instructions Number of instructions allocated to the iteration.
+    * @param capacity The total processor capacity (in MIPS) that is allocated to this cloudlet.
+    * @param startTime Iteration start time (in milliseconds).
+    * @return true if the last executed iteration can be replayed.
+    */
+  private def canReplay(generated: Seq[SimEvent], instructions: Double, capacity: Double,
+                        startTime: Double): Boolean = template match {
+    case Some(t) =>
+      val shift = startTime - t.start
+      (t.instructions == instructions) && (t.capacity == capacity) &&
+        (Math.abs(shift - t.length) < PlacementExecutor.Epsilon) &&
+        (t.generated.length == generated.length) &&
+        t.generated.zip(generated).forall((pair) => matches(pair._1, pair._2, shift))
+
+    case None => false
+  }
+
+  /**
+    * Checks if the simulation events of an iteration can be replayed. Iterations in which a window has closed
+    * cannot be replayed because the windows close at different iterations - the accumulations are replayed
+    * by the windowed vertices, which close their windows if needed. Join operators cannot be replayed because
+    * their output depends on the events retained in their windows.
+    * Iterations in which events have been shed cannot be replayed because shedding depends on the queues.
+    * @param events Simulation events resulting from the vertices execution.
+    * @return true if the iteration can be replayed.
+    */
+  private def isReplayable(events: Seq[SimEvent]): Boolean = events.forall {
+    case Produced(_: WindowedVertex, _, _, _) => false
+    case Produced(_: JoinOperator, _, _, _) => false
+    case _: Shed => false
+    case _ => true
+  }
+
+  /**
+    * Replays the last executed iteration. It advances the vertices state and sends the same remote messages
+    * without invoking the scheduling strategy and executing the vertices.
+    * @param startTime Iteration start time (in milliseconds).
+    * @param generated Simulation events generated at the beginning of the iteration.
+    * @return Simulation events of the replayed iteration.
+    */
+  private def replay(startTime: Double, generated: Seq[SimEvent]): Seq[SimEvent] = {
+    val t = template.get
+    usedInstructions += t.used
+    val shift = startTime - t.start
+
+    val events = t.executed.map(shifted(_, shift))
+    events.foreach {
+      case Produced(p: EventProducer, _, _, es) => p.inputEventQueue.dequeue(es.size min p.inputQueue)
+      case c: Consumed => c.v.outputEventSet.add(c.es)
+      case _ =>
+    }
+
+    val accumulations = t.accumulations.map((a) =>
+      (shifted(a._1, shift).asInstanceOf[WindowAccumulated], a._2.map((e) => (e._1, shifted(e._2, shift)))))
+    val closed = accumulations.flatMap((a) => a._1.v.replayAccumulation(a._2, a._1.from, a._1.to))
+
+    val messages = t.messages.map((m) => (m._1 + shift, m._2, m._3, shifted(m._4, shift)))
+    messages.foreach((m) => networkInterface.sendMessage(m._1, m._2, m._3, m._4))
+
+    template = Some(t.copy(start = startTime, generated = generated, executed = events, messages = messages,
+      accumulations = accumulations))
+    events ++ closed
+  }
+
+  /**
+    * Shifts a simulation event in time.
+    * @param event Simulation event to be shifted.
+    * @param shift Time shift (in milliseconds).
+    * @return a new simulation event.
+    */
+  private def shifted(event: SimEvent, shift: Double): SimEvent = event match {
+    case g: Generated         => g.copy(from = g.from + shift, to = g.to + shift, es = shifted(g.es, shift))
+    case p: Produced          => p.copy(from = p.from + shift, to = p.to + shift, es = shifted(p.es, shift))
+    case w: WindowAccumulated => w.copy(from = w.from + shift, to = w.to + shift, es = shifted(w.es, shift))
+    case c: Consumed          => c.copy(from = c.from + shift, to = c.to + shift, es = shifted(c.es, shift))
+  }
+
+  /**
+    * Shifts an event set in time. The latency is not changed because it is relative to the timestamp.
+    * @param es Event set to be shifted.
+    * @param shift Time shift (in milliseconds).
+    * @return a new event set.
+    */
+  private def shifted(es: EventSet, shift: Double): EventSet = es.copy(ts = es.ts + shift)
+
+  /**
+    * Checks if a simulation event is equal to another one shifted in time.
+    * @param e1 First simulation event.
+    * @param e2 Second simulation event.
+    * @param shift Time shift between the events (in milliseconds).
+    * @return true if the second simulation event is the first one shifted in time.
+    */
+  private def matches(e1: SimEvent, e2: SimEvent, shift: Double): Boolean = {
+    def near(x: Double, y: Double) = Math.abs(x - y) < PlacementExecutor.Epsilon
+
+    (e1.getClass == e2.getClass) && (e1.v == e2.v) &&
+      near(e1.from + shift, e2.from) && near(e1.to + shift, e2.to) &&
+      near(e1.es.size, e2.es.size) && near(e1.es.latency, e2.es.latency) && near(e1.es.ts + shift, e2.es.ts) &&
+      (e1.es.totals.keySet == e2.es.totals.keySet) &&
+      e1.es.totals.forall((entry) => near(entry._2, e2.es.totals(entry._1)))
+  }
+
+  /**
+    * Enqueue events into a vertex after applying its load shedding strategy, if there is one.
+    * @param v Vertex receiving the events.
+    * @param orig Vertex that has sent the events.
+    * @param es Event set to be enqueued. The shed events are removed from this set.
+    * @param at Timestamp at which the events are received (in milliseconds).
+    * @return Simulation event representing the shed events, if any event has been shed.
+    */
+  private def receive(v: InputVertex, orig: OutputVertex, es: EventSet, at: Double): Option[SimEvent] = {
+    val shed = v.sheddingStrategy match {
+      case Some(strategy) => strategy.shed(v, orig, es, at)
+      case _ => EventSet.empty()
+    }
+    v.enqueueIntoInput(orig, es)
+    if (shed.size > 0) Some(Shed(v, at, at, shed)) else None
+  }
+
+  private def execute(action: EnqueueAction): Option[SimEvent] = {
+    if (action.v.isBounded()) {
+      val key = (action.fromVertex, action.v)
+      outstanding = outstanding updated (key, outstanding(key) + action.es.size)
+    }
+    receive(action.v, action.fromVertex, action.es, action.at)
   }
 
   private def execute(action: ExecuteAction): Seq[SimEvent] = {
@@ -172,13 +561,33 @@ object PlacementExecutor {
     val startTime = action.from
     val endTime = action.to//startTime + totalMs(elem._2)
 
-    val simEvents = v.run(action.asInstanceOf[ExecuteAction].instructions, startTime, endTime)
+    usedInstructions += action.instructions.min(v.instructionsNeeded)
+    var simEvents = v.run(action.instructions, startTime, endTime)
+
+    // the accumulated events are recorded by predecessor to be replayed
+    v match {
+      case wv: WindowedVertex if fastForward =>
+        simEvents.collectFirst { case w: WindowAccumulated => w }.foreach((w) =>
+          iterationAccumulations += ((w, wv.lastAccumulation)))
+      case _ =>
+    }
 
     if (v.isInstanceOf[InputVertex]) {
       val iv = v.asInstanceOf[InputVertex]
       if (iv.isBounded()) {
         iv.predecessors.foreach { (pred) =>
-          pred.setLimit(iv, iv.queueMaxSize - iv.inputQueues(pred))
+          if (placement.vertices.contains(pred)) {
+            pred.setLimit(iv, iv.queueMaxSize - iv.inputQueues(pred))
+
+          } else {
+            // remote predecessors are notified through credits
+            val credits = outstanding((pred, iv)) - iv.inputQueues(pred)
+            if (credits > 0) {
+              networkInterface.sendCredits(endTime, iv, pred, credits)
+              outstanding = outstanding updated ((pred, iv), outstanding((pred, iv)) - credits)
+              iterationCredits = true
+            }
+          }
         }
       }
     }
@@ -191,14 +600,23 @@ object PlacementExecutor {
       placement.successorsNotInPlacement(ov).foreach { (dest) =>
         val events = ov.dequeueFromOutput(dest, ov.outputQueues(dest))
         if (events.size > 0) {
+          // events sent to bounded vertices consume credits
+          if (dest.isBounded()) {
+            ov.setLimit(dest, ov.limits(dest) - events.size)
+            iterationCredits = true
+          }
           networkInterface.sendMessage(endTime, ov, dest, events)
+          if (fastForward) iterationMessages += ((endTime, ov, dest, events))
         }
       }
 
       placement.successorsInPlacement(ov).foreach { (dest) =>
         val events = ov.outputQueues(dest)
         if (events > 0) {
-          dest.enqueueIntoInput(ov, ov.dequeueFromOutput(dest, events))
+          receive(dest, ov, ov.dequeueFromOutput(dest, events), endTime) match {
+            case Some(shed) => simEvents = simEvents :+ shed
+            case None =>
+          }
         }
       }
     }
@@ -0,0 +1,102 @@
+package ca.uwo.eng.sel.cepsim
+
+import java.io._
+
+import scala.annotation.varargs
+
+
+/** Snapshot companion object */
+object Snapshot {
+
+  /**
+    * Takes a snapshot of a simulation state.
+    * @param state Object graph that represents the simulation state.
+    * @tparam T Type of the simulation state.
+    * @return the snapshot.
+    */
+  def apply[T <: Serializable](state: T): Snapshot[T] = {
+    val bytes = new ByteArrayOutputStream()
+    val out = new ObjectOutputStream(bytes)
+    try {
+      out.writeObject(state)
+    } finally {
+      out.close()
+    }
+    new Snapshot[T](bytes.toByteArray)
+  }
+
+  /**
+    * Takes a snapshot of a set of placement executors. The executors must be included in the same snapshot if
+    * their placements are connected, because the vertices of one placement reference the vertices of the others.
+    * @param executors Executors to be included in the snapshot.
+    * @return the snapshot.
+    */
+  @varargs def executors(executors: PlacementExecutor*): Snapshot[Vector[PlacementExecutor]] =
+    Snapshot(executors.toVector)
+
+  /**
+    * Reads a snapshot previously written to a stream.
+    * @param in Stream from which the snapshot is read.
+    * @tparam T Type of the simulation state.
+    * @return the snapshot.
+    */
+  def read[T](in: InputStream): Snapshot[T] = {
+    val data = new DataInputStream(in)
+    val bytes = new Array[Byte](data.readInt())
+    data.readFully(bytes)
+    new Snapshot[T](bytes)
+  }
+
+  /** Stream that resolves the classes using the class loader that has loaded the simulator. */
+  private class SnapshotInputStream(in: InputStream) extends ObjectInputStream(in) {
+    override protected def resolveClass(desc: ObjectStreamClass): Class[_] =
+      try {
+        Class.forName(desc.getName, false, classOf[Snapshot[_]].getClassLoader)
+      } catch {
+        case e: ClassNotFoundException => super.resolveClass(desc)
+      }
+  }
+}
+
+/**
+  * Binary checkpoint of a simulation state. The state includes everything that is reachable from the object used
+  * to take the snapshot, such as the vertices queues, the windowed operators slots, the generators accumulators,
+  * the pending actions and the metric calculators. Network interfaces are not included and must be set on the
+  * restored executors before they are run again.
+  *
+  * Each restore creates an independent copy of the state. Therefore, a single snapshot of a warmed-up simulation
+  * can be used to fork multiple runs that continue with different strategies or parameters.
+  *
+  * @param bytes Serialized simulation state.
+  * @tparam T Type of the simulation state.
+  */
+class Snapshot[T] private (bytes: Array[Byte]) {
+
+  /** Size of the snapshot (in bytes). */
+  def size: Int = bytes.length
+
+  /**
+    * Restores the simulation state.
+    * @return a new copy of the simulation state.
+    */
+  def restore(): T = {
+    val in = new Snapshot.SnapshotInputStream(new ByteArrayInputStream(bytes))
+    try {
+      in.readObject().asInstanceOf[T]
+    } finally {
+      in.close()
+    }
+  }
+
+  /**
+    * Writes the snapshot to a stream.
+    * @param out Stream to which the snapshot is written.
+    */
+  def write(out: OutputStream): Unit = {
+    val data = new DataOutputStream(out)
+    data.writeInt(bytes.length)
+    data.write(bytes)
+    data.flush()
+  }
+
+}
@@ -0,0 +1,259 @@
+package ca.uwo.eng.sel.cepsim.analysis
+
+import java.util.{Map => JavaMap}
+
+import ca.uwo.eng.sel.cepsim.gen.{Generator, UniformGenerator, UniformIncreaseGenerator}
+import ca.uwo.eng.sel.cepsim.placement.Placement
+import ca.uwo.eng.sel.cepsim.query._
+
+import scala.collection.JavaConversions._
+import scala.collection.mutable
+
+/** QueueingEstimator companion object. */
+object QueueingEstimator {
+  def apply(networkDelay: Double = 0.0) = new QueueingEstimator(networkDelay)
+
+  /**
+    * Obtains the steady-state event rate of a generator.
+    * @param generator Event generator.
+    * @return Number of events generated per second once the generator is in steady state.
+    */
+  def rateOf(generator: Generator): Double = generator match {
+    case g: UniformGenerator => g.rate
+    case g: UniformIncreaseGenerator => g.maxRate
+    case g => g.average
+  }
+}
+
+/**
+  * Estimates the steady-state behaviour of a set of placements without simulating them. Each placement is
+  * modeled as a processor-sharing M/M/1 queue whose server is the VM to which the placement is assigned, and the
+  * query graphs connect these queues into a network. Event rates are propagated from the producers to the
+  * consumers using the generator rates and the edge selectivities, and the demand of each vertex is the product
+  * of its input rate by the number of instructions needed to process one event.
+  *
+  * The estimates are approximations: windowed operators are modeled by their average output rate, and the
+  * discrete simulation ticks of the PlacementExecutor are not considered. They are meant to discard
+  * configurations that are certainly infeasible before running them, not to replace the simulation.
+  *
+  * @param networkDelay Delay added to the latency of events sent between placements (in milliseconds).
+  */
+class QueueingEstimator(val networkDelay: Double = 0.0) {
+
+  /**
+    * Estimates a set of placements.
+    * @param capacities Map from placements to the processing capacity of their VMs (in MIPS).
+    * @return The estimate of all vertices, placements and consumers.
+    */
+  def estimate(capacities: Map[Placement, Double]): Estimate =
+    new Builder(capacities).build()
+
+  /**
+    * Estimates a set of placements (for java usage).
+    * @param capacities Map from placements to the processing capacity of their VMs (in MIPS).
+    * @return The estimate of all vertices, placements and consumers.
+    */
+  def estimate(capacities: JavaMap[Placement, java.lang.Double]): Estimate =
+    estimate(mapAsScalaMap(capacities).map((e) => (e._1, e._2.doubleValue())).toMap)
+
+  /**
+    * Estimates a single placement.
+    * @param placement Placement to be estimated.
+    * @param capacity Processing capacity of the placement VM (in MIPS).
+    * @return The estimate of all vertices, placements and consumers.
+    */
+  def estimate(placement: Placement, capacity: Double): Estimate = estimate(Map(placement -> capacity))
+
+
+  /** Holds the intermediate results of one estimation. */
+  private class Builder(capacities: Map[Placement, Double]) {
+
+    val placementOf: Map[Vertex, Placement] = capacities.keys.flatMap((p) => p.vertices.map((v) => (v, p))).toMap
+
+    val outputRates = mutable.Map.empty[Vertex, Double]
+    val demands = mutable.Map.empty[Vertex, Double]
+    val latencies = mutable.Map.empty[Vertex, Double]
+    val throughputScales = mutable.Map.empty[Vertex, Double]
+
+    /** Rate at which a vertex receives events from each predecessor (in events per second). */
+    def inputRates(v: Vertex): Map[Vertex, Double] =
+      v.predecessors.map((pred) => (pred: Vertex, outputRate(pred) * pred.selectivities.getOrElse(v, 1.0))).toMap
+
+    def inputRate(v: Vertex): Double = v match {
+      case prod: EventProducer => QueueingEstimator.rateOf(prod.generator)
+      case _ => Vertex.sumOfValues(inputRates(v))
+    }
+
+    /** Rate at which a vertex emits events (in events per second), before the edge selectivities are applied. */
+    def outputRate(v: Vertex): Double = outputRates.getOrElseUpdate(v, {
+      val input = inputRates(v)
+      val total = inputRate(v)
+      v match {
+        case join: JoinOperator if (input.size == 2) =>
+          val Seq(l, r) = input.values.toSeq
+          2 * join.selectivity * l * r * join.window.toMillis / 1000.0
+
+        case window: WindowedOperator =>
+          val sizeSec = window.size.toMillis / 1000.0
+          window.function(input.map((e) => (e._1, e._2 * sizeSec))) * 1000.0 / window.advance.toMillis
+
+        case window: CountWindowedOperator =>
+          if (total <= 0) 0.0
+          else window.function(input.map((e) => (e._1, e._2 * window.count / total))) * total / window.count
+
+        case _ => total
+      }
+    })
+
+    /** Number of instructions executed per second by a vertex. */
+    def demand(v: Vertex): Double = demands.getOrElseUpdate(v, {
+      val base = inputRate(v) * v.effectiveIpe
+      v match {
+        case join: JoinOperator if (join.predecessors.size == 2) =>
+          val Seq(l, r) = inputRates(v).values.toSeq
+          base + join.probeIpe * join.multiplicity * 2 * l * r * join.window.toMillis / 1000.0
+        case _ => base
+      }
+    })
+
+    def capacity(p: Placement): Double = capacities(p) * 1000000
+
+    def utilization(p: Placement): Double = {
+      val cap = capacity(p)
+      if (cap <= 0) Double.PositiveInfinity else p.vertices.foldLeft(0.0)((acc, v) => acc + demand(v)) / cap
+    }
+    val utilizations: Map[Placement, Double] = capacities.keys.map((p) => (p, utilization(p))).toMap
+
+    /** Time spent by an event in a vertex (in milliseconds), including the wait for the window to close. */
+    def sojournTime(v: Vertex): Double = placementOf.get(v) match {
+      case Some(p) =>
+        val rate = inputRate(v)
+        val rho = utilizations(p)
+        // instructions per event divided by instructions per millisecond
+        val perEvent = if (rate > 0) demand(v) / rate else v.effectiveIpe
+        val service = perEvent / (capacity(p) / 1000.0)
+        val queueing = if (rho >= 1.0) Double.PositiveInfinity else service / (1 - rho)
+        queueing + windowDelay(v, rate)
+      case None => 0.0
+    }
+
+    def windowDelay(v: Vertex, rate: Double): Double = v match {
+      case window: WindowedOperator => window.size.toMillis / 2.0
+      case window: CountWindowedOperator => if (rate > 0) (window.count / 2.0) / rate * 1000.0 else 0.0
+      case _ => 0.0
+    }
+
+    /** Average time since the events processed by a vertex have been generated (in milliseconds). */
+    def latency(v: Vertex): Double = latencies.getOrElseUpdate(v, {
+      val input = inputRates(v)
+      val total = Vertex.sumOfValues(input)
+      val upstream =
+        if (total <= 0) 0.0
+        else input.foldLeft(0.0)((acc, e) => {
+          val remote = if (placementOf.get(e._1) != placementOf.get(v)) networkDelay else 0.0
+          acc + (e._2 / total) * (latency(e._1) + remote)
+        })
+      upstream + sojournTime(v)
+    })
+
+    /**
+      * Fraction of the generated events that reach a vertex in steady state. It is smaller than 1 when any
+      * placement upstream is saturated.
+      */
+    def throughputScale(v: Vertex): Double = throughputScales.getOrElseUpdate(v, {
+      val own = placementOf.get(v).fold(1.0)((p) => if (utilizations(p) > 1.0) 1.0 / utilizations(p) else 1.0)
+      v.predecessors.foldLeft(own)((acc, pred) => acc.min(throughputScale(pred)))
+    })
+
+    def build(): Estimate = {
+      val operators = placementOf.map((e) => {
+        val v = e._1
+        (v, OperatorEstimate(v, e._2, inputRate(v), outputRate(v), demand(v), demand(v) / capacity(e._2),
+          latency(v)))
+      })
+
+      val placements = utilizations.map((e) => {
+        val p = e._1
+        (p, PlacementEstimate(p, capacities(p), p.vertices.foldLeft(0.0)((acc, v) => acc + demand(v)) / 1000000, e._2))
+      })
+
+      val consumers = placementOf.keys.collect({ case c: EventConsumer => c }).map((c) => {
+        val producers = c.queries.flatMap((q) => q.pathCounts(c).keys)
+        val generated = producers.foldLeft(0.0)((acc, p) => acc + QueueingEstimator.rateOf(p.generator))
+        (c, ConsumerEstimate(c, inputRate(c), generated * throughputScale(c), latency(c)))
+      }).toMap
+
+      Estimate(operators, placements, consumers)
+    }
+  }
+
+}
+
+/**
+  * Steady-state estimate of a vertex.
+  * @param vertex Estimated vertex.
+  * @param placement Placement that contains the vertex.
+  * @param inputRate Rate at which the vertex receives events (in events per second).
+  * @param outputRate Rate at which the vertex emits events, before the edge selectivities are applied.
+  * @param demand Number of instructions executed per second by the vertex.
+  * @param utilization Fraction of the placement VM capacity used by the vertex.
+  * @param latency Average time since the events processed by the vertex have been generated (in milliseconds).
+  */
+case class OperatorEstimate(vertex: Vertex, placement: Placement, inputRate: Double, outputRate: Double,
+                            demand: Double, utilization: Double, latency: Double)
+
+/**
+  * Steady-state estimate of a placement.
+  * @param placement Estimated placement.
+  * @param capacity Processing capacity of the placement VM (in MIPS).
+  * @param demand Processing capacity needed by all vertices of the placement (in MIPS).
+  * @param utilization Ratio between the demand and the capacity.
+  */
+case class PlacementEstimate(placement: Placement, capacity: Double, demand: Double, utilization: Double) {
+
+  /** Indicates if the placement cannot process all events it receives. */
+  def saturated: Boolean = utilization >= 1.0
+
+  /**
+    * Factor by which the producer rates can be multiplied before the placement saturates. Join operators grow
+    * faster than the rates, so the factor is optimistic for placements that contain joins.
+    */
+  def saturationPoint: Double = if (utilization <= 0) Double.PositiveInfinity else 1.0 / utilization
+}
+
+/**
+  * Steady-state estimate of a consumer.
+  * @param consumer Estimated consumer.
+  * @param eventRate Rate at which the consumer receives events (in events per second).
+  * @param throughput Rate at which the producer events are processed by the consumer (in events per second). It uses
+  *                   the same unit as the ThroughputMetric.
+  * @param latency Average latency of the consumed events (in milliseconds).
+  */
+case class ConsumerEstimate(consumer: EventConsumer, eventRate: Double, throughput: Double, latency: Double)
+
+/**
+  * Estimate of a set of placements.
+  * @param operators Map from vertices to their estimates.
+  * @param placements Map from placements to their estimates.
+  * @param consumers Map from consumers to their estimates.
+  */
+case class Estimate(operators: Map[Vertex, OperatorEstimate], placements: Map[Placement, PlacementEstimate],
+                    consumers: Map[EventConsumer, ConsumerEstimate]) {
+
+  /** Placement with the highest utilization, if any. */
+  def bottleneck: Option[PlacementEstimate] =
+    if (placements.isEmpty) None else Some(placements.values.maxBy(_.utilization))
+
+  /** Factor by which the producer rates can be multiplied before the first placement saturates. */
+  def saturationPoint: Double = placements.values.foldLeft(Double.PositiveInfinity)((acc, p) => acc.min(p.saturationPoint))
+
+  /**
+    * Checks if the estimated configuration can meet the informed bounds. Configurations that are not feasible can be
+    * skipped before they are simulated.
+    * @param maxUtilization Maximum utilization of all placements.
+    * @param maxLatency Maximum average latency of all consumers (in milliseconds).
+    * @return true if all placements and consumers are within the bounds.
+    */
+  def isFeasible(maxUtilization: Double = 1.0, maxLatency: Double = Double.MaxValue): Boolean =
+    placements.values.forall(_.utilization < maxUtilization) && consumers.values.forall(_.latency <= maxLatency)
+}
@@ -10,7 +10,7 @@ object EventSetQueue {
 
 
 /** Queue of event sets */
-class EventSetQueue {
+class EventSetQueue extends Serializable {
 
   val q = new Queue[EventSet]
   var totalSize = 0.0
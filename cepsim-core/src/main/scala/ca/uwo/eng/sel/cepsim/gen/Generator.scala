@@ -3,7 +3,7 @@ package ca.uwo.eng.sel.cepsim.gen
 /**
   * Event generators.
   */
-trait Generator {
+trait Generator extends Serializable {
 
   /** Current calculated average (events per second) */
   protected var currentAvg = 0.0
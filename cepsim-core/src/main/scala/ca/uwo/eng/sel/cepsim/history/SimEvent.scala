@@ -1,7 +1,7 @@
 package ca.uwo.eng.sel.cepsim.history
 
 import ca.uwo.eng.sel.cepsim.event.EventSet
-import ca.uwo.eng.sel.cepsim.query.{EventConsumer, EventProducer, Vertex, WindowedOperator}
+import ca.uwo.eng.sel.cepsim.query.{EventConsumer, EventProducer, InputVertex, Vertex, WindowedVertex}
 
 /**
   * Trait that represents an important simulation event. These events composes the execution history
@@ -60,15 +60,15 @@ case class Generated (val v: EventProducer, val from: Double, val to: Double, va
 case class Produced(val v: Vertex, val from: Double, val to: Double, val es: EventSet) extends SimEvent
 
 /**
-  * Represents events accumulated by a WindowedOperator.
+  * Represents events accumulated by a windowed operator.
   *
-  * @param v WindowedOperator accumulating the events.
+  * @param v Windowed operator accumulating the events.
   * @param from Start timestamp.
   * @param to Final timestamp.
   * @param slot Slot number on which events have been accumulated.
   * @param es Event set that has been accumulated.
   */
-case class WindowAccumulated(val v: WindowedOperator, val from: Double, val to: Double, val slot: Int,
+case class WindowAccumulated(val v: WindowedVertex, val from: Double, val to: Double, val slot: Int,
                              val es: EventSet) extends SimEvent
 
 /**
@@ -80,3 +80,14 @@ case class WindowAccumulated(val v: WindowedOperator, val from: Double, val to:
   * @param es Event set that has been consumed.
   */
 case class Consumed (val v: EventConsumer, val from: Double, val to: Double, val es: EventSet) extends SimEvent
+
+
+/**
+  * Represents events dropped by the load shedding strategy of an InputVertex.
+  *
+  * @param v Vertex that has shed the events.
+  * @param from Start timestamp.
+  * @param to Final timestamp.
+  * @param es Event set that has been shed.
+  */
+case class Shed (val v: InputVertex, val from: Double, val to: Double, val es: EventSet) extends SimEvent
@@ -0,0 +1,38 @@
+package ca.uwo.eng.sel.cepsim.metric
+
+import ca.uwo.eng.sel.cepsim.query.Vertex
+
+/**
+  * Convergence metric class. It represents the steady-state estimate of the latency or the throughput of a
+  * consumer, calculated from the batch means that remain after the warm-up period has been truncated.
+  *
+  * @param v EventConsumer of which the metric is calculated.
+  * @param time Time at which the warm-up period ends (in ms since the simulation start).
+  * @param value Mean of the batches after the warm-up period.
+  * @param halfWidth Half-width of the confidence interval of the mean.
+  * @param batches Number of batches used to calculate the mean.
+  * @param converged Indicates if the half-width is within the tolerance of the monitor.
+  */
+case class ConvergenceMetric(val v: Vertex, val time: Double, val value: Double, val halfWidth: Double,
+                             val batches: Int, val converged: Boolean) extends Metric {
+
+  /** Length of the warm-up period (in ms). */
+  def warmup: Double = time
+
+  /** Lower bound of the confidence interval. */
+  def lower: Double = value - halfWidth
+
+  /** Upper bound of the confidence interval. */
+  def upper: Double = value + halfWidth
+}
+
+/** ConvergenceMetric companion object */
+object ConvergenceMetric {
+
+  /** Latency convergence metric identifier. */
+  val LatencyID = "LATENCY_CONVERGENCE_METRIC"
+
+  /** Throughput convergence metric identifier. */
+  val ThroughputID = "THROUGHPUT_CONVERGENCE_METRIC"
+
+}
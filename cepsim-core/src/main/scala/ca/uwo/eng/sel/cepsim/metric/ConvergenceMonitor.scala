@@ -0,0 +1,233 @@
+package ca.uwo.eng.sel.cepsim.metric
+
+import ca.uwo.eng.sel.cepsim.history.SimEvent
+import ca.uwo.eng.sel.cepsim.placement.Placement
+import ca.uwo.eng.sel.cepsim.query.Vertex
+
+import scala.collection.SortedMap
+
+/** ConvergenceMonitor companion object. */
+object ConvergenceMonitor {
+  def apply(calculator: MetricCalculator) = new ConvergenceMonitor(calculator)
+  def apply(calculator: MetricCalculator, batchLength: Double, tolerance: Double) =
+    new ConvergenceMonitor(calculator, batchLength, tolerance)
+  def apply(calculator: MetricCalculator, batchLength: Double, tolerance: Double, minBatches: Int,
+            confidence: Double) =
+    new ConvergenceMonitor(calculator, batchLength, tolerance, minBatches, confidence)
+
+  /**
+    * Calculates the warm-up truncation point of a series using the MSER rule. It selects the number of initial
+    * observations whose removal minimizes the standard error of the mean of the remaining observations. Only
+    * the first half of the series is considered as warm-up.
+    * @param series Series of observations.
+    * @return Number of initial observations to be discarded.
+    */
+  def mser(series: IndexedSeq[Double]): Int = {
+    val n = series.length
+    var best = 0
+    var bestValue = Double.MaxValue
+
+    // suffix sums, so that each candidate is evaluated in constant time
+    val sums = series.scanRight(0.0)(_ + _)
+    val squares = series.scanRight(0.0)((x, acc) => acc + x * x)
+    (0 to (n - 1) / 2).foreach((d) => {
+      val k = n - d
+      val mean = sums(d) / k
+      val value = (squares(d) - k * mean * mean).max(0.0) / (k.toDouble * k)
+      if (value < bestValue) {
+        best = d
+        bestValue = value
+      }
+    })
+    best
+  }
+
+  /**
+    * Approximates a quantile of the standard normal distribution (Abramowitz and Stegun 26.2.23).
+    * @param p Probability (between 0 and 1).
+    * @return The quantile.
+    */
+  def normalQuantile(p: Double): Double = {
+    if (p < 0.5) -normalQuantile(1 - p)
+    else {
+      val t = Math.sqrt(-2 * Math.log(1 - p))
+      t - (2.515517 + 0.802853 * t + 0.010328 * t * t) / (1 + 1.432788 * t + 0.189269 * t * t + 0.001308 * t * t * t)
+    }
+  }
+
+  /**
+    * Approximates a quantile of the Student t distribution using the Cornish-Fisher expansion.
+    * @param p Probability (between 0 and 1).
+    * @param dof Degrees of freedom.
+    * @return The quantile.
+    */
+  def studentQuantile(p: Double, dof: Int): Double = {
+    val z = normalQuantile(p)
+    val n = dof.toDouble
+    val z3 = z * z * z
+    val z5 = z3 * z * z
+    val z7 = z5 * z * z
+    z + (z3 + z) / (4 * n) + (5 * z5 + 16 * z3 + 3 * z) / (96 * n * n) +
+      (3 * z7 + 19 * z5 + 17 * z3 - 15 * z) / (384 * n * n * n)
+  }
+}
+
+/**
+  * Monitors the convergence of the latency and throughput of the placement consumers. The metrics calculated by
+  * another calculator are grouped into batches of fixed length, and the warm-up period of each batch series is
+  * truncated with the MSER rule. The mean of the remaining batches and its confidence interval are calculated
+  * with the batch means method, and a consumer has converged when the half-width of both intervals is within
+  * the tolerance.
+  *
+  * The estimates are only recalculated when a batch is completed, so the monitor can be queried after each
+  * simulation tick.
+  *
+  * @param calculator Calculator of the latency and throughput metrics.
+  * @param batchLength Length of each batch (in ms). The default is one minute.
+  * @param tolerance Maximum half-width of the confidence intervals, relative to the means.
+  * @param minBatches Minimum number of completed batches before a consumer is considered converged.
+  * @param confidence Confidence level of the intervals.
+  */
+class ConvergenceMonitor(val calculator: MetricCalculator, val batchLength: Double = 60000.0,
+                         val tolerance: Double = 0.05, val minBatches: Int = 10, val confidence: Double = 0.95)
+  extends MetricCalculator {
+
+  require(batchLength > 0, "Batch length must be positive")
+  require(minBatches >= 2, "At least two batches are needed")
+
+  /** Initial timestamp. */
+  var startTime = 0.0
+
+  /** Timestamp of the last simulation event. */
+  var currentTime = 0.0
+
+  private var completedBatches = 0
+  private var estimates = Map.empty[(String, Vertex), ConvergenceMetric]
+
+  override def placement: Placement = calculator.placement
+
+  override def ids: Set[String] = Set(ConvergenceMetric.LatencyID, ConvergenceMetric.ThroughputID)
+
+  override def init(time: Double): Unit = {
+    startTime = time
+    currentTime = time
+  }
+
+  override def update(event: SimEvent): Unit = currentTime = currentTime.max(event.at)
+
+  /**
+    * Gets the number of batches that have been completed.
+    * @return number of completed batches.
+    */
+  def batches: Int = Math.floor((currentTime - startTime) / batchLength).toInt.max(0)
+
+  /**
+    * Gets the convergence metric of a consumer.
+    * @param id Metric identifier.
+    * @param v the specified vertex.
+    * @return The convergence metric calculated from the batches completed so far.
+    */
+  def estimate(id: String, v: Vertex): ConvergenceMetric = {
+    if (batches != completedBatches) {
+      completedBatches = batches
+      estimates = Map.empty
+    }
+    estimates.getOrElse((id, v), {
+      val metric = calculate(v, series(id, v))
+      estimates = estimates updated ((id, v), metric)
+      metric
+    })
+  }
+
+  /**
+    * Checks if the latency and throughput of a consumer have converged.
+    * @param v the specified vertex.
+    * @return true if both metrics have converged.
+    */
+  def converged(v: Vertex): Boolean =
+    estimate(ConvergenceMetric.LatencyID, v).converged && estimate(ConvergenceMetric.ThroughputID, v).converged
+
+  /**
+    * Checks if all consumers of the placement have converged. Placements without consumers never converge.
+    * @return true if all consumers have converged.
+    */
+  def converged: Boolean = placement.consumers.nonEmpty && placement.consumers.forall(converged(_))
+
+  override def results(id: String, v: Vertex): List[Metric] = List(estimate(id, v))
+
+  /**
+    * Consolidates the metric values calculated for a specific vertex.
+    * @param id Metric identifier.
+    * @param v the specified vertex.
+    * @return Mean of the batches after the warm-up period.
+    */
+  override def consolidate(id: String, v: Vertex): Double = estimate(id, v).value
+
+  /**
+    * Obtains the batch means after the warm-up period. With the default batch length, there is one value for
+    * each minute of the simulation.
+    * @param id Metric identifier.
+    * @param v the specified vertex.
+    * @return Map from batch indexes to batch means.
+    */
+  override def consolidateByMinute(id: String, v: Vertex): SortedMap[Int, Double] = {
+    val values = series(id, v)
+    val warmup = ConvergenceMonitor.mser(values.map(_._2))
+    SortedMap[Int, Double]() ++ values.drop(warmup)
+  }
+
+  /**
+    * Calculates the mean of each completed batch.
+    * @param id Metric identifier.
+    * @param v the specified vertex.
+    * @return Sequence of batch indexes and batch means.
+    */
+  private def series(id: String, v: Vertex): IndexedSeq[(Int, Double)] = {
+    val n = batches
+    if (id == ConvergenceMetric.ThroughputID) {
+      // the throughput metrics are calculated for each simulation second, and batched from the start time
+      val totals = new Array[Double](n)
+      calculator.results(ThroughputMetric.ID, v).foreach((metric) => {
+        val batch = Math.floor((metric.time * 1000.0 - startTime) / batchLength).toInt
+        if ((batch >= 0) && (batch < n)) totals(batch) += metric.value
+      })
+      totals.toIndexedSeq.zipWithIndex.map((elem) => (elem._2, elem._1 * 1000.0 / batchLength))
+
+    } else if (id == ConvergenceMetric.LatencyID) {
+      val sums = new Array[Double](n)
+      val quantities = new Array[Double](n)
+      calculator.results(LatencyMetric.ID, v).foreach {
+        case metric: LatencyMetric =>
+          val batch = Math.floor((metric.time - startTime) / batchLength).toInt
+          if ((batch >= 0) && (batch < n)) {
+            sums(batch) += metric.quantity * metric.value
+            quantities(batch) += metric.quantity
+          }
+        case _ =>
+      }
+      (0 until n).filter(quantities(_) > 0).map((i) => (i, sums(i) / quantities(i)))
+
+    } else {
+      throw new IllegalArgumentException("Invalid Metric ID")
+    }
+  }
+
+  private def calculate(v: Vertex, values: IndexedSeq[(Int, Double)]): ConvergenceMetric = {
+    if (values.isEmpty) return ConvergenceMetric(v, 0.0, 0.0, Double.PositiveInfinity, 0, false)
+
+    val warmup = ConvergenceMonitor.mser(values.map(_._2))
+    val kept = values.drop(warmup).map(_._2)
+    val k = kept.length
+    val mean = kept.sum / k
+    val halfWidth =
+      if (k < 2) Double.PositiveInfinity
+      else {
+        val variance = kept.foldLeft(0.0)((acc, x) => acc + (x - mean) * (x - mean)) / (k - 1)
+        ConvergenceMonitor.studentQuantile(1 - (1 - confidence) / 2, k - 1) * Math.sqrt(variance / k)
+      }
+    val converged = (values.length >= minBatches) && (halfWidth <= tolerance * Math.abs(mean))
+
+    ConvergenceMetric(v, values(warmup)._1 * batchLength, mean, halfWidth, k, converged)
+  }
+
+}
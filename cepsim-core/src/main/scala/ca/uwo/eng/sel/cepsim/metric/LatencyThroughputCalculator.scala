@@ -9,6 +9,7 @@ import scala.collection.SortedMap
 /** LatencyThroughputCalculator companion object.  */
 object LatencyThroughputCalculator {
   def apply(placement: Placement) = new LatencyThroughputCalculator(placement)
+  def apply(placement: Placement, explicitPaths: Boolean) = new LatencyThroughputCalculator(placement, explicitPaths)
 }
 
 /**
@@ -16,8 +17,11 @@ object LatencyThroughputCalculator {
   * for both metrics because a lot of the bookeeping objects and logic are shared.
   *
   * @param placement Placement of which the metrics are calculated.
+  * @param explicitPaths Indicates if the paths from consumers to producers are enumerated one by one
+  *                      instead of being counted. It should only be used for debugging.
   */
-class LatencyThroughputCalculator(val placement: Placement) extends MetricCalculator {
+class LatencyThroughputCalculator(val placement: Placement, val explicitPaths: Boolean = false)
+  extends MetricCalculator {
 
 
 
@@ -28,20 +32,72 @@ class LatencyThroughputCalculator(val placement: Placement) extends MetricCalcul
   var throughputs: Map[Vertex, Vector[ThroughputMetric]] = Map.empty withDefaultValue(Vector.empty)
 
   /** Number of existing paths from a consumer to each producer. */
-  var pathsNo: Map[(EventConsumer, EventProducer), Int] = Map.empty
+  var pathsNo: Map[(EventConsumer, EventProducer), Long] = Map.empty
+
+  /** Pairs of queries and consumers whose paths have been counted in the pathsNo map. */
+  private var counted = Set.empty[(Query, EventConsumer)]
 
   /** Initial timestamp. */
   var startTime = 0.0
 
   // initialize the pathsNo map
-  placement.consumers.foreach((consumer) => {
-    consumer.queries.foreach((query) => {
-      query.pathsToProducers(consumer).foreach((path) => {
-        val key = (consumer, path.producer)
-        pathsNo = pathsNo updated (key, pathsNo.getOrElse(key, 0) + 1)
-      })
+  placement.consumers.foreach((consumer) => consumer.queries.foreach(addPaths(_, consumer)))
+
+  /**
+    * Counts the paths from a consumer to the producers of a query.
+    * @param query Query that contains the consumer.
+    * @param consumer Event consumer.
+    * @return map from the query producers to the number of paths.
+    */
+  private def paths(query: Query, consumer: EventConsumer): Map[EventProducer, Long] =
+    if (explicitPaths) query.pathsToProducers(consumer).groupBy(_.producer).mapValues(_.size.toLong)
+    else query.pathCounts(consumer).mapValues(_.paths)
+
+  /**
+    * Adds the paths from a consumer to the producers of a query, unless they have already been added.
+    * @param query Query that contains the consumer.
+    * @param consumer Event consumer.
+    */
+  private def addPaths(query: Query, consumer: EventConsumer): Unit =
+    if (!counted.contains((query, consumer))) {
+      counted += ((query, consumer))
+      updatePaths(query, consumer, 1)
+    }
+
+  /**
+    * Subtracts the paths from a consumer to the producers of a query, if they have been added.
+    * @param query Query that contains the consumer.
+    * @param consumer Event consumer.
+    */
+  private def removePaths(query: Query, consumer: EventConsumer): Unit =
+    if (counted.contains((query, consumer))) {
+      counted -= ((query, consumer))
+      updatePaths(query, consumer, -1)
+    }
+
+  private def updatePaths(query: Query, consumer: EventConsumer, sign: Int): Unit =
+    paths(query, consumer).foreach((entry) => {
+      val key = (consumer, entry._1)
+      val total = pathsNo.getOrElse(key, 0L) + sign * entry._2
+      pathsNo = if (total > 0) pathsNo updated (key, total) else pathsNo - key
     })
-  })
+
+  /**
+    * Counts the paths of the query consumers that are in the placement, including the consumers that
+    * were already placed and are shared with other queries.
+    * @param q Query that has been added.
+    * @param vertices Vertices that have been added to the placement.
+    */
+  override def queryAdded(q: Query, vertices: Set[Vertex]): Unit =
+    q.consumers.filter(placement.vertices.contains(_)).foreach(addPaths(q, _))
+
+  /**
+    * Discards the paths of the query consumers. The paths of shared consumers to the producers of other
+    * queries are kept.
+    * @param q Query that has been removed.
+    * @param vertices Vertices that have been removed from the placement.
+    */
+  override def queryRemoved(q: Query, vertices: Set[Vertex]): Unit = q.consumers.foreach(removePaths(q, _))
 
 
 
@@ -66,6 +122,9 @@ class LatencyThroughputCalculator(val placement: Placement) extends MetricCalcul
   override def results(id: String, v: Vertex): List[Metric] =
     if (id == LatencyMetric.ID) latencies(v).toList else throughputs(v).toList
 
+  override def results(id: String, v: Vertex, from: Int): List[Metric] =
+    if (id == LatencyMetric.ID) latencies(v).drop(from).toList else throughputs(v).drop(from).toList
+
 
   /**
    * Consolidates all the metric values that have been calculated for a specific vertex.
@@ -88,6 +147,27 @@ class LatencyThroughputCalculator(val placement: Placement) extends MetricCalcul
     }
   }
 
+  /**
+    * Calculates a percentile of the latencies of a consumer. Each latency value is weighted by the number
+    * of events to which it refers.
+    * @param v the specified vertex.
+    * @param percentile Percentile to be calculated (between 0 and 1).
+    * @return the latency percentile, or 0 if no latency has been calculated.
+    */
+  def latencyPercentile(v: Vertex, percentile: Double): Double = {
+    val sorted = latencies(v).filter(_.quantity > 0).sortBy(_.value)
+    val total = sorted.foldLeft(0.0)((acc, metric) => acc + metric.quantity)
+
+    var accumulated = 0.0
+    sorted.find((metric) => {
+      accumulated += metric.quantity
+      accumulated >= percentile * total
+    }) match {
+      case Some(metric) => metric.value
+      case None => if (sorted.isEmpty) 0.0 else sorted.last.value
+    }
+  }
+
   def consolidateByMinute(id: String, v: Vertex): SortedMap[Int, Double] = {
 
     // TODO
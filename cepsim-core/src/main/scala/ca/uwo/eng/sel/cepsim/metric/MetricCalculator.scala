@@ -2,12 +2,12 @@ package ca.uwo.eng.sel.cepsim.metric
 
 import ca.uwo.eng.sel.cepsim.history.SimEvent
 import ca.uwo.eng.sel.cepsim.placement.Placement
-import ca.uwo.eng.sel.cepsim.query.Vertex
+import ca.uwo.eng.sel.cepsim.query.{Query, Vertex}
 
 import scala.collection.SortedMap
 
 /** Trait for metric calculators. */
-trait MetricCalculator {
+trait MetricCalculator extends Serializable {
 
   /**
     * Gets the identifiers of calculated metrics.
@@ -41,6 +41,16 @@ trait MetricCalculator {
     */
   def results(id: String, v: Vertex): List[Metric]
 
+  /**
+    * Obtains the values of a specific metric calculated for a vertex, skipping the ones that have already
+    * been read. The default implementation simply drops the first values of the complete list.
+    * @param id Metric identifier.
+    * @param v the specified vertex.
+    * @param from Number of values to be skipped.
+    * @return A list of the metric values calculated after the skipped ones.
+    */
+  def results(id: String, v: Vertex, from: Int): List[Metric] = results(id, v).drop(from)
+
   /**
     * Consolidates all the metric values that have been calculated for a specific vertex.
     * The default implementation simply calculates the average of these values.
@@ -53,4 +63,19 @@ trait MetricCalculator {
 
   def consolidateByMinute(id: String, v: Vertex): SortedMap[Int, Double]
 
+  /**
+    * Method invoked after a query has been added to the placement. The default implementation does nothing.
+    * @param q Query that has been added.
+    * @param vertices Vertices that have been added to the placement.
+    */
+  def queryAdded(q: Query, vertices: Set[Vertex]): Unit = { }
+
+  /**
+    * Method invoked after a query has been removed from the placement. Metrics already calculated for the
+    * removed vertices are kept. The default implementation does nothing.
+    * @param q Query that has been removed.
+    * @param vertices Vertices that have been removed from the placement.
+    */
+  def queryRemoved(q: Query, vertices: Set[Vertex]): Unit = { }
+
 }
@@ -0,0 +1,70 @@
+package ca.uwo.eng.sel.cepsim.metric
+
+import ca.uwo.eng.sel.cepsim.history.{Shed, SimEvent}
+import ca.uwo.eng.sel.cepsim.placement.Placement
+import ca.uwo.eng.sel.cepsim.query.Vertex
+
+import scala.collection.SortedMap
+
+/** ShedCalculator companion object. */
+object ShedCalculator {
+  def apply(placement: Placement) = new ShedCalculator(placement)
+}
+
+/**
+  * Calculates the number of events dropped by the load shedding strategies of the placement vertices. The
+  * dropped events are also removed from the totals of the event sets that reach the consumers, so they are
+  * not accounted by the throughput metric.
+  *
+  * @param placement Placement of which the metrics are calculated.
+  */
+class ShedCalculator(val placement: Placement) extends MetricCalculator {
+
+  /** Map from vertices to the number of events shed at each simulation second. */
+  var shed: Map[Vertex, Vector[ShedMetric]] = Map.empty withDefaultValue(Vector.empty)
+
+  /** Initial timestamp. */
+  var startTime = 0.0
+
+  override def ids: Set[String] = Set(ShedMetric.ID)
+
+  override def init(time: Double): Unit = startTime = time
+
+  override def results(id: String, v: Vertex): List[Metric] = shed(v).toList
+
+  /**
+    * Consolidates the shed metric values calculated for a specific vertex.
+    * @param id Metric identifier.
+    * @param v the specified vertex.
+    * @return Total number of events shed by the vertex.
+    */
+  override def consolidate(id: String, v: Vertex): Double =
+    shed(v).foldLeft(0.0)((acc, metric) => acc + metric.value)
+
+  override def consolidateByMinute(id: String, v: Vertex): SortedMap[Int, Double] =
+    SortedMap[Int, Double]() ++
+      shed(v).groupBy((metric) => Math.floor(metric.time / 60.0).toInt).
+              map((mapEntry) => mapEntry._1 -> mapEntry._2.foldLeft(0.0)((acc, metric) => acc + metric.value))
+
+  override def update(event: SimEvent): Unit = event match {
+    case s: Shed => updateWithShed(s)
+    case _ =>
+  }
+
+  /**
+    * Update the metric calculation with a Shed event.
+    * @param s object encapsulating the event.
+    */
+  private def updateWithShed(s: Shed) = {
+    val second = Math.floor((s.at - startTime) / 1000.0).toInt
+
+    val vertexShed = shed(s.v)
+    if ((!vertexShed.isEmpty) && (vertexShed.last.time == second)) {
+      val last = vertexShed.last
+      last.value = last.value + s.quantity
+    } else {
+      shed = shed updated (s.v, vertexShed :+ ShedMetric(s.v, second, s.quantity))
+    }
+  }
+
+}
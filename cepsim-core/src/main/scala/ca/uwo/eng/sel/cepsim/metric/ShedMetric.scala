@@ -0,0 +1,32 @@
+package ca.uwo.eng.sel.cepsim.metric
+
+import ca.uwo.eng.sel.cepsim.placement.Placement
+import ca.uwo.eng.sel.cepsim.query.Vertex
+
+/**
+  * Shed metric class. It represents the number of events dropped by the load shedding strategy of a vertex
+  * during one second of the simulation.
+  *
+  * @param v Vertex of which the metric is calculated.
+  * @param time Simulation second to which the metric refers.
+  * @param _value Number of dropped events.
+  */
+case class ShedMetric(val v: Vertex, val time: Double, private var _value: Double) extends Metric {
+  def value: Double = _value
+  private [metric] def value_=(newValue: Double) = _value = newValue
+}
+
+/** ShedMetric companion object */
+object ShedMetric {
+
+  /** Shed metric identifier - used to register with QueryCloudlet. */
+  val ID = "SHED_METRIC"
+
+  /**
+    * Obtains a calculator for the shed metric.
+    * @param placement Placement of which the metric will be calculated.
+    * @return calculator for the shed metric.
+    */
+  def calculator(placement: Placement) = new ShedCalculator(placement)
+
+}
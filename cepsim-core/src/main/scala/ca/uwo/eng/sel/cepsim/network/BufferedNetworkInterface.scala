@@ -0,0 +1,15 @@
+package ca.uwo.eng.sel.cepsim.network
+
+/**
+  * Network interface that buffers the events sent by the placement executors. The buffered events are only
+  * delivered when the flush method is invoked, which enables implementations to batch messages.
+  */
+trait BufferedNetworkInterface extends NetworkInterface {
+
+  /**
+    * Deliver all buffered events. It is invoked by the simulation environment once per tick, after all
+    * placements have run, and not by the placement executors.
+    * @param timestamp Timestamp at which the tick has finished.
+    */
+  def flush(timestamp: Double)
+}
@@ -18,4 +18,17 @@ trait NetworkInterface {
     * @param es Event set that has been sent.
     */
   def sendMessage(timestamp: Double, orig: OutputVertex, dest: InputVertex, es: EventSet)
+
+  /**
+    * Send credits to a remote vertex. Credits are used by bounded vertices to inform their remote predecessors
+    * that events have been removed from the input queues, and therefore more events can be sent. Implementations
+    * are responsible for calculating the network delay and for invoking the enqueueCredits method in the
+    * target cloudlet.
+    *
+    * @param timestamp Timestamp at which the credits have been sent.
+    * @param orig Origin (bounded) vertex.
+    * @param dest Destination vertex, which is a predecessor of the origin vertex.
+    * @param credits Number of events that can be sent to the origin vertex.
+    */
+  def sendCredits(timestamp: Double, orig: InputVertex, dest: OutputVertex, credits: Double)
 }
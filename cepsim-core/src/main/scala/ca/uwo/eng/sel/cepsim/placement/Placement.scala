@@ -30,14 +30,31 @@ object Placement {
 }
 
 /** *
-  * Represents a placement of query vertices into a virtual machine.
-  * @param vertices Set of vertices from this placement.
+  * Represents a placement of query vertices into a virtual machine. Queries can be added to and removed from the
+  * placement while it is being executed. All placement structures are updated incrementally, at a cost
+  * proportional to the number of vertices of the changed query.
+  * @param initialVertices Set of vertices from this placement.
   * @param vmId Id of the Virtual machine to which the vertices are assigned.
   * @param itOrder Order on which vertices should be traversed. If not specified, vertices
   *                       are traversed according to a topological sorting of the query graphs.
   */
-class Placement(val vertices: Set[Vertex], val vmId: Int, itOrder: Iterable[Vertex] = List.empty)
-    extends Iterable[Vertex] {
+class Placement(initialVertices: Set[Vertex], val vmId: Int, itOrder: Iterable[Vertex] = List.empty)
+    extends Iterable[Vertex] with Serializable {
+
+  private var _vertices = initialVertices
+
+  /**
+    * Get all vertices in this placement.
+    * @return all vertices in this placement.
+    */
+  def vertices: Set[Vertex] = _vertices
+
+  /**
+    * Number of times the placement has been changed. It can be used to invalidate results that have been
+    * calculated for a previous version of the placement.
+    */
+  private var _version = 0L
+  def version: Long = _version
 
   /** Map of queries to all vertices in this placement */
   var queryVerticesMap: Map[Query, Set[Vertex]] = Map.empty withDefaultValue Set.empty
@@ -47,11 +64,11 @@ class Placement(val vertices: Set[Vertex], val vmId: Int, itOrder: Iterable[Vert
     }
   }
 
-  val inPlacementSuccessors = vertices.map((v) => { (v,
+  private var inPlacementSuccessors = vertices.map((v) => { (v,
     v.successors.filter((succ) => vertices.contains(succ)))
   }).toMap
 
-  val notInPlacementSuccessors = vertices.map((v) => { (v,
+  private var notInPlacementSuccessors = vertices.map((v) => { (v,
     v.successors.filter((succ) => !vertices.contains(succ)))
   }).toMap
 
@@ -60,29 +77,40 @@ class Placement(val vertices: Set[Vertex], val vmId: Int, itOrder: Iterable[Vert
    * Get all queries that have at least one vertex in this placement.
    * @return queries that have at least one vertex in this placement.
    */
-  val queries: Set[Query] = queryVerticesMap.keySet
+  def queries: Set[Query] = queryVerticesMap.keySet
+
+  private var _producers: Set[EventProducer] = vertices collect { case ep: EventProducer => ep }
+  private var _consumers: Set[EventConsumer] = vertices collect { case ec: EventConsumer => ec }
 
   /**
    * Get all event producers in this placement.
    * @return all event producers in this placement.
    */
-  val producers: Set[EventProducer] = vertices collect { case ep: EventProducer => ep }
+  def producers: Set[EventProducer] = _producers
 
   /**
    * Get all event consumers in this placement.
    * @return all event consumers in this placement.
    */
-  val consumers: Set[EventConsumer] = vertices collect { case ec: EventConsumer => ec }
+  def consumers: Set[EventConsumer] = _consumers
+
 
+  private var _duration: Long = queries.foldLeft(0L){(max, query) =>
+    (query.duration.max(max))
+  }
 
   /**
    * Get the execution duration of this placement (in seconds). It is calculated
    * as the maximum duration of all queries that belong to this placement.
    * @return Execution duration of this placement
    */
-  val duration: Long = queries.foldLeft(0L){(max, query) =>
-    (query.duration.max(max))
-  }
+  def duration: Long = _duration
+
+  /**
+    * Indicates if any query of this placement represents more than one query instance.
+    * @return true if at least one query has multiplicity larger than 1.
+    */
+  def hasMultiplicity: Boolean = queries.exists(_.multiplicity > 1)
 
 
   /**
@@ -134,28 +162,38 @@ class Placement(val vertices: Set[Vertex], val vmId: Int, itOrder: Iterable[Vert
   }
 
 
-  private def buildOrder: Iterable[Vertex] = {
+  private def buildOrder(vertices: Set[Vertex]): Iterable[Vertex] = {
 
     var index = 0
     var iterationOrder = Vector.empty[Vertex]
 
     if (!vertices.isEmpty) {
 
-      var toProcess: Vector[Vertex] = Vector(findStartVertices().toSeq.sorted(Vertex.VertexIdOrdering):_*)
+      val startVertices = vertices.filter{(v) =>
+        val predecessors = v.predecessors.asInstanceOf[Set[Vertex]]
+        predecessors.isEmpty || predecessors.intersect(vertices).isEmpty
+      }
+      val toProcess = mutable.ArrayBuffer(startVertices.toSeq.sorted(Vertex.VertexIdOrdering):_*)
       var neighbours: mutable.Set[Vertex] = mutable.LinkedHashSet[Vertex]()
 
+      // vertices already in the list - the list is only appended to and the set answers the lookups
+      val listed = mutable.Set.empty[Vertex] ++ toProcess
+
       while (index < toProcess.length) {
         val v = toProcess(index)
         iterationOrder = iterationOrder :+ v
 
         // processing neighbours (vertices that are still not in the list, but belong to this placement)
         v.successors.foreach { (successor) =>
-          if ((!toProcess.contains(successor)) && (vertices.contains(successor))) neighbours.add(successor)
+          if ((!listed.contains(successor)) && (vertices.contains(successor))) neighbours.add(successor)
         }
 
-        val toBeMoved = neighbours.filter((neighbour)  =>  neighbour.predecessors.forall(toProcess.contains(_)))
+        // predecessors that do not belong to the ordered vertices do not delay a neighbour
+        val toBeMoved = neighbours.filter((neighbour) => neighbour.predecessors.forall((pred) =>
+          listed.contains(pred) || !vertices.contains(pred)))
         neighbours = neighbours -- toBeMoved
-        toProcess = toProcess ++ toBeMoved
+        listed ++= toBeMoved
+        toProcess ++= toBeMoved
         index += 1
       }
     }
@@ -163,7 +201,78 @@ class Placement(val vertices: Set[Vertex], val vmId: Int, itOrder: Iterable[Vert
   }
 
 
-  val iterationOrder = if (!itOrder.isEmpty) itOrder else buildOrder
+  private val iterationOrder = mutable.LinkedHashSet.empty[Vertex] ++
+    (if (!itOrder.isEmpty) itOrder else buildOrder(vertices))
+
+
+  /**
+    * Add the vertices of a query to the placement. The new vertices are traversed after the vertices already in
+    * the placement, in topological order.
+    * @param q Query to be added.
+    * @param queryVertices Vertices of the query that are assigned to this placement.
+    */
+  def addQuery(q: Query, queryVertices: Set[Vertex]): Unit = {
+    val added = queryVertices -- _vertices
+    _vertices = _vertices ++ added
+    queryVerticesMap = queryVerticesMap updated (q, queryVerticesMap(q) ++ queryVertices)
+
+    // vertices of the placement that precede the new vertices also need to be updated
+    val affected = added ++ added.flatMap(_.predecessors.asInstanceOf[Set[Vertex]]).filter(_vertices.contains(_))
+    affected.foreach(updateSuccessors(_))
+
+    _producers = _producers ++ (added collect { case ep: EventProducer => ep })
+    _consumers = _consumers ++ (added collect { case ec: EventConsumer => ec })
+    _duration = _duration.max(q.duration)
+    iterationOrder ++= buildOrder(added)
+    _version += 1
+  }
+
+  /**
+    * Add all vertices of a query to the placement.
+    * @param q Query to be added.
+    */
+  def addQuery(q: Query): Unit = addQuery(q, q.vertices)
+
+  /**
+    * Add the vertices of a query to the placement.
+    * @param q Query to be added.
+    * @param queryVertices Vertices of the query that are assigned to this placement.
+    */
+  def addQuery(q: Query, queryVertices: JavaSet[Vertex]): Unit = addQuery(q, asScalaSet(queryVertices).toSet)
+
+  /**
+    * Remove a query from the placement. Vertices shared with other queries of the placement are kept, but
+    * they are disconnected from the vertices of the removed query.
+    * @param q Query to be removed.
+    * @return Vertices that have been removed from the placement.
+    */
+  def removeQuery(q: Query): Set[Vertex] = {
+    val placed = queryVerticesMap.contains(q)
+    val removed = queryVerticesMap(q).filter((v) => !v.queries.exists((other) =>
+      (other != q) && (queryVerticesMap.contains(other))))
+    val affected = (queryVerticesMap(q) -- removed) ++
+      removed.flatMap(_.predecessors.asInstanceOf[Set[Vertex]]).filter((v) => _vertices.contains(v) && !removed(v))
+    queryVerticesMap = queryVerticesMap - q
+    _vertices = _vertices -- removed
+    if (placed) q.detach()
+
+    inPlacementSuccessors = inPlacementSuccessors -- removed
+    notInPlacementSuccessors = notInPlacementSuccessors -- removed
+    affected.foreach((v) => updateSuccessors(v, removed))
+
+    _producers = _producers -- (removed collect { case ep: EventProducer => ep })
+    _consumers = _consumers -- (removed collect { case ec: EventConsumer => ec })
+    _duration = queries.foldLeft(0L)((max, query) => query.duration.max(max))
+    iterationOrder --= removed
+    _version += 1
+    removed
+  }
+
+  private def updateSuccessors(v: Vertex, removed: Set[Vertex] = Set.empty) = {
+    val successors = v.successors.filter(!removed.contains(_))
+    inPlacementSuccessors = inPlacementSuccessors updated (v, successors.filter(_vertices.contains(_)))
+    notInPlacementSuccessors = notInPlacementSuccessors updated (v, successors.filter(!_vertices.contains(_)))
+  }
 
   /**
     * An iterator for this placement that traverse the vertices from the producers to consumers
@@ -0,0 +1,138 @@
+package ca.uwo.eng.sel.cepsim.query
+
+import ca.uwo.eng.sel.cepsim.event.EventSet
+import ca.uwo.eng.sel.cepsim.history.{SimEvent, WindowAccumulated}
+
+
+/** CountWindowedOperator companion object. */
+object CountWindowedOperator {
+
+  def apply(id: String, ipe: Double, count: Double, function: (Map[Vertex, Double]) => Double) =
+    new CountWindowedOperator(id, ipe, count, function, true, 1024)
+
+  def apply(id: String, ipe: Double, count: Double, function: (Map[Vertex, Double]) => Double,
+            queueMaxSize: Int) =
+    new CountWindowedOperator(id, ipe, count, function, true, queueMaxSize)
+
+  def apply(id: String, ipe: Double, count: Double, function: (Map[Vertex, Double]) => Double,
+            limitOutput: Boolean, queueMaxSize: Int) =
+    new CountWindowedOperator(id, ipe, count, function, limitOutput, queueMaxSize)
+
+}
+
+/**
+  * Query operator based on count windows. A window closes every time a fixed number of events has been
+  * accumulated, independently of the time it took to accumulate them. The events are accumulated in a single
+  * event set per predecessor, and the events of a closed window are extracted proportionally from them.
+  *
+  * @param id           Operator identifier.
+  * @param ipe          Number of CPU instructions needed to process a single event.
+  * @param count        Number of events of each window.
+  * @param function     The aggregation function. It receives a map from predecessors to the number of events received
+  *                    from it in the window, and it returns the number of events that must be output by
+  *                    the operator.
+  * @param limitOutput  Flag that indicate if the operator should limit its output when generating tuples.
+  * @param queueMaxSize Maximum size of the input queues, if limited.
+  */
+class CountWindowedOperator(id: String, ipe: Double, val count: Double, val function: (Map[Vertex, Double]) => Double,
+                            limitOutput: Boolean, queueMaxSize: Int)
+  extends Operator(id, ipe, queueMaxSize) with WindowedVertex {
+
+  require(count > 0, "Window count must be positive")
+
+  /** Events accumulated from each predecessor in the current window. */
+  var accumulated: Map[Vertex, EventSet] = Map.empty
+
+  /** Number of events held in memory by the operator, including the accumulated events. */
+  override def stateEvents: Double = super.stateEvents + EventSet.totalSize(accumulated.values)
+
+  /** Indicates if the vertex has pending events and needs to be allocated. */
+  override def needsAllocation: Boolean = (instructionsNeeded > 1.0)
+
+  /** The number of instructions needed to process all pending events. */
+  override def instructionsNeeded: Double = totalInputEvents * effectiveIpe
+
+  /**
+    * Indicates if the operator is idle until the informed timestamp. Besides having empty queues, the
+    * operator is only idle if there are no events waiting to be sent.
+    * @param until Timestamp until which the vertex idleness is checked (in ms since the simulation start).
+    * @return true if the vertex is idle.
+    */
+  override def isIdle(until: Double): Boolean = super.isIdle(until) && (toBeSent.size == 0)
+
+  /**
+    * Add a new input queue to the operator. It also initializes the accumulated event set.
+    * @param v New predecessor vertex.
+    */
+  override def addInputQueue(v: Vertex) = {
+    super.addInputQueue(v)
+    accumulated = accumulated updated (v, EventSet.empty())
+  }
+
+  /**
+    * Gets the number of events accumulated in the current window.
+    * @return number of accumulated events.
+    */
+  def accumulatedSize: Double = EventSet.totalSize(accumulated.values)
+
+  /**
+    * Executes the operator. The input events are accumulated, and all windows that are completed by them
+    * are closed.
+    * @param instructions Number of allocated instructions.
+    * @param startTime Time at which the simulation of this vertex has started (in ms since the simulation start).
+    * @param endTime Time at which the simulation of this vertex will end (in ms since the simulation start).
+    * @return Sequence of simulation events produced by the operator.
+    */
+  override def run(instructions: Double, startTime: Double = 0.0, endTime: Double = 0.0): Seq[SimEvent] = {
+    var (events, availableSpace) = sendPending(startTime, endTime, maximumNumberOfEvents)
+
+    // accumulate the input events
+    val retrievedEvents = retrieveFromInput(instructions)
+    retrievedEvents.foreach((elem) => accumulated(elem._1).add(elem._2))
+    lastAccumulation = retrievedEvents
+
+    val retrieved = EventSet.addAll(retrievedEvents.values)
+    if (retrieved.size > 0)
+      events = events :+ WindowAccumulated(this, startTime, endTime, 0, retrieved)
+
+    events ++ closeWindows(startTime, endTime, availableSpace)
+  }
+
+  /**
+    * Accumulates events without retrieving them from the input queues, and closes the windows completed by them.
+    * @param window Map from predecessors to the event sets to be accumulated from them.
+    * @param startTime Start time of the replayed execution (in ms since the simulation start).
+    * @param endTime End time of the replayed execution (in ms since the simulation start).
+    * @return The simulation events produced by the closed windows.
+    */
+  override def replayAccumulation(window: Map[Vertex, EventSet], startTime: Double,
+                                  endTime: Double): Seq[SimEvent] = {
+    window.foreach((elem) => accumulated(elem._1).add(elem._2))
+    lastAccumulation = window
+    closeWindows(startTime, endTime, maximumNumberOfEvents)
+  }
+
+  /**
+    * Closes all completed windows.
+    * @param startTime Time at which the simulation of this vertex has started (in ms since the simulation start).
+    * @param endTime Time at which the simulation of this vertex will end (in ms since the simulation start).
+    * @param availableSpace Space available in the output queues.
+    * @return The simulation events produced by the closed windows.
+    */
+  private def closeWindows(startTime: Double, endTime: Double, availableSpace: Double): List[SimEvent] = {
+    var events = List.empty[SimEvent]
+    var space = availableSpace
+    var size = accumulatedSize
+    while (size >= count) {
+      val window = accumulated.map((elem) => (elem._1, elem._2.extract(elem._2.size * count / size)))
+      val (produced, remainingSpace) = emitWindow(window, EventSet.addAll(window.values).totals, function,
+        limitOutput, startTime, endTime, space)
+
+      events = events ++ produced
+      space = remainingSpace
+      size = accumulatedSize
+    }
+    events
+  }
+
+}
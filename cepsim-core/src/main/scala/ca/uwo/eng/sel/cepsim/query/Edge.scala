@@ -21,7 +21,7 @@ object Edge {
   * @param to Destination vertex.
   * @param selectivity Selectivity of the edge.
   */
-class Edge(val from: OutputVertex, val to: InputVertex, val selectivity: Double = 1.0) {
+class Edge(val from: OutputVertex, val to: InputVertex, val selectivity: Double = 1.0) extends Serializable {
 
   def canEqual(other: Any): Boolean = other.isInstanceOf[Edge]
 
@@ -42,7 +42,7 @@ class EventConsumer(val id: String, val ipe: Double, val queueMaxSize: Int) exte
   }
 
   /** The number of instructions needed to process all pending events. */
-  def instructionsNeeded: Double = totalInputEvents * ipe
+  def instructionsNeeded: Double = totalInputEvents * effectiveIpe
 
   def canEqual(other: Any): Boolean = other.isInstanceOf[EventConsumer]
 
@@ -26,8 +26,27 @@ class EventProducer(val id: String, val ipe: Double, val generator: Generator, l
   /** Number of events on the input event set. */
   def inputQueue = inputEventQueue.size
 
+  /** Number of events held in memory by the producer, including the generated events not yet processed. */
+  override def stateEvents: Double = super.stateEvents + inputQueue
+
   /** The number of instructions needed to process all pending events. */
-  def instructionsNeeded: Double = inputQueue.min(maximumNumberOfEvents) * ipe
+  def instructionsNeeded: Double = inputQueue.min(maximumNumberOfEvents) * effectiveIpe
+
+  /**
+    * Indicates if the producer is idle until the informed timestamp, i.e., if there are no generated events
+    * waiting to be processed and all output queues are empty.
+    * @param until Timestamp until which the vertex idleness is checked (in ms since the simulation start).
+    * @return true if the vertex is idle.
+    */
+  override def isIdle(until: Double): Boolean = super.isIdle(until) && (inputQueue == 0)
+
+  /**
+    * Obtains the next timestamp at which the producer will have work to do. Producers are always ready
+    * because events are continuously generated.
+    * @param now Current timestamp (in ms since the simulation start).
+    * @return The current timestamp.
+    */
+  override def nextReadyTime(now: Double): Double = now
 
   var accumulated = 0.0
 
@@ -78,7 +97,7 @@ class EventProducer(val id: String, val ipe: Double, val generator: Generator, l
     */
   def run(instructions: Double, startTime: Double = 0.0, endTime: Double = 0.0): Seq[SimEvent] = {
 
-    val maxOutput = (instructions / ipe)
+    val maxOutput = (instructions / effectiveIpe)
     val processed = maxOutput.min(inputQueue).min(maximumNumberOfEvents)
 
     val es = inputEventQueue.dequeue(processed)
@@ -1,6 +1,7 @@
 package ca.uwo.eng.sel.cepsim.query
 
 import ca.uwo.eng.sel.cepsim.event.{EventSetQueue, EventSet}
+import ca.uwo.eng.sel.cepsim.shed.LoadSheddingStrategy
 
 /** Trait that represent vertices that have incoming edges. */
 trait InputVertex extends Vertex  { this: Vertex =>
@@ -17,6 +18,9 @@ trait InputVertex extends Vertex  { this: Vertex =>
   /** The maximum queue size. */
   val queueMaxSize: Int
 
+  /** Strategy used to drop events received by the vertex when it is overloaded. Disabled if None. */
+  var sheddingStrategy: Option[LoadSheddingStrategy] = None
+
   /**
    * Gets the set of vertex predecessors.
    * @return set containing all vertex predecessors.
@@ -44,6 +48,15 @@ trait InputVertex extends Vertex  { this: Vertex =>
   def addInputQueue(v: Vertex) =
     inputEventQueues = inputEventQueues + (v -> EventSetQueue())
 
+  /**
+   * Removes the input queue of a predecessor. The events still in the queue are discarded.
+   * @param v Predecessor vertex that is no longer connected to this vertex.
+   */
+  def removeInputQueue(v: Vertex) = {
+    inputEventQueues.get(v).foreach((queue) => inputEventQueuesSize = (inputEventQueuesSize - queue.size).max(0.0))
+    inputEventQueues = inputEventQueues - v
+  }
+
   /**
    * Obtains the number of events in a input queue.
    * @param v Predecessor vertex to which the input queue is associated.
@@ -57,6 +70,17 @@ trait InputVertex extends Vertex  { this: Vertex =>
     */
   def totalInputEvents = inputEventQueuesSize//inputEventQueues.foldLeft(0.0)((acc, elem) => acc + elem._2.size)
 
+  /** Number of events held in memory by the vertex, including the events in the input queues. */
+  override def stateEvents: Double = super.stateEvents + totalInputEvents
+
+  /**
+    * Indicates if the vertex is idle until the informed timestamp. Input vertices are only idle if all
+    * input queues are empty.
+    * @param until Timestamp until which the vertex idleness is checked (in ms since the simulation start).
+    * @return true if the vertex is idle.
+    */
+  override def isIdle(until: Double): Boolean = super.isIdle(until) && (totalInputEvents == 0)
+
 
   /**
     * Enqueue an event set to an input queue.
@@ -101,7 +125,7 @@ trait InputVertex extends Vertex  { this: Vertex =>
     val total = totalInputEvents
 
     // number of events that can be processed
-    val events = total.min(instructions / ipe).min(maximumNumberOfEvents)
+    val events = total.min(instructions / effectiveIpe).min(maximumNumberOfEvents)
 
     // number of events processed from each queue
     // current implementation distribute processing according to the queue size
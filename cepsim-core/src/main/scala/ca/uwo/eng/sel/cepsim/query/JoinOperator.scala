@@ -0,0 +1,162 @@
+package ca.uwo.eng.sel.cepsim.query
+
+import ca.uwo.eng.sel.cepsim.event.EventSet
+import ca.uwo.eng.sel.cepsim.history.{Produced, SimEvent}
+
+import scala.collection.mutable
+import scala.concurrent.duration._
+
+
+/** JoinOperator companion object. */
+object JoinOperator {
+
+  def apply(id: String, ipe: Double, probeIpe: Double, window: Double, selectivity: Double) =
+    new JoinOperator(id, ipe, probeIpe, window milliseconds, selectivity, 1024)
+
+  def apply(id: String, ipe: Double, probeIpe: Double, window: Double, selectivity: Double, queueMaxSize: Int) =
+    new JoinOperator(id, ipe, probeIpe, window milliseconds, selectivity, queueMaxSize)
+
+}
+
+/**
+  * Query operator that joins the events of two predecessors over a sliding time window. The operator retains
+  * the events received from each predecessor during the window, and each new event is matched against the
+  * events retained from the other predecessor. The number of output events is the number of matched pairs
+  * multiplied by the join selectivity, and the cost of processing an event grows with the number of events
+  * it is matched against.
+  *
+  * @param id           Operator identifier.
+  * @param ipe          Number of CPU instructions needed to process a single event, besides the matching.
+  * @param probeIpe     Number of CPU instructions needed to match an event against one retained event.
+  * @param window       Size of the window. It specifies for how long the received events are retained.
+  * @param selectivity  Probability that a pair of events from different predecessors matches.
+  * @param queueMaxSize Maximum size of the input queues, if limited.
+  */
+class JoinOperator(id: String, ipe: Double, val probeIpe: Double, val window: Duration, val selectivity: Double,
+                   queueMaxSize: Int)
+  extends Operator(id, ipe, queueMaxSize) {
+
+  /** Events retained from each predecessor, as pairs of timestamp and number of events. */
+  var retained: Map[Vertex, mutable.Queue[(Double, Double)]] = Map.empty
+
+  /** Number of events retained from each predecessor. */
+  var retainedSize: Map[Vertex, Double] = Map.empty
+
+  /** Input events that have not produced any output yet. Their totals are added to the next output. */
+  var unmatched: EventSet = EventSet.empty()
+
+  /**
+    * Add a new input queue to the join operator. It also initializes the retained events of the predecessor.
+    * @param v New predecessor vertex.
+    */
+  override def addInputQueue(v: Vertex) = {
+    if (inputEventQueues.size == 2)
+      throw new IllegalArgumentException("Join operators can have only two predecessors")
+
+    super.addInputQueue(v)
+    retained = retained updated (v, mutable.Queue.empty[(Double, Double)])
+    retainedSize = retainedSize updated (v, 0.0)
+  }
+
+  /**
+    * Gets the total number of events retained in the windows.
+    * @return number of retained events.
+    */
+  def retainedEvents: Double = retainedSize.values.sum
+
+  /** Number of events held in memory by the operator, including the events retained in the windows. */
+  override def stateEvents: Double = super.stateEvents + retainedEvents
+
+  /**
+    * Gets the number of instructions needed to process one event received from a predecessor. It includes
+    * the matching against all events retained from the other predecessor.
+    * @param v Predecessor vertex.
+    * @return number of instructions needed to process one event.
+    */
+  def costPerEvent(v: Vertex): Double = (ipe + probeIpe * other(v).fold(0.0)(retainedSize)) * multiplicity
+
+  /** The number of instructions needed to process all pending events. */
+  override def instructionsNeeded: Double =
+    if (maximumNumberOfEvents <= 0) 0.0
+    else inputEventQueues.foldLeft(0.0)((acc, elem) => acc + elem._2.size * costPerEvent(elem._1))
+
+  /**
+    * Executes the join. The number of processed events is limited by the allocated instructions and by
+    * the space available in the output queues.
+    * @param instructions Number of allocated instructions.
+    * @param startTime Time at which the simulation of this vertex has started (in ms since the simulation start).
+    * @param endTime Time at which the simulation of this vertex will end (in ms since the simulation start).
+    * @return A list with a single Produced simulation event, or an empty list if no events has been produced.
+    */
+  override def run(instructions: Double, startTime: Double = 0.0, endTime: Double = 0.0): Seq[SimEvent] = {
+    expire(endTime - window.toUnit(MILLISECONDS))
+
+    val total = totalInputEvents
+    if (total == 0) return List.empty
+
+    // fraction of the queued events that can be processed with the allocated instructions
+    val needed = inputEventQueues.foldLeft(0.0)((acc, elem) => acc + elem._2.size * costPerEvent(elem._1))
+    var fraction = if (needed == 0) 1.0 else (instructions / needed).min(1.0)
+
+    // the output is at most linear on the fraction, so reducing it proportionally respects the output limits
+    val output = matches(fraction)
+    val availableSpace = maximumNumberOfEvents
+    if (output > availableSpace) fraction = fraction * (availableSpace.max(0.0) / output)
+    if (fraction <= 0) return List.empty
+
+    val processedOutput = matches(fraction)
+    val fromInput = inputEventQueues.map((elem) => (elem._1, dequeueFromInput(elem._1, elem._2.size * fraction)))
+    fromInput.foreach((elem) => retain(elem._1, endTime, elem._2.size))
+
+    val events = EventSet.addAll(fromInput.values)
+    if (processedOutput > 0) {
+      events.add(unmatched)
+      unmatched = EventSet.empty()
+
+      events.size = processedOutput
+      events.updateTimestamp(endTime)
+      sendToAllOutputs(events)
+      List(Produced(this, startTime, endTime, events))
+    } else {
+      unmatched.add(events)
+      List.empty
+    }
+  }
+
+  /**
+    * Calculates the number of output events produced by processing a fraction of the queued events. New
+    * events are matched against the retained events of the other predecessor and against each other.
+    * @param fraction Fraction of the queued events.
+    * @return number of output events.
+    */
+  private def matches(fraction: Double): Double = {
+    if (inputEventQueues.size < 2) 0.0
+    else {
+      val Seq((l, left), (r, right)) = inputEventQueues.toSeq.map((elem) => (elem._1, elem._2.size * fraction))
+      selectivity * (left * retainedSize(r) + right * retainedSize(l) + left * right)
+    }
+  }
+
+  private def other(v: Vertex): Option[Vertex] = inputEventQueues.keys.find(_ != v)
+
+  private def retain(v: Vertex, timestamp: Double, quantity: Double): Unit = {
+    if (quantity > 0) {
+      retained(v).enqueue((timestamp, quantity))
+      retainedSize = retainedSize updated (v, retainedSize(v) + quantity)
+    }
+  }
+
+  /**
+    * Discards the retained events that are no longer in the window.
+    * @param until Timestamp before which the events are discarded.
+    */
+  private def expire(until: Double): Unit = {
+    retained.foreach { (elem) =>
+      val queue = elem._2
+      var size = retainedSize(elem._1)
+      while (queue.nonEmpty && (queue.head._1 <= until)) size -= queue.dequeue()._2
+      retainedSize = retainedSize updated (elem._1, if (size < 0.0001) 0.0 else size)
+    }
+  }
+
+}
@@ -31,6 +31,16 @@ trait OutputVertex extends Vertex {
     limits = limits + (v -> (if (v.queueMaxSize == 0) Long.MaxValue else v.queueMaxSize))
   }
 
+  /**
+    * Removes the output queue of a successor, along with its selectivity and limit.
+    * @param v Successor vertex that is no longer connected to this vertex.
+    */
+  def removeOutputQueue(v: InputVertex) = {
+    outputEventQueues = outputEventQueues - v
+    selectivities = selectivities - v
+    limits = limits - v
+  }
+
   /**
     * Obtains the number of events in a output queue.
     * @param v Successor vertex to which the output queue is associated.
@@ -38,6 +48,19 @@ trait OutputVertex extends Vertex {
     */
   def outputQueues(v: Vertex): Double = outputEventQueues(v).size
 
+  /** Number of events held in memory by the vertex, including the events in the output queues. */
+  override def stateEvents: Double =
+    super.stateEvents + outputEventQueues.foldLeft(0.0)((acc, elem) => acc + elem._2.size)
+
+  /**
+    * Indicates if the vertex is idle until the informed timestamp. Output vertices are only idle if all
+    * output queues are empty.
+    * @param until Timestamp until which the vertex idleness is checked (in ms since the simulation start).
+    * @return true if the vertex is idle.
+    */
+  override def isIdle(until: Double): Boolean =
+    super.isIdle(until) && outputEventQueues.forall(_._2.size == 0)
+
   /**
     * Sets the limit of a specific output queue.
     * @param v Successor vertex that identifies the output queue.
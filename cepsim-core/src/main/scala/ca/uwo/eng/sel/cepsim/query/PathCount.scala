@@ -0,0 +1,15 @@
+package ca.uwo.eng.sel.cepsim.query
+
+/**
+  * Summary of all paths between a vertex and an event producer.
+  * @param paths Number of paths.
+  */
+case class PathCount(paths: Long) {
+
+  /**
+    * Combines the paths of this summary with the paths of another summary.
+    * @param other Summary to be combined.
+    * @return summary containing the paths of both summaries.
+    */
+  def +(other: PathCount) = PathCount(paths + other.paths)
+}
@@ -7,6 +7,9 @@ import scala.collection.JavaConversions.{asScalaSet, mapAsScalaMap}
 
 /** Query companion object */
 object Query {
+
+  /** Empty edge map shared by queries that are created without edges. */
+  private val NoEdges: Map[Vertex, Set[Edge]] = Map.empty[Vertex, Set[Edge]] withDefaultValue(Set.empty)
   
   def apply(id: String, vs: JavaSet[Vertex], es: JavaSet[(OutputVertex, InputVertex, Double)],
             duration: Long): Query =
@@ -20,6 +23,17 @@ object Query {
     q addEdges(es.toSeq:_*)
     q
   }
+
+  def apply(id: String, vs: JavaSet[Vertex], es: JavaSet[(OutputVertex, InputVertex, Double)],
+            duration: Long, multiplicity: Int): Query =
+    apply(id, asScalaSet(vs).toSet, asScalaSet(es).toSet, duration, multiplicity)
+
+  def apply(id: String, vs: Set[Vertex], es: Set[(OutputVertex, InputVertex, Double)],
+            duration: Long, multiplicity: Int): Query = {
+    val q = apply(id, vs, es, duration)
+    q.multiplicity = multiplicity
+    q
+  }
 }
 
 
@@ -31,7 +45,8 @@ object Query {
   * @param e Map from vertices to a set of outgoing edges.
   * @param duration Query duration (for how long it runs).
   */
-class Query protected (val id: String, v: Set[Vertex], e: Map[Vertex, Set[Edge]], val duration: Long) {
+class Query protected (val id: String, v: Set[Vertex], e: Map[Vertex, Set[Edge]], val duration: Long)
+  extends Serializable {
 
   /**
     * This is a private constructor used only by the Query companion object. Constructs a empty query.
@@ -55,11 +70,24 @@ class Query protected (val id: String, v: Set[Vertex], e: Map[Vertex, Set[Edge]]
   /** Set of query vertices. */
   var vertices: Set[Vertex] = v
 
+  /**
+    * Number of identical instances of this query. The instances are simulated only once, but each vertex
+    * consumes the CPU instructions needed by all of them.
+    */
+  private var _multiplicity: Int = 1
+
+  def multiplicity: Int = _multiplicity
+  def multiplicity_=(m: Int): Unit = {
+    require(m >= 1, "Query multiplicity must be at least 1")
+    _multiplicity = m
+    vertices.foreach(_.updateMultiplicity())
+  }
+
   /** Map from vertices to its set of outgoing edges. */
-  private var outgoingEdges: Map[Vertex, Set[Edge]] = e withDefaultValue(Set.empty)
+  private var outgoingEdges: Map[Vertex, Set[Edge]] = if (e.isEmpty) Query.NoEdges else e withDefaultValue(Set.empty)
 
   /** Map from vertices to its set of incoming edges. */
-  private var incomingEdges: Map[Vertex, Set[Edge]] = {
+  private var incomingEdges: Map[Vertex, Set[Edge]] = if (e.isEmpty) Query.NoEdges else {
     val tmpMap = scala.collection.mutable.Map[Vertex, Set[Edge]]() withDefaultValue(Set.empty)
     outgoingEdges.values.foreach{(set) =>
       set.foreach{(edge) =>
@@ -157,7 +185,49 @@ class Query protected (val id: String, v: Set[Vertex], e: Map[Vertex, Set[Edge]]
   }
 
   /**
-    * Gets a list of paths from a specific consumer to query producers.
+    * Detaches the query from its vertices when it is removed. The query is removed from the queries of each
+    * vertex, and the queues of the edges that do not belong to any other query are dropped, so that vertices
+    * shared with other queries stop exchanging events with the vertices of this query.
+    */
+  private[cepsim] def detach(): Unit = {
+    vertices foreach (_.removeQuery(this))
+    vertices.flatMap(edges(_)) foreach { e =>
+      if (!e.from.queries.exists(_.successors(e.from).contains(e.to))) {
+        e.from removeOutputQueue (e.to)
+        e.to   removeInputQueue  (e.from)
+      }
+    }
+  }
+
+  /**
+    * Counts the paths from a specific consumer to each query producer. Instead of
+    * enumerating the paths, the counts of each vertex are calculated once from the counts of its
+    * predecessors, so that the calculation is linear on the number of vertices and edges.
+    * @param c Event consumer from which the paths are counted.
+    * @return map from query producers to the summary of their paths to the consumer.
+    */
+  def pathCounts(c: EventConsumer): Map[EventProducer, PathCount] = {
+    val counts = scala.collection.mutable.Map.empty[Vertex, Map[EventProducer, PathCount]]
+
+    def countsOf(vx: Vertex): Map[EventProducer, PathCount] = counts.getOrElseUpdate(vx, {
+      val preds = predecessors(vx)
+      if (preds.isEmpty) vx match {
+        case p: EventProducer => Map(p -> PathCount(1))
+        case _ => Map.empty[EventProducer, PathCount]
+      }
+      else preds.foldLeft(Map.empty[EventProducer, PathCount]) { (acc, pred) =>
+        countsOf(pred).foldLeft(acc) { (acc, entry) =>
+          acc updated (entry._1, acc.get(entry._1).fold(entry._2)(_ + entry._2))
+        }
+      }
+    })
+    countsOf(c)
+  }
+
+  /**
+    * Gets a list of paths from a specific consumer to query producers. The number of paths can grow
+    * exponentially on queries with many joins, so this method should only be used for debugging. The
+    * pathCounts method summarizes the same paths efficiently.
     * @param c Event consumer from which the paths are obtained.
     * @return list of paths from a specific consumer to query producers.
     */
@@ -0,0 +1,176 @@
+package ca.uwo.eng.sel.cepsim.query
+
+/** QueryTemplate companion object. */
+object QueryTemplate {
+
+  /**
+    * Creates a new query template.
+    * @param id Template identifier. It is used as prefix of the identifiers of the query instances.
+    * @param vertices Sequence of pairs containing the vertex name and a function that creates a vertex
+    *                 from its identifier.
+    * @param edges 3-tuples containing the origin vertex name, destination vertex name, and edge selectivity.
+    * @return new query template.
+    */
+  def apply(id: String, vertices: Seq[(String, (String) => Vertex)], edges: Seq[(String, String, Double)]) = {
+    val names = vertices.map(_._1).toIndexedSeq
+    require(names.distinct.size == names.size, "Vertex names must be unique")
+
+    def index(name: String) = names.indexOf(name) match {
+      case -1 => throw new IllegalArgumentException(s"Unknown vertex $name")
+      case i  => i
+    }
+    new QueryTemplate(id, names, vertices.map(_._2).toIndexedSeq,
+      edges.map((e) => index(e._1)).toArray, edges.map((e) => index(e._2)).toArray, edges.map(_._3).toArray)
+  }
+}
+
+/**
+  * Topology shared by a set of identical queries. The template keeps the vertex names, edges and
+  * selectivities in flat arrays, and each query instance only owns its vertices, which hold the runtime state.
+  * Instances are created in time linear to the template size, and their edge information is obtained
+  * from the template when needed.
+  *
+  * @param id Template identifier.
+  * @param names Vertex names.
+  * @param factories Functions that create the vertices of an instance from their identifiers.
+  * @param edgeFrom Index of the origin vertex of each edge.
+  * @param edgeTo Index of the destination vertex of each edge.
+  * @param selectivities Selectivity of each edge.
+  */
+class QueryTemplate private (val id: String, val names: IndexedSeq[String],
+                             factories: IndexedSeq[(String) => Vertex],
+                             private[query] val edgeFrom: Array[Int], private[query] val edgeTo: Array[Int],
+                             private[query] val selectivities: Array[Double]) {
+
+  /** Indexes of the outgoing edges of each vertex. */
+  private[query] val outgoing: Array[Array[Int]] =
+    Array.tabulate(names.size)((v) => edgeFrom.indices.filter(edgeFrom(_) == v).toArray)
+
+  /** Indexes of the incoming edges of each vertex. */
+  private[query] val incoming: Array[Array[Int]] =
+    Array.tabulate(names.size)((v) => edgeTo.indices.filter(edgeTo(_) == v).toArray)
+
+  /** Number of vertices of each query instance. */
+  def size: Int = names.size
+
+  /**
+    * Creates a new query instance. The query and vertex identifiers are formed by appending the instance
+    * identifier to the template identifier and to the vertex names.
+    * @param instanceId Identifier of the instance.
+    * @param duration Query duration (for how long it runs).
+    * @param multiplicity Number of identical query instances represented by the query.
+    * @return new query instance.
+    */
+  def instantiate(instanceId: String, duration: Long = Long.MaxValue, multiplicity: Int = 1): Query = {
+    val vertices = new Array[Vertex](size)
+    for (i <- 0 until size) vertices(i) = factories(i)(names(i) + instanceId)
+
+    val q = new TemplateQuery(id + instanceId, this, vertices, duration)
+    if (multiplicity != 1) q.multiplicity = multiplicity
+    q
+  }
+
+  /**
+    * Creates a number of query instances, identified by the numbers from 1 to count.
+    * @param count Number of instances.
+    * @param duration Query duration (for how long it runs).
+    * @return sequence of query instances.
+    */
+  def instantiate(count: Int, duration: Long): IndexedSeq[Query] =
+    (1 to count).map((i) => instantiate(i.toString, duration))
+
+}
+
+/**
+  * Query created from a template. Its edges cannot be changed after the creation. The structure is looked
+  * up through the template, using the template index stored on each vertex, and the Edge objects and
+  * neighbour sets are created once per instance, when they are first requested.
+  * @param id Query identifier.
+  * @param template Template from which the query has been created.
+  * @param instance Query vertices, in the same order as the template vertex names.
+  * @param duration Query duration (for how long it runs).
+  */
+private[query] class TemplateQuery(id: String, val template: QueryTemplate, instance: Array[Vertex], duration: Long)
+  extends Query(id, instance.toSet, Map.empty[Vertex, Set[Edge]], duration) {
+
+  private val edgeCache = new Array[Edge](template.edgeFrom.length)
+  private val edgeSets = new Array[Set[Edge]](instance.length)
+  private val predecessorSets = new Array[Set[OutputVertex]](instance.length)
+  private val successorSets = new Array[Set[InputVertex]](instance.length)
+
+  for (i <- instance.indices) {
+    instance(i).templateIndex = i
+    instance(i).addQuery(this)
+  }
+  for (e <- template.edgeFrom.indices) {
+    val from = outputVertex(template.edgeFrom(e))
+    val to = inputVertex(template.edgeTo(e))
+    from addOutputQueue (to, template.selectivities(e))
+    to   addInputQueue  (from)
+  }
+
+  private def outputVertex(i: Int): OutputVertex = instance(i) match {
+    case v: OutputVertex => v
+    case v => throw new IllegalArgumentException(s"Vertex ${v.id} cannot have outgoing edges")
+  }
+
+  private def inputVertex(i: Int): InputVertex = instance(i) match {
+    case v: InputVertex => v
+    case v => throw new IllegalArgumentException(s"Vertex ${v.id} cannot have incoming edges")
+  }
+
+  private def indexOf(v: Vertex): Int = {
+    val i = v.templateIndex
+    if ((i >= 0) && (i < instance.length) && (instance(i) eq v)) i else -1
+  }
+
+  private def edgeAt(e: Int): Edge = {
+    if (edgeCache(e) == null)
+      edgeCache(e) = Edge(outputVertex(template.edgeFrom(e)), inputVertex(template.edgeTo(e)), template.selectivities(e))
+    edgeCache(e)
+  }
+
+  override def predecessors(v: Vertex): Set[OutputVertex] = indexOf(v) match {
+    case -1 => Set.empty
+    case i  =>
+      if (predecessorSets(i) == null)
+        predecessorSets(i) = template.incoming(i).map((e) => outputVertex(template.edgeFrom(e))).toSet
+      predecessorSets(i)
+  }
+
+  override def successors(v: Vertex): Set[InputVertex] = indexOf(v) match {
+    case -1 => Set.empty
+    case i  =>
+      if (successorSets(i) == null)
+        successorSets(i) = template.outgoing(i).map((e) => inputVertex(template.edgeTo(e))).toSet
+      successorSets(i)
+  }
+
+  override def edges(v: Vertex): Set[Edge] = indexOf(v) match {
+    case -1 => Set.empty
+    case i  =>
+      if (edgeSets(i) == null) edgeSets(i) = template.outgoing(i).map(edgeAt).toSet
+      edgeSets(i)
+  }
+
+  override def edge(from: Vertex, to: Vertex): Edge = {
+    val i = indexOf(from)
+    val j = indexOf(to)
+    if ((i != -1) && (j != -1)) {
+      val outgoing = template.outgoing(i)
+      var k = 0
+      while (k < outgoing.length) {
+        if (template.edgeTo(outgoing(k)) == j) return edgeAt(outgoing(k))
+        k += 1
+      }
+    }
+    throw new IllegalArgumentException
+  }
+
+  override def addVertices(vs: Vertex*): Unit =
+    throw new UnsupportedOperationException("Queries created from templates cannot be changed")
+
+  override def addEdges(es: Set[Edge]): Unit =
+    throw new UnsupportedOperationException("Queries created from templates cannot be changed")
+
+}
@@ -0,0 +1,146 @@
+package ca.uwo.eng.sel.cepsim.query
+
+import ca.uwo.eng.sel.cepsim.event.EventSet
+import ca.uwo.eng.sel.cepsim.history.{SimEvent, WindowAccumulated}
+
+import scala.concurrent.duration._
+
+
+/** SessionWindowedOperator companion object. */
+object SessionWindowedOperator {
+
+  def apply(id: String, ipe: Double, gap: Double, function: (Map[Vertex, Double]) => Double) =
+    new SessionWindowedOperator(id, ipe, gap milliseconds, function, true, 1024)
+
+  def apply(id: String, ipe: Double, gap: Double, function: (Map[Vertex, Double]) => Double,
+            queueMaxSize: Int) =
+    new SessionWindowedOperator(id, ipe, gap milliseconds, function, true, queueMaxSize)
+
+  def apply(id: String, ipe: Double, gap: Double, function: (Map[Vertex, Double]) => Double,
+            limitOutput: Boolean, queueMaxSize: Int) =
+    new SessionWindowedOperator(id, ipe, gap milliseconds, function, limitOutput, queueMaxSize)
+
+}
+
+/**
+  * Query operator based on session windows. A session starts when events are accumulated, and it closes
+  * when no events are accumulated for a period longer than the inactivity gap.
+  *
+  * @param id           Operator identifier.
+  * @param ipe          Number of CPU instructions needed to process a single event.
+  * @param gap          Inactivity gap that closes the session.
+  * @param function     The aggregation function. It receives a map from predecessors to the number of events received
+  *                    from it in the session, and it returns the number of events that must be output by
+  *                    the operator.
+  * @param limitOutput  Flag that indicate if the operator should limit its output when generating tuples.
+  * @param queueMaxSize Maximum size of the input queues, if limited.
+  */
+class SessionWindowedOperator(id: String, ipe: Double, val gap: Duration, function: (Map[Vertex, Double]) => Double,
+                              limitOutput: Boolean, queueMaxSize: Int)
+  extends Operator(id, ipe, queueMaxSize) with WindowedVertex {
+
+  /** Events accumulated from each predecessor in the current session. */
+  var accumulated: Map[Vertex, EventSet] = Map.empty
+
+  /** Timestamp of the last non-empty accumulation. */
+  var lastActivity = 0.0
+
+  /** Indicates if there is an open session. */
+  var open = false
+
+  /** Timestamp at which the current session closes if no more events are accumulated. */
+  override def windowBoundary: Double =
+    if (open) lastActivity + gap.toUnit(MILLISECONDS) else Double.MaxValue
+
+  /** Number of events held in memory by the operator, including the accumulated events. */
+  override def stateEvents: Double = super.stateEvents + EventSet.totalSize(accumulated.values)
+
+  /** Indicates if the vertex has pending events and needs to be allocated. */
+  override def needsAllocation: Boolean = (instructionsNeeded > 1.0)
+
+  /** The number of instructions needed to process all pending events. */
+  override def instructionsNeeded: Double = totalInputEvents * effectiveIpe
+
+  /**
+    * Indicates if the operator is idle until the informed timestamp. Besides having empty queues, the
+    * operator is only idle if there are no events waiting to be sent and the session does not close
+    * before that timestamp.
+    * @param until Timestamp until which the vertex idleness is checked (in ms since the simulation start).
+    * @return true if the vertex is idle.
+    */
+  override def isIdle(until: Double): Boolean =
+    super.isIdle(until) && (toBeSent.size == 0) && (windowBoundary >= until)
+
+  /**
+    * Obtains the next timestamp at which the operator will have work to do. If there are no queued events,
+    * the operator is ready when the current session closes.
+    * @param now Current timestamp (in ms since the simulation start).
+    * @return The next timestamp at which the operator will be ready.
+    */
+  override def nextReadyTime(now: Double): Double =
+    if (isIdle(Double.MinValue)) windowBoundary.max(now) else now
+
+  /**
+    * Add a new input queue to the operator. It also initializes the accumulated event set.
+    * @param v New predecessor vertex.
+    */
+  override def addInputQueue(v: Vertex) = {
+    super.addInputQueue(v)
+    accumulated = accumulated updated (v, EventSet.empty())
+  }
+
+  /**
+    * Executes the operator. If the inactivity gap has passed, the current session is closed before the
+    * input events are accumulated into a new session.
+    * @param instructions Number of allocated instructions.
+    * @param startTime Time at which the simulation of this vertex has started (in ms since the simulation start).
+    * @param endTime Time at which the simulation of this vertex will end (in ms since the simulation start).
+    * @return Sequence of simulation events produced by the operator.
+    */
+  override def run(instructions: Double, startTime: Double = 0.0, endTime: Double = 0.0): Seq[SimEvent] = {
+    var (events, availableSpace) = sendPending(startTime, endTime, maximumNumberOfEvents)
+
+    if (open && (startTime >= windowBoundary)) {
+      val window = accumulated.map((elem) => (elem._1, elem._2.extract(elem._2.size)))
+      val (produced, _) = emitWindow(window, EventSet.addAll(window.values).totals, function, limitOutput,
+        startTime, endTime, availableSpace)
+
+      events = events ++ produced
+      open = false
+    }
+
+    // accumulate the input events
+    val retrievedEvents = retrieveFromInput(instructions)
+    retrievedEvents.foreach((elem) => accumulated(elem._1).add(elem._2))
+    lastAccumulation = retrievedEvents
+
+    val retrieved = EventSet.addAll(retrievedEvents.values)
+    if (retrieved.size > 0) {
+      events = events :+ WindowAccumulated(this, startTime, endTime, 0, retrieved)
+      lastActivity = endTime
+      open = true
+    }
+    events
+  }
+
+  /**
+    * Accumulates events in the current session without retrieving them from the input queues. The session
+    * is only closed when the operator runs after the inactivity gap.
+    * @param window Map from predecessors to the event sets to be accumulated from them.
+    * @param startTime Start time of the replayed execution (in ms since the simulation start).
+    * @param endTime End time of the replayed execution (in ms since the simulation start).
+    * @return Empty sequence.
+    */
+  override def replayAccumulation(window: Map[Vertex, EventSet], startTime: Double,
+                                  endTime: Double): Seq[SimEvent] = {
+    window.foreach((elem) => accumulated(elem._1).add(elem._2))
+    lastAccumulation = window
+
+    if (EventSet.totalSize(window.values) > 0) {
+      lastActivity = endTime
+      open = true
+    }
+    Seq.empty
+  }
+
+}
@@ -3,11 +3,21 @@ package ca.uwo.eng.sel.cepsim.query
 import ca.uwo.eng.sel.cepsim.history.SimEvent
 
 /** Trait for vertices of query graphs. */
-trait Vertex {
+trait Vertex extends Serializable {
 
   var queries: Set[Query] = Set.empty
-  private[query] def addQuery(q: Query) = queries += q
-  private[query] def removeQuery(q: Query) = queries -= q
+  private[query] def addQuery(q: Query) = { queries += q; updateMultiplicity() }
+  private[query] def removeQuery(q: Query) = { queries -= q; updateMultiplicity() }
+
+  /**
+    * Number of identical query instances represented by the vertex. It is the largest multiplicity
+    * of the queries that contain the vertex.
+    */
+  var multiplicity: Int = 1
+  private[query] def updateMultiplicity() = multiplicity = queries.foldLeft(1)((m, q) => m.max(q.multiplicity))
+
+  /** Position of the vertex in the template of the query that created it, or -1 if it has no template. */
+  private[query] var templateIndex: Int = -1
 
   /** Vertex unique identifier. */
   def id: String
@@ -15,12 +25,41 @@ trait Vertex {
   /** Number of instructions needed to process one event. */
   def ipe: Double
 
+  /** Number of instructions needed to process one event in all instances represented by the vertex. */
+  def effectiveIpe: Double = ipe * multiplicity
+
+  /** Number of bytes used to store one event in the vertex state. The state is not modeled if it is 0. */
+  var eventSize: Double = 0.0
+
+  /** Number of events held in memory by the vertex, such as queued events and events retained in windows. */
+  def stateEvents: Double = 0.0
+
+  /** Memory used by the vertex state (in bytes), considering all instances represented by the vertex. */
+  def stateSize: Double = stateEvents * eventSize * multiplicity
+
   /** The number of instructions needed to process all pending events. */
   def instructionsNeeded: Double
 
   /** Indicates if the vertex has pending events and needs to be allocated. */
   def needsAllocation: Boolean = instructionsNeeded > 1.0
 
+  /**
+    * Indicates if the vertex is idle until the informed timestamp. A vertex is idle if it does not have any
+    * queued events and it will not emit events by itself before that timestamp.
+    * @param until Timestamp until which the vertex idleness is checked (in ms since the simulation start).
+    * @return true if the vertex is idle.
+    */
+  def isIdle(until: Double): Boolean = true
+
+  /**
+    * Obtains the next timestamp at which the vertex will have work to do. Vertices with queued events are
+    * ready immediately, while idle vertices are only ready when they receive new events.
+    * @param now Current timestamp (in ms since the simulation start).
+    * @return The next timestamp at which the vertex will be ready, or Double.MaxValue if the vertex only
+    *         becomes ready after receiving events.
+    */
+  def nextReadyTime(now: Double): Double = if (isIdle(now)) Double.MaxValue else now
+
   // the next two methods are overriden in the InputVertex / OutputVertex traits.
   /**
    * Gets the set of successors of a vertex.
@@ -11,7 +11,7 @@ object VertexPath {
   * @param vertices Sequence of vertices that are part of the path.
   * @param edges List of edges that are part of the path.
   */
-class VertexPath(val vertices: List[Vertex], val edges: List[Edge]) {
+class VertexPath(val vertices: List[Vertex], val edges: List[Edge]) extends Serializable {
   /**
     * Concatenates a new vertex and edge to the path.
     * @param p Tuples containing the vertex and edge to be added.
@@ -49,8 +49,8 @@ object WindowedOperator {
   * @param queueMaxSize Maximum size of the input queues, if limited.
   */
 class WindowedOperator(id: String, ipe: Double, val size: Duration, val advance: Duration,
-                      function: (Map[Vertex, Double]) => Double, limitOutput: Boolean, queueMaxSize: Int)
-  extends Operator(id, ipe, queueMaxSize) {
+                      val function: (Map[Vertex, Double]) => Double, limitOutput: Boolean, queueMaxSize: Int)
+  extends Operator(id, ipe, queueMaxSize) with WindowedVertex {
 
   /** Start time. */
   var start = 0.0
@@ -70,9 +70,6 @@ class WindowedOperator(id: String, ipe: Double, val size: Duration, val advance:
   /** Slot on which events have been accumulated on the last operator execution. */
   var accumulatedSlot = 0
 
-  /** Events to be sent to successors. They are enqueued here when the successor buffers are full. */
-  var toBeSent = EventSetQueue()
-
   /**
     * Initializes the operator.
     * @param startTime Initialization time (in milliseconds since the simulation start).
@@ -83,11 +80,36 @@ class WindowedOperator(id: String, ipe: Double, val size: Duration, val advance:
     processAt = start + advance.toUnit(MILLISECONDS)
   }
 
+  /** Number of events held in memory by the operator, including the events accumulated in all slots. */
+  override def stateEvents: Double =
+    super.stateEvents + accumulated.foldLeft(0.0)((acc, slot) => acc + EventSet.totalSize(slot.values))
+
+  /** Next timestamp at which the current window closes. */
+  override def windowBoundary: Double = processAt
+
   /** Indicates if the vertex has pending events and needs to be allocated. */
   override def needsAllocation: Boolean = (instructionsNeeded > 1.0)
 
   /** The number of instructions needed to process all pending events. */
-  override def instructionsNeeded: Double = totalInputEvents * ipe
+  override def instructionsNeeded: Double = totalInputEvents * effectiveIpe
+
+  /**
+    * Indicates if the operator is idle until the informed timestamp. Besides having empty queues, a windowed
+    * operator is only idle if there are no events waiting to be sent and no window closes before that timestamp.
+    * @param until Timestamp until which the vertex idleness is checked (in ms since the simulation start).
+    * @return true if the vertex is idle.
+    */
+  override def isIdle(until: Double): Boolean =
+    super.isIdle(until) && (toBeSent.size == 0) && (processAt >= until)
+
+  /**
+    * Obtains the next timestamp at which the operator will have work to do. If there are no queued events,
+    * the operator is ready when the next window closes.
+    * @param now Current timestamp (in ms since the simulation start).
+    * @return The next timestamp at which the operator will be ready.
+    */
+  override def nextReadyTime(now: Double): Double =
+    if (isIdle(Double.MinValue)) processAt.max(now) else now
 
   /**
     * Add a new input queue to the windowed operator. Overrides the InputVertex definition because
@@ -106,23 +128,8 @@ class WindowedOperator(id: String, ipe: Double, val size: Duration, val advance:
     * @return Sequence of simulation events produced by the operator.
     */
   override def run(instructions: Double, startTime: Double = 0.0, endTime: Double = 0.0): Seq[SimEvent] = {
-    var events = List.empty[SimEvent]
-
     // first thing to do is check if there are pending events to be sent to the successors
-    var availableSpace = maximumNumberOfEvents
-    if ((toBeSent.size > 0) && (availableSpace > 0)) {
-
-      // check the number of events that can be sent
-      var eventsNo = toBeSent.size min availableSpace
-      availableSpace -= eventsNo
-
-      val eventSet = toBeSent.dequeue(eventsNo)
-      eventSet.updateTimestamp(endTime)
-      sendToAllOutputs(eventSet)
-      events = events :+ Produced(this, startTime, endTime, eventSet)
-    }
-
-
+    var (events, availableSpace) = sendPending(startTime, endTime, maximumNumberOfEvents)
 
     // this loop advances the processAt attribute to the next timestamp at which the operator
     // emit events and executes the aggregation function on all windows that have passed
@@ -131,52 +138,17 @@ class WindowedOperator(id: String, ipe: Double, val size: Duration, val advance:
     // strategy will always try to execute operators which have events on their input queues.
     while (startTime >= processAt) {
 
-      // a window has passed
-      val total = totalAccumulated()
-      if (EventSet.totalSize(total.values) > 0) {
-
-        val functionTotal = function(total.map((e) => e._1 -> e._2.size))
-
-        // the size of the output eventSet is the result of the function execution
-        val eventSum = EventSet.addAll(total.values)
-        eventSum.size = functionTotal
-
-        // the totals map refers only to the events on the current slot (previous totals had been
-        // considered on previous windows)
-        eventSum.totals = accumulated(currentIndex).foldLeft(EventSet.empty)((acc, elem) => {
-          acc.add(elem._2)
-          acc
-        }).totals
-
-        // check the successor queues for elements when the window closes. If there is any,
-        // then some of the generated tuples are discarded. The rationale for this process is that the
-        // successor could not process all elements between windows - which means that if all we send
-        // events again, the latency will keep increasing
-        if (limitOutput) {
-          eventSum.extract(maxOutputQueueSize())
-        }
-
-
-        val output = functionTotal min availableSpace
-        if (output > 0) {
+      // a window has passed - the totals map refers only to the events on the current slot (previous
+      // totals had been considered on previous windows)
+      val totals = accumulated(currentIndex).foldLeft(EventSet.empty)((acc, elem) => {
+        acc.add(elem._2)
+        acc
+      }).totals
 
-          // if it is here, then there is space left on the output buffers
-          val(outputEs, remainingEs) = eventSum.split(output / functionTotal)
-          outputEs.updateTimestamp(endTime)
-          sendToAllOutputs(outputEs)
-
-          events = events :+ Produced(this, startTime, endTime, outputEs)
-
-          // if the output is not entirely sent, the remaining part is enqueued again
-          if (output < functionTotal)
-            toBeSent.enqueue(remainingEs)
-
-        } else {
-          toBeSent.enqueue(eventSum)
-        }
-
-        availableSpace -= output
-      }
+      val (produced, remainingSpace) = emitWindow(totalAccumulated(), totals, function, limitOutput,
+        startTime, endTime, availableSpace)
+      events = events ++ produced
+      availableSpace = remainingSpace
 
       processAt = processAt + advance.toUnit(MILLISECONDS)
       currentIndex = (currentIndex + 1) % slots
@@ -215,18 +187,26 @@ class WindowedOperator(id: String, ipe: Double, val size: Duration, val advance:
     val retrievedEvents = retrieveFromInput(instructions)
     retrievedEvents.foreach( (elem) => { accumulated(currentIndex)(elem._1).add(elem._2) })
     accumulatedSlot = currentIndex
+    lastAccumulation = retrievedEvents
     retrievedEvents
   }
 
 
   /**
-    * Calculates the maximum number of elements (normalized by selectivity) in the successors queues.
-    * @return Maximum number of elements.
+    * Accumulates events in the current slot without retrieving them from the input queues. It is used
+    * by the executor to replay iterations when the placement is in steady state.
+    * @param window Map from predecessors to the event sets to be accumulated from them.
+    * @param startTime Start time of the replayed execution (in ms since the simulation start).
+    * @param endTime End time of the replayed execution (in ms since the simulation start).
+    * @return Empty sequence - windows are only closed when the operator runs.
     */
-  private def maxOutputQueueSize(): Double =
-    successors.map((v) => v.inputQueues(this) / selectivities(v)).
-               foldLeft(Double.MinValue)((acc, number) => acc.max(number))
-
+  override def replayAccumulation(window: Map[Vertex, EventSet], startTime: Double,
+                                  endTime: Double): Seq[SimEvent] = {
+    window.foreach((elem) => accumulated(currentIndex)(elem._1).add(elem._2))
+    accumulatedSlot = currentIndex
+    lastAccumulation = window
+    Seq.empty
+  }
 
   /**
     * Reset a slot.
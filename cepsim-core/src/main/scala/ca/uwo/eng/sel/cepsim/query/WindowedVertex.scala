@@ -0,0 +1,121 @@
+package ca.uwo.eng.sel.cepsim.query
+
+import ca.uwo.eng.sel.cepsim.event.{EventSet, EventSetQueue}
+import ca.uwo.eng.sel.cepsim.history.{Produced, SimEvent}
+
+/**
+  * Trait for operators that accumulate events into windows and emit the result of an aggregation function
+  * when a window closes. It contains the logic to send the window results to the successors, which is
+  * shared by all window types.
+  */
+trait WindowedVertex extends InputVertex with OutputVertex {
+
+  /** Events to be sent to successors. They are enqueued here when the successor buffers are full. */
+  var toBeSent = EventSetQueue()
+
+  /**
+    * Gets the next timestamp at which a window closes because of the time passing.
+    * @return next timestamp at which a window closes (in ms since the simulation start), or Double.MaxValue
+    *         if the windows do not close based on time.
+    */
+  def windowBoundary: Double = Double.MaxValue
+
+  /** Number of events held in memory by the vertex, including the events waiting to be sent. */
+  override def stateEvents: Double = super.stateEvents + toBeSent.size
+
+  /** Events retrieved from each predecessor on the last accumulation. Used to replay the accumulation. */
+  var lastAccumulation: Map[Vertex, EventSet] = Map.empty
+
+  /**
+    * Accumulates events in the current window without retrieving them from the input queues. It is used
+    * by the executor to replay iterations when the placement is in steady state.
+    * @param window Map from predecessors to the event sets to be accumulated from them.
+    * @param startTime Start time of the replayed execution (in ms since the simulation start).
+    * @param endTime End time of the replayed execution (in ms since the simulation start).
+    * @return The simulation events produced by windows closed because of the accumulated events.
+    */
+  def replayAccumulation(window: Map[Vertex, EventSet], startTime: Double, endTime: Double): Seq[SimEvent]
+
+  /**
+    * Sends events that could not be sent when their window closed.
+    * @param startTime Time at which the simulation of this vertex has started (in ms since the simulation start).
+    * @param endTime Time at which the simulation of this vertex will end (in ms since the simulation start).
+    * @param availableSpace Space available in the output queues.
+    * @return The simulation events produced and the space that is still available in the output queues.
+    */
+  protected def sendPending(startTime: Double, endTime: Double, availableSpace: Double): (List[SimEvent], Double) = {
+    if ((toBeSent.size > 0) && (availableSpace > 0)) {
+
+      // check the number of events that can be sent
+      val eventsNo = toBeSent.size min availableSpace
+
+      val eventSet = toBeSent.dequeue(eventsNo)
+      eventSet.updateTimestamp(endTime)
+      sendToAllOutputs(eventSet)
+      (List(Produced(this, startTime, endTime, eventSet)), availableSpace - eventsNo)
+    } else (List.empty, availableSpace)
+  }
+
+  /**
+    * Emits the result of a closed window.
+    * @param window Map from predecessors to the event sets accumulated from them in the window.
+    * @param totals Totals map of the emitted events.
+    * @param function The aggregation function.
+    * @param limitOutput Flag that indicate if the output should be limited by the successor queues.
+    * @param startTime Time at which the simulation of this vertex has started (in ms since the simulation start).
+    * @param endTime Time at which the simulation of this vertex will end (in ms since the simulation start).
+    * @param availableSpace Space available in the output queues.
+    * @return The simulation events produced and the space that is still available in the output queues.
+    */
+  protected def emitWindow(window: Map[Vertex, EventSet], totals: Map[EventProducer, Double],
+                           function: (Map[Vertex, Double]) => Double, limitOutput: Boolean,
+                           startTime: Double, endTime: Double, availableSpace: Double): (List[SimEvent], Double) = {
+
+    if (EventSet.totalSize(window.values) <= 0) return (List.empty, availableSpace)
+
+    val functionTotal = function(window.map((e) => e._1 -> e._2.size))
+
+    // the size of the output eventSet is the result of the function execution
+    val eventSum = EventSet.addAll(window.values)
+    eventSum.size = functionTotal
+    eventSum.totals = totals
+
+    // check the successor queues for elements when the window closes. If there is any,
+    // then some of the generated tuples are discarded. The rationale for this process is that the
+    // successor could not process all elements between windows - which means that if all we send
+    // events again, the latency will keep increasing
+    if (limitOutput) {
+      eventSum.extract(maxOutputQueueSize())
+    }
+
+    var events = List.empty[SimEvent]
+    val output = functionTotal min availableSpace
+    if (output > 0) {
+
+      // if it is here, then there is space left on the output buffers
+      val(outputEs, remainingEs) = eventSum.split(output / functionTotal)
+      outputEs.updateTimestamp(endTime)
+      sendToAllOutputs(outputEs)
+
+      events = List(Produced(this, startTime, endTime, outputEs))
+
+      // if the output is not entirely sent, the remaining part is enqueued again
+      if (output < functionTotal)
+        toBeSent.enqueue(remainingEs)
+
+    } else {
+      toBeSent.enqueue(eventSum)
+    }
+
+    (events, availableSpace - output)
+  }
+
+  /**
+    * Calculates the maximum number of elements (normalized by selectivity) in the successors queues.
+    * @return Maximum number of elements.
+    */
+  protected def maxOutputQueueSize(): Double =
+    successors.map((v) => v.inputQueues(this) / selectivities(v)).
+               foldLeft(Double.MinValue)((acc, number) => acc.max(number))
+
+}
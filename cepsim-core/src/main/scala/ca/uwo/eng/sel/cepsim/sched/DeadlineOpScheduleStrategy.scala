@@ -0,0 +1,194 @@
+package ca.uwo.eng.sel.cepsim.sched
+
+import java.util.{Map => JavaMap}
+
+import ca.uwo.eng.sel.cepsim.event.EventSetQueue
+import ca.uwo.eng.sel.cepsim.placement.Placement
+import ca.uwo.eng.sel.cepsim.query.{EventProducer, InputVertex, Query, Vertex}
+
+import scala.collection.JavaConversions.mapAsScalaMap
+import scala.collection.SortedSet
+import scala.collection.immutable.TreeSet
+import scala.collection.mutable
+
+/** DeadlineOpScheduleStrategy companion object. */
+object DeadlineOpScheduleStrategy {
+
+  def apply() = new DeadlineOpScheduleStrategy(Map.empty)
+
+  def apply(targets: Map[Query, Double]) = new DeadlineOpScheduleStrategy(targets)
+
+  def apply(targets: Map[Query, Double], slices: Int) = new DeadlineOpScheduleStrategy(targets, slices)
+
+  def apply(targets: JavaMap[Query, java.lang.Double]) =
+    new DeadlineOpScheduleStrategy(mapAsScalaMap(targets).map((e) => (e._1, e._2.doubleValue())).toMap)
+
+  /**
+    * Vertex waiting to be scheduled.
+    * @param v The vertex.
+    * @param deadline Deadline of the oldest events waiting in the vertex queues.
+    * @param version Version of the vertex entry. Entries with old versions are discarded.
+    * @param order Insertion order, used to break ties.
+    */
+  private case class Entry(v: Vertex, deadline: Double, version: Long, order: Long)
+
+  /** Ordering of the ready vertices. Greater entries are scheduled first. */
+  private val EntryOrdering = new Ordering[Entry] {
+    override def compare(x: Entry, y: Entry): Int = {
+      var comp = y.deadline.compare(x.deadline)
+      if (comp == 0) comp = y.order.compare(x.order)
+      comp
+    }
+  }
+}
+
+/**
+  * Schedule strategy that allocates instructions to the vertex whose oldest waiting events have the earliest
+  * deadline. The deadline of a set of events is the time at which they have been generated plus the latency
+  * target of the vertex queries. Vertices shared by many queries use the smallest target. If no target is
+  * informed, the strategy schedules first the vertex whose oldest events have the highest accumulated latency.
+  *
+  * Vertices are kept in a heap keyed by their deadlines. The heap is updated incrementally: after an action is
+  * executed, only the deadlines of its vertex and of the vertex successors are recalculated, and the outdated
+  * entries are discarded when they reach the top of the heap. Each decision allocates at most the number of
+  * available instructions divided by the number of vertices and by the number of slices.
+  *
+  * @param targets Map from queries to their latency targets (in ms). Queries not in the map have target 0.
+  * @param slices Number of scheduling decisions per vertex at each allocation.
+  */
+class DeadlineOpScheduleStrategy(val targets: Map[Query, Double],
+                                 val slices: Int = OpScheduleStrategy.DefaultSlices)
+  extends OpScheduleStrategy {
+
+  import DeadlineOpScheduleStrategy._
+  import OpScheduleStrategy._
+
+  require(slices > 0, "The number of slices must be positive")
+
+  /**
+    * Obtains the latency target of a vertex.
+    * @param v The vertex.
+    * @return smallest latency target among the vertex queries (in ms).
+    */
+  def target(v: Vertex): Double =
+    if (v.queries.isEmpty) 0.0 else v.queries.map(targets.getOrElse(_, 0.0)).min
+
+  /**
+    * Obtains the deadline of the oldest events waiting in the vertex queues.
+    * @param v The vertex.
+    * @return the deadline (in ms), or Double.MaxValue if there are no waiting events.
+    */
+  def deadline(v: Vertex): Double = {
+    def oldest(queue: EventSetQueue): Double =
+      if (queue.q.isEmpty) Double.MaxValue else queue.q.head.ts - queue.q.head.latency
+
+    val generation = v match {
+      case iv: InputVertex => iv.inputEventQueues.values.foldLeft(Double.MaxValue)((acc, q) => acc.min(oldest(q)))
+      case prod: EventProducer => oldest(prod.inputEventQueue)
+      case _ => Double.MaxValue
+    }
+    if (generation == Double.MaxValue) generation else generation + target(v)
+  }
+
+  override def allocate(instructions: Double, startTime: Double, capacity: Double, placement: Placement,
+                        pendingActions: SortedSet[Action] = TreeSet.empty): Iterator[Action] =
+    new DeadlineScheduleIterator(instructions, startTime, capacity, placement, pendingActions)
+
+  /**
+    * Iterator returned by the strategy. The actions are lazily calculated, so the queues modified by the
+    * execution of the previous action are considered.
+    * @param instructions Total number of instructions that can be allocated.
+    * @param placement Placement object encapsulating the vertices.
+    */
+  class DeadlineScheduleIterator(instructions: Double, startTime: Double, capacity: Double,
+                                 placement: Placement, pendingActions: SortedSet[Action])
+    extends ScheduleIterator(startTime, capacity, pendingActions) {
+
+    /** Maximum number of instructions allocated at each decision. */
+    private val quantum = if (placement.vertices.isEmpty) 0.0 else instructions / (placement.vertices.size * slices)
+
+    /** Number of instructions still available. This number is updated at each iteration. */
+    private var remainingInstructions = instructions
+
+    /** Heap of vertices keyed by their deadlines. */
+    private val heap = mutable.PriorityQueue.empty[Entry](EntryOrdering)
+
+    /** Current version of each vertex entry. */
+    private val versions = mutable.Map.empty[Vertex, Long] withDefaultValue(0L)
+
+    /** Vertex of the last returned action. Its queues and its successors queues may have changed. */
+    private var last: Option[Vertex] = None
+
+    /** Next vertex to be scheduled, already removed from the heap. */
+    private var nextEntry: Option[Entry] = None
+
+    /** Number of insertions into the heap. */
+    private var insertions = 0L
+
+    placement.iterator.foreach(update(_))
+
+
+    /**
+      * Recalculates the deadline of a vertex and inserts a new entry into the heap.
+      * @param v Vertex to be updated.
+      */
+    private def update(v: Vertex): Unit = {
+      val version = versions(v) + 1
+      versions(v) = version
+      heap.enqueue(Entry(v, deadline(v), version, insertions))
+      insertions += 1
+    }
+
+    /**
+      * Obtains the vertex with the earliest deadline that needs allocation.
+      * @return the next vertex entry, if there is one.
+      */
+    private def nextReady(): Option[Entry] = {
+      last match {
+        case Some(v) => {
+          update(v)
+          placement.successorsInPlacement(v).foreach(update(_))
+          last = None
+        }
+        case None =>
+      }
+
+      if ((nextEntry.isEmpty) && (remainingInstructions > 0)) {
+        while ((nextEntry.isEmpty) && (!heap.isEmpty)) {
+          val entry = heap.dequeue()
+          if ((entry.version == versions(entry.v)) && (entry.v.needsAllocation)) nextEntry = Some(entry)
+        }
+      }
+      nextEntry
+    }
+
+    override def hasNext: Boolean = hasPending || (nextReady().isDefined)
+
+    override def next(): Action = {
+
+      val entry = nextReady()
+
+      // check for pending actions
+      nextPending(entry.isDefined) match {
+        case Some(action) =>
+          // the selected vertex is returned to the heap because the action may change the deadlines
+          entry.foreach(heap.enqueue(_))
+          nextEntry = None
+          last = Some(action.v)
+          return action
+
+        case None =>
+      }
+
+      val v = entry.get.v
+      val allocation = v.instructionsNeeded.min(quantum).min(remainingInstructions)
+      remainingInstructions -= allocation
+
+      nextEntry = None
+      last = Some(v)
+      execute(v, allocation)
+    }
+
+  }
+
+}
@@ -32,8 +32,8 @@ object DefaultOpScheduleStrategy {
   */
 class DefaultOpScheduleStrategy(allocStrategy: AllocationStrategy) extends OpScheduleStrategy {
 
-  // cache results - performance improvement
-  var cachedResults: Map[(Double, Placement), Map[Vertex, Double]] = Map.empty
+  // cache results - performance improvement. Results calculated for a previous placement version are recalculated
+  var cachedResults: Map[(Double, Placement), (Long, Map[Vertex, Double])] = Map.empty
 
 
   /**
@@ -111,10 +111,10 @@ class DefaultOpScheduleStrategy(allocStrategy: AllocationStrategy) extends OpSch
     import OpScheduleStrategy._
 
     val instrPerOperator = cachedResults.get((instructions, placement)) match {
-      case Some(result) => result
-      case None         => {
+      case Some((version, result)) if (version == placement.version) => result
+      case _ => {
         val result = allocStrategy.instructionsPerOperator(instructions, placement)
-        cachedResults = cachedResults updated ((instructions, placement), result)
+        cachedResults = cachedResults updated ((instructions, placement), (placement.version, result))
         result
       }
     }
@@ -26,8 +26,8 @@ class DynOpScheduleStrategy(allocStrategy: AllocationStrategy) extends OpSchedul
 
   import OpScheduleStrategy._
 
-  // cache results - performance improvement
-  var cachedResults: Map[(Double, Placement), Map[Vertex, Double]] = Map.empty
+  // cache results - performance improvement. Results calculated for a previous placement version are recalculated
+  var cachedResults: Map[(Double, Placement), (Long, Map[Vertex, Double])] = Map.empty
 
   override def allocate(instructions: Double, startTime: Double, capacity: Double, placement: Placement,
                         pendingActions: SortedSet[Action] = TreeSet.empty): Iterator[Action] =
@@ -40,15 +40,15 @@ class DynOpScheduleStrategy(allocStrategy: AllocationStrategy) extends OpSchedul
     */
   class DynOpScheduleIterator(instructions: Double, startTime: Double, capacity: Double,
                               placement: Placement, pendingActions: SortedSet[Action])
-    extends Iterator[Action] {
+    extends ScheduleIterator(startTime, capacity, pendingActions) {
 
 
     /** Maximum number of instructions allocated to each vertex. */
     private val maxAllocation = cachedResults.get((instructions, placement)) match {
-      case Some(result) => result
-      case None => {
+      case Some((version, result)) if (version == placement.version) => result
+      case _ => {
         val result = allocStrategy.instructionsPerOperator(instructions, placement)
-        cachedResults = cachedResults updated((instructions, placement), result)
+        cachedResults = cachedResults updated((instructions, placement), (placement.version, result))
         result
       }
     }
@@ -62,12 +62,6 @@ class DynOpScheduleStrategy(allocStrategy: AllocationStrategy) extends OpSchedul
     /** Current index in the vertices list - used in the second round. */
     private var currentIndex = 0
 
-    /** Current start time. */
-    private var currentTime = startTime
-
-    /** List of actions that still need to be scheduled (initialized with all pending actions). */
-    private var toBeScheduled: List[Action] = pendingActions.toList
-
     // these variables are necessary to avoid the re-computation of hasNext result and next vertex index
     private var hasNextInvoked: Boolean = false
 
@@ -121,7 +115,7 @@ class DynOpScheduleStrategy(allocStrategy: AllocationStrategy) extends OpSchedul
       } else {
         hasNextInvoked = true
         nextVertexIndexValue = nextVertexIndex
-        hasNextResult = (!toBeScheduled.isEmpty) || (nextVertexIndexValue != -1)
+        hasNextResult = hasPending || (nextVertexIndexValue != -1)
         hasNextResult
       }
     }
@@ -131,38 +125,21 @@ class DynOpScheduleStrategy(allocStrategy: AllocationStrategy) extends OpSchedul
       if (!hasNextInvoked) nextVertexIndexValue = nextVertexIndex
 
       // check for pending actions
-      if (!toBeScheduled.isEmpty) {
-        val (head, tail) = (toBeScheduled.head, toBeScheduled.tail)
-        if ((head.from <= currentTime) || (nextVertexIndexValue == -1)) {
-          toBeScheduled = tail
-          if (currentTime < head.from)
-            currentTime = head.to
-
+      nextPending(nextVertexIndexValue != -1) match {
+        case Some(action) =>
           hasNextInvoked = false
-          return head
-        }
+          return action
+
+        case None =>
       }
 
       val v: Vertex = nextVertex()
       val allocation = v.instructionsNeeded.min(maxAllocation(v)).min(remainingInstructions)
       remainingInstructions -= allocation
 
-      val start = currentTime
-      val end   = endTime(start, allocation, capacity)
-      currentTime = end
-      val execute = ExecuteAction(v, start, end, allocation)
-
       // reset the flag
       hasNextInvoked = false
-
-      // if there are pending actions that happens during the scheduled action,
-      // then we need to split the action in two
-      if ((!toBeScheduled.isEmpty) && (execute.include(toBeScheduled.head))) {
-        val head = toBeScheduled.head
-        val (p1, p2) = execute.splitAt(head.from)
-        toBeScheduled = head +: (p2 +: toBeScheduled.tail)
-        p1
-      } else execute
+      execute(v, allocation)
     }
 
   }
@@ -1,6 +1,7 @@
 package ca.uwo.eng.sel.cepsim.sched
 
 import ca.uwo.eng.sel.cepsim.placement.Placement
+import ca.uwo.eng.sel.cepsim.query.Vertex
 
 import scala.collection.SortedSet
 import scala.collection.immutable.TreeSet
@@ -12,13 +13,75 @@ object OpScheduleStrategy {
   def instructionsPerMs(capacity: Double) = (capacity * 1000)
   def instructionsInMs(number: Double, capacity: Double) = number / instructionsPerMs(capacity)
   def endTime(startTime: Double, number: Double, capacity: Double) = startTime + instructionsInMs(number, capacity)
+
+  /** Default number of scheduling decisions per vertex at each allocation - used by the slicing strategies. */
+  val DefaultSlices = 4
+
+  /**
+    * Base class of the iterators returned by the strategies. It merges the pending actions with the actions
+    * created by the strategy: a pending action is returned as soon as the current time reaches its start, and
+    * an execute action that includes the start of a pending action is split in two.
+    * @param startTime The current simulation time (in milliseconds).
+    * @param capacity The total processor capacity (in MIPS) that is allocated to this cloudlet.
+    * @param pendingActions Actions in the cloudlet that still need to be executed.
+    */
+  abstract class ScheduleIterator(startTime: Double, capacity: Double, pendingActions: SortedSet[Action])
+    extends Iterator[Action] {
+
+    /** Current start time. */
+    protected var currentTime = startTime
+
+    /** List of actions that still need to be scheduled (initialized with all pending actions). */
+    protected var toBeScheduled: List[Action] = pendingActions.toList
+
+    /** Indicates if there are pending actions that still need to be returned. */
+    protected def hasPending: Boolean = !toBeScheduled.isEmpty
+
+    /**
+      * Removes the next pending action if it must be returned before the next vertex is executed.
+      * @param vertexReady Indicates if there is a vertex to be executed. If there is none, the next pending
+      *                    action is returned even if it starts after the current time.
+      * @return the pending action, if there is one to be returned.
+      */
+    protected def nextPending(vertexReady: Boolean): Option[Action] = toBeScheduled match {
+      case head :: tail if ((head.from <= currentTime) || (!vertexReady)) =>
+        toBeScheduled = tail
+        if (currentTime < head.from)
+          currentTime = head.to
+        Some(head)
+
+      case _ => None
+    }
+
+    /**
+      * Creates an action that executes a vertex from the current time.
+      * @param v Vertex to be executed.
+      * @param allocation Number of instructions allocated to the vertex.
+      * @return the execute action, or its first part if a pending action happens during the execution.
+      */
+    protected def execute(v: Vertex, allocation: Double): Action = {
+      val start = currentTime
+      val end   = endTime(start, allocation, capacity)
+      currentTime = end
+      val execute = ExecuteAction(v, start, end, allocation)
+
+      // if there are pending actions that happens during the scheduled action,
+      // then we need to split the action in two
+      if ((!toBeScheduled.isEmpty) && (execute.include(toBeScheduled.head))) {
+        val head = toBeScheduled.head
+        val (p1, p2) = execute.splitAt(head.from)
+        toBeScheduled = head +: (p2 +: toBeScheduled.tail)
+        p1
+      } else execute
+    }
+  }
 }
 
 /**
   * Strategy to distribute the available instructions to the placement vertices. It also defines the
   * order on which the vertices should be traversed.
   */
-trait OpScheduleStrategy {
+trait OpScheduleStrategy extends Serializable {
 
 
   /**
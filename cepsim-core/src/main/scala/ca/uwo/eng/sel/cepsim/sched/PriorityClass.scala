@@ -0,0 +1,20 @@
+package ca.uwo.eng.sel.cepsim.sched
+
+/** PriorityClass companion object. */
+object PriorityClass {
+
+  /** Class of the queries that have not been assigned to any class. */
+  val Default = PriorityClass("default", 0, 1.0)
+
+}
+
+/**
+  * Class of queries scheduled by the PriorityOpScheduleStrategy.
+  *
+  * @param id Class identifier.
+  * @param priority Class priority. Higher values represent more important classes.
+  * @param share Relative share of the processor capacity allocated to the class.
+  */
+case class PriorityClass(val id: String, val priority: Int, val share: Double) {
+  require(share > 0, "Share must be positive")
+}
@@ -0,0 +1,289 @@
+package ca.uwo.eng.sel.cepsim.sched
+
+import java.util.{Map => JavaMap}
+
+import ca.uwo.eng.sel.cepsim.metric.{LatencyMetric, MetricCalculator, ThroughputMetric}
+import ca.uwo.eng.sel.cepsim.placement.Placement
+import ca.uwo.eng.sel.cepsim.query.{EventConsumer, Query, Vertex}
+
+import scala.collection.JavaConversions.mapAsScalaMap
+import scala.collection.SortedSet
+import scala.collection.immutable.TreeSet
+import scala.collection.mutable
+
+/** PriorityOpScheduleStrategy companion object. */
+object PriorityOpScheduleStrategy {
+
+  def apply(classes: Map[Query, PriorityClass]) = new PriorityOpScheduleStrategy(classes, false, 0.0)
+
+  def apply(classes: Map[Query, PriorityClass], strict: Boolean, agingRate: Double) =
+    new PriorityOpScheduleStrategy(classes, strict, agingRate)
+
+  def apply(classes: Map[Query, PriorityClass], strict: Boolean, agingRate: Double, slices: Int) =
+    new PriorityOpScheduleStrategy(classes, strict, agingRate, slices)
+
+  def apply(classes: JavaMap[Query, PriorityClass]) =
+    new PriorityOpScheduleStrategy(mapAsScalaMap(classes).toMap, false, 0.0)
+
+  def apply(classes: JavaMap[Query, PriorityClass], strict: Boolean, agingRate: Double) =
+    new PriorityOpScheduleStrategy(mapAsScalaMap(classes).toMap, strict, agingRate)
+
+  def apply(classes: JavaMap[Query, PriorityClass], strict: Boolean, agingRate: Double, slices: Int) =
+    new PriorityOpScheduleStrategy(mapAsScalaMap(classes).toMap, strict, agingRate, slices)
+
+  /**
+    * Vertex waiting to be scheduled.
+    * @param v The vertex.
+    * @param level Priority level of the vertex. Only used if strict priority is enabled.
+    * @param pass Virtual time of the vertex when it has been inserted.
+    * @param seq Insertion order, used to break ties.
+    */
+  private case class Entry(v: Vertex, level: Double, pass: Double, seq: Long)
+
+  /** Ordering of the ready vertices. Greater entries are scheduled first. */
+  private val EntryOrdering = new Ordering[Entry] {
+    override def compare(x: Entry, y: Entry): Int = {
+      var comp = x.level.compare(y.level)
+      if (comp == 0) comp = y.pass.compare(x.pass)
+      if (comp == 0) comp = y.seq.compare(x.seq)
+      comp
+    }
+  }
+}
+
+/**
+  * Schedule strategy that shares the processor among classes of queries. Each class receives a share of the
+  * processor proportional to its share value, which is implemented by stride scheduling: the share of a class is
+  * split among its vertices (proportionally to their multiplicity), and each vertex keeps a virtual time (pass)
+  * that advances by the number of allocated instructions divided by the vertex share. The next vertex to be
+  * executed is the ready vertex with the lowest pass. Vertices that become ready after being idle start from
+  * the current virtual time, so they cannot claim the instructions they have not used.
+  *
+  * If strict priority is enabled, vertices from classes with higher priorities are always scheduled first, and
+  * the class shares are only used among vertices with the same priority. To avoid starvation, the priority of a
+  * ready vertex grows by the aging rate for each millisecond it has been waiting to be scheduled.
+  *
+  * Ready vertices are kept in a heap, so each scheduling decision costs O(log V). Each decision allocates at
+  * most the number of available instructions divided by the number of vertices and by the number of slices.
+  *
+  * @param classes Map from queries to their classes. Queries not in the map belong to the default class. A
+  *                vertex shared by many queries belongs to the class with the highest priority.
+  * @param strict Indicates if strict priority is enabled.
+  * @param agingRate Number of priority levels gained by a vertex for each millisecond it is waiting.
+  * @param slices Number of scheduling decisions per vertex at each allocation. More slices enforce the shares
+  *               more precisely at the cost of more actions.
+  */
+class PriorityOpScheduleStrategy(val classes: Map[Query, PriorityClass], val strict: Boolean,
+                                 val agingRate: Double, val slices: Int = OpScheduleStrategy.DefaultSlices)
+  extends OpScheduleStrategy {
+
+  require(slices > 0, "The number of slices must be positive")
+
+  import OpScheduleStrategy._
+  import PriorityOpScheduleStrategy._
+
+  /** Virtual time of the vertices. */
+  private val passes = mutable.Map.empty[Vertex, Double] withDefaultValue(0.0)
+
+  /**
+    * Timestamp since which each ready vertex is waiting to be scheduled. It is kept across allocations, and it
+    * is only reset when the vertex is executed or found not ready.
+    */
+  private val waitingSince = mutable.Map.empty[Vertex, Double]
+
+  /** Virtual time of the last scheduled vertex. */
+  private var virtualTime = 0.0
+
+  /** Number of instructions allocated to each class. */
+  var allocated: Map[PriorityClass, Double] = Map.empty withDefaultValue(0.0)
+
+  // cache results - performance improvement. Tickets calculated for a previous placement version are recalculated
+  var cachedTickets: Map[Placement, (Long, Map[Vertex, Double])] = Map.empty
+
+  /**
+    * Obtains the class of a vertex.
+    * @param v The vertex.
+    * @return class with the highest priority among the classes of the vertex queries.
+    */
+  def priorityClass(v: Vertex): PriorityClass = {
+    val vertexClasses = v.queries.flatMap(classes.get(_))
+    if (vertexClasses.isEmpty) PriorityClass.Default else vertexClasses.maxBy(_.priority)
+  }
+
+  /**
+    * Calculates the share of the class allocated to each vertex of the placement.
+    * @param placement Placement object encapsulating the vertices.
+    * @return Map from the vertices to their shares.
+    */
+  private def tickets(placement: Placement): Map[Vertex, Double] = cachedTickets.get(placement) match {
+    case Some((version, result)) if (version == placement.version) => result
+    case _ => {
+      val byClass = placement.vertices.groupBy(priorityClass(_))
+      val result = byClass.flatMap((entry) => {
+        val instances = entry._2.foldLeft(0)((acc, v) => acc + v.multiplicity.max(1))
+        entry._2.map((v) => (v, entry._1.share * v.multiplicity.max(1) / instances))
+      })
+      cachedTickets = cachedTickets updated (placement, (placement.version, result))
+      result
+    }
+  }
+
+  /**
+    * Obtains the consumers of the placement queries that belong to a class.
+    * @param cls Query class.
+    * @param placement Placement object encapsulating the vertices.
+    * @return set of consumers.
+    */
+  def consumers(cls: PriorityClass, placement: Placement): Set[EventConsumer] =
+    placement.consumers.filter(priorityClass(_) == cls)
+
+  /**
+    * Calculates the average latency of the class consumers, weighted by the number of consumed events.
+    * @param cls Query class.
+    * @param placement Placement object encapsulating the vertices.
+    * @param calculator Calculator of the latency metric.
+    * @return average latency of the class (in ms).
+    */
+  def latency(cls: PriorityClass, placement: Placement, calculator: MetricCalculator): Double = {
+    val sums = consumers(cls, placement).foldLeft((0.0, 0.0))((acc, consumer) =>
+      calculator.results(LatencyMetric.ID, consumer).foldLeft(acc)((acc2, metric) => metric match {
+        case l: LatencyMetric => (acc2._1 + l.quantity * l.value, acc2._2 + l.quantity)
+        case _ => acc2
+      }))
+    if (sums._2 == 0) 0.0 else sums._1 / sums._2
+  }
+
+  /**
+    * Calculates the throughput of a class as the sum of its consumers throughputs.
+    * @param cls Query class.
+    * @param placement Placement object encapsulating the vertices.
+    * @param calculator Calculator of the throughput metric.
+    * @return throughput of the class.
+    */
+  def throughput(cls: PriorityClass, placement: Placement, calculator: MetricCalculator): Double =
+    consumers(cls, placement).foldLeft(0.0)((acc, consumer) =>
+      acc + calculator.consolidate(ThroughputMetric.ID, consumer) * consumer.multiplicity.max(1))
+
+
+  override def allocate(instructions: Double, startTime: Double, capacity: Double, placement: Placement,
+                        pendingActions: SortedSet[Action] = TreeSet.empty): Iterator[Action] =
+    new PriorityScheduleIterator(instructions, startTime, capacity, placement, pendingActions)
+
+  /**
+    * Iterator returned by the strategy. The actions are lazily calculated, so the vertices that become ready
+    * after the execution of the previous action are considered.
+    * @param instructions Total number of instructions that can be allocated.
+    * @param placement Placement object encapsulating the vertices.
+    */
+  class PriorityScheduleIterator(instructions: Double, startTime: Double, capacity: Double,
+                                 placement: Placement, pendingActions: SortedSet[Action])
+    extends ScheduleIterator(startTime, capacity, pendingActions) {
+
+    /** Share of each vertex. */
+    private val vertexTickets = tickets(placement)
+
+    /** Maximum number of instructions allocated at each decision. */
+    private val quantum = if (placement.vertices.isEmpty) 0.0 else instructions / (placement.vertices.size * slices)
+
+    /** Number of instructions still available. This number is updated at each iteration. */
+    private var remainingInstructions = instructions
+
+    /** Heap of vertices that may be ready. */
+    private val ready = mutable.PriorityQueue.empty[Entry](EntryOrdering)
+
+    /** Vertices currently in the heap. */
+    private val inHeap = mutable.Set.empty[Vertex]
+
+    /** Vertex of the last returned action. Its successors may have become ready. */
+    private var last: Option[Vertex] = None
+
+    /** Next vertex to be scheduled, already removed from the heap. */
+    private var nextEntry: Option[Entry] = None
+
+    /** Number of insertions into the heap. */
+    private var insertions = 0L
+
+    placement.iterator.foreach(add(_))
+
+
+    /**
+      * Adds a vertex to the heap if it is not there yet.
+      * @param v Vertex to be added.
+      */
+    private def add(v: Vertex): Unit = {
+      if ((!inHeap.contains(v)) && (vertexTickets.contains(v))) {
+        val pass = passes(v).max(virtualTime)
+        passes(v) = pass
+
+        // the aged priority is priority + agingRate * (now - since), and the now term is the same for all entries
+        val since = waitingSince.getOrElseUpdate(v, currentTime)
+        val level = if (strict) priorityClass(v).priority - agingRate * since else 0.0
+        ready.enqueue(Entry(v, level, pass, insertions))
+        inHeap += v
+        insertions += 1
+      }
+    }
+
+    /**
+      * Obtains the next ready vertex from the heap. Vertices that are not ready are discarded - they are added
+      * again when one of their predecessors is executed.
+      * @return the next ready vertex, if there is one.
+      */
+    private def nextReady(): Option[Entry] = {
+      last match {
+        case Some(v) => {
+          add(v)
+          placement.successorsInPlacement(v).foreach(add(_))
+          last = None
+        }
+        case None =>
+      }
+
+      if ((nextEntry.isEmpty) && (remainingInstructions > 0)) {
+        while ((nextEntry.isEmpty) && (!ready.isEmpty)) {
+          val entry = ready.dequeue()
+          inHeap -= entry.v
+          if (entry.v.needsAllocation) nextEntry = Some(entry)
+          else waitingSince -= entry.v
+        }
+      }
+      nextEntry
+    }
+
+    override def hasNext: Boolean = hasPending || (nextReady().isDefined)
+
+    override def next(): Action = {
+
+      val entry = nextReady()
+
+      // check for pending actions
+      nextPending(entry.isDefined) match {
+        case Some(action) =>
+          // the selected vertex may not be the next one after the action is executed
+          entry.foreach((e) => { ready.enqueue(e); inHeap += e.v })
+          nextEntry = None
+          last = Some(action.v)
+          return action
+
+        case None =>
+      }
+
+      val v = entry.get.v
+      val allocation = v.instructionsNeeded.min(quantum).min(remainingInstructions)
+      remainingInstructions -= allocation
+
+      passes(v) = passes(v) + allocation / vertexTickets(v)
+      virtualTime = entry.get.pass
+      val cls = priorityClass(v)
+      allocated = allocated updated (cls, allocated(cls) + allocation)
+
+      nextEntry = None
+      last = Some(v)
+      val action = execute(v, allocation)
+      waitingSince(v) = currentTime
+      action
+    }
+
+  }
+
+}
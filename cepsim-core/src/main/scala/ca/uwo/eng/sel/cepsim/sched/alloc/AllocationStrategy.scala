@@ -7,7 +7,7 @@ import ca.uwo.eng.sel.cepsim.query.Vertex
   * Trait for allocation strategies. These strategies split the number of available instructions among
   * the vertices from a placemenet.
   */
-trait AllocationStrategy {
+trait AllocationStrategy extends Serializable {
   /**
     * Calculate the number os instructions to be allocated for each operator.
     *
@@ -14,15 +14,21 @@ object UniformAllocationStrategy {
 class UniformAllocationStrategy extends AllocationStrategy {
   /**
     * Calculate the number os instructions to be allocated for each operator. This strategy allocates
-    * the same number of instructions for each vertex.
+    * the same number of instructions for each vertex instance. Vertices that represent more than one
+    * query instance receive proportionally more instructions.
     *
     * @param instructions Number of instructions to be allocated.
     * @param placement Placement object encapsulating the vertices.
     * @return A map of vertices to the number of instructions allocated to that vertex.
     */
   override def instructionsPerOperator(instructions: Double, placement: Placement): Map[Vertex, Double] = {
-    val allocation = instructions / placement.vertices.size
-    placement.vertices.map((_, allocation)).toMap
+    if (placement.hasMultiplicity) {
+      val instances = placement.vertices.foldLeft(0)(_ + _.multiplicity)
+      placement.vertices.map((v) => (v, instructions * v.multiplicity / instances)).toMap
+    } else {
+      val allocation = instructions / placement.vertices.size
+      placement.vertices.map((_, allocation)).toMap
+    }
   }
 
 }
@@ -1,7 +1,7 @@
 package ca.uwo.eng.sel.cepsim.sched.alloc
 
 import ca.uwo.eng.sel.cepsim.placement.Placement
-import ca.uwo.eng.sel.cepsim.query.Vertex
+import ca.uwo.eng.sel.cepsim.query.{Query, Vertex}
 
 import java.util.{Map => JavaMap}
 
@@ -28,7 +28,8 @@ class WeightedAllocationStrategy(weights: Map[Vertex, Double]) extends Allocatio
     * according to the instructions per event of each operator multiplied by its corresponding weight.
     * For example, if an operator x requires 10 instructions/event, an operator y requires 5, and both
     * have weight 1, then x will receive twice more instructions than y. Conversely, if y has weight 2, then
-    * both operators will receive the same number of instructions.
+    * both operators will receive the same number of instructions. Queries that represent more than one
+    * query instance receive a share proportional to their multiplicity.
     *
     * @param instructions Number of instructions to be allocated.
     * @param placement Placement object encapsulating the vertices.
@@ -36,8 +37,15 @@ class WeightedAllocationStrategy(weights: Map[Vertex, Double]) extends Allocatio
     */
   override def instructionsPerOperator(instructions: Double, placement: Placement): Map[Vertex, Double] = {
 
-    // allocate the same amount of instructions for each query
-    val perQuery = instructions / placement.queries.size
+    // allocate the same amount of instructions for each query instance
+    val perQuery: (Query) => Double =
+      if (placement.hasMultiplicity) {
+        val instances = placement.queries.foldLeft(0)(_ + _.multiplicity)
+        (q) => instructions * q.multiplicity / instances
+      } else {
+        val share = instructions / placement.queries.size
+        (q) => share
+      }
 
     // calculate the amount of instructions per operator
     var instrPerOperator = Map.empty[Vertex, Double] withDefaultValue (0.0)
@@ -46,7 +54,7 @@ class WeightedAllocationStrategy(weights: Map[Vertex, Double]) extends Allocatio
         (sum, v) => sum + weights(v) * v.ipe
       }
       placement.vertices(q).foreach { (v) =>
-        val vertexInstr = (v.ipe * weights(v) / total) * perQuery
+        val vertexInstr = (v.ipe * weights(v) / total) * perQuery(q)
         instrPerOperator = instrPerOperator updated(v, instrPerOperator(v) + vertexInstr)
       }
     }
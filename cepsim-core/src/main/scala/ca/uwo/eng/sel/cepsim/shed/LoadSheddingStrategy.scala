@@ -0,0 +1,61 @@
+package ca.uwo.eng.sel.cepsim.shed
+
+import ca.uwo.eng.sel.cepsim.event.EventSet
+import ca.uwo.eng.sel.cepsim.query.{InputVertex, Vertex}
+
+/**
+  * Base class for load shedding strategies. A strategy is attached to an InputVertex and drops part of the
+  * events received by the vertex when it is overloaded. A vertex is overloaded when the latency of the
+  * received events, or of the oldest events in any of its input queues, exceeds the SLA. The latency of
+  * queued events includes the time they have been waiting in the queue.
+  *
+  * @param sla Maximum tolerated latency (in ms).
+  * @param fraction Fraction of the received events that is dropped when the vertex is overloaded.
+  */
+abstract class LoadSheddingStrategy(val sla: Double, val fraction: Double) extends Serializable {
+
+  require(sla >= 0, "SLA must not be negative")
+  require((fraction >= 0) && (fraction <= 1), "Fraction must be between 0 and 1")
+
+  /**
+    * Calculates the latency of an event set at a specific timestamp.
+    * @param es Event set.
+    * @param at Timestamp at which the latency is calculated (in ms since the simulation start).
+    * @return the event set latency (in ms).
+    */
+  def latency(es: EventSet, at: Double): Double = es.latency + (at - es.ts)
+
+  /**
+    * Checks if a vertex is overloaded.
+    * @param v Vertex receiving the events.
+    * @param es Received event set.
+    * @param at Timestamp at which the events are received (in ms since the simulation start).
+    * @return true if the vertex is overloaded.
+    */
+  def isOverloaded(v: InputVertex, es: EventSet, at: Double): Boolean =
+    (latency(es, at) > sla) ||
+      v.inputEventQueues.values.exists((queue) => (!queue.q.isEmpty) && (latency(queue.q.head, at) > sla))
+
+  /**
+    * Drops events if the vertex is overloaded. It is invoked before the received events are enqueued.
+    * @param v Vertex receiving the events.
+    * @param pred Predecessor that has sent the events.
+    * @param es Received event set. The dropped events are removed from this set.
+    * @param at Timestamp at which the events are received (in ms since the simulation start).
+    * @return Event set representing the dropped events.
+    */
+  def shed(v: InputVertex, pred: Vertex, es: EventSet, at: Double): EventSet =
+    if ((es.size > 0) && (fraction > 0) && isOverloaded(v, es, at)) drop(v, pred, es, fraction * es.size)
+    else EventSet.empty()
+
+  /**
+    * Drops a number of events.
+    * @param v Vertex receiving the events.
+    * @param pred Predecessor that has sent the events.
+    * @param es Received event set.
+    * @param quantity Number of events to be dropped.
+    * @return Event set representing the dropped events.
+    */
+  protected def drop(v: InputVertex, pred: Vertex, es: EventSet, quantity: Double): EventSet
+
+}
@@ -0,0 +1,27 @@
+package ca.uwo.eng.sel.cepsim.shed
+
+import ca.uwo.eng.sel.cepsim.event.EventSet
+import ca.uwo.eng.sel.cepsim.query.{InputVertex, Vertex}
+
+/** OldestFirstLoadSheddingStrategy companion object. */
+object OldestFirstLoadSheddingStrategy {
+  def apply(sla: Double, fraction: Double) = new OldestFirstLoadSheddingStrategy(sla, fraction)
+}
+
+/**
+  * Load shedding strategy that drops the oldest events from the input queue that receives the events. The
+  * received events are only dropped if the queue does not have enough events.
+  *
+  * @param sla Maximum tolerated latency (in ms).
+  * @param fraction Fraction of the received events that is dropped when the vertex is overloaded.
+  */
+class OldestFirstLoadSheddingStrategy(sla: Double, fraction: Double) extends LoadSheddingStrategy(sla, fraction) {
+
+  override protected def drop(v: InputVertex, pred: Vertex, es: EventSet, quantity: Double): EventSet = {
+    val fromQueue = quantity.min(v.inputQueues(pred))
+    val dropped = v.dequeueFromInput(pred, fromQueue)
+    if (quantity > fromQueue) dropped.add(es.extract(quantity - fromQueue))
+    dropped
+  }
+
+}
@@ -0,0 +1,66 @@
+package ca.uwo.eng.sel.cepsim.shed
+
+import java.util.{Map => JavaMap}
+
+import ca.uwo.eng.sel.cepsim.event.EventSet
+import ca.uwo.eng.sel.cepsim.query.{EventProducer, InputVertex, Vertex}
+
+import scala.collection.JavaConversions.mapAsScalaMap
+
+/** PriorityLoadSheddingStrategy companion object. */
+object PriorityLoadSheddingStrategy {
+  def apply(sla: Double, fraction: Double, priorities: Map[EventProducer, Int]) =
+    new PriorityLoadSheddingStrategy(sla, fraction, priorities)
+
+  def apply(sla: Double, fraction: Double, priorities: JavaMap[EventProducer, Integer]) =
+    new PriorityLoadSheddingStrategy(sla, fraction, mapAsScalaMap(priorities).map((e) => (e._1, e._2.intValue())).toMap)
+}
+
+/**
+  * Load shedding strategy that drops the received events originated from the producers with the lowest
+  * priorities first. The share of the received events originated from each producer is obtained from the
+  * event set totals. Producers with the same priority lose the same fraction of their events.
+  *
+  * @param sla Maximum tolerated latency (in ms).
+  * @param fraction Fraction of the received events that is dropped when the vertex is overloaded.
+  * @param priorities Map from producers to their priorities. Producers not in the map have priority 0.
+  */
+class PriorityLoadSheddingStrategy(sla: Double, fraction: Double, val priorities: Map[EventProducer, Int])
+  extends LoadSheddingStrategy(sla, fraction) {
+
+  /**
+    * Obtains the priority of a producer.
+    * @param producer Event producer.
+    * @return the producer priority.
+    */
+  def priority(producer: EventProducer): Int = priorities.getOrElse(producer, 0)
+
+  override protected def drop(v: InputVertex, pred: Vertex, es: EventSet, quantity: Double): EventSet = {
+    val size = es.size
+    val total = es.totals.foldLeft(0.0)((acc, entry) => acc + entry._2)
+
+    if (total == 0) es.extract(quantity)
+    else {
+      val dropped = EventSet.empty()
+      var remaining = quantity
+
+      es.totals.groupBy((entry) => priority(entry._1)).toList.sortBy(_._1).foreach { (group) =>
+        val producers = group._2
+        val share = size * producers.foldLeft(0.0)((acc, entry) => acc + entry._2) / total
+        val quantityFromGroup = remaining.min(share)
+
+        if (quantityFromGroup > 0) {
+          val ratio = quantityFromGroup / share
+          val totals = producers.map((entry) => (entry._1, entry._2 * ratio))
+
+          dropped.add(EventSet(quantityFromGroup, es.ts, es.latency, totals))
+          es.size -= quantityFromGroup
+          es.totals = es.totals.map((entry) => (entry._1, entry._2 - totals.getOrElse(entry._1, 0.0)))
+          remaining -= quantityFromGroup
+        }
+      }
+      dropped
+    }
+  }
+
+}
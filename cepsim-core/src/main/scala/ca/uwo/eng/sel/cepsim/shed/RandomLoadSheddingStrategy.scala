@@ -0,0 +1,23 @@
+package ca.uwo.eng.sel.cepsim.shed
+
+import ca.uwo.eng.sel.cepsim.event.EventSet
+import ca.uwo.eng.sel.cepsim.query.{InputVertex, Vertex}
+
+/** RandomLoadSheddingStrategy companion object. */
+object RandomLoadSheddingStrategy {
+  def apply(sla: Double, fraction: Double) = new RandomLoadSheddingStrategy(sla, fraction)
+}
+
+/**
+  * Load shedding strategy that drops a random sample of the received events. As event sets do not
+  * distinguish individual events, the sample has the same composition as the received set.
+  *
+  * @param sla Maximum tolerated latency (in ms).
+  * @param fraction Fraction of the received events that is dropped when the vertex is overloaded.
+  */
+class RandomLoadSheddingStrategy(sla: Double, fraction: Double) extends LoadSheddingStrategy(sla, fraction) {
+
+  override protected def drop(v: InputVertex, pred: Vertex, es: EventSet, quantity: Double): EventSet =
+    es.extract(quantity)
+
+}
@@ -1,8 +1,9 @@
 package ca.uwo.eng.sel.cepsim
 
 import ca.uwo.eng.sel.cepsim.event.EventSet
+import ca.uwo.eng.sel.cepsim.gen.Generator
 import ca.uwo.eng.sel.cepsim.history.{Consumed, Generated, Produced}
-import ca.uwo.eng.sel.cepsim.network.NetworkInterface
+import ca.uwo.eng.sel.cepsim.network.{BufferedNetworkInterface, NetworkInterface}
 import ca.uwo.eng.sel.cepsim.placement.Placement
 import ca.uwo.eng.sel.cepsim.query._
 import ca.uwo.eng.sel.cepsim.sched.{EnqueueAction, ExecuteAction, OpScheduleStrategy}
@@ -168,6 +169,15 @@ class PlacementExecutorTest extends FlatSpec
     entries should be (List(Produced(f2, 1500.0, 1900.0, EventSet(100.0, 1900.0, 900.0, prod -> 100.0))))
   }
 
+  it should "leave the flush of buffered network interfaces to the simulation environment" in new Fixture1 {
+    val network = mock[BufferedNetworkInterface]
+    val executor = PlacementExecutor("c1", placement, opSchedule, 1, network)
+    executor.init(0.0)
+
+    executor run(1000000, 1000.0, 1)
+    verify(network, never()).flush(anyDouble())
+  }
+
   // -------------------------------------------------
 
   it should "correctly split available instructions into iterations" in new Fixture {
@@ -297,4 +307,27 @@ class PlacementExecutorTest extends FlatSpec
 
 
 
+  it should "summarize queues, consumed events and window boundaries" in new Fixture {
+    val w = mock[WindowedOperator]("w")
+    doReturn(Set(prod, f1, w, cons)).when(placement).vertices
+
+    doReturn(10.0).when(f1).totalInputEvents
+    doReturn(5.0).when(w).totalInputEvents
+    doReturn(2.0).when(cons).totalInputEvents
+    doReturn(40.0).when(cons).outputQueue
+    doReturn(3000.0).when(w).processAt
+
+    val gen = mock[Generator]
+    doReturn(gen).when(prod).generator
+    doReturn(3.0).when(prod).inputQueue
+    doReturn(4.0).when(gen).nonProcessed
+
+    val executor = PlacementExecutor("c1", placement, opSchedule)
+    executor.queuedEvents should be (24.0)
+    executor.consumedEvents should be (40.0)
+    executor.nextWindowBoundary(1000.0) should be (3000.0)
+    executor.nextWindowBoundary(3000.0) should be (3000.0)
+    executor.nextWindowBoundary(3000.1) should be (Double.MaxValue)
+  }
+
 }
\ No newline at end of file
@@ -0,0 +1,110 @@
+package ca.uwo.eng.sel.cepsim
+
+import java.io.{ByteArrayInputStream, ByteArrayOutputStream}
+
+import ca.uwo.eng.sel.cepsim.event.EventSet
+import ca.uwo.eng.sel.cepsim.gen.UniformGenerator
+import ca.uwo.eng.sel.cepsim.metric.{LatencyMetric, LatencyThroughputCalculator, ThroughputMetric}
+import ca.uwo.eng.sel.cepsim.placement.Placement
+import ca.uwo.eng.sel.cepsim.query._
+import ca.uwo.eng.sel.cepsim.sched.{DefaultOpScheduleStrategy, DynOpScheduleStrategy}
+import ca.uwo.eng.sel.cepsim.sched.alloc.UniformAllocationStrategy
+import org.junit.runner.RunWith
+import org.scalatest.junit.JUnitRunner
+import org.scalatest.{FlatSpec, Matchers}
+
+
+@RunWith(classOf[JUnitRunner])
+class SnapshotTest extends FlatSpec
+  with Matchers {
+
+  trait Fixture {
+    val prod = EventProducer("p", 1000, UniformGenerator(100000))
+    val f = Operator("f", 4000)
+    val w = WindowedOperator("w", 1000, 100, 100, WindowedOperator.constant(10))
+    val cons = EventConsumer("c", 1000)
+    val query = Query("q", Set(prod, f, w, cons), Set((prod, f, 1.0), (f, w, 1.0), (w, cons, 1.0)))
+
+    val placement = Placement(query, 1)
+    val executor = PlacementExecutor("cl1", placement, DefaultOpScheduleStrategy.weighted(), 1,
+      LatencyThroughputCalculator(placement))
+    executor.init(0.0)
+
+    def run(executor: PlacementExecutor, from: Int, ticks: Int) =
+      (from until from + ticks).foreach((i) => executor run (10000000, 10.0 + (i * 10.0), 1000))
+
+    def consumer(executor: PlacementExecutor): EventConsumer =
+      executor.placement.consumers.head
+
+    def windowed(executor: PlacementExecutor): WindowedOperator =
+      executor.placement.vertices.collectFirst { case wo: WindowedOperator => wo }.get
+  }
+
+
+  "A Snapshot" should "restore an independent copy of the executors" in new Fixture {
+    run(executor, 0, 15)
+    val snapshot = Snapshot.executors(executor)
+    snapshot.size should be > (0)
+
+    val restored = snapshot.restore().head
+    restored should not be theSameInstanceAs (executor)
+    restored.id should be ("cl1")
+    restored.lastExecution should be (executor.lastExecution)
+    consumer(restored) should not be theSameInstanceAs (cons)
+    consumer(restored).outputQueue should be (cons.outputQueue)
+    windowed(restored).processAt should be (w.processAt)
+
+    // running the copy does not affect the original
+    val consumed = cons.outputQueue
+    run(restored, 15, 15)
+    cons.outputQueue should be (consumed)
+
+    // and both continue exactly in the same way
+    run(executor, 15, 15)
+    consumer(restored).outputQueue should be (cons.outputQueue)
+    restored.metric(ThroughputMetric.ID, consumer(restored)) should be (executor.metric(ThroughputMetric.ID, cons))
+    restored.metric(LatencyMetric.ID, consumer(restored)) should be (executor.metric(LatencyMetric.ID, cons))
+  }
+
+  it should "fork runs that continue with different strategies" in new Fixture {
+    run(executor, 0, 15)
+    val snapshot = Snapshot.executors(executor)
+
+    val fork1 = snapshot.restore().head
+    val fork2 = snapshot.restore().head
+    fork2.opSchedStrategy = DynOpScheduleStrategy(UniformAllocationStrategy())
+    consumer(fork1) should not be theSameInstanceAs (consumer(fork2))
+
+    run(fork1, 15, 15)
+    run(fork2, 15, 15)
+    run(executor, 15, 15)
+
+    fork1.metric(LatencyMetric.ID, consumer(fork1)) should be (executor.metric(LatencyMetric.ID, cons))
+    fork2.metric(LatencyMetric.ID, consumer(fork2)) should not be (executor.metric(LatencyMetric.ID, cons))
+    fork2.calculator(ThroughputMetric.ID) should not be theSameInstanceAs (fork1.calculator(ThroughputMetric.ID))
+  }
+
+  it should "include the pending actions" in new Fixture {
+    executor.enqueue(25.0, w, cons, EventSet(10.0, 20.0, 5.0, prod -> 1000.0))
+    val restored = Snapshot.executors(executor).restore().head
+
+    restored.pendingActions should have size (1)
+    val action = restored.pendingActions.head
+    action.v should be theSameInstanceAs (consumer(restored))
+    action.v should not be theSameInstanceAs (cons)
+  }
+
+  it should "be written to and read from a stream" in new Fixture {
+    run(executor, 0, 15)
+    val out = new ByteArrayOutputStream()
+    Snapshot.executors(executor).write(out)
+
+    val read = Snapshot.read[Vector[PlacementExecutor]](new ByteArrayInputStream(out.toByteArray))
+    read.size should be (out.size - 4)
+
+    val restored = read.restore().head
+    restored.networkInterface should be (null)
+    consumer(restored).outputQueue should be (cons.outputQueue)
+  }
+
+}
@@ -0,0 +1,133 @@
+package ca.uwo.eng.sel.cepsim.analysis
+
+import ca.uwo.eng.sel.cepsim.PlacementExecutor
+import ca.uwo.eng.sel.cepsim.gen.UniformGenerator
+import ca.uwo.eng.sel.cepsim.placement.Placement
+import ca.uwo.eng.sel.cepsim.query._
+import ca.uwo.eng.sel.cepsim.sched.DefaultOpScheduleStrategy
+import org.junit.runner.RunWith
+import org.scalatest.junit.JUnitRunner
+import org.scalatest.{FlatSpec, Matchers}
+
+@RunWith(classOf[JUnitRunner])
+class QueueingEstimatorTest extends FlatSpec
+  with Matchers {
+
+  trait Fixture {
+    val prod1 = EventProducer("p1", 1000, UniformGenerator(1000))
+    val f1 = Operator("f1", 20000)
+    val cons1 = EventConsumer("c1", 1000)
+
+    val query1 = Query("q1", Set(prod1, f1, cons1), Set((prod1, f1, 1.0), (f1, cons1, 0.5)))
+  }
+
+  "A QueueingEstimator" should "estimate the rates and the utilization of a placement" in new Fixture {
+    val placement = Placement(query1, 1)
+    val estimate = QueueingEstimator().estimate(placement, 100.0)
+
+    estimate.operators(prod1).inputRate should be (1000.0 +- 0.001)
+    estimate.operators(f1).inputRate should be (1000.0 +- 0.001)
+    estimate.operators(cons1).inputRate should be (500.0 +- 0.001)
+
+    estimate.operators(prod1).demand should be (1000000.0 +- 0.001)
+    estimate.operators(f1).demand should be (20000000.0 +- 0.001)
+    estimate.operators(f1).utilization should be (0.2 +- 0.0001)
+    estimate.operators(cons1).demand should be (500000.0 +- 0.001)
+
+    val p = estimate.placements(placement)
+    p.demand should be (21.5 +- 0.0001)
+    p.utilization should be (0.215 +- 0.0001)
+    p.saturated should be (false)
+    p.saturationPoint should be (4.6512 +- 0.0001)
+
+    // processor sharing: the service time of each vertex is multiplied by 1 / (1 - 0.215)
+    val c = estimate.consumers(cons1)
+    c.eventRate should be (500.0 +- 0.001)
+    c.throughput should be (1000.0 +- 0.001)
+    c.latency should be (0.2803 +- 0.0001)
+
+    estimate.isFeasible() should be (true)
+    estimate.isFeasible(0.2) should be (false)
+    estimate.isFeasible(1.0, 0.25) should be (false)
+  }
+
+  it should "add the network delay between placements" in new Fixture {
+    val placement1 = Placement(Set[Vertex](prod1, f1), 1)
+    val placement2 = Placement(Set[Vertex](cons1), 2)
+    val estimate = QueueingEstimator(5.0).estimate(Map(placement1 -> 100.0, placement2 -> 10.0))
+
+    estimate.placements(placement1).utilization should be (0.21 +- 0.0001)
+    estimate.placements(placement2).utilization should be (0.05 +- 0.0001)
+    estimate.operators(f1).latency should be (0.2658 +- 0.0001)
+    estimate.consumers(cons1).latency should be (5.3711 +- 0.0001)
+    estimate.bottleneck.get.placement should be (placement1)
+  }
+
+  it should "detect saturated placements" in new Fixture {
+    val placement = Placement(query1, 1)
+    val estimate = QueueingEstimator().estimate(placement, 10.0)
+
+    estimate.placements(placement).saturated should be (true)
+    estimate.saturationPoint should be (0.4651 +- 0.0001)
+    estimate.isFeasible() should be (false)
+
+    // only the fraction of the events that can be processed reaches the consumer
+    val c = estimate.consumers(cons1)
+    c.throughput should be (465.1163 +- 0.0001)
+    c.latency should be (Double.PositiveInfinity)
+  }
+
+  it should "estimate the output rate of windowed operators" in {
+    val prod = EventProducer("p1", 1000, UniformGenerator(1000))
+    val w = WindowedOperator("w1", 1000, 1000, 100, WindowedOperator.constant(1))
+    val cw = CountWindowedOperator("cw1", 1000, 100, WindowedOperator.identity())
+    val cons = EventConsumer("c1", 1000)
+    Query("q1", Set(prod, w, cw, cons), Set((prod, w, 1.0), (prod, cw, 1.0), (w, cons, 1.0), (cw, cons, 1.0)))
+
+    val placement = Placement(Set[Vertex](prod, w, cw, cons), 1)
+    val estimate = QueueingEstimator().estimate(placement, 1000.0)
+
+    // one event every 100 ms, and 100 events every 100 ms
+    estimate.operators(w).outputRate should be (10.0 +- 0.001)
+    estimate.operators(cw).outputRate should be (1000.0 +- 0.001)
+    estimate.operators(cons).inputRate should be (1010.0 +- 0.001)
+
+    // events wait for half of the window
+    estimate.operators(w).latency should be > (500.0)
+    estimate.operators(cw).latency should be > (50.0)
+    estimate.operators(cw).latency should be < (51.0)
+  }
+
+  it should "estimate the output rate and the probe cost of joins" in {
+    val prod1 = EventProducer("p1", 1000, UniformGenerator(100))
+    val prod2 = EventProducer("p2", 1000, UniformGenerator(100))
+    val join = JoinOperator("j1", 1000, 10, 1000, 0.01)
+    val cons = EventConsumer("c1", 1000)
+    Query("q1", Set(prod1, prod2, join, cons), Set((prod1, join, 1.0), (prod2, join, 1.0), (join, cons, 1.0)))
+
+    val placement = Placement(Set[Vertex](prod1, prod2, join, cons), 1)
+    val estimate = QueueingEstimator().estimate(placement, 10.0)
+
+    // each event is compared with the 100 events retained from the other side
+    estimate.operators(join).outputRate should be (200.0 +- 0.001)
+    estimate.operators(join).demand should be (400000.0 +- 0.001)
+    estimate.consumers(cons).throughput should be (200.0 +- 0.001)
+  }
+
+  it should "be close to the simulated throughput of a saturated placement" in new Fixture {
+    val placement = Placement(query1, 1)
+    val estimate = QueueingEstimator().estimate(placement, 10.0)
+
+    val executor = PlacementExecutor("c1", placement, DefaultOpScheduleStrategy.weighted())
+    executor.init(0.0)
+
+    // 10 MIPS - 1 million instructions every 100 ms
+    (0 until 50).foreach((i) => executor run (1000000, i * 100.0, 10))
+    val before = cons1.outputQueue
+    (50 until 100).foreach((i) => executor run (1000000, i * 100.0, 10))
+    val simulated = (cons1.outputQueue - before) / 5.0
+
+    simulated should be (estimate.consumers(cons1).eventRate * estimate.consumers(cons1).throughput / 1000.0 +- 25.0)
+  }
+
+}
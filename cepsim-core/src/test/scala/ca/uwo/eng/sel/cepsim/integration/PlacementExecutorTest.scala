@@ -3,10 +3,13 @@ package ca.uwo.eng.sel.cepsim.integration
 import ca.uwo.eng.sel.cepsim._
 import ca.uwo.eng.sel.cepsim.event.EventSet
 import ca.uwo.eng.sel.cepsim.gen.UniformGenerator
-import ca.uwo.eng.sel.cepsim.history.{Consumed, Generated, Produced}
+import ca.uwo.eng.sel.cepsim.history.{Consumed, Generated, Produced, SimEvent}
+import ca.uwo.eng.sel.cepsim.metric.{LatencyThroughputCalculator, ShedCalculator, ShedMetric, ThroughputMetric}
 import ca.uwo.eng.sel.cepsim.placement.Placement
-import ca.uwo.eng.sel.cepsim.query.{EventConsumer, EventProducer, Operator, Query}
-import ca.uwo.eng.sel.cepsim.sched.DefaultOpScheduleStrategy
+import ca.uwo.eng.sel.cepsim.query._
+import ca.uwo.eng.sel.cepsim.sched._
+import ca.uwo.eng.sel.cepsim.sched.alloc.UniformAllocationStrategy
+import ca.uwo.eng.sel.cepsim.shed.RandomLoadSheddingStrategy
 import org.junit.runner.RunWith
 import org.mockito.Mockito._
 import org.scalatest.junit.JUnitRunner
@@ -58,6 +61,19 @@ class PlacementExecutorTest extends FlatSpec
     ))
   }
 
+  it should "send events through the operator graph with the priority strategy" in new Fixture {
+    val executor = PlacementExecutor("c1", Placement(query1, 1),
+      PriorityOpScheduleStrategy(Map(query1 -> PriorityClass("gold", 1, 1.0))))
+    executor.init(0.0)
+
+    executor run (10000000, 10.0, 1000)
+
+    prod1.outputQueues(f1) should be (0)
+    f1.outputQueues(f2) should be (0)
+    f2.outputQueues(cons1) should be (0)
+    cons1.outputQueue should be (100)
+  }
+
   it should "accumulate the number of produced events" in new Fixture {
     val executor = PlacementExecutor("c1", Placement(query1, 1), DefaultOpScheduleStrategy.weighted())//, 0.0)
     executor.init(0.0)
@@ -71,6 +87,37 @@ class PlacementExecutorTest extends FlatSpec
     cons1.outputQueue should be (200)
   }
 
+  it should "lose instructions when the state exceeds the memory limit" in new Fixture {
+    Set(prod1, f1, f2, cons1).foreach(_.eventSize = 100.0)
+
+    val executor = PlacementExecutor("c1", Placement(query1, 1), DefaultOpScheduleStrategy.weighted())
+    executor.memoryLimit = 50000.0
+    executor.memoryPenalty = 100.0
+    executor.init(0.0)
+
+    // 1000 generated events use 100000 bytes - half of the instructions are lost
+    executor run (10000000, 10.0, 1000)
+
+    executor.penaltyInstructions should be (5000000.0 +- 0.0001)
+    cons1.outputQueue should be (50.0 +- 0.0001)
+    executor.stateSize should be (50000.0 +- 0.0001)
+  }
+
+  it should "account the shed events consistently with the throughput" in new Fixture {
+    f2.sheddingStrategy = Some(RandomLoadSheddingStrategy(4.0, 0.5))
+
+    val executor = PlacementExecutor("c1", Placement(query1, 1), DefaultOpScheduleStrategy.weighted(), 1,
+      LatencyThroughputCalculator(Placement(query1, 1)), ShedCalculator(Placement(query1, 1)))
+    executor.init(0.0)
+
+    executor run (10000000, 10.0, 1000)
+
+    // events reach f2 with 5 ms of latency - half of them is shed
+    cons1.outputQueue should be (50.0 +- 0.0001)
+    executor.metric(ShedMetric.ID, f2) should be (500.0 +- 0.0001)
+    executor.metric(ThroughputMetric.ID, cons1) should be (500.0 +- 0.0001)
+  }
+
   it should "correctly invoke the metric calculation" in new Fixture {
 
     val calculator = mock[metric.MetricCalculator]
@@ -126,6 +173,235 @@ class PlacementExecutorTest extends FlatSpec
     ))
   }
 
-}
+  // ------------------------------------------------------------------------------------
+
+  trait TailLatencyFixture {
+
+    def tailLatency(strategy: OpScheduleStrategy): Double = {
+      val prod1 = EventProducer("p1", 100, UniformGenerator(1000))
+      val f1 = Operator("f1", 600)
+      val cons1 = EventConsumer("c1", 100)
+      val q1 = Query("q1", Set(prod1, f1, cons1), Set((prod1, f1, 1.0), (f1, cons1, 1.0)))
+
+      val prod2 = EventProducer("p2", 100, UniformGenerator(1000))
+      val f2 = Operator("f2", 100)
+      val cons2 = EventConsumer("c2", 100)
+      val q2 = Query("q2", Set(prod2, f2, cons2), Set((prod2, f2, 1.0), (f2, cons2, 1.0)))
+
+      val placement = Placement(Set[Vertex](prod1, f1, cons1, prod2, f2, cons2), 1)
+      val calculator = LatencyThroughputCalculator(placement)
+      val executor = PlacementExecutor("c1", placement, strategy, 1, calculator)
+      executor.init(0.0)
+
+      // 1.1 million instructions per second are needed
+      (0 until 100).foreach((i) => executor run (100000, i * 100.0, 1))
+      calculator.latencyPercentile(cons1, 0.99).max(calculator.latencyPercentile(cons2, 0.99))
+    }
+  }
+
+  it should "reduce the tail latency when the earliest deadline is scheduled first" in new TailLatencyFixture {
+    val roundRobin = tailLatency(DynOpScheduleStrategy(UniformAllocationStrategy()))
+    val deadline = tailLatency(DeadlineOpScheduleStrategy())
+
+    // the overload is the same, but the oldest events are not left behind
+    deadline should be < (roundRobin * 0.9)
+  }
+
+  trait FastForwardFixture {
+
+    def windowedQuery(suffix: String): (Query, EventConsumer) = {
+      val prod = EventProducer("p" + suffix, 1000, UniformGenerator(100000))
+      val f = Operator("f" + suffix, 4000)
+      val w = WindowedOperator("w" + suffix, 1000, 100, 100, WindowedOperator.constant(10))
+      val cons = EventConsumer("c" + suffix, 1000)
+      (Query("q" + suffix, Set(prod, f, w, cons), Set((prod, f, 1.0), (f, w, 1.0), (w, cons, 1.0))), cons)
+    }
+
+    def run(executor: PlacementExecutor, ticks: Int) =
+      (0 until ticks).flatMap((i) => executor run (10000000, 10.0 + (i * 10.0), 1000))
+  }
+
+  it should "fast-forward iterations in steady state" in new FastForwardFixture {
+    val (q1, c1) = windowedQuery("1")
+    val (q2, c2) = windowedQuery("2")
+
+    val executor1 = PlacementExecutor("c1", Placement(q1, 1), DefaultOpScheduleStrategy.weighted())
+    val executor2 = PlacementExecutor("c2", Placement(q2, 1), DefaultOpScheduleStrategy.weighted())
+    executor2.fastForward = true
+    executor1.init(0.0)
+    executor2.init(0.0)
+
+    val h1 = run(executor1, 30)
+    val h2 = run(executor2, 30)
+
+    h2 should have size (h1.size)
+    h1.zip(h2).foreach { (pair) =>
+      pair._2.from should be (pair._1.from +- 0.0001)
+      pair._2.to should be (pair._1.to +- 0.0001)
+      pair._2.es.size should be (pair._1.es.size +- 0.0001)
+      pair._2.es.latency should be (pair._1.es.latency +- 0.0001)
+    }
+    c2.outputQueue should be (c1.outputQueue +- 0.0001)
+
+    // windows close at every 100 ms - these iterations cannot be replayed
+    executor1.fastForwardedTime should be (0.0)
+    executor2.fastForwardedTime should be (240.0 +- 0.0001)
+  }
+
+  it should "fast-forward windowed operators with more than one predecessor" in new FastForwardFixture {
+    def joinedQuery(suffix: String): (Query, EventConsumer, WindowedOperator) = {
+      val prod1 = EventProducer("p1" + suffix, 1000, UniformGenerator(50000))
+      val prod2 = EventProducer("p2" + suffix, 1000, UniformGenerator(20000))
+      val f1 = Operator("f1" + suffix, 2000)
+      val f2 = Operator("f2" + suffix, 3000)
+      val w = WindowedOperator("w" + suffix, 1000, 100, 100, WindowedOperator.identity())
+      val cons = EventConsumer("c" + suffix, 1000)
+      (Query("q" + suffix, Set(prod1, prod2, f1, f2, w, cons),
+        Set((prod1, f1, 1.0), (prod2, f2, 1.0), (f1, w, 1.0), (f2, w, 1.0), (w, cons, 0.1))), cons, w)
+    }
+
+    val (q1, c1, w1) = joinedQuery("1")
+    val (q2, c2, w2) = joinedQuery("2")
+
+    val executor1 = PlacementExecutor("c1", Placement(q1, 1), DefaultOpScheduleStrategy.weighted())
+    val executor2 = PlacementExecutor("c2", Placement(q2, 1), DefaultOpScheduleStrategy.weighted())
+    executor2.fastForward = true
+    executor1.init(0.0)
+    executor2.init(0.0)
+
+    val h1 = run(executor1, 30)
+    val h2 = run(executor2, 30)
+
+    // producers are iterated in different orders in each placement
+    def sorted(h: Seq[SimEvent]) = h.sortBy((e) => (e.from, e.to, e.es.size))
+
+    h2 should have size (h1.size)
+    sorted(h1).zip(sorted(h2)).foreach { (pair) =>
+      pair._2.getClass should be (pair._1.getClass)
+      pair._2.es.size should be (pair._1.es.size +- 0.0001)
+      pair._2.es.latency should be (pair._1.es.latency +- 0.0001)
+    }
+    c2.outputQueue should be (c1.outputQueue +- 0.0001)
+    w2.accumulated.map(_.values.map(_.size).sum) should be (w1.accumulated.map(_.values.map(_.size).sum))
+    executor2.fastForwardedTime should be > (0.0)
+  }
+
+  it should "skip iterations on which the placement is idle" in new Fixture {
+    val f3 = Operator("f3", 4000)
+    val cons2 = EventConsumer("c2", 1000)
+    Query("q2", Set(f2, f3, cons2), Set((f2, f3, 1.0), (f3, cons2, 1.0)))
+
+    val executor = PlacementExecutor("c2", Placement(Set[Vertex](f3, cons2), 2), DefaultOpScheduleStrategy.weighted())
+    executor.fastForward = true
+    executor.init(0.0)
+
+    val h = executor run (10000000, 10.0, 1000)
+    h should have size (0)
+    executor.fastForwardedTime should be (10.0)
+
+    // events received from the network are processed normally
+    executor.enqueue(25.0, f2, f3, EventSet(100.0, 20.0, 5.0, prod1 -> 100.0))
+    val h2 = executor run (10000000, 20.0, 1000)
+    h2.from(cons2) should have size (1)
+    executor.fastForwardedTime should be (10.0)
+  }
+
+  it should "add and remove queries while the placement is executed" in new Fixture {
+    val prod2 = EventProducer("p2", 1000, gen)
+    val f3 = Operator("f3", 4000)
+    val f4 = Operator("f4", 4000)
+    val cons2 = EventConsumer("c2", 1000)
+    val query2 = Query("q2", Set(prod2, f3, f4, cons2), Set((prod2, f3, 1.0), (f3, f4, 1.0), (f4, cons2, 0.1)))
+
+    val placement = Placement(query1, 1)
+    val executor = PlacementExecutor("c1", placement, DefaultOpScheduleStrategy.weighted(), 1,
+      LatencyThroughputCalculator(placement))
+    executor.init(0.0)
 
+    executor run (10000000, 10.0, 1000)
+    cons1.outputQueue should be (100)
 
+    // the instructions are split between both queries
+    executor.addQuery(query2, query2.vertices, 10.0)
+    executor run (10000000, 20.0, 1000)
+    cons1.outputQueue should be (150)
+    cons2.outputQueue should be (50)
+    executor.metric(ThroughputMetric.ID, cons2) should be (500.0 +- 0.0001)
+
+    executor.removeQuery(query2) should be (query2.vertices)
+    placement.vertices should be (query1.vertices)
+    executor run (10000000, 30.0, 1000)
+    cons1.outputQueue should be (250)
+    cons2.outputQueue should be (50)
+  }
+
+  it should "calculate the throughput of a consumer shared with an added query" in new Fixture {
+    val placement = Placement(query1, 1)
+    val executor = PlacementExecutor("c1", placement, DefaultOpScheduleStrategy.weighted(), 1,
+      LatencyThroughputCalculator(placement))
+    executor.init(0.0)
+
+    val prod3 = EventProducer("p3", 1000, gen)
+    val query3 = Query("q3", Set[Vertex](prod3, cons1), Set[(OutputVertex, InputVertex, Double)]((prod3, cons1, 1.0)))
+    executor.addQuery(query3, query3.vertices, 0.0)
+
+    // the shared consumer is traversed before the new producer, so its events are consumed in the next tick
+    executor run (10000000, 10.0, 1000)
+    executor run (10000000, 20.0, 1000)
+    cons1.outputQueue should be > (100.0)
+    executor.metric(ThroughputMetric.ID, cons1) should be > (0.0)
+
+    executor.removeQuery(query3) should be (Set(prod3))
+    executor run (10000000, 30.0, 1000)
+    executor.metric(ThroughputMetric.ID, cons1) should be > (0.0)
+  }
+
+  it should "disconnect the shared vertices from a removed query" in new Fixture {
+    val cons2 = EventConsumer("c2", 1000)
+    val query2 = Query("q2", Set(prod1, f1, cons2), Set((prod1, f1, 1.0), (f1, cons2, 0.1)))
+
+    val placement = Placement(query1, 1)
+    val executor = PlacementExecutor("c1", placement, DefaultOpScheduleStrategy.weighted())
+    executor.init(0.0)
+    executor.addQuery(query2, query2.vertices, 0.0)
+
+    executor run (10000000, 10.0, 1000)
+    cons2.outputQueue should be > (0.0)
+    val consumed = cons2.outputQueue
+
+    executor.removeQuery(query2) should be (Set(cons2))
+    f1.queries should be (Set(query1))
+    f1.successors should be (Set(f2))
+    placement.successorsInPlacement(f1) should be (Set(f2))
+    placement.successorsNotInPlacement(f1) should be (Set.empty)
+
+    executor run (10000000, 20.0, 1000)
+    cons1.outputQueue should be > (0.0)
+    cons2.outputQueue should be (consumed)
+  }
+
+  it should "only run iterations on which the placement is ready in the event-driven mode" in new Fixture {
+    val f3 = Operator("f3", 4000)
+    val cons2 = EventConsumer("c2", 1000)
+    Query("q2", Set(f2, f3, cons2), Set((f2, f3, 1.0), (f3, cons2, 1.0)))
+
+    val executor = PlacementExecutor("c2", Placement(Set[Vertex](f3, cons2), 2), DefaultOpScheduleStrategy.weighted(), 4)
+    executor.eventDriven = true
+    executor.init(0.0)
+
+    val h = executor run (10000000, 10.0, 1000)
+    h should have size (0)
+    executor.nextEventTime should be (Double.MaxValue)
+
+    // the first two iterations finish before the event is received
+    executor.enqueue(25.0, f2, f3, EventSet(100.0, 20.0, 5.0, prod1 -> 100.0))
+    executor.nextReadyTime(20.0) should be (25.0)
+
+    val h2 = executor run (10000000, 20.0, 1000)
+    h2.from(f3) should have size (1)
+    h2.from(f3).head.from should be (25.0)
+    h2.from(cons2) should have size (1)
+    executor.nextEventTime should be (Double.MaxValue)
+  }
+
+}
@@ -77,6 +77,7 @@ class RemotePlacementExecutorTest extends FlatSpec
       override def sendMessage(timestamp: Double, orig: OutputVertex, dest: InputVertex, es: EventSet): Unit = {
         executor2.enqueue(timestamp + 1.0, orig, dest, es)
       }
+      override def sendCredits(timestamp: Double, orig: InputVertex, dest: OutputVertex, credits: Double): Unit = { }
     }
 
     executor1.networkInterface = network
@@ -98,6 +99,53 @@ class RemotePlacementExecutorTest extends FlatSpec
 
   }
 
+  it should "apply backpressure to remote predecessors through credits" in new Fixture {
+    val prod2 = EventProducer("p2", 1000, UniformGenerator(100000))
+    val f4 = Operator("f4", 4000)
+    val f5 = Operator("f5", 4000, 500)
+    val cons3 = EventConsumer("c3", 1000)
+    val query2 = Query("q2", Set(prod2, f4, f5, cons3), Set((prod2, f4, 1.0), (f4, f5, 1.0), (f5, cons3, 1.0)))
 
+    val executor1 = PlacementExecutor("c1", Placement(Set[Vertex](prod2, f4), 1), DefaultOpScheduleStrategy.weighted(), 1)
+    val executor2 = PlacementExecutor("c2", Placement(Set[Vertex](f5, cons3), 2), DefaultOpScheduleStrategy.weighted(), 1)
+
+    var sent = 0.0
+    val network = new NetworkInterface {
+      override def sendMessage(timestamp: Double, orig: OutputVertex, dest: InputVertex, es: EventSet): Unit = {
+        sent += es.size
+        executor2.enqueue(timestamp + 1.0, orig, dest, es)
+      }
+      override def sendCredits(timestamp: Double, orig: InputVertex, dest: OutputVertex, credits: Double): Unit = {
+        executor1.enqueueCredits(timestamp + 1.0, orig, dest, credits)
+      }
+    }
+
+    executor1.networkInterface = network
+    executor2.networkInterface = network
+    executor1.init(0.0)
+    executor2.init(0.0)
+
+    // f4 can only send 500 events to f5 before receiving credits
+    executor1 run (10000000, 10.0, 1000)
+    sent should be (500.0 +- 0.0001)
+    f4.inputQueues(prod2) should be (500.0 +- 0.0001)
+    f4.limits(f5) should be (0.0 +- 0.0001)
+
+    executor1 run (10000000, 20.0, 1000)
+    sent should be (500.0 +- 0.0001)
+    f4.inputQueues(prod2) should be (1500.0 +- 0.0001)
+
+    // f5 consumes the events and return the credits
+    executor2 run (10000000, 20.0, 1000)
+    f5.inputQueues(f4) should be (0.0 +- 0.0001)
+    cons3.outputQueue should be (500.0 +- 0.0001)
+    f4.limits(f5) should be (0.0 +- 0.0001)
+    executor1.pendingCredits should have size (1)
+
+    executor1 run (10000000, 30.0, 1000)
+    sent should be (1000.0 +- 0.0001)
+    f4.inputQueues(prod2) should be (2000.0 +- 0.0001)
+    f4.limits(f5) should be (0.0 +- 0.0001)
+  }
 
 }
@@ -0,0 +1,136 @@
+package ca.uwo.eng.sel.cepsim.metric
+
+import ca.uwo.eng.sel.cepsim.history.SimEvent
+import ca.uwo.eng.sel.cepsim.placement.Placement
+import ca.uwo.eng.sel.cepsim.query.EventConsumer
+import org.junit.runner.RunWith
+import org.mockito.Mockito._
+import org.scalatest.junit.JUnitRunner
+import org.scalatest.mock.MockitoSugar
+import org.scalatest.{FlatSpec, Matchers}
+
+@RunWith(classOf[JUnitRunner])
+class ConvergenceMonitorTest extends FlatSpec
+  with Matchers
+  with MockitoSugar {
+
+  trait Fixture {
+    val cons1 = mock[EventConsumer]("cons1")
+    val placement = mock[Placement]
+    doReturn(Set(cons1)).when(placement).consumers
+
+    // warm-up during the first 4 seconds, and then steady state with small oscillations
+    val throughputs = (0 until 20).map((i) =>
+      ThroughputMetric(cons1, i, if (i < 4) (i + 1) * 20.0 else 100.0 + (i % 2) * 2 - 1))
+    val latencies = (0 until 20).flatMap((i) => {
+      val value = if (i < 4) 50.0 - (i * 10.0) else 10.0
+      List(LatencyMetric(cons1, i * 1000.0 + 250.0, 10.0, value), LatencyMetric(cons1, i * 1000.0 + 750.0, 30.0, value))
+    })
+
+    val calculator = mock[MetricCalculator]
+    doReturn(placement).when(calculator).placement
+    doReturn(throughputs.toList).when(calculator).results(ThroughputMetric.ID, cons1)
+    doReturn(latencies.toList).when(calculator).results(LatencyMetric.ID, cons1)
+
+    def advance(monitor: ConvergenceMonitor, time: Double) = {
+      val event = mock[SimEvent]
+      doReturn(time).when(event).at
+      monitor.update(event)
+    }
+  }
+
+  "A ConvergenceMonitor" should "truncate the warm-up period" in new Fixture {
+    val monitor = ConvergenceMonitor(calculator, 1000.0, 0.05)
+    monitor.init(0.0)
+    advance(monitor, 20000.0)
+    monitor.batches should be (20)
+
+    val throughput = monitor.estimate(ConvergenceMetric.ThroughputID, cons1)
+    throughput.warmup should be (4000.0)
+    throughput.value should be (100.0 +- 0.0001)
+    throughput.batches should be (16)
+    throughput.halfWidth should be (0.5503 +- 0.002)
+    throughput.lower should be < (100.0)
+    throughput.upper should be > (100.0)
+    throughput.converged should be (true)
+
+    val latency = monitor.estimate(ConvergenceMetric.LatencyID, cons1)
+    latency.warmup should be (4000.0)
+    latency.value should be (10.0 +- 0.0001)
+    latency.halfWidth should be (0.0 +- 0.0001)
+    latency.converged should be (true)
+
+    monitor.consolidate(ConvergenceMetric.LatencyID, cons1) should be (10.0 +- 0.0001)
+    monitor.consolidateByMinute(ConvergenceMetric.ThroughputID, cons1).keys.head should be (4)
+    monitor.converged should be (true)
+  }
+
+  it should "only consider completed batches" in new Fixture {
+    val monitor = ConvergenceMonitor(calculator, 1000.0, 0.05)
+    monitor.init(0.0)
+    advance(monitor, 8500.0)
+
+    monitor.batches should be (8)
+    monitor.estimate(ConvergenceMetric.ThroughputID, cons1).converged should be (false)
+    monitor.converged should be (false)
+
+    // the estimates are recalculated when new batches are completed
+    advance(monitor, 20000.0)
+    monitor.converged should be (true)
+  }
+
+  it should "not converge if the intervals are wider than the tolerance" in new Fixture {
+    val monitor = ConvergenceMonitor(calculator, 1000.0, 0.001)
+    monitor.init(0.0)
+    advance(monitor, 20000.0)
+
+    monitor.estimate(ConvergenceMetric.ThroughputID, cons1).converged should be (false)
+    monitor.estimate(ConvergenceMetric.LatencyID, cons1).converged should be (true)
+    monitor.converged should be (false)
+  }
+
+  it should "group metrics into batches" in new Fixture {
+    val monitor = ConvergenceMonitor(calculator, 2000.0, 0.05, 5, 0.95)
+    monitor.init(0.0)
+    advance(monitor, 20000.0)
+
+    monitor.batches should be (10)
+    monitor.estimate(ConvergenceMetric.ThroughputID, cons1).value should be (100.0 +- 0.0001)
+    monitor.estimate(ConvergenceMetric.ThroughputID, cons1).warmup should be (4000.0)
+  }
+
+  it should "align the batches of all metrics to the start time" in new Fixture {
+    // the same metrics of a cloudlet started 5 seconds after the simulation start
+    doReturn(throughputs.map((m) => ThroughputMetric(cons1, m.time + 5, m.value)).toList).when(calculator).
+      results(ThroughputMetric.ID, cons1)
+    doReturn(latencies.map((m) => m.copy(time = m.time + 5000.0)).toList).when(calculator).
+      results(LatencyMetric.ID, cons1)
+
+    val monitor = ConvergenceMonitor(calculator, 1000.0, 0.05)
+    monitor.init(5000.0)
+    advance(monitor, 25000.0)
+    monitor.batches should be (20)
+
+    val throughput = monitor.estimate(ConvergenceMetric.ThroughputID, cons1)
+    throughput.warmup should be (4000.0)
+    throughput.value should be (100.0 +- 0.0001)
+    throughput.batches should be (16)
+    monitor.estimate(ConvergenceMetric.LatencyID, cons1).warmup should be (4000.0)
+    monitor.converged should be (true)
+  }
+
+  "The MSER rule" should "find the end of the warm-up period" in {
+    ConvergenceMonitor.mser(IndexedSeq(10.0, 8.0, 6.0, 4.0, 2.0, 2.1, 1.9, 2.0, 2.1, 1.9, 2.0)) should be (4)
+    ConvergenceMonitor.mser(IndexedSeq(2.0, 2.0, 2.0, 2.0)) should be (0)
+    ConvergenceMonitor.mser(IndexedSeq.empty[Double]) should be (0)
+  }
+
+  "The quantile approximations" should "be close to the tabulated values" in {
+    ConvergenceMonitor.normalQuantile(0.975) should be (1.960 +- 0.001)
+    ConvergenceMonitor.normalQuantile(0.025) should be (-1.960 +- 0.001)
+    ConvergenceMonitor.studentQuantile(0.975, 4) should be (2.776 +- 0.01)
+    ConvergenceMonitor.studentQuantile(0.975, 15) should be (2.131 +- 0.005)
+    ConvergenceMonitor.studentQuantile(0.95, 30) should be (1.697 +- 0.005)
+  }
+
+}
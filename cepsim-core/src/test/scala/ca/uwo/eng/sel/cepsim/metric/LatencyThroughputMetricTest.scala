@@ -45,6 +45,7 @@ class LatencyThroughputMetricTest extends FlatSpec
      */
   trait Fixture1 extends CommonFixture {
     doReturn(List(path1)).when(q).pathsToProducers(cons1)
+    doReturn(Map(prod1 -> PathCount(1))).when(q).pathCounts(cons1)
 
     doReturn(Map(op1 -> 1.0)).when(prod1).selectivities
     doReturn(Map(op2 -> 1.0)).when(op1).selectivities
@@ -74,6 +75,7 @@ class LatencyThroughputMetricTest extends FlatSpec
     val path2 = mock[VertexPath]("path2")
     doReturn(prod1).when(path2).producer
     doReturn(List(path1, path2)).when(q).pathsToProducers(cons1)
+    doReturn(Map(prod1 -> PathCount(2))).when(q).pathCounts(cons1)
 
     val op3 = mock[Operator]("op3")
 
@@ -111,6 +113,7 @@ class LatencyThroughputMetricTest extends FlatSpec
     doReturn(prod1).when(path1).producer
     doReturn(prod2).when(path2).producer
     doReturn(List(path1, path2)).when(q).pathsToProducers(cons1)
+    doReturn(Map(prod1 -> PathCount(1), prod2 -> PathCount(1))).when(q).pathCounts(cons1)
 
     doReturn(Set(prod2)).when(op2).predecessors
     doReturn(Set(op1, op2)).when(op3).predecessors
@@ -173,6 +176,16 @@ class LatencyThroughputMetricTest extends FlatSpec
   }
 
 
+  it should "calculate the same throughput when the paths are enumerated explicitly" in new Fixture2 {
+    val calc = LatencyThroughputCalculator(placement, true)
+    calc.pathsNo should be (Map((cons1, prod1) -> 2L))
+
+    calc update Consumed (cons1, 35.0, 42.0, EventSet( 3.0, 42.0, 32.0, prod1 -> 20.0))
+
+    val throughput = calc.results(ThroughputMetric.ID, cons1)
+    throughput.head should be (ThroughputMetric(cons1, 0.0, 10.0))
+  }
+
   it should "calculate the right latency and throughput when there are more than one producer" in new Fixture3 {
     val throughput = LatencyThroughputCalculator(placement)
 
@@ -269,6 +282,24 @@ class LatencyThroughputMetricTest extends FlatSpec
   }
 
 
+  it should "calculate latency percentiles weighted by the number of events" in new Fixture1 {
+    val latency = LatencyThroughputCalculator(placement)
+    latency.init(0.0)
+    latency.latencyPercentile(cons1, 0.99) should be (0.0)
+
+    latency update Consumed (cons1,     50.0,    100.0, EventSet(10.0,    100.0, 20.0, prod1 -> 10.0))
+    latency update Consumed (cons1,  50000.0,  50500.0, EventSet(10.0,  50500.0, 10.0, prod1 -> 10.0))
+    latency update Consumed (cons1,  60000.0,  60050.0, EventSet( 5.0,  60050.0, 20.0, prod1 ->  5.0))
+    latency update Consumed (cons1,  61000.0,  61050.0, EventSet(20.0,  61050.0, 10.0, prod1 -> 20.0))
+    latency update Consumed (cons1, 190000.0, 190050.0, EventSet(15.0, 190050.0, 20.0, prod1 -> 15.0))
+
+    latency.latencyPercentile(cons1, 0.0) should be (10.0)
+    latency.latencyPercentile(cons1, 0.5) should be (10.0)
+    latency.latencyPercentile(cons1, 0.51) should be (20.0)
+    latency.latencyPercentile(cons1, 0.99) should be (20.0)
+  }
+
+
   it should "consolidate throughput per minute" in new Fixture1 {
     val throughput = LatencyThroughputCalculator(placement)
     throughput.init(0.0)
@@ -293,6 +324,34 @@ class LatencyThroughputMetricTest extends FlatSpec
     consolidated(3) should be (0.2500 +- 0.0001)
   }
 
+  it should "update the paths of shared consumers when queries are added and removed" in {
+    val p1 = EventProducer("p1", 10, null)
+    val p3 = EventProducer("p3", 10, null)
+    val f1 = Operator("f1", 10)
+    val g1 = Operator("g1", 10)
+    val c1 = EventConsumer("c1", 10)
+    val q1 = Query("q1", Set[Vertex](p1, f1, c1), Set((p1, f1, 1.0), (f1, c1, 1.0)), 1000L)
+
+    val placement = Placement(q1, 1)
+    val calculator = LatencyThroughputCalculator(placement)
+    calculator.pathsNo should be (Map((c1, p1) -> 1L))
+
+    // the new queries share the already placed consumer
+    val q2 = Query("q2", Set[Vertex](p3, c1), Set[(OutputVertex, InputVertex, Double)]((p3, c1, 1.0)), 1000L)
+    placement.addQuery(q2)
+    calculator.queryAdded(q2, Set(p3))
+    val q3 = Query("q3", Set[Vertex](p1, g1, c1), Set((p1, g1, 1.0), (g1, c1, 1.0)), 1000L)
+    placement.addQuery(q3)
+    calculator.queryAdded(q3, Set(g1))
+    calculator.pathsNo should be (Map((c1, p1) -> 2L, (c1, p3) -> 1L))
+
+    // the paths of the removed queries are subtracted, even though the consumer is kept
+    calculator.queryRemoved(q2, placement.removeQuery(q2))
+    calculator.pathsNo should be (Map((c1, p1) -> 2L))
+    calculator.queryRemoved(q3, placement.removeQuery(q3))
+    calculator.pathsNo should be (Map((c1, p1) -> 1L))
+  }
+
 
   
 
@@ -159,6 +159,34 @@ class PlacementTest extends FlatSpec
 
   }
 
+  it should "include vertices that also have predecessors in other placements" in new Fixture {
+    doReturn(Set(q1)).when(prod1).queries
+    doReturn(Set(q1)).when(f1).queries
+    doReturn(Set(q1)).when(f2).queries
+    doReturn(Set(q1)).when(cons1).queries
+
+    doReturn(Set(prod1, f1, f2, cons1)).when(q1).vertices
+
+    doReturn(Set.empty).when(prod1).predecessors
+    doReturn(Set(prod1)).when(f1).predecessors
+    doReturn(Set(prod1)).when(f2).predecessors
+    doReturn(Set(f1, f2)).when(cons1).predecessors
+
+    doReturn(Set(f1, f2)).when(prod1).successors
+    doReturn(Set(cons1)).when(f1).successors
+    doReturn(Set(cons1)).when(f2).successors
+    doReturn(Set.empty).when(cons1).successors
+
+    // f2 is placed elsewhere
+    val placement = Placement(Set(prod1, f1, cons1), 1)
+    val it = placement.iterator
+
+    it.next should be (prod1)
+    it.next should be (f1)
+    it.next should be (cons1)
+    it.hasNext should be (false)
+  }
+
   it should "return an iterator that iterates in topological order when queries share operators" in new Fixture {
 
     doReturn(Set(q1)).when(prod1).queries
@@ -274,4 +302,90 @@ class PlacementTest extends FlatSpec
 
 
 
+  it should "add and remove queries incrementally" in new Fixture {
+    doReturn(Set(q1)).when(prod1).queries
+    doReturn(Set(q1)).when(f1).queries
+    doReturn(Set(q1)).when(cons1).queries
+    doReturn(Set(q2)).when(prod2).queries
+    doReturn(Set(q2)).when(f2).queries
+    doReturn(Set(q2)).when(cons2).queries
+
+    doReturn(Set(prod1, f1, cons1)).when(q1).vertices
+    doReturn(Set(prod2, f2, cons2)).when(q2).vertices
+
+    doReturn(Set.empty).when(prod1).predecessors
+    doReturn(Set(prod1)).when(f1).predecessors
+    doReturn(Set(f1)).when(cons1).predecessors
+    doReturn(Set.empty).when(prod2).predecessors
+    doReturn(Set(prod2)).when(f2).predecessors
+    doReturn(Set(f2)).when(cons2).predecessors
+
+    doReturn(Set(f1)).when(prod1).successors
+    doReturn(Set(cons1)).when(f1).successors
+    doReturn(Set.empty).when(cons1).successors
+    doReturn(Set(f2)).when(prod2).successors
+    doReturn(Set(cons2)).when(f2).successors
+    doReturn(Set.empty).when(cons2).successors
+
+    val placement = Placement(q1, 1)
+    placement.addQuery(q2)
+
+    placement.version should be (1)
+    placement.vertices should be (Set(prod1, f1, cons1, prod2, f2, cons2))
+    placement.queries should be (Set(q1, q2))
+    placement.vertices(q2) should be (Set(prod2, f2, cons2))
+    placement.producers should be (Set(prod1, prod2))
+    placement.consumers should be (Set(cons1, cons2))
+    placement.successorsInPlacement(prod2) should be (Set(f2))
+    placement.duration should be (200L)
+
+    // the new vertices are traversed after the existing ones
+    placement.iterator.toList should be (List(prod1, f1, cons1, prod2, f2, cons2))
+
+    placement.removeQuery(q2) should be (Set(prod2, f2, cons2))
+    placement.version should be (2)
+    placement.vertices should be (Set(prod1, f1, cons1))
+    placement.queries should be (Set(q1))
+    placement.producers should be (Set(prod1))
+    placement.consumers should be (Set(cons1))
+    placement.duration should be (100L)
+    placement.iterator.toList should be (List(prod1, f1, cons1))
+  }
+
+  it should "keep vertices shared with other queries when a query is removed" in new Fixture {
+    doReturn(Set(q1)).when(prod1).queries
+    doReturn(Set(q1, q2)).when(f1).queries
+    doReturn(Set(q1)).when(cons1).queries
+    doReturn(Set(q2)).when(cons2).queries
+
+    doReturn(Set(prod1, f1, cons1)).when(q1).vertices
+
+    doReturn(Set.empty).when(prod1).predecessors
+    doReturn(Set(prod1)).when(f1).predecessors
+    doReturn(Set(f1)).when(cons1).predecessors
+    doReturn(Set(f1)).when(cons2).predecessors
+
+    doReturn(Set(f1)).when(prod1).successors
+    doReturn(Set(cons1, cons2)).when(f1).successors
+    doReturn(Set.empty).when(cons1).successors
+    doReturn(Set.empty).when(cons2).successors
+
+    val placement = Placement(q1, 1)
+    placement.successorsNotInPlacement(f1) should be (Set(cons2))
+
+    // the second query only adds its consumer
+    placement.addQuery(q2, Set[Vertex](f1, cons2))
+    placement.successorsInPlacement(f1) should be (Set(cons1, cons2))
+    placement.successorsNotInPlacement(f1) should be (Set.empty)
+    placement.iterator.toList should be (List(prod1, f1, cons1, cons2))
+
+    // the shared vertex no longer sends events to the removed consumer
+    placement.removeQuery(q2) should be (Set(cons2))
+    verify(q2).detach()
+    placement.vertices should be (Set(prod1, f1, cons1))
+    placement.successorsInPlacement(f1) should be (Set(cons1))
+    placement.successorsNotInPlacement(f1) should be (Set.empty)
+    placement.iterator.toList should be (List(prod1, f1, cons1))
+  }
+
 }
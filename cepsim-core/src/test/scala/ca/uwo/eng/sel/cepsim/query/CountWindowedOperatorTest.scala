@@ -0,0 +1,106 @@
+package ca.uwo.eng.sel.cepsim.query
+
+import ca.uwo.eng.sel.cepsim.event.EventSet
+import ca.uwo.eng.sel.cepsim.history.{Produced, WindowAccumulated}
+import org.junit.runner.RunWith
+import org.mockito.Mockito._
+import org.scalatest.junit.JUnitRunner
+import org.scalatest.mock.MockitoSugar
+import org.scalatest.{FlatSpec, Matchers}
+
+
+@RunWith(classOf[JUnitRunner])
+class CountWindowedOperatorTest extends FlatSpec
+  with Matchers
+  with MockitoSugar {
+
+  trait Fixture {
+    val prod1 = mock[EventProducer]("prod1")
+
+    val f1 = mock[Operator]("f1")
+    val f2 = mock[Operator]("f2")
+    val f3 = mock[Operator]("f3")
+    doReturn("f1").when(f1).id
+    doReturn("f2").when(f2).id
+    doReturn("f3").when(f3).id
+
+    def setup(op: CountWindowedOperator) = {
+      op addInputQueue(f1)
+      op addInputQueue(f2)
+      op addOutputQueue(f3)
+    }
+  }
+
+
+  "A CountWindowedOperator" should "only generate output after the window count is reached" in new Fixture {
+    val op = CountWindowedOperator("c1", 10, 30, WindowedOperator.identity(), false, 1000)
+    setup(op)
+
+    op enqueueIntoInput (f1, EventSet(10, 5.0, 1.0, prod1 -> 10.0))
+    op enqueueIntoInput (f2, EventSet(10, 8.0, 2.0, prod1 -> 10.0))
+    val simEvent = op run (1000, 10.0, 20.0)
+
+    simEvent should be (List(WindowAccumulated(op, 10, 20, 0, EventSet(20.0, 6.5, 1.5, prod1 -> 20.0))))
+    op.accumulatedSize should be (20.0 +- 0.0001)
+    op.outputQueues(f3) should be (0.0 +- 0.0001)
+
+    op enqueueIntoInput (f1, EventSet(10, 20.0, 1.0, prod1 -> 10.0))
+    op enqueueIntoInput (f2, EventSet(10, 20.0, 1.0, prod1 -> 10.0))
+    val simEvent2 = op run (1000, 20.0, 30.0)
+
+    simEvent2 should have size (2)
+    simEvent2(0) should be (WindowAccumulated(op, 20, 30, 0, EventSet(20.0, 20.0, 1.0, prod1 -> 20.0)))
+
+    val produced = simEvent2(1).asInstanceOf[Produced]
+    produced.es.size should be (30.0 +- 0.0001)
+    produced.es.totals(prod1) should be (30.0 +- 0.0001)
+    op.outputQueues(f3) should be (30.0 +- 0.0001)
+    op.accumulatedSize should be (10.0 +- 0.0001)
+  }
+
+  it should "close more than one window in a single execution" in new Fixture {
+    val op = CountWindowedOperator("c1", 10, 10, WindowedOperator.constant(1), false, 1000)
+    setup(op)
+
+    op enqueueIntoInput (f1, EventSet(25, 5.0, 1.0, prod1 -> 25.0))
+    val simEvent = op run (1000, 10.0, 20.0)
+
+    simEvent.collect { case p: Produced => p } should have size (2)
+    op.outputQueues(f3) should be (2.0 +- 0.0001)
+    op.accumulatedSize should be (5.0 +- 0.0001)
+  }
+
+  it should "close the windows completed by a replayed accumulation" in new Fixture {
+    val op = CountWindowedOperator("c1", 10, 30, WindowedOperator.identity(), false, 1000)
+    setup(op)
+
+    op.replayAccumulation(Map(f1 -> EventSet(10, 5.0, 1.0, prod1 -> 10.0),
+      f2 -> EventSet(10, 8.0, 2.0, prod1 -> 10.0)), 10.0, 20.0) should be (List.empty)
+    op.accumulatedSize should be (20.0 +- 0.0001)
+
+    val simEvent = op.replayAccumulation(Map(f1 -> EventSet(20, 20.0, 1.0, prod1 -> 20.0)), 20.0, 30.0)
+    simEvent should have size (1)
+    simEvent.head.asInstanceOf[Produced].es.size should be (30.0 +- 0.0001)
+    op.outputQueues(f3) should be (30.0 +- 0.0001)
+    op.accumulatedSize should be (10.0 +- 0.0001)
+  }
+
+  it should "keep the output that does not fit the successor queues" in new Fixture {
+    val f4 = Operator("f4", 10, 5)
+    val op = CountWindowedOperator("c1", 10, 10, WindowedOperator.identity(), false, 1000)
+    op addInputQueue(f1)
+    op addOutputQueue(f4)
+
+    op enqueueIntoInput (f1, EventSet(10, 5.0, 1.0, prod1 -> 10.0))
+    op run (1000, 10.0, 20.0)
+    op.outputQueues(f4) should be (5.0 +- 0.0001)
+    op.toBeSent.size should be (5.0 +- 0.0001)
+    op.isIdle(100.0) should be (false)
+
+    op.dequeueFromOutput(f4, 5.0)
+    op run (1000, 20.0, 30.0)
+    op.outputQueues(f4) should be (5.0 +- 0.0001)
+    op.toBeSent.size should be (0.0 +- 0.0001)
+  }
+
+}
@@ -0,0 +1,116 @@
+package ca.uwo.eng.sel.cepsim.query
+
+import ca.uwo.eng.sel.cepsim.event.EventSet
+import ca.uwo.eng.sel.cepsim.history.Produced
+import org.junit.runner.RunWith
+import org.mockito.Mockito._
+import org.scalatest.junit.JUnitRunner
+import org.scalatest.mock.MockitoSugar
+import org.scalatest.{FlatSpec, Matchers}
+
+
+@RunWith(classOf[JUnitRunner])
+class JoinOperatorTest extends FlatSpec
+  with Matchers
+  with MockitoSugar {
+
+  trait Fixture {
+    val prod1 = mock[EventProducer]("prod1")
+    val prod2 = mock[EventProducer]("prod2")
+
+    val f1 = mock[Operator]("f1")
+    val f2 = mock[Operator]("f2")
+    val f3 = Operator("f3", 10, 4)
+    doReturn("f1").when(f1).id
+    doReturn("f2").when(f2).id
+
+    val op = JoinOperator("j1", 10, 1, 100, 0.1, 1000)
+    op addInputQueue(f1)
+    op addInputQueue(f2)
+
+    def output(events: Seq[Any]) = events.head.asInstanceOf[Produced].es
+  }
+
+
+  "A JoinOperator" should "match new events from both predecessors" in new Fixture {
+    op addOutputQueue(f1)
+    op enqueueIntoInput (f1, EventSet(10, 0.0, 0.0, prod1 -> 10.0))
+    op enqueueIntoInput (f2, EventSet(10, 0.0, 0.0, prod2 -> 10.0))
+    op.instructionsNeeded should be (200.0 +- 0.0001)
+
+    val es = output(op.run(1000, 0, 10))
+    es.size should be (10.0 +- 0.0001)
+    es.totals should be (Map(prod1 -> 10.0, prod2 -> 10.0))
+    op.outputQueues(f1) should be (10.0 +- 0.0001)
+
+    op.retainedSize(f1) should be (10.0 +- 0.0001)
+    op.retainedSize(f2) should be (10.0 +- 0.0001)
+    op.retainedEvents should be (20.0 +- 0.0001)
+  }
+
+  it should "match new events with the retained events of the other predecessor" in new Fixture {
+    op addOutputQueue(f1)
+    op enqueueIntoInput (f1, EventSet(10, 0.0, 0.0, prod1 -> 10.0))
+    op enqueueIntoInput (f2, EventSet(10, 0.0, 0.0, prod2 -> 10.0))
+    op.run(1000, 0, 10)
+
+    // the cost per event grows with the events retained from the other predecessor
+    op enqueueIntoInput (f1, EventSet(5, 10.0, 0.0, prod1 -> 5.0))
+    op.costPerEvent(f1) should be (20.0 +- 0.0001)
+    op.instructionsNeeded should be (100.0 +- 0.0001)
+
+    val es = output(op.run(1000, 10, 20))
+    es.size should be (5.0 +- 0.0001)
+    es.totals should be (Map(prod1 -> 5.0))
+    op.retainedSize(f1) should be (15.0 +- 0.0001)
+  }
+
+  it should "process the events allowed by the allocated instructions" in new Fixture {
+    op addOutputQueue(f1)
+    op enqueueIntoInput (f1, EventSet(10, 0.0, 0.0, prod1 -> 10.0))
+    op enqueueIntoInput (f2, EventSet(10, 0.0, 0.0, prod2 -> 10.0))
+
+    val es = output(op.run(100, 0, 10))
+    es.size should be (2.5 +- 0.0001)
+    op.inputQueues(f1) should be (5.0 +- 0.0001)
+    op.inputQueues(f2) should be (5.0 +- 0.0001)
+  }
+
+  it should "discard the retained events after the window" in new Fixture {
+    op addOutputQueue(f1)
+    op enqueueIntoInput (f1, EventSet(10, 0.0, 0.0, prod1 -> 10.0))
+    op enqueueIntoInput (f2, EventSet(10, 0.0, 0.0, prod2 -> 10.0))
+    op.run(1000, 0, 10)
+
+    // no events retained from f2 - there is no output, but the totals are kept
+    op enqueueIntoInput (f1, EventSet(5, 200.0, 0.0, prod1 -> 5.0))
+    op.run(1000, 200, 210) should be (List.empty)
+    op.retainedSize(f1) should be (5.0 +- 0.0001)
+    op.retainedSize(f2) should be (0.0 +- 0.0001)
+
+    op enqueueIntoInput (f2, EventSet(5, 210.0, 0.0, prod2 -> 5.0))
+    val es = output(op.run(1000, 210, 220))
+    es.size should be (2.5 +- 0.0001)
+    es.totals should be (Map(prod1 -> 5.0, prod2 -> 5.0))
+  }
+
+  it should "respect the limits of the output queues" in new Fixture {
+    op addOutputQueue(f3)
+    op enqueueIntoInput (f1, EventSet(10, 0.0, 0.0, prod1 -> 10.0))
+    op enqueueIntoInput (f2, EventSet(10, 0.0, 0.0, prod2 -> 10.0))
+
+    op.run(1000, 0, 10)
+    op.outputQueues(f3) should be <= (4.0)
+    op.inputQueues(f1) should be > (0.0)
+
+    // the operator does not need instructions while the output queue is full
+    op.outputEventQueues(f3).enqueue(EventSet(4.0 - op.outputQueues(f3), 10.0, 0.0, prod1 -> 1.0))
+    op.instructionsNeeded should be (0.0)
+    op.run(1000, 10, 20) should be (List.empty)
+  }
+
+  it should "not accept more than two predecessors" in new Fixture {
+    an [IllegalArgumentException] should be thrownBy { op addInputQueue(f3) }
+  }
+
+}
@@ -73,6 +73,34 @@ class OperatorTest extends FlatSpec
     op.outputQueues(n1) should be (5)
   }
 
+  it should "consume the instructions of all query instances" in new Fixture {
+    val op = Operator("f1", 10)
+    Query("q1", Set[Vertex](op), Set.empty[(OutputVertex, InputVertex, Double)], 1000L, 2)
+    setup(op, 1.0, p1)
+    enqueue(op, 10)
+
+    op.instructionsNeeded should be (200.0)
+    val simEvent = op.run(100, 0, 5)
+    simEvent should be (List(Produced(op, 0, 5, EventSet(5.0, 5.0, 5.0, p1 -> 5.0))))
+
+    assertInput(op, 5)
+    op.outputQueues(n1) should be (5)
+  }
+
+  it should "calculate the size of its state" in new Fixture {
+    val op = Operator("f1", 10)
+    setup(op, 1.0, p1)
+    enqueue(op, 10)
+    op.stateSize should be (0.0)
+
+    op.eventSize = 100.0
+    op.stateSize should be (1000.0 +- 0.0001)
+
+    op.run(50, 0, 5)
+    op.stateEvents should be (10.0 +- 0.0001)
+    op.stateSize should be (1000.0 +- 0.0001)
+  }
+
   it should "correctly consume the input queue even if it has spare instructions" in new Fixture {
     val op = Operator("f1", 10)
     setup(op, 1.0, p1)
@@ -61,5 +61,53 @@ class QueryGraphTest extends FlatSpec
     paths(3).edges    should contain theSameElementsInOrderAs (List(e8, e7, e5, e3, e2))
   }
 
+  it should "count the paths from the consumer to producers" in {
+    var q = new Query("q1")
+
+    val p1 = EventProducer("p1", 1, null)
+    val p2 = EventProducer("p2", 1, null)
+    val m1 = Operator("m1", 1)
+    val s1 = Operator("s1", 1)
+    val f1 = Operator("f1", 1)
+    val f2 = Operator("f2", 1)
+    val m2 = Operator("m2", 1)
+    val c1 = EventConsumer("c1", 1)
+    q.addVertices(p1, p2, m1, s1, f1, f2, m2, c1)
+    q.addEdges((p1, m1, 1.0), (p2, m1, 1.0), (m1, s1, 1.0), (s1, f1, 0.5), (s1, f2, 0.5),
+               (f1, m2, 0.5), (f2, m2, 0.6), (m2, c1, 1.0))
+
+    val counts = q.pathCounts(c1)
+
+    counts should have size (2)
+    counts(p1).paths should be (2)
+    counts(p2).paths should be (2)
+
+    // same results as the explicit enumeration
+    q.pathsToProducers(c1).groupBy(_.producer).foreach((entry) => {
+      counts(entry._1).paths should be (entry._2.size)
+    })
+  }
+
+  it should "count the paths of long sequences of joins" in {
+    var q = new Query("q1")
+
+    // 40 sequential diamonds - there are 2^40 paths from the consumer to the producer
+    val p = EventProducer("p", 1, null)
+    q.addVertex(p)
+    val last = (1 to 40).foldLeft[OutputVertex](p) { (prev, i) =>
+      val a = Operator(s"a$i", 1)
+      val b = Operator(s"b$i", 1)
+      val m = Operator(s"m$i", 1)
+      q.addVertices(a, b, m)
+      q.addEdges((prev, a, 1.0), (prev, b, 1.0), (a, m, 0.5), (b, m, 0.5))
+      m
+    }
+    val c = EventConsumer("c", 1)
+    q.addVertex(c)
+    q.addEdge(last, c)
+
+    val counts = q.pathCounts(c)
+    counts(p).paths should be (1L << 40)
+  }
 
 }
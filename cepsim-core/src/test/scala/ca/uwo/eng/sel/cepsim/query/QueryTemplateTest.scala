@@ -0,0 +1,129 @@
+package ca.uwo.eng.sel.cepsim.query
+
+import ca.uwo.eng.sel.cepsim.gen.Generator
+import ca.uwo.eng.sel.cepsim.placement.Placement
+import org.junit.runner.RunWith
+import org.scalatest.junit.JUnitRunner
+import org.scalatest.mock.MockitoSugar
+import org.scalatest.{FlatSpec, Matchers}
+
+
+@RunWith(classOf[JUnitRunner])
+class QueryTemplateTest extends FlatSpec
+  with Matchers
+  with MockitoSugar {
+
+  trait Fixture {
+    val template = QueryTemplate("q", Seq(
+        ("p", (id: String) => EventProducer(id, 10, mock[Generator])),
+        ("f", (id: String) => Operator(id, 1000, 2048)),
+        ("g", (id: String) => Operator(id, 500, 2048)),
+        ("c", (id: String) => EventConsumer(id, 10, 2048))),
+      Seq(("p", "f", 1.0), ("p", "g", 1.0), ("f", "c", 0.5), ("g", "c", 0.1)))
+
+    def vertex(q: Query, id: String) = q.vertices.find(_.id == id).get
+  }
+
+  "A QueryTemplate" should "create query instances with their own vertices" in new Fixture {
+    val q1 = template.instantiate("1", 1000L)
+    val q2 = template.instantiate("2", 1000L)
+
+    q1.id should be ("q1")
+    q1.duration should be (1000L)
+    q1.vertices.map(_.id) should be (Set("p1", "f1", "g1", "c1"))
+    q2.vertices.map(_.id) should be (Set("p2", "f2", "g2", "c2"))
+    q1.vertices.foreach(_.queries should be (Set(q1)))
+  }
+
+  it should "connect the vertices of each instance" in new Fixture {
+    val q = template.instantiate("1")
+    val p = vertex(q, "p1").asInstanceOf[EventProducer]
+    val f = vertex(q, "f1").asInstanceOf[Operator]
+    val g = vertex(q, "g1").asInstanceOf[Operator]
+    val c = vertex(q, "c1").asInstanceOf[EventConsumer]
+
+    q.successors(p) should be (Set(f, g))
+    q.predecessors(c) should be (Set(f, g))
+    q.successors(c) should be (Set.empty)
+    q.edges(f) should be (Set(Edge(f, c, 0.5)))
+    q.edge(g, c) should be (Edge(g, c, 0.1))
+
+    p.successors should be (Set(f, g))
+    c.predecessors should be (Set(f, g))
+    f.selectivities(c) should be (0.5)
+  }
+
+  it should "reuse the edges of each instance" in new Fixture {
+    val q1 = template.instantiate("1")
+    val q2 = template.instantiate("2")
+    val g1 = vertex(q1, "g1")
+    val c1 = vertex(q1, "c1")
+
+    q1.edge(g1, c1) should be theSameInstanceAs (q1.edges(g1).head)
+    q1.edges(g1) should be theSameInstanceAs (q1.edges(g1))
+    q1.predecessors(c1) should be theSameInstanceAs (q1.predecessors(c1))
+
+    // vertices of other instances are not part of the query
+    q1.edges(vertex(q2, "g2")) should be (Set.empty)
+    an [IllegalArgumentException] should be thrownBy q1.edge(g1, vertex(q2, "c2"))
+  }
+
+  it should "disconnect the vertices shared with other queries when an instance is removed" in new Fixture {
+    val q1 = template.instantiate("1")
+    val p = vertex(q1, "p1").asInstanceOf[EventProducer]
+    val f = vertex(q1, "f1").asInstanceOf[Operator]
+    val g = vertex(q1, "g1").asInstanceOf[Operator]
+    val c = vertex(q1, "c1").asInstanceOf[EventConsumer]
+
+    val x = EventConsumer("x", 10, 2048)
+    val q2 = Query("q2", Set[Vertex](p, f, x), Set((p, f, 1.0), (f, x, 1.0)), 1000L)
+    f.successors should be (Set(c, x))
+
+    val placement = Placement.withQueries(Set(q1, q2), 1)
+    placement.removeQuery(q1) should be (Set(g, c))
+    p.successors should be (Set(f))
+    f.successors should be (Set(x))
+    f.selectivities.keySet should be (Set(x))
+    f.limits.keySet should be (Set(x))
+    placement.successorsInPlacement(p) should be (Set(f))
+    placement.successorsInPlacement(f) should be (Set(x))
+    placement.successorsNotInPlacement(f) should be (Set.empty)
+  }
+
+  it should "calculate the paths to producers" in new Fixture {
+    val q = template.instantiate("1")
+    val c = vertex(q, "c1").asInstanceOf[EventConsumer]
+
+    q.pathsToProducers(c) should have size (2)
+    q.pathsToProducers(c).map(_.producer.id) should be (List("p1", "p1"))
+  }
+
+  it should "set the multiplicity of the instances" in new Fixture {
+    val q = template.instantiate("1", 1000L, 3)
+
+    q.multiplicity should be (3)
+    q.vertices.foreach(_.multiplicity should be (3))
+  }
+
+  it should "create numbered instances" in new Fixture {
+    val qs = template.instantiate(3, 1000L)
+
+    qs.map(_.id) should be (Seq("q1", "q2", "q3"))
+    qs.flatMap(_.vertices).toSet should have size (12)
+  }
+
+  it should "not allow changes to the instances" in new Fixture {
+    val q = template.instantiate("1")
+    val f = vertex(q, "f1").asInstanceOf[Operator]
+
+    an [UnsupportedOperationException] should be thrownBy { q.addVertex(Operator("x", 10)) }
+    an [UnsupportedOperationException] should be thrownBy { q.addEdge(f, Operator("x", 10)) }
+  }
+
+  it should "reject edges between unknown vertices" in {
+    an [IllegalArgumentException] should be thrownBy {
+      QueryTemplate("q", Seq(("f", (id: String) => Operator(id, 10))), Seq(("f", "x", 1.0)))
+    }
+  }
+
+}
@@ -78,7 +78,43 @@ class QueryTest extends FlatSpec
 
   }
 
+  it should "propagate its multiplicity to the vertices" in new Fixture {
+    val f2 = Operator("f2", 10000)
+    val q2 = Query("q2", Set[Vertex](prod1, f2), Set.empty[(OutputVertex, InputVertex, Double)], 1000L, 2)
+
+    q.multiplicity should be (1)
+    q2.multiplicity should be (2)
+    f1.multiplicity should be (1)
+    f2.multiplicity should be (2)
+    f2.effectiveIpe should be (20000.0)
+
+    // shared vertices represent the largest number of instances
+    prod1.multiplicity should be (2)
+    q.multiplicity = 5
+    prod1.multiplicity should be (5)
+    f1.multiplicity should be (5)
+    f2.multiplicity should be (2)
+  }
+
+  it should "not accept a multiplicity smaller than 1" in new Fixture {
+    an [IllegalArgumentException] should be thrownBy { q.multiplicity = 0 }
+  }
 
+  it should "disconnect the vertices shared with other queries when detached" in new Fixture {
+    q addEdges ((prod1, f1, 1.0), (f1, cons1, 1.0))
+    val cons2 = EventConsumer("c2", 10)
+    val q2 = Query("q2", Set[Vertex](prod1, f1, cons2), Set((prod1, f1, 1.0), (f1, cons2, 1.0)), 1000L, 3)
+    f1.multiplicity should be (3)
+    f1.successors should be (Set(cons1, cons2))
+
+    q2.detach()
+    f1.queries should be (Set(q))
+    f1.multiplicity should be (1)
+    prod1.successors should be (Set(f1))
+    f1.successors should be (Set(cons1))
+    f1.selectivities.keySet should be (Set(cons1))
+    f1.limits.keySet should be (Set(cons1))
+    cons2.predecessors should be (Set.empty)
+  }
 
-  
-}
\ No newline at end of file
+}
@@ -0,0 +1,92 @@
+package ca.uwo.eng.sel.cepsim.query
+
+import ca.uwo.eng.sel.cepsim.event.EventSet
+import ca.uwo.eng.sel.cepsim.history.{Produced, WindowAccumulated}
+import org.junit.runner.RunWith
+import org.mockito.Mockito._
+import org.scalatest.junit.JUnitRunner
+import org.scalatest.mock.MockitoSugar
+import org.scalatest.{FlatSpec, Matchers}
+
+
+@RunWith(classOf[JUnitRunner])
+class SessionWindowedOperatorTest extends FlatSpec
+  with Matchers
+  with MockitoSugar {
+
+  trait Fixture {
+    val prod1 = mock[EventProducer]("prod1")
+
+    val f1 = mock[Operator]("f1")
+    val f3 = mock[Operator]("f3")
+    doReturn("f1").when(f1).id
+    doReturn("f3").when(f3).id
+
+    val op = SessionWindowedOperator("s1", 10, 100, WindowedOperator.identity(), false, 1000)
+    op addInputQueue(f1)
+    op addOutputQueue(f3)
+  }
+
+
+  "A SessionWindowedOperator" should "close the session after the inactivity gap" in new Fixture {
+    op.windowBoundary should be (Double.MaxValue)
+
+    op enqueueIntoInput (f1, EventSet(10, 5.0, 1.0, prod1 -> 10.0))
+    op run (1000, 0.0, 10.0) should be (List(WindowAccumulated(op, 0, 10, 0, EventSet(10.0, 5.0, 1.0, prod1 -> 10.0))))
+    op.windowBoundary should be (110.0)
+
+    // events accumulated before the gap extend the session
+    op enqueueIntoInput (f1, EventSet(10, 50.0, 1.0, prod1 -> 10.0))
+    op run (1000, 50.0, 60.0)
+    op.windowBoundary should be (160.0)
+
+    op run (1000, 100.0, 110.0) should be (List.empty)
+    op.outputQueues(f3) should be (0.0 +- 0.0001)
+
+    // the gap has passed
+    val simEvent = op run (1000, 160.0, 170.0)
+    simEvent should have size (1)
+    val produced = simEvent.head.asInstanceOf[Produced]
+    produced.es.size should be (20.0 +- 0.0001)
+    produced.es.totals(prod1) should be (20.0 +- 0.0001)
+    op.outputQueues(f3) should be (20.0 +- 0.0001)
+    op.windowBoundary should be (Double.MaxValue)
+  }
+
+  it should "extend the session with replayed accumulations" in new Fixture {
+    op enqueueIntoInput (f1, EventSet(10, 5.0, 1.0, prod1 -> 10.0))
+    op run (1000, 0.0, 10.0)
+
+    op.replayAccumulation(Map(f1 -> EventSet(10, 50.0, 1.0, prod1 -> 10.0)), 50.0, 60.0) should be (List.empty)
+    op.windowBoundary should be (160.0)
+
+    val produced = (op run (1000, 160.0, 170.0)).head.asInstanceOf[Produced]
+    produced.es.size should be (20.0 +- 0.0001)
+  }
+
+  it should "start a new session with events arriving after the gap" in new Fixture {
+    op enqueueIntoInput (f1, EventSet(10, 5.0, 1.0, prod1 -> 10.0))
+    op run (1000, 0.0, 10.0)
+
+    op enqueueIntoInput (f1, EventSet(5, 300.0, 1.0, prod1 -> 5.0))
+    val simEvent = op run (1000, 300.0, 310.0)
+    simEvent should have size (2)
+    simEvent(0).asInstanceOf[Produced].es.size should be (10.0 +- 0.0001)
+    simEvent(1) should be (WindowAccumulated(op, 300, 310, 0, EventSet(5.0, 300.0, 1.0, prod1 -> 5.0)))
+    op.windowBoundary should be (410.0)
+  }
+
+  it should "be ready when the session closes" in new Fixture {
+    op.isIdle(1000.0) should be (true)
+    op.nextReadyTime(0.0) should be (Double.MaxValue)
+
+    op enqueueIntoInput (f1, EventSet(10, 5.0, 1.0, prod1 -> 10.0))
+    op.nextReadyTime(0.0) should be (0.0)
+    op run (1000, 0.0, 10.0)
+
+    op.isIdle(100.0) should be (true)
+    op.isIdle(200.0) should be (false)
+    op.nextReadyTime(20.0) should be (110.0)
+  }
+
+}
@@ -68,6 +68,39 @@ class WindowedOperatorTest extends FlatSpec
   }
 
 
+  it should "include the accumulated events in its state" in new Fixture {
+    val op = new WindowedOperator("w1", 10, 1 second, 1 second, WindowedOperator.identity(), false, 1000)
+    setup(op)
+    op.init(0.0, 500)
+    op.eventSize = 10.0
+
+    op enqueueIntoInput (f1, EventSet(10, 5.0, 1.0, prod1 -> 10.0))
+    op enqueueIntoInput (f2, EventSet(10, 8.0, 2.0, prod1 -> 10.0))
+    op.stateEvents should be (20.0 +- 0.0001)
+
+    op run (1000, 10.0, 1000.0)
+    op.totalInputEvents should be (0.0 +- 0.0001)
+    op.stateEvents should be (20.0 +- 0.0001)
+    op.stateSize should be (200.0 +- 0.0001)
+
+    // the window closes and the accumulated events are sent
+    op run (0, 1010, 2000)
+    op.stateEvents should be (20.0 +- 0.0001)
+    op.outputQueues(f3) should be (20.0 +- 0.0001)
+  }
+
+  it should "be ready when the window closes or when there are queued events" in new Fixture {
+    val op = new WindowedOperator("w1", 10, 1 second, 1 second, WindowedOperator.identity(), false, 1000)
+    setup(op)
+
+    op.init(0.0, 500)
+    op.nextReadyTime(10.0) should be (1000.0)
+    op.nextReadyTime(1200.0) should be (1200.0)
+
+    op enqueueIntoInput (f1, EventSet(10, 5.0, 1.0, prod1 -> 10.0))
+    op.nextReadyTime(10.0) should be (10.0)
+  }
+
   it should "accumulate events from consecutive runs" in new Fixture {
     val op = new WindowedOperator("w1", 10, 1 second, 1 second, WindowedOperator.identity(), false, 1000)
     setup(op)
@@ -0,0 +1,75 @@
+package ca.uwo.eng.sel.cepsim.sched
+
+import ca.uwo.eng.sel.cepsim.event.EventSet
+import ca.uwo.eng.sel.cepsim.gen.UniformGenerator
+import ca.uwo.eng.sel.cepsim.placement.Placement
+import ca.uwo.eng.sel.cepsim.query._
+import org.junit.runner.RunWith
+import org.scalatest.junit.JUnitRunner
+import org.scalatest.mock.MockitoSugar
+import org.scalatest.{FlatSpec, Matchers}
+
+
+@RunWith(classOf[JUnitRunner])
+class DeadlineOpScheduleStrategyTest extends FlatSpec
+  with Matchers
+  with MockitoSugar {
+
+  trait Fixture {
+    val p1 = EventProducer("p1", 1, UniformGenerator(1000))
+    val f1 = Operator("f1", 1)
+    val c1 = EventConsumer("c1", 1)
+    val q1 = Query("q1", Set(p1, f1, c1), Set((p1, f1, 1.0), (f1, c1, 1.0)))
+
+    val p2 = EventProducer("p2", 1, UniformGenerator(1000))
+    val f2 = Operator("f2", 1)
+    val c2 = EventConsumer("c2", 1)
+    val q2 = Query("q2", Set(p2, f2, c2), Set((p2, f2, 1.0), (f2, c2, 1.0)))
+
+    val placement = Placement(Set[Vertex](p1, f1, c1, p2, f2, c2), 1)
+
+    // events waiting at f1 have been generated at 5 ms, and events waiting at f2 at 2 ms
+    f1 enqueueIntoInput (p1, EventSet(10.0, 10.0, 5.0, p1 -> 10.0))
+    f2 enqueueIntoInput (p2, EventSet(10.0, 10.0, 8.0, p2 -> 10.0))
+
+    /** Executes the actions returned by the strategy and returns the executed vertices. */
+    def run(strategy: OpScheduleStrategy): List[Vertex] =
+      strategy.allocate(1200, 10.0, 1, placement).map((action) => {
+        val execute = action.asInstanceOf[ExecuteAction]
+        execute.v.run(execute.instructions, execute.from, execute.to)
+        execute.v match {
+          case ov: OutputVertex => ov.successors.foreach((succ) =>
+            succ.enqueueIntoInput(ov, ov.dequeueFromOutput(succ, ov.outputQueues(succ))))
+          case _ =>
+        }
+        execute.v
+      }).toList
+  }
+
+
+  "A DeadlineOpScheduleStrategy" should "schedule first the vertices with the oldest events" in new Fixture {
+    val strategy = DeadlineOpScheduleStrategy()
+    strategy.deadline(f1) should be (5.0)
+    strategy.deadline(f2) should be (2.0)
+    strategy.deadline(c1) should be (Double.MaxValue)
+
+    run(strategy) should be (List(f2, c2, f1, c1))
+  }
+
+  it should "consider the query latency targets" in new Fixture {
+    val strategy = DeadlineOpScheduleStrategy(Map(q1 -> 5.0, q2 -> 10.0))
+    strategy.deadline(f1) should be (10.0)
+    strategy.deadline(f2) should be (12.0)
+
+    run(strategy) should be (List(f1, c1, f2, c2))
+  }
+
+  it should "use the smallest target of the vertex queries" in new Fixture {
+    val q3 = Query("q3", Set(p2, f2, c1), Set((p2, f2, 1.0), (f2, c1, 1.0)))
+    val strategy = DeadlineOpScheduleStrategy(Map(q2 -> 10.0, q3 -> 1.0))
+
+    strategy.target(f2) should be (1.0)
+    strategy.target(f1) should be (0.0)
+  }
+
+}
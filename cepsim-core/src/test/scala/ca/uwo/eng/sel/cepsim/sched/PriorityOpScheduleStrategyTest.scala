@@ -0,0 +1,120 @@
+package ca.uwo.eng.sel.cepsim.sched
+
+import ca.uwo.eng.sel.cepsim.metric.{LatencyMetric, MetricCalculator, ThroughputMetric}
+import ca.uwo.eng.sel.cepsim.placement.Placement
+import ca.uwo.eng.sel.cepsim.query._
+import org.junit.runner.RunWith
+import org.mockito.Mockito._
+import org.mockito.invocation.InvocationOnMock
+import org.mockito.stubbing.Answer
+import org.scalatest.junit.JUnitRunner
+import org.scalatest.mock.MockitoSugar
+import org.scalatest.{FlatSpec, Matchers}
+
+
+@RunWith(classOf[JUnitRunner])
+class PriorityOpScheduleStrategyTest extends FlatSpec
+  with Matchers
+  with MockitoSugar {
+
+  trait Fixture {
+    val a = mock[Operator]("a")
+    val b = mock[EventConsumer]("b")
+    val query1 = mock[Query]("q1")
+    val query2 = mock[Query]("q2")
+
+    Set(a, b).foreach((v) => {
+      doReturn(true).when(v).needsAllocation
+      doReturn(10000.0).when(v).instructionsNeeded
+    })
+    doReturn(Set(query1)).when(a).queries
+    doReturn(Set(query2)).when(b).queries
+
+    val placement = mock[Placement]
+    doReturn(Set(query1, query2)).when(placement).queries
+    doReturn(Set(a, b)).when(placement).vertices
+    doReturn(Set(b)).when(placement).consumers
+    doReturn(Set.empty).when(placement).successorsInPlacement(a)
+    doReturn(Set.empty).when(placement).successorsInPlacement(b)
+
+    // this is needed to return a new iterator every time the method is invoked
+    doAnswer(new Answer[Iterator[Vertex]]() {
+      override def answer(inv: InvocationOnMock): Iterator[Vertex] = Iterator[Vertex](a, b)
+    }).when(placement).iterator
+
+    val gold = PriorityClass("gold", 1, 3.0)
+    val silver = PriorityClass("silver", 0, 1.0)
+  }
+
+
+  "A PriorityOpScheduleStrategy" should "allocate instructions proportionally to the class shares" in new Fixture {
+    val strategy = PriorityOpScheduleStrategy(Map(query1 -> gold, query2 -> silver))
+    val actions = strategy.allocate(4000, 0.0, 0.01, placement).toList
+
+    actions.map(_.v) should be (List(a, b, a, a, b, a, a, a))
+    actions.head should be (ExecuteAction(a, 0.0, 50.0, 500.0))
+    actions(1) should be (ExecuteAction(b, 50.0, 100.0, 500.0))
+
+    strategy.allocated(gold) should be (3000.0 +- 0.0001)
+    strategy.allocated(silver) should be (1000.0 +- 0.0001)
+  }
+
+  it should "only schedule vertices that need allocation" in new Fixture {
+    doReturn(false).when(a).needsAllocation
+    val strategy = PriorityOpScheduleStrategy(Map(query1 -> gold, query2 -> silver))
+
+    strategy.allocate(1000, 0.0, 0.01, placement).toList.map(_.v) should be (List.fill(8)(b))
+  }
+
+  it should "not let idle vertices claim the instructions they have not used" in new Fixture {
+    val strategy = PriorityOpScheduleStrategy(Map(query1 -> PriorityClass("gold", 1, 4.0), query2 -> silver))
+
+    doReturn(false).when(a).needsAllocation
+    strategy.allocate(1000, 0.0, 0.01, placement).toList.map(_.v) should be (List.fill(8)(b))
+
+    // a starts from the virtual time of b
+    doReturn(true).when(a).needsAllocation
+    strategy.allocate(1000, 100.0, 0.01, placement).toList.map(_.v) should be (List(a, a, a, a, b, a, a, a))
+  }
+
+  it should "always schedule the higher priority classes first if strict priority is enabled" in new Fixture {
+    val strategy = PriorityOpScheduleStrategy(Map(query1 -> gold, query2 -> silver), true, 0.0)
+    strategy.allocate(4000, 0.0, 0.01, placement).toList.map(_.v) should be (List.fill(8)(a))
+    strategy.allocated(silver) should be (0.0)
+  }
+
+  it should "age the waiting vertices" in new Fixture {
+    // the silver vertex reaches the gold priority after waiting 100 ms
+    val strategy = PriorityOpScheduleStrategy(Map(query1 -> PriorityClass("gold", 1, 1.0), query2 -> silver),
+      true, 0.01)
+    strategy.allocate(4000, 0.0, 0.01, placement).toList.map(_.v).take(3) should be (List(a, a, b))
+  }
+
+  it should "keep aging the waiting vertices across allocations" in new Fixture {
+    // the silver vertex reaches the gold priority after waiting 1000 ms, but each allocation only lasts 400 ms
+    val strategy = PriorityOpScheduleStrategy(Map(query1 -> PriorityClass("gold", 1, 1.0), query2 -> silver),
+      true, 0.001)
+    val allocations = (0 until 3).map((i) => strategy.allocate(4000, i * 400.0, 0.01, placement).toList)
+
+    allocations(0).map(_.v) should be (List.fill(8)(a))
+    allocations(1).map(_.v) should be (List.fill(8)(a))
+    allocations(2).map(_.v).take(5) should be (List(a, a, a, a, b))
+    allocations(2)(4).from should be (1000.0 +- 0.0001)
+  }
+
+  it should "calculate the latency and throughput of each class" in new Fixture {
+    val strategy = PriorityOpScheduleStrategy(Map(query1 -> gold, query2 -> silver))
+    val calculator = mock[MetricCalculator]
+    doReturn(List(LatencyMetric(b, 0.0, 10.0, 5.0), LatencyMetric(b, 1.0, 30.0, 1.0)))
+      .when(calculator).results(LatencyMetric.ID, b)
+    doReturn(100.0).when(calculator).consolidate(ThroughputMetric.ID, b)
+
+    strategy.consumers(silver, placement) should be (Set(b))
+    strategy.consumers(gold, placement) should be (Set.empty)
+
+    strategy.latency(silver, placement, calculator) should be (2.0 +- 0.0001)
+    strategy.throughput(silver, placement, calculator) should be (100.0 +- 0.0001)
+    strategy.latency(gold, placement, calculator) should be (0.0)
+  }
+
+}
@@ -37,5 +37,24 @@ class UniformAllocationStrategyTest extends FlatSpec
                        f2 -> 200.0, c1 -> 200.0, c2 -> 200.0))
   }
 
+  it should "allocate instructions proportionally to the vertices multiplicity" in {
+    val p1 = mock[EventProducer]
+    val f1 = mock[Operator]
+    val c1 = mock[EventConsumer]
+    val c2 = mock[EventConsumer]
+    doReturn(3).when(p1).multiplicity
+    doReturn(3).when(f1).multiplicity
+    doReturn(3).when(c1).multiplicity
+    doReturn(1).when(c2).multiplicity
+
+    val placement = mock[Placement]
+    doReturn(true).when(placement).hasMultiplicity
+    doReturn(Set(p1, f1, c1, c2)).when(placement).vertices
+
+    val strategy = UniformAllocationStrategy.apply()
+    val ret = strategy.instructionsPerOperator(1000, placement)
+
+    ret should be (Map(p1 -> 300.0, f1 -> 300.0, c1 -> 300.0, c2 -> 100.0))
+  }
 
 }
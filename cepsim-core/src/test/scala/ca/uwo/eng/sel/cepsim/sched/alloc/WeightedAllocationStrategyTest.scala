@@ -107,5 +107,21 @@ class WeightedAllocationStrategyTest extends FlatSpec
     ret(c1) should be (2127.65 +- 0.01)
   }
 
+  it should "distribute instructions according to the queries multiplicity" in new Fixture {
+    val placement = mock[Placement]
+    doReturn(true).when(placement).hasMultiplicity
+    doReturn(3).when(query1).multiplicity
+    doReturn(1).when(query2).multiplicity
+    doReturn(Set(query1, query2)).when(placement).queries
+    doReturn(Set(p1, p2, f1, f2, c1, c2)).when(placement).vertices
+    doReturn(Set(p1, f1, c1)).when(placement).vertices(query1)
+    doReturn(Set(p2, f2, c2)).when(placement).vertices(query2)
+
+    val strategy = WeightedAllocationStrategy.apply()
+    val ret = strategy.instructionsPerOperator(1000, placement)
+
+    ret should be (Map(p1 -> 75.0, f1 -> 600.0, c1 -> 75.0,
+                       p2 -> 25.0, f2 -> 200.0, c2 -> 25.0))
+  }
 
 }
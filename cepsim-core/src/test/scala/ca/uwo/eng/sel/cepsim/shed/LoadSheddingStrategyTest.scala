@@ -0,0 +1,82 @@
+package ca.uwo.eng.sel.cepsim.shed
+
+import ca.uwo.eng.sel.cepsim.event.EventSet
+import ca.uwo.eng.sel.cepsim.query.{EventProducer, Operator}
+import org.junit.runner.RunWith
+import org.scalatest.junit.JUnitRunner
+import org.scalatest.mock.MockitoSugar
+import org.scalatest.{FlatSpec, Matchers}
+
+
+@RunWith(classOf[JUnitRunner])
+class LoadSheddingStrategyTest extends FlatSpec
+  with Matchers
+  with MockitoSugar {
+
+  trait Fixture {
+    val prod1 = mock[EventProducer]("prod1")
+    val prod2 = mock[EventProducer]("prod2")
+
+    val f1 = Operator("f1", 10)
+    val f2 = Operator("f2", 10)
+    f2 addInputQueue(f1)
+  }
+
+  "A LoadSheddingStrategy" should "not drop events while the latency is within the SLA" in new Fixture {
+    val strategy = RandomLoadSheddingStrategy(5.0, 0.5)
+    val es = EventSet(100.0, 8.0, 2.0, prod1 -> 100.0)
+
+    strategy.shed(f2, f1, es, 10.0).size should be (0.0)
+    es.size should be (100.0)
+  }
+
+  it should "consider the time events have been waiting in the input queues" in new Fixture {
+    val strategy = RandomLoadSheddingStrategy(5.0, 0.5)
+    f2 enqueueIntoInput (f1, EventSet(10.0, 0.0, 1.0, prod1 -> 10.0))
+
+    strategy.isOverloaded(f2, EventSet(100.0, 10.0, 0.0, prod1 -> 100.0), 4.0) should be (false)
+    strategy.isOverloaded(f2, EventSet(100.0, 10.0, 0.0, prod1 -> 100.0), 10.0) should be (true)
+  }
+
+  it should "not accept invalid fractions" in {
+    an [IllegalArgumentException] should be thrownBy RandomLoadSheddingStrategy(5.0, 1.5)
+  }
+
+  "A RandomLoadSheddingStrategy" should "drop a fraction of the received events" in new Fixture {
+    val strategy = RandomLoadSheddingStrategy(5.0, 0.4)
+    val es = EventSet(100.0, 10.0, 10.0, prod1 -> 100.0, prod2 -> 50.0)
+
+    strategy.shed(f2, f1, es, 10.0) should be (EventSet(40.0, 10.0, 10.0, prod1 -> 40.0, prod2 -> 20.0))
+    es should be (EventSet(60.0, 10.0, 10.0, prod1 -> 60.0, prod2 -> 30.0))
+  }
+
+  "An OldestFirstLoadSheddingStrategy" should "drop the oldest events from the input queue" in new Fixture {
+    val strategy = OldestFirstLoadSheddingStrategy(5.0, 0.5)
+    f2 enqueueIntoInput (f1, EventSet(30.0, 0.0, 0.0, prod1 -> 30.0))
+    val es = EventSet(100.0, 10.0, 0.0, prod1 -> 100.0)
+
+    val dropped = strategy.shed(f2, f1, es, 10.0)
+    dropped.size should be (50.0 +- 0.0001)
+    dropped.totals(prod1) should be (50.0 +- 0.0001)
+
+    f2.inputQueues(f1) should be (0.0)
+    f2.totalInputEvents should be (0.0)
+    es.size should be (80.0 +- 0.0001)
+    es.totals(prod1) should be (80.0 +- 0.0001)
+  }
+
+  "A PriorityLoadSheddingStrategy" should "drop events from the producers with lowest priority first" in new Fixture {
+    val strategy = PriorityLoadSheddingStrategy(5.0, 0.6, Map(prod1 -> 1))
+    val es = EventSet(100.0, 10.0, 10.0, prod1 -> 100.0, prod2 -> 100.0)
+
+    val dropped = strategy.shed(f2, f1, es, 10.0)
+    dropped.size should be (60.0 +- 0.0001)
+    dropped.totals(prod1) should be (20.0 +- 0.0001)
+    dropped.totals(prod2) should be (100.0 +- 0.0001)
+
+    es.size should be (40.0 +- 0.0001)
+    es.totals(prod1) should be (80.0 +- 0.0001)
+    es.totals(prod2) should be (0.0 +- 0.0001)
+  }
+
+}
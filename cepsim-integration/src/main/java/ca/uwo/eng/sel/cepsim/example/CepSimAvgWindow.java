@@ -4,6 +4,7 @@ import ca.uwo.eng.sel.cepsim.PlacementExecutor;
 import ca.uwo.eng.sel.cepsim.gen.Generator;
 import ca.uwo.eng.sel.cepsim.gen.UniformGenerator;
 import ca.uwo.eng.sel.cepsim.history.History;
+import ca.uwo.eng.sel.cepsim.integr.AdaptiveIntervalController;
 import ca.uwo.eng.sel.cepsim.integr.CepQueryCloudlet;
 import ca.uwo.eng.sel.cepsim.integr.CepQueryCloudletScheduler;
 import ca.uwo.eng.sel.cepsim.integr.CepSimBroker;
@@ -42,15 +43,39 @@ public class CepSimAvgWindow {
 		UNIFORM, WEIGHTED
 	}
 
+    /** Rate of the event producers (in events per second). */
+    private double rate = NUM_SENSORS * 10;
+
+    public double getRate() {
+        return rate;
+    }
+
+    public void setRate(double rate) {
+        this.rate = rate;
+    }
+
     public static void main(String[] args) {
         new CepSimAvgWindow().simulate(SchedStrategyEnum.DYNAMIC, AllocStrategyEnum.UNIFORM, 0.1, 1);
 
     }
 
 
-    public void simulate(SchedStrategyEnum schedStrategy, AllocStrategyEnum allocStrategy,
-                         double simInterval, int iterations) {
+    public Map<String, Double> simulate(SchedStrategyEnum schedStrategy, AllocStrategyEnum allocStrategy,
+                                        double simInterval, int iterations) {
+        return simulate(schedStrategy, allocStrategy, simInterval, iterations, null);
+    }
+
+    /**
+     * Runs the example.
+     * @param intervalController Controller used to adapt the interval between cloudlet updates. If null,
+     *                           the cloudlets are updated at each simInterval.
+     * @return Map from consumer metrics, named as consumerId.latency and consumerId.throughput, to their values.
+     */
+    public Map<String, Double> simulate(SchedStrategyEnum schedStrategy, AllocStrategyEnum allocStrategy,
+                                        double simInterval, int iterations,
+                                        AdaptiveIntervalController intervalController) {
         Log.printLine("Starting CepSimAvgWindow...");
+        Map<String, Double> metrics = new TreeMap<String, Double>();
 
 
         try {
@@ -67,7 +92,7 @@ public class CepSimAvgWindow {
             // Second step: Create Datacenters
             // Datacenters are the resource providers in CloudSim. We need at
             // list one of them to run a CloudSim simulation
-            Datacenter datacenter0 = createDatacenter("Datacenter_0", simInterval);
+            Datacenter datacenter0 = createDatacenter("Datacenter_0", simInterval, intervalController);
 
             // Third step: Create Broker
             DatacenterBroker broker = createBroker(simInterval);
@@ -96,7 +121,7 @@ public class CepSimAvgWindow {
 
             // Fifth step: Create cloudlets
             List<Cloudlet> cloudletList = new ArrayList<Cloudlet>();
-            cloudletList.addAll(createCloudlets(brokerId, schedStrategy, allocStrategy, iterations));
+            cloudletList.addAll(createCloudlets(brokerId, schedStrategy, allocStrategy, iterations, rate));
 
             // submit cloudlet list to the broker
             broker.submitCloudletList(cloudletList);
@@ -126,6 +151,9 @@ public class CepSimAvgWindow {
 
                 System.out.println("Latencies: " + cepCl.getLatencyByMinute(consumer));
                 System.out.println("Throughputs: " + cepCl.getThroughputByMinute(consumer));
+
+                metrics.put(consumer.id() + ".latency", cepCl.getLatency(consumer));
+                metrics.put(consumer.id() + ".throughput", cepCl.getThroughput(consumer));
             }
 
             Log.printLine("CloudSimExample1 finished!");
@@ -133,11 +161,12 @@ public class CepSimAvgWindow {
             e.printStackTrace();
             Log.printLine("Unwanted errors happen");
         }
+        return metrics;
 	}
 
 
     private static Set<Cloudlet> createCloudlets(int brokerId, SchedStrategyEnum schedStrategy,
-                                                 AllocStrategyEnum allocStrategy, int iterations) {
+                                                 AllocStrategyEnum allocStrategy, int iterations, double rate) {
         // 100_000_000 I / interval
         // 100 events / interval
 
@@ -151,7 +180,7 @@ public class CepSimAvgWindow {
 
                 int id = ((i - 1) * QUERIES_PER_VM) + j;
 
-                Generator gen = new UniformGenerator(NUM_SENSORS * 10);
+                Generator gen = new UniformGenerator(rate);
                 EventProducer p = new EventProducer("spout" + id, 1_000, gen, true);
                 Operator outlierDetector = new Operator("outlierDetector" + id, 18_000, 2048);
                 Operator average = WindowedOperator.apply("average" + id, 18_000, 15000, 15000, WindowedOperator.constant(NUM_SENSORS), 2048);
@@ -208,7 +237,8 @@ public class CepSimAvgWindow {
      *
      * @return the datacenter
      */
-    private static Datacenter createDatacenter(String name, double simInterval) {
+    private static Datacenter createDatacenter(String name, double simInterval,
+                                           AdaptiveIntervalController intervalController) {
 
         // Here are the steps needed to create a PowerDatacenter:
         // 1. We need to create a list to store
@@ -267,7 +297,10 @@ public class CepSimAvgWindow {
         // 6. Finally, we need to create a PowerDatacenter object.
         Datacenter datacenter = null;
         try {
-            datacenter = new CepSimDatacenter(name, characteristics, new VmAllocationPolicySimple(hostList), storageList, simInterval);
+            CepSimDatacenter cepDatacenter = new CepSimDatacenter(name, characteristics,
+                    new VmAllocationPolicySimple(hostList), storageList, simInterval);
+            cepDatacenter.setIntervalController(intervalController);
+            datacenter = cepDatacenter;
         } catch (Exception e) {
             e.printStackTrace();
         }
@@ -3,6 +3,7 @@ package ca.uwo.eng.sel.cepsim.example;
 import ca.uwo.eng.sel.cepsim.PlacementExecutor;
 import ca.uwo.eng.sel.cepsim.gen.Generator;
 import ca.uwo.eng.sel.cepsim.gen.UniformGenerator;
+import ca.uwo.eng.sel.cepsim.integr.AdaptiveIntervalController;
 import ca.uwo.eng.sel.cepsim.integr.CepQueryCloudlet;
 import ca.uwo.eng.sel.cepsim.integr.CepQueryCloudletScheduler;
 import ca.uwo.eng.sel.cepsim.integr.CepSimBroker;
@@ -40,6 +41,15 @@ public class CepSimAvgWindowNetwork {
 	 * Creates main() to run this example.
 	 */
 	public void simulate(double simInterval, int iterations) {
+		simulate(simInterval, iterations, null);
+	}
+
+	/**
+	 * Runs the example.
+	 * @param intervalController Controller used to adapt the interval between cloudlet updates. If null,
+	 *                           the cloudlets are updated at each simInterval.
+	 */
+	public void simulate(double simInterval, int iterations, AdaptiveIntervalController intervalController) {
 		Log.printLine("Starting CepSimAvgWindowNetwork...");
 
 
@@ -55,7 +65,7 @@ public class CepSimAvgWindowNetwork {
 			// Second step: Create Datacenters
 			// Datacenters are the resource providers in CloudSim. We need at
 			// list one of them to run a CloudSim simulation
-			Datacenter datacenter0 = createDatacenter("Datacenter_0", simInterval);
+			Datacenter datacenter0 = createDatacenter("Datacenter_0", simInterval, intervalController);
 
 			// Third step: Create Broker
             CepSimBroker broker = createBroker(simInterval);
@@ -217,7 +227,8 @@ public class CepSimAvgWindowNetwork {
 	 *
 	 * @return the datacenter
 	 */
-	private static Datacenter createDatacenter(String name, double simInterval) {
+	private static Datacenter createDatacenter(String name, double simInterval,
+			AdaptiveIntervalController intervalController) {
 
 		// Here are the steps needed to create a PowerDatacenter:
 		// 1. We need to create a list to store
@@ -275,7 +286,10 @@ public class CepSimAvgWindowNetwork {
 		// 6. Finally, we need to create a PowerDatacenter object.
 		Datacenter datacenter = null;
 		try {
-			datacenter = new CepSimDatacenter(name, characteristics, new VmAllocationPolicySimple(hostList), storageList, simInterval);
+			CepSimDatacenter cepDatacenter = new CepSimDatacenter(name, characteristics,
+					new VmAllocationPolicySimple(hostList), storageList, simInterval);
+			cepDatacenter.setIntervalController(intervalController);
+			datacenter = cepDatacenter;
 		} catch (Exception e) {
 			e.printStackTrace();
 		}
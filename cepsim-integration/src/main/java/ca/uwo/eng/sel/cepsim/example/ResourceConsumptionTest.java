@@ -41,6 +41,14 @@ public class ResourceConsumptionTest {
     }
 
     public void simulate(int numberOfVms, int queriesPerVm) {
+        simulate(numberOfVms, queriesPerVm, 1);
+    }
+
+    /**
+     * Runs the example.
+     * @param parallelism Number of threads used by the datacenter to update the hosts.
+     */
+    public void simulate(int numberOfVms, int queriesPerVm, int parallelism) {
         Log.printLine("Starting ResourceConsumptionTest...");
         
         try {
@@ -53,7 +61,7 @@ public class ResourceConsumptionTest {
 
             CloudSim.init(num_user, calendar, trace_flag, SIM_INTERVAL);
 
-            Datacenter datacenter0 = createDatacenter("Datacenter_0", numberOfVms);
+            Datacenter datacenter0 = createDatacenter("Datacenter_0", numberOfVms, parallelism);
             DatacenterBroker broker = createBroker();
             int brokerId = broker.getId();
 
@@ -210,7 +218,7 @@ public class ResourceConsumptionTest {
      *
      * @return the datacenter
      */
-    private static Datacenter createDatacenter(String name, int numberOfVms) {
+    private static Datacenter createDatacenter(String name, int numberOfVms, int parallelism) {
 
         // Here are the steps needed to create a PowerDatacenter:
         // 1. We need to create a list to store
@@ -269,7 +277,10 @@ public class ResourceConsumptionTest {
         // 6. Finally, we need to create a PowerDatacenter object.
         Datacenter datacenter = null;
         try {
-            datacenter = new CepSimDatacenter(name, characteristics, new VmAllocationPolicySimple(hostList), storageList, SIM_INTERVAL);
+            CepSimDatacenter cepDatacenter = new CepSimDatacenter(name, characteristics,
+                    new VmAllocationPolicySimple(hostList), storageList, SIM_INTERVAL);
+            cepDatacenter.setParallelism(parallelism);
+            datacenter = cepDatacenter;
         } catch (Exception e) {
             e.printStackTrace();
         }
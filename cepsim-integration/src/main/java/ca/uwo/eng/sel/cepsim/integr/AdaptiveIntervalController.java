@@ -0,0 +1,180 @@
+package ca.uwo.eng.sel.cepsim.integr;
+
+import java.util.Collection;
+
+/**
+ * Controls the interval between two consecutive cloudlet updates of a CepSimDatacenter. After each update,
+ * the controller observes the number of events queued in the cloudlets and the rate at which the consumers
+ * are receiving events. The queue length is compared with its linear extrapolation from the previous updates,
+ * and the consumption rate is compared with the previous rate. If both errors are smaller than half of the
+ * error budget, the interval grows towards the maximum interval. If any of them is larger than the error
+ * budget, the interval is halved, and the interval that caused the error becomes a ceiling that is only
+ * slowly relaxed afterwards. The interval is reset to the minimum after events are received from the
+ * network, and it is capped so that the next update does not skip the closing of an operator window.
+ */
+public class AdaptiveIntervalController {
+
+    private double minInterval; // in seconds
+    private double maxInterval; // in seconds
+    private double errorBudget; // maximum relative error between two updates
+    private double growthFactor;
+
+    private double interval;
+    private double ceiling;
+    private boolean networkArrival = false;
+
+    private double lastTime = Double.NaN;
+    private double lastQueued = Double.NaN;
+    private double lastSlope = Double.NaN;
+    private double lastConsumed = Double.NaN;
+    private double lastRate = Double.NaN;
+
+    private long updates = 0;
+    private double totalInterval = 0.0;
+
+
+    /**
+     * Creates a new controller.
+     * @param minInterval Minimum interval between updates (in seconds). It is also the initial interval.
+     * @param maxInterval Maximum interval between updates (in seconds).
+     * @param errorBudget Maximum relative error of the observed metrics tolerated between two updates.
+     * @param growthFactor Factor by which the interval grows when the metrics are stable.
+     */
+    public AdaptiveIntervalController(double minInterval, double maxInterval, double errorBudget,
+                                      double growthFactor) {
+        if ((minInterval <= 0) || (maxInterval < minInterval)) {
+            throw new IllegalArgumentException("Invalid interval bounds");
+        }
+        if (errorBudget <= 0) {
+            throw new IllegalArgumentException("Error budget must be positive");
+        }
+        if (growthFactor <= 1) {
+            throw new IllegalArgumentException("Growth factor must be greater than 1");
+        }
+
+        this.minInterval = minInterval;
+        this.maxInterval = maxInterval;
+        this.errorBudget = errorBudget;
+        this.growthFactor = growthFactor;
+        this.interval = minInterval;
+        this.ceiling = Double.MAX_VALUE;
+    }
+
+    public AdaptiveIntervalController(double minInterval, double maxInterval, double errorBudget) {
+        this(minInterval, maxInterval, errorBudget, 2.0);
+    }
+
+
+    public double getMinInterval() {
+        return minInterval;
+    }
+
+    public double getMaxInterval() {
+        return maxInterval;
+    }
+
+    public double getErrorBudget() {
+        return errorBudget;
+    }
+
+    /**
+     * Gets the current interval between updates.
+     * @return current interval (in seconds).
+     */
+    public double getInterval() {
+        return interval;
+    }
+
+    /**
+     * Gets the number of intervals calculated by the controller.
+     * @return number of intervals.
+     */
+    public long getUpdates() {
+        return updates;
+    }
+
+    /**
+     * Gets the average interval calculated by the controller.
+     * @return average interval (in seconds).
+     */
+    public double getAverageInterval() {
+        return (updates == 0) ? 0.0 : totalInterval / updates;
+    }
+
+    /**
+     * Informs the controller that events have been received from the network.
+     */
+    public void notifyNetworkArrival() {
+        this.networkArrival = true;
+    }
+
+    /**
+     * Calculates the interval until the next update from the current state of the cloudlets.
+     * @param now Current simulation time (in seconds).
+     * @param cloudlets Cloudlets being executed by the datacenter.
+     * @return interval until the next update (in seconds).
+     */
+    public double nextInterval(double now, Collection<CepQueryCloudlet> cloudlets) {
+        double queued = 0.0;
+        double consumed = 0.0;
+        double boundary = Double.MAX_VALUE;
+        for (CepQueryCloudlet cloudlet : cloudlets) {
+            queued += cloudlet.getQueuedEvents();
+            consumed += cloudlet.getConsumedEvents();
+            boundary = Math.min(boundary, cloudlet.getNextWindowBoundary());
+        }
+
+        double rate = Double.NaN;
+        double slope = Double.NaN;
+        double predicted = lastQueued;
+        if ((!Double.isNaN(lastTime)) && (now > lastTime)) {
+            rate = (consumed - lastConsumed) / (now - lastTime);
+            slope = (queued - lastQueued) / (now - lastTime);
+            if (!Double.isNaN(lastSlope)) {
+                predicted = lastQueued + lastSlope * (now - lastTime);
+            }
+        }
+        double change = Math.max(relativeError(lastQueued, predicted, queued), relativeError(lastRate, lastRate, rate));
+
+        if (networkArrival) {
+            interval = minInterval;
+        } else if (change > errorBudget) {
+            ceiling = interval;
+            interval = Math.max(minInterval, interval / 2);
+        } else if (change <= errorBudget / 2) {
+            // the interval grows, but it stays below the last interval that was too large
+            ceiling = Math.min(ceiling * (1 + errorBudget), Double.MAX_VALUE);
+            double grown = Math.min(interval * growthFactor, ceiling / growthFactor);
+            interval = Math.max(interval, Math.min(maxInterval, grown));
+        }
+        networkArrival = false;
+
+        lastTime = now;
+        lastQueued = queued;
+        if (!Double.isNaN(slope)) {
+            lastSlope = slope;
+        }
+        lastConsumed = consumed;
+        if (!Double.isNaN(rate)) {
+            lastRate = rate;
+        }
+
+        // the next update should happen when the window closes
+        double next = interval;
+        if (boundary != Double.MAX_VALUE) {
+            next = Math.min(next, Math.max(minInterval, boundary - now));
+        }
+
+        updates++;
+        totalInterval += next;
+        return next;
+    }
+
+    private double relativeError(double previous, double predicted, double current) {
+        if (Double.isNaN(predicted) || Double.isNaN(current)) {
+            return 0.0;
+        }
+        return Math.abs(current - predicted) / Math.max(Math.abs(previous), 1.0);
+    }
+
+}
@@ -0,0 +1,15 @@
+package ca.uwo.eng.sel.cepsim.integr;
+
+/**
+ * Decides how many VMs a CepSimAutoscaler should add or release after each sampling period.
+ */
+public interface AutoscalingPolicy {
+
+    /**
+     * Decides the change in the number of VMs from the last sample.
+     * @param sample Last sample taken by the autoscaler.
+     * @return number of VMs to be requested (if positive) or released (if negative).
+     */
+    int decide(AutoscalingSample sample);
+
+}
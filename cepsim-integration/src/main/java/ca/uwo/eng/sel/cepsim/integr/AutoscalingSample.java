@@ -0,0 +1,65 @@
+package ca.uwo.eng.sel.cepsim.integr;
+
+/**
+ * Observation of the CEP cloudlets made by a CepSimAutoscaler at the end of a sampling period.
+ */
+public class AutoscalingSample {
+
+    private double time;        // in seconds
+    private int vms;
+    private int pendingVms;
+    private double backlog;     // events queued in all placements
+    private double utilization; // fraction of the available instructions used during the period
+    private double latency;     // average consumer latency during the period (in ms)
+
+    /**
+     * Creates a new sample.
+     * @param time Time at which the sample has been taken (in seconds).
+     * @param vms Number of VMs running the cloudlets.
+     * @param pendingVms Number of VMs requested but not provisioned yet.
+     * @param backlog Number of events queued in all placements.
+     * @param utilization Fraction of the available instructions used during the period.
+     * @param latency Average latency of the events consumed during the period (in ms), or zero if no events
+     *                have been consumed.
+     */
+    public AutoscalingSample(double time, int vms, int pendingVms, double backlog, double utilization,
+                             double latency) {
+        this.time = time;
+        this.vms = vms;
+        this.pendingVms = pendingVms;
+        this.backlog = backlog;
+        this.utilization = utilization;
+        this.latency = latency;
+    }
+
+    public double getTime() {
+        return time;
+    }
+
+    public int getVms() {
+        return vms;
+    }
+
+    public int getPendingVms() {
+        return pendingVms;
+    }
+
+    public double getBacklog() {
+        return backlog;
+    }
+
+    public double getUtilization() {
+        return utilization;
+    }
+
+    public double getLatency() {
+        return latency;
+    }
+
+    @Override
+    public String toString() {
+        return "AutoscalingSample [time=" + time + ", vms=" + vms + ", pendingVms=" + pendingVms +
+                ", backlog=" + backlog + ", utilization=" + utilization + ", latency=" + latency + "]";
+    }
+
+}
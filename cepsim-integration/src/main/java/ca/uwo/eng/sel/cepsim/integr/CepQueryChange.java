@@ -0,0 +1,54 @@
+package ca.uwo.eng.sel.cepsim.integr;
+
+import ca.uwo.eng.sel.cepsim.query.Query;
+import ca.uwo.eng.sel.cepsim.query.Vertex;
+
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Query added to running cloudlets. It is the data of the CEP_QUERY_ADD events.
+ */
+public class CepQueryChange {
+
+    private Query query;
+    private Map<Vertex, CepQueryCloudlet> allocation;
+
+    /**
+     * Creates a new change.
+     * @param query Query to be added.
+     * @param allocation Map from the query vertices to the cloudlets to which they are added.
+     */
+    public CepQueryChange(Query query, Map<Vertex, CepQueryCloudlet> allocation) {
+        this.query = query;
+        this.allocation = allocation;
+    }
+
+    public Query getQuery() {
+        return query;
+    }
+
+    public Map<Vertex, CepQueryCloudlet> getAllocation() {
+        return allocation;
+    }
+
+    /**
+     * Groups the query vertices by the cloudlet to which they are added.
+     * @return map from cloudlets to vertices.
+     */
+    public Map<CepQueryCloudlet, Set<Vertex>> getVerticesByCloudlet() {
+        Map<CepQueryCloudlet, Set<Vertex>> vertices = new LinkedHashMap<>();
+        for (Map.Entry<Vertex, CepQueryCloudlet> entry : allocation.entrySet()) {
+            Set<Vertex> cloudletVertices = vertices.get(entry.getValue());
+            if (cloudletVertices == null) {
+                cloudletVertices = new LinkedHashSet<>();
+                vertices.put(entry.getValue(), cloudletVertices);
+            }
+            cloudletVertices.add(entry.getKey());
+        }
+        return vertices;
+    }
+
+}
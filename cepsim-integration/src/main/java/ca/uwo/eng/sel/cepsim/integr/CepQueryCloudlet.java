@@ -3,11 +3,19 @@ package ca.uwo.eng.sel.cepsim.integr;
 import ca.uwo.eng.sel.cepsim.PlacementExecutor;
 import ca.uwo.eng.sel.cepsim.history.History;
 import ca.uwo.eng.sel.cepsim.history.SimEvent;
+import ca.uwo.eng.sel.cepsim.metric.ConvergenceMetric;
+import ca.uwo.eng.sel.cepsim.metric.ConvergenceMonitor;
 import ca.uwo.eng.sel.cepsim.metric.LatencyMetric;
 import ca.uwo.eng.sel.cepsim.metric.LatencyThroughputCalculator;
+import ca.uwo.eng.sel.cepsim.metric.Metric;
 import ca.uwo.eng.sel.cepsim.metric.MetricCalculator;
+import ca.uwo.eng.sel.cepsim.metric.ShedCalculator;
+import ca.uwo.eng.sel.cepsim.metric.ShedMetric;
 import ca.uwo.eng.sel.cepsim.metric.ThroughputMetric;
+import ca.uwo.eng.sel.cepsim.network.CepCreditEvent;
 import ca.uwo.eng.sel.cepsim.network.CepNetworkEvent;
+import ca.uwo.eng.sel.cepsim.network.DeferredNetworkInterface;
+import ca.uwo.eng.sel.cepsim.network.NetworkInterface;
 import ca.uwo.eng.sel.cepsim.query.Query;
 import ca.uwo.eng.sel.cepsim.query.Vertex;
 import org.cloudbus.cloudsim.Cloudlet;
@@ -25,10 +33,15 @@ public class CepQueryCloudlet extends Cloudlet {
 
 
     private PlacementExecutor executor;
+    private MetricCalculator calculator;
+    private ConvergenceMonitor convergenceMonitor;
     private History<SimEvent> history;
     private Queue<CepNetworkEvent> networkEvents;
+    private Queue<CepCreditEvent> creditEvents;
 
     private double  executionTime;
+    private double  lastUpdateTime;
+    private double  resumeTime;
     private boolean hasFinished;
 
     private boolean record;
@@ -42,10 +55,10 @@ public class CepQueryCloudlet extends Cloudlet {
         // cloudletFileSize = 0
         // cloudletOutputSize = 0
         // utilizationModelCpu = UtilizationModelFull
-        // utilizationModelRam = UtilizationModelFull
+        // utilizationModelRam = CepQueryRamUtilizationModel
         // utilizationModelBw =	UtilizationModelFull
         super (cloudletId, Long.MAX_VALUE, pesNumber,
-                0, 0, UTIL_MODEL_FULL, UTIL_MODEL_FULL,
+                0, 0, UTIL_MODEL_FULL, new CepQueryRamUtilizationModel(executor),
                 UTIL_MODEL_FULL, record);
 
         this.record = record;
@@ -60,8 +73,11 @@ public class CepQueryCloudlet extends Cloudlet {
 
         // list of network interfaces
         this.networkEvents = new PriorityQueue<>();
+        this.creditEvents = new PriorityQueue<>();
 
+        this.calculator = calculator;
         this.executor.registerCalculator(calculator);
+        this.executor.registerCalculator(ShedCalculator.apply(executor.placement()));
     }
 
 
@@ -88,6 +104,14 @@ public class CepQueryCloudlet extends Cloudlet {
 		return executor.placement().duration();
 	}
 	
+	/**
+	 * Gets the executor of the cloudlet placement.
+	 * @return placement executor.
+	 */
+	public PlacementExecutor getExecutor() {
+		return executor;
+	}
+
 	/**
 	 * Gets the execution history of the cloudlet.
 	 * @return execution history of the cloudlet.
@@ -96,8 +120,27 @@ public class CepQueryCloudlet extends Cloudlet {
 		return this.history;
 	}
 
+    /**
+     * Gets the estimated time (in seconds) until the next cloudlet event. If the executor is in the
+     * event-driven mode, it is the time until the placement has work to do or a network event is received.
+     * Otherwise, it is the time until the cloudlet finishes.
+     * @return estimated time until the next cloudlet event.
+     */
     public double getEstimatedTimeToFinish() {
-        return (hasFinished) ? 0 : (this.getDuration() - this.executionTime);
+        if (hasFinished) return 0;
+
+        double timeToFinish = this.getDuration() - this.executionTime;
+        if (this.executor.eventDriven()) {
+            double nextEvent = this.executor.nextEventTime() / 1000.0;
+            if (!this.networkEvents.isEmpty()) {
+                nextEvent = Math.min(nextEvent, this.networkEvents.peek().getDestTimestamp());
+            }
+            if (!this.creditEvents.isEmpty()) {
+                nextEvent = Math.min(nextEvent, this.creditEvents.peek().getDestTimestamp());
+            }
+            timeToFinish = Math.min(timeToFinish, Math.max(0.0, nextEvent - this.lastUpdateTime));
+        }
+        return timeToFinish;
     }
 
     public long getRemainingCloudletLength() {
@@ -118,8 +161,19 @@ public class CepQueryCloudlet extends Cloudlet {
 ////            }
 //        }
 
+        // the cloudlet has been finished before its duration
+        if (hasFinished) return;
+
         // CloudSim uses seconds, and the CepSim core is using milliseconds as time unit
         long instructionsToExecute = instructions;
+
+        // the cloudlet has been restored from a checkpoint - the time before it has already been simulated
+        if (currentTime <= this.resumeTime) return;
+        if (previousTime < this.resumeTime) {
+            instructionsToExecute = (long) ((instructions * (currentTime - this.resumeTime)) /
+                    (currentTime - previousTime));
+            previousTime = this.resumeTime;
+        }
         double previousTimeInMs = previousTime * 1000;
 
         // it is the first time this method has been invoked
@@ -127,17 +181,31 @@ public class CepQueryCloudlet extends Cloudlet {
             this.executor.init(previousTimeInMs);
         }
         this.executionTime += (currentTime - previousTime);
+        this.lastUpdateTime = currentTime;
 
-        // events have been received
+        // events have been received - in the event-driven mode, the updates are not periodic, so events
+        // received during the current interval are also enqueued
+        double receivedUntil = (this.executor.eventDriven()) ? currentTime : previousTime;
         CepNetworkEvent netEvent = null;
-        while (((netEvent = this.networkEvents.peek()) != null) && (netEvent.getDestTimestamp() < previousTime)) {
+        while (((netEvent = this.networkEvents.peek()) != null) && (netEvent.getDestTimestamp() < receivedUntil)) {
             this.networkEvents.remove();
+            if (netEvent.isCancelled()) {
+                continue;
+            }
 
             // need to transform back into ms
             this.executor.enqueue(netEvent.getDestTimestamp() * 1000, netEvent.getOrig(),
                   netEvent.getDest(), netEvent.getEventSet());
         }
 
+        // credits have been received
+        CepCreditEvent creditEvent = null;
+        while (((creditEvent = this.creditEvents.peek()) != null) && (creditEvent.getDestTimestamp() < receivedUntil)) {
+            this.creditEvents.remove();
+            this.executor.enqueueCredits(creditEvent.getDestTimestamp() * 1000, creditEvent.getOrig(),
+                    creditEvent.getDest(), creditEvent.getCredits());
+        }
+
         // this means the cepCloudlet has finished between previousTime and the currentTime
         // the 0.01 is a workaround - rounding errors have been preventing the query to finish at the right time
         if (this.getDuration() <= this.executionTime + 0.01) {
@@ -153,6 +221,25 @@ public class CepQueryCloudlet extends Cloudlet {
         }
 	}
 
+    /**
+     * Adds a query to the cloudlet while it is being executed.
+     * @param query Query to be added.
+     * @param vertices Vertices of the query that are assigned to this cloudlet.
+     * @param time Time at which the query is added (in seconds).
+     */
+    public void addQuery(Query query, Set<Vertex> vertices, double time) {
+        this.executor.addQuery(query, vertices, time * 1000);
+    }
+
+    /**
+     * Removes a query from the cloudlet while it is being executed.
+     * @param query Query to be removed.
+     * @return vertices that have been removed from the cloudlet.
+     */
+    public Set<Vertex> removeQuery(Query query) {
+        return JavaConversions.setAsJavaSet(this.executor.removeQuery(query));
+    }
+
     public Set<Vertex> getVertices() {
         return JavaConversions.asJavaSet(this.executor.placement().vertices());
     }
@@ -167,10 +254,25 @@ public class CepQueryCloudlet extends Cloudlet {
         else throw new IllegalArgumentException("Non-existent queryId");
     }
 
+    /**
+     * Wraps the network interface of the placement executor into a DeferredNetworkInterface, so that the
+     * messages sent by the cloudlet can be deferred while it is updated in parallel with other cloudlets.
+     */
+    public void deferNetworkMessages() {
+        NetworkInterface networkInterface = this.executor.networkInterface();
+        if ((networkInterface != null) && !(networkInterface instanceof DeferredNetworkInterface)) {
+            this.executor.networkInterface_$eq(new DeferredNetworkInterface(networkInterface));
+        }
+    }
+
     public void enqueue(CepNetworkEvent netEvent) {
         this.networkEvents.offer(netEvent);
     }
 
+    public void enqueue(CepCreditEvent creditEvent) {
+        this.creditEvents.offer(creditEvent);
+    }
+
     public double getLatency(Vertex consumer) {
         return this.executor.metric(LatencyMetric.ID(), consumer);
     }
@@ -184,10 +286,236 @@ public class CepQueryCloudlet extends Cloudlet {
         return sorted;
     }
 
+    /**
+     * Gets the simulated time that has been fast-forwarded by the placement executor.
+     * @return fast-forwarded time (in seconds).
+     */
+    public double getFastForwardedTime() {
+        return this.executor.fastForwardedTime() / 1000.0;
+    }
+
+    /**
+     * Gets the number of events waiting in the input queues of the cloudlet vertices.
+     * @return number of queued events.
+     */
+    public double getQueuedEvents() {
+        return this.executor.queuedEvents();
+    }
+
+    /**
+     * Gets the number of events consumed by the cloudlet consumers since the simulation start.
+     * @return number of consumed events.
+     */
+    public double getConsumedEvents() {
+        return this.executor.consumedEvents();
+    }
+
+    /**
+     * Gets the next timestamp at which a window of the cloudlet operators closes.
+     * @return next window boundary (in seconds), or Double.MAX_VALUE if there are no windowed operators.
+     */
+    public double getNextWindowBoundary() {
+        double boundary = this.executor.nextWindowBoundary(this.lastUpdateTime * 1000);
+        return (boundary == Double.MAX_VALUE) ? boundary : boundary / 1000.0;
+    }
+
+    /**
+     * Sets the RAM of the VM on which this cloudlet runs. The state of the placement vertices is limited by it.
+     * @param ram VM RAM (in MB).
+     */
+    public void setVmRam(double ram) {
+        ((CepQueryRamUtilizationModel) getUtilizationModelRam()).setRam(ram);
+    }
+
+    /**
+     * Sets the penalty applied when the state of the placement vertices exceeds the VM RAM.
+     * @param penalty Number of instructions spent at each iteration for every byte that exceeds the RAM.
+     */
+    public void setMemoryPenalty(double penalty) {
+        this.executor.memoryPenalty_$eq(penalty);
+    }
+
+    /**
+     * Gets the memory used by the state of the placement vertices.
+     * @return memory used by the vertices (in bytes).
+     */
+    public double getStateSize() {
+        return this.executor.stateSize();
+    }
+
+    /**
+     * Gets the number of instructions spent because the state exceeded the VM RAM.
+     * @return number of instructions.
+     */
+    public double getPenaltyInstructions() {
+        return this.executor.penaltyInstructions();
+    }
+
+    /**
+     * Indicates if the cloudlet has finished its execution.
+     * @return true if the cloudlet has finished.
+     */
+    public boolean hasFinished() {
+        return hasFinished;
+    }
+
+    /**
+     * Finishes the cloudlet before its duration. It is used when the metrics have converged.
+     */
+    void finish() {
+        hasFinished = true;
+    }
+
+    /**
+     * Captures the cloudlet state, including the network events and credits that have been received and not
+     * processed yet. The executor is shared with the cloudlet, so the state must be serialized before the
+     * simulation continues.
+     * @return cloudlet state.
+     */
+    CepSimCheckpoint.CloudletState checkpoint() {
+        return new CepSimCheckpoint.CloudletState(getCloudletId(), getNumberOfPes(), record, executor,
+                convergenceMonitor, new ArrayList<>(networkEvents), new ArrayList<>(creditEvents),
+                executionTime, lastUpdateTime, hasFinished);
+    }
+
+    /**
+     * Restores the state captured by a checkpoint. The cloudlet is not executed until the simulation clock
+     * reaches the time at which the checkpoint has been taken.
+     * @param state Cloudlet state.
+     */
+    void resume(CepSimCheckpoint.CloudletState state) {
+        this.convergenceMonitor = state.getConvergenceMonitor();
+        this.networkEvents.addAll(state.getNetworkEvents());
+        this.creditEvents.addAll(state.getCreditEvents());
+        this.executionTime = state.getExecutionTime();
+        this.lastUpdateTime = state.getLastUpdateTime();
+        this.resumeTime = state.getLastUpdateTime();
+        this.hasFinished = state.hasFinished();
+    }
+
+    /**
+     * Monitors the convergence of the latency and throughput of the cloudlet consumers.
+     * @param batchLength Length of the batches into which the metrics are grouped (in seconds).
+     * @param tolerance Maximum half-width of the confidence intervals, relative to the means.
+     * @return the convergence monitor.
+     */
+    public ConvergenceMonitor monitorConvergence(double batchLength, double tolerance) {
+        setConvergenceMonitor(ConvergenceMonitor.apply(this.calculator, batchLength * 1000, tolerance));
+        return this.convergenceMonitor;
+    }
+
+    /**
+     * Sets the monitor of the convergence of the cloudlet metrics. It must use the calculator of the cloudlet.
+     * @param monitor Convergence monitor.
+     */
+    public void setConvergenceMonitor(ConvergenceMonitor monitor) {
+        this.convergenceMonitor = monitor;
+        this.executor.registerCalculator(monitor);
+    }
+
+    public ConvergenceMonitor getConvergenceMonitor() {
+        return convergenceMonitor;
+    }
+
+    /**
+     * Indicates if the convergence of the cloudlet is monitored. Cloudlets without consumers are not monitored.
+     * @return true if there is a convergence monitor and the cloudlet has consumers.
+     */
+    public boolean isMonitored() {
+        return (convergenceMonitor != null) && (!this.executor.placement().consumers().isEmpty());
+    }
+
+    /**
+     * Indicates if the metrics of all cloudlet consumers have converged.
+     * @return true if the metrics have converged.
+     */
+    public boolean hasConverged() {
+        return (convergenceMonitor != null) && convergenceMonitor.converged();
+    }
+
+    /**
+     * Gets the steady-state latency of a consumer, after the warm-up period has been truncated.
+     * @param consumer Event consumer.
+     * @return the latency estimate and its confidence interval (in ms).
+     */
+    public ConvergenceMetric getLatencyConvergence(Vertex consumer) {
+        return convergenceMonitor.estimate(ConvergenceMetric.LatencyID(), consumer);
+    }
+
+    /**
+     * Gets the steady-state throughput of a consumer, after the warm-up period has been truncated.
+     * @param consumer Event consumer.
+     * @return the throughput estimate and its confidence interval (in events per second).
+     */
+    public ConvergenceMetric getThroughputConvergence(Vertex consumer) {
+        return convergenceMonitor.estimate(ConvergenceMetric.ThroughputID(), consumer);
+    }
+
+    /**
+     * Gets the number of instructions made available to the cloudlet since the simulation start.
+     * @return number of instructions.
+     */
+    public double getTotalInstructions() {
+        return this.executor.totalInstructions();
+    }
+
+    /**
+     * Gets the number of instructions used by the cloudlet vertices since the simulation start.
+     * @return number of instructions.
+     */
+    public double getUsedInstructions() {
+        return this.executor.usedInstructions();
+    }
+
+    /**
+     * Gets all latency values calculated for a consumer.
+     * @param consumer Event consumer.
+     * @return list of latency metrics.
+     */
+    public List<LatencyMetric> getLatencyMetrics(Vertex consumer) {
+        List<LatencyMetric> metrics = new ArrayList<>();
+        for (Metric metric : JavaConversions.seqAsJavaList(this.executor.metricList(LatencyMetric.ID(), consumer))) {
+            metrics.add((LatencyMetric) metric);
+        }
+        return metrics;
+    }
+
+    /**
+     * Gets the latency values calculated for a consumer, skipping the ones that have already been read.
+     * @param consumer Event consumer.
+     * @param from Number of latency values to be skipped.
+     * @return list of latency metrics calculated after the skipped ones.
+     */
+    public List<LatencyMetric> getLatencyMetrics(Vertex consumer, int from) {
+        List<LatencyMetric> metrics = new ArrayList<>();
+        for (Metric metric : JavaConversions.seqAsJavaList(this.executor.metricList(LatencyMetric.ID(), consumer, from))) {
+            metrics.add((LatencyMetric) metric);
+        }
+        return metrics;
+    }
+
     public double getThroughput(Vertex consumer) {
         return this.executor.metric(ThroughputMetric.ID(), consumer);
     }
 
+    /**
+     * Gets the throughput of a consumer summed over all query instances represented by it.
+     * @param consumer Event consumer.
+     * @return throughput of all consumer instances.
+     */
+    public double getAggregateThroughput(Vertex consumer) {
+        return getThroughput(consumer) * consumer.multiplicity();
+    }
+
+    /**
+     * Gets the number of events dropped by the load shedding strategy of a vertex.
+     * @param v Vertex from the cloudlet placement.
+     * @return total number of shed events.
+     */
+    public double getShedEvents(Vertex v) {
+        return this.executor.metric(ShedMetric.ID(), v);
+    }
+
     public SortedMap<Integer, Double> getThroughputByMinute(Vertex consumer) {
         Map<Object, Object> tmpMap = JavaConversions.asJavaMap(this.executor.metrics(ThroughputMetric.ID(), consumer));
         SortedMap<Integer, Double> sorted = new TreeMap<>();
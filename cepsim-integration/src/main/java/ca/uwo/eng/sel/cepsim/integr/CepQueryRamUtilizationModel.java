@@ -0,0 +1,42 @@
+package ca.uwo.eng.sel.cepsim.integr;
+
+import ca.uwo.eng.sel.cepsim.PlacementExecutor;
+import org.cloudbus.cloudsim.UtilizationModel;
+
+/**
+ * RAM utilization model of a CepQueryCloudlet. The utilization is the memory used by the state of the
+ * placement vertices divided by the RAM of the VM on which the placement runs. It can be larger than 1 when
+ * the state does not fit in the VM memory.
+ */
+public class CepQueryRamUtilizationModel implements UtilizationModel {
+
+    private static final double BYTES_PER_MB = 1024 * 1024;
+
+    private PlacementExecutor executor;
+    private double ram; // in MB
+
+    public CepQueryRamUtilizationModel(PlacementExecutor executor) {
+        this.executor = executor;
+        this.ram = 0.0;
+    }
+
+    public double getRam() {
+        return ram;
+    }
+
+    /**
+     * Sets the RAM of the VM on which the placement runs. It also becomes the memory limit of the
+     * placement executor.
+     * @param ram VM RAM (in MB).
+     */
+    public void setRam(double ram) {
+        this.ram = ram;
+        this.executor.memoryLimit_$eq(ram * BYTES_PER_MB);
+    }
+
+    @Override
+    public double getUtilization(double time) {
+        return (ram == 0) ? 0.0 : executor.stateSize() / (ram * BYTES_PER_MB);
+    }
+
+}
@@ -0,0 +1,408 @@
+package ca.uwo.eng.sel.cepsim.integr;
+
+import ca.uwo.eng.sel.cepsim.metric.LatencyMetric;
+import ca.uwo.eng.sel.cepsim.query.EventConsumer;
+import ca.uwo.eng.sel.cepsim.query.Vertex;
+import org.cloudbus.cloudsim.Consts;
+import org.cloudbus.cloudsim.Vm;
+import org.cloudbus.cloudsim.core.CloudSim;
+import org.cloudbus.cloudsim.core.CloudSimTags;
+import org.cloudbus.cloudsim.core.SimEntity;
+import org.cloudbus.cloudsim.core.SimEvent;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Simulation entity that changes the number of VMs running the CEP cloudlets of a datacenter. At every
+ * period, the autoscaler samples the queue backlog, the utilization of the instructions available on the
+ * running VMs and the consumer latency, and asks the policy how many VMs should be added or released.
+ * Requested VMs are created from a template after the provisioning delay, and cloudlets are moved to them
+ * from the VMs hosting most cloudlets. Before a VM is released, its cloudlets are moved to the VMs hosting
+ * fewer cloudlets. The cost of all VMs is accumulated from their running time.
+ */
+public class CepSimAutoscaler extends SimEntity {
+
+    private CepSimBroker broker;
+    private CepSimDatacenter datacenter;
+    private AutoscalingPolicy policy;
+    private Vm template;
+
+    private double period;            // in seconds
+    private double provisioningDelay; // in seconds
+    private double costPerHour;
+    private int minVms = 1;
+    private int maxVms = Integer.MAX_VALUE;
+    private int nextVmId = 1000;
+
+    private int pendingVms = 0;
+    private boolean finished = false;
+    private double lastTime = 0.0;
+    private double releasedTime = 0.0; // running time of the released VMs (in seconds)
+    private Map<Vm, Double> vmStart = new LinkedHashMap<>();
+    private Map<Integer, Double> vmUtilization = new HashMap<>();
+    private Map<CepQueryCloudlet, double[]> lastInstructions = new HashMap<>();
+    private Map<CepQueryCloudlet, Map<Vertex, Integer>> latencyCursors = new HashMap<>();
+    private List<AutoscalingSample> samples = new ArrayList<>();
+    private int migrations = 0;
+
+
+    /**
+     * Creates a new autoscaler.
+     * @param name Entity name.
+     * @param broker Broker that owns the cloudlets.
+     * @param datacenter Datacenter in which the VMs are created.
+     * @param policy Policy that decides the number of VMs.
+     * @param template VM used as template for the new VMs.
+     * @param period Sampling period (in seconds).
+     * @param provisioningDelay Time between a VM request and its creation (in seconds).
+     * @param costPerHour Cost of running a VM during one hour.
+     */
+    public CepSimAutoscaler(String name, CepSimBroker broker, CepSimDatacenter datacenter, AutoscalingPolicy policy,
+                            Vm template, double period, double provisioningDelay, double costPerHour) {
+        super(name);
+        if (period <= 0) {
+            throw new IllegalArgumentException("Period must be positive");
+        }
+        this.broker = broker;
+        this.datacenter = datacenter;
+        this.policy = policy;
+        this.template = template;
+        this.period = period;
+        this.provisioningDelay = provisioningDelay;
+        this.costPerHour = costPerHour;
+    }
+
+    public void setVmLimits(int minVms, int maxVms) {
+        if ((minVms < 1) || (maxVms < minVms)) {
+            throw new IllegalArgumentException("Invalid VM limits");
+        }
+        this.minVms = minVms;
+        this.maxVms = maxVms;
+    }
+
+    public void setNextVmId(int nextVmId) {
+        this.nextVmId = nextVmId;
+    }
+
+    /**
+     * Gets the samples taken by the autoscaler.
+     * @return list of samples, in the order they have been taken.
+     */
+    public List<AutoscalingSample> getSamples() {
+        return Collections.unmodifiableList(samples);
+    }
+
+    /**
+     * Gets the number of cloudlets moved between VMs.
+     * @return number of moved cloudlets.
+     */
+    public int getMigrations() {
+        return migrations;
+    }
+
+    /**
+     * Gets the number of VMs currently running the cloudlets.
+     * @return number of VMs.
+     */
+    public int getVms() {
+        return vmStart.size();
+    }
+
+    /**
+     * Gets the accumulated running time of all VMs up to the last sample.
+     * @return running time (in seconds).
+     */
+    public double getVmTime() {
+        double time = releasedTime;
+        for (Double start : vmStart.values()) {
+            time += lastTime - start;
+        }
+        return time;
+    }
+
+    /**
+     * Gets the cost of running the VMs up to the last sample.
+     * @return total cost.
+     */
+    public double getCost() {
+        return getVmTime() * costPerHour / 3600.0;
+    }
+
+    /**
+     * Gets the average consumer latency over all samples in which events have been consumed.
+     * @return average latency (in ms).
+     */
+    public double getAverageLatency() {
+        double sum = 0.0;
+        int count = 0;
+        for (AutoscalingSample sample : samples) {
+            if (sample.getLatency() > 0) {
+                sum += sample.getLatency();
+                count++;
+            }
+        }
+        return (count == 0) ? 0.0 : sum / count;
+    }
+
+
+    @Override
+    public void startEntity() {
+        schedule(getId(), period, CepSimTags.AUTOSCALE_SAMPLE);
+    }
+
+    @Override
+    public void processEvent(SimEvent ev) {
+        switch (ev.getTag()) {
+            case CepSimTags.AUTOSCALE_SAMPLE:
+                processSample();
+                break;
+            case CepSimTags.AUTOSCALE_VM_READY:
+                processVmReady((Vm) ev.getData());
+                break;
+            case CepSimTags.AUTOSCALE_REBALANCE:
+                processRebalance((Vm) ev.getData());
+                break;
+            default:
+                break;
+        }
+    }
+
+    @Override
+    public void shutdownEntity() {
+    }
+
+
+    private void processSample() {
+        double now = CloudSim.clock();
+        for (Vm vm : broker.getVmsCreatedList()) {
+            if (!vmStart.containsKey(vm)) {
+                vmStart.put(vm, lastTime);
+            }
+        }
+
+        double backlog = 0.0;
+        double total = 0.0;
+        double used = 0.0;
+        double latency = 0.0;
+        double quantity = 0.0;
+        boolean allFinished = true;
+
+        // every running VM is accounted for, including the ones that are not hosting any cloudlet
+        Map<Integer, double[]> vmInstructions = new HashMap<>();
+        for (Vm vm : vmStart.keySet()) {
+            vmInstructions.put(vm.getId(), new double[2]);
+        }
+
+        for (CepQueryCloudlet cloudlet : datacenter.getCepCloudlets()) {
+            allFinished = allFinished && cloudlet.hasFinished();
+            backlog += cloudlet.getQueuedEvents();
+
+            double[] last = lastInstructions.get(cloudlet);
+            if (last == null) {
+                last = new double[2];
+            }
+            double[] current = new double[] { cloudlet.getTotalInstructions(), cloudlet.getUsedInstructions() };
+            lastInstructions.put(cloudlet, current);
+
+            double[] vm = vmInstructions.get(cloudlet.getVmId());
+            if (vm != null) {
+                vm[0] += current[0] - last[0];
+                vm[1] += current[1] - last[1];
+            } else {
+                // the cloudlet has been running on a VM released since the last sample
+                total += current[0] - last[0];
+            }
+            used += current[1] - last[1];
+
+            // only the latency values calculated since the last sample are read
+            Map<Vertex, Integer> cursors = latencyCursors.get(cloudlet);
+            if (cursors == null) {
+                cursors = new HashMap<>();
+                latencyCursors.put(cloudlet, cursors);
+            }
+            for (Vertex v : cloudlet.getVertices()) {
+                if (v instanceof EventConsumer) {
+                    Integer cursor = cursors.containsKey(v) ? cursors.get(v) : 0;
+                    List<LatencyMetric> metrics = cloudlet.getLatencyMetrics(v, cursor);
+                    for (LatencyMetric metric : metrics) {
+                        latency += metric.value() * metric.quantity();
+                        quantity += metric.quantity();
+                    }
+                    cursors.put(v, cursor + metrics.size());
+                }
+            }
+        }
+
+        // the capacity of a VM is the number of instructions it could have executed since the last sample
+        for (Vm vm : vmStart.keySet()) {
+            double[] instructions = vmInstructions.get(vm.getId());
+            instructions[0] = Math.max(instructions[0], vmCapacity(vm, now - Math.max(lastTime, vmStart.get(vm))));
+            total += instructions[0];
+        }
+
+        vmUtilization.clear();
+        for (Map.Entry<Integer, double[]> entry : vmInstructions.entrySet()) {
+            double[] vm = entry.getValue();
+            vmUtilization.put(entry.getKey(), (vm[0] == 0) ? 0.0 : vm[1] / vm[0]);
+        }
+
+        lastTime = now;
+        AutoscalingSample sample = new AutoscalingSample(now, vmStart.size(), pendingVms, backlog,
+                (total == 0) ? 0.0 : used / total, (quantity == 0) ? 0.0 : latency / quantity);
+        samples.add(sample);
+
+        if ((!datacenter.getCepCloudlets().isEmpty()) && (allFinished)) {
+            finished = true;
+            return;
+        }
+
+        int delta = policy.decide(sample);
+        int provisioned = vmStart.size() + pendingVms;
+        delta = Math.max(minVms - provisioned, Math.min(maxVms - provisioned, delta));
+        if (delta > 0) {
+            for (int i = 0; i < delta; i++) {
+                requestVm();
+            }
+        } else if (delta < 0) {
+            for (int i = 0; i < -delta; i++) {
+                releaseVm();
+            }
+        }
+        schedule(getId(), period, CepSimTags.AUTOSCALE_SAMPLE);
+    }
+
+    private void requestVm() {
+        Vm vm = new Vm(nextVmId++, broker.getId(), template.getMips(), template.getNumberOfPes(), template.getRam(),
+                template.getBw(), template.getSize(), template.getVmm(), new CepQueryCloudletScheduler());
+        pendingVms++;
+        schedule(getId(), provisioningDelay, CepSimTags.AUTOSCALE_VM_READY, vm);
+    }
+
+    private void processVmReady(Vm vm) {
+        if (finished) {
+            pendingVms--;
+            return;
+        }
+        sendNow(datacenter.getId(), CloudSimTags.VM_CREATE, vm);
+
+        // the rebalance must happen after the datacenter has processed the VM creation
+        schedule(getId(), CloudSim.getMinTimeBetweenEvents(), CepSimTags.AUTOSCALE_REBALANCE, vm);
+    }
+
+    private void processRebalance(Vm vm) {
+        pendingVms--;
+        if ((finished) || (vm.getHost() == null)) {
+            // the VM could not be allocated to any host
+            return;
+        }
+        broker.registerVm(vm, datacenter.getId());
+        vmStart.put(vm, CloudSim.clock());
+
+        Map<Integer, List<CepQueryCloudlet>> allocation = allocation();
+        List<CepQueryCloudlet> moved = allocation.remove(vm.getId());
+        while (true) {
+            List<CepQueryCloudlet> busiest = null;
+            for (List<CepQueryCloudlet> cloudlets : allocation.values()) {
+                if ((busiest == null) || (cloudlets.size() > busiest.size())) {
+                    busiest = cloudlets;
+                }
+            }
+            if ((busiest == null) || (busiest.size() - moved.size() <= 1)) {
+                break;
+            }
+
+            // the cloudlet with the largest backlog benefits most from the new VM
+            CepQueryCloudlet largest = null;
+            for (CepQueryCloudlet cloudlet : busiest) {
+                if ((largest == null) || (cloudlet.getQueuedEvents() > largest.getQueuedEvents())) {
+                    largest = cloudlet;
+                }
+            }
+            busiest.remove(largest);
+            moved.add(largest);
+            migrate(largest, vm);
+        }
+    }
+
+    private void releaseVm() {
+        if (vmStart.size() <= 1) {
+            return;
+        }
+        Vm victim = null;
+        double lowest = Double.MAX_VALUE;
+        for (Vm vm : vmStart.keySet()) {
+            double utilization = vmUtilization.containsKey(vm.getId()) ? vmUtilization.get(vm.getId()) : 0.0;
+            if (utilization < lowest) {
+                victim = vm;
+                lowest = utilization;
+            }
+        }
+
+        Map<Integer, List<CepQueryCloudlet>> allocation = allocation();
+        List<CepQueryCloudlet> toMove = allocation.remove(victim.getId());
+        if (toMove != null) {
+            for (CepQueryCloudlet cloudlet : toMove) {
+                int target = -1;
+                for (Map.Entry<Integer, List<CepQueryCloudlet>> entry : allocation.entrySet()) {
+                    if ((target == -1) || (entry.getValue().size() < allocation.get(target).size())) {
+                        target = entry.getKey();
+                    }
+                }
+                allocation.get(target).add(cloudlet);
+                migrate(cloudlet, findVm(target));
+            }
+        }
+
+        sendNow(datacenter.getId(), CloudSimTags.VM_DESTROY, victim);
+        broker.unregisterVm(victim);
+        releasedTime += CloudSim.clock() - vmStart.remove(victim);
+        vmUtilization.remove(victim.getId());
+    }
+
+    /**
+     * Maps the running VMs to the unfinished cloudlets they are hosting.
+     */
+    private Map<Integer, List<CepQueryCloudlet>> allocation() {
+        Map<Integer, List<CepQueryCloudlet>> allocation = new LinkedHashMap<>();
+        for (Vm vm : vmStart.keySet()) {
+            allocation.put(vm.getId(), new ArrayList<CepQueryCloudlet>());
+        }
+        for (CepQueryCloudlet cloudlet : datacenter.getCepCloudlets()) {
+            // the broker is updated as soon as a cloudlet is moved, before the datacenter has processed the move
+            Vm vm = broker.getVmAllocation(cloudlet.getVertices().iterator().next());
+            List<CepQueryCloudlet> cloudlets = allocation.get((vm == null) ? cloudlet.getVmId() : vm.getId());
+            if ((cloudlets != null) && (!cloudlet.hasFinished())) {
+                cloudlets.add(cloudlet);
+            }
+        }
+        return allocation;
+    }
+
+    /**
+     * Number of instructions a VM can execute during an interval (in seconds).
+     */
+    private double vmCapacity(Vm vm, double interval) {
+        return vm.getMips() * vm.getNumberOfPes() * Consts.MILLION * Math.max(interval, 0.0);
+    }
+
+    private Vm findVm(int id) {
+        for (Vm vm : vmStart.keySet()) {
+            if (vm.getId() == id) {
+                return vm;
+            }
+        }
+        return null;
+    }
+
+    private void migrate(CepQueryCloudlet cloudlet, Vm vm) {
+        sendNow(datacenter.getId(), CepSimTags.CEP_CLOUDLET_MIGRATE, new int[] { cloudlet.getCloudletId(), vm.getId() });
+        broker.updateVmAllocation(cloudlet, vm);
+        migrations++;
+    }
+
+}
@@ -1,5 +1,6 @@
 package ca.uwo.eng.sel.cepsim.integr;
 
+import ca.uwo.eng.sel.cepsim.query.Query;
 import ca.uwo.eng.sel.cepsim.query.Vertex;
 import org.cloudbus.cloudsim.Cloudlet;
 import org.cloudbus.cloudsim.DatacenterBroker;
@@ -9,15 +10,22 @@ import org.cloudbus.cloudsim.core.CloudSim;
 import org.cloudbus.cloudsim.core.CloudSimTags;
 import org.cloudbus.cloudsim.core.SimEvent;
 import org.cloudbus.cloudsim.lists.VmList;
+import scala.collection.JavaConversions;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 public class CepSimBroker extends DatacenterBroker {
 	
     private Map<Vertex, Vm> verticesToVm = new HashMap<>();
+
+    /** Query changes requested before the simulation start (time, tag and data). */
+    private List<Object[]> pendingChanges = new ArrayList<>();
     
 	/** Length of the simulation (in ms)*/
 	private double simulationLength;
@@ -38,6 +46,12 @@ public class CepSimBroker extends DatacenterBroker {
 	public void processEvent(SimEvent ev) {
 
         switch (ev.getTag()) {
+            case CepSimTags.CEP_QUERY_ADD:
+                processQueryAdd((CepQueryChange) ev.getData());
+                break;
+            case CepSimTags.CEP_QUERY_REMOVE:
+                processQueryRemove((Query) ev.getData());
+                break;
             case CepSimTags.CEP_EVENT_SENT:
                 System.out.println(ev.getData());
 
@@ -107,6 +121,111 @@ public class CepSimBroker extends DatacenterBroker {
         getCloudletList().removeAll(successfullySubmitted);
 	}
 
+    /**
+     * Registers a VM created after the simulation start, so that it can be used by the cloudlets.
+     * @param vm VM that has been created.
+     * @param datacenterId Id of the datacenter hosting the VM.
+     */
+    public void registerVm(Vm vm, int datacenterId) {
+        getVmList().add(vm);
+        getVmsCreatedList().add(vm);
+        getVmsToDatacentersMap().put(vm.getId(), datacenterId);
+    }
+
+    /**
+     * Removes a VM that has been destroyed before the simulation end.
+     * @param vm VM that has been destroyed.
+     */
+    public void unregisterVm(Vm vm) {
+        getVmList().remove(vm);
+        getVmsCreatedList().remove(vm);
+    }
+
+    /**
+     * Updates the VM allocation of the cloudlet vertices after the cloudlet has been moved to another VM.
+     * @param cloudlet Cloudlet that has been moved.
+     * @param vm VM to which the cloudlet has been moved.
+     */
+    public void updateVmAllocation(CepQueryCloudlet cloudlet, Vm vm) {
+        for (Vertex v : cloudlet.getVertices()) {
+            verticesToVm.put(v, vm);
+        }
+    }
+
+    /**
+     * Adds a query to running cloudlets at a simulated time.
+     * @param time Time at which the query is added (in seconds).
+     * @param query Query to be added. Its duration is counted from the simulation start.
+     * @param allocation Map from the query vertices to the cloudlets to which they are added.
+     */
+    public void addQuery(double time, Query query, Map<Vertex, CepQueryCloudlet> allocation) {
+        scheduleChange(time, CepSimTags.CEP_QUERY_ADD, new CepQueryChange(query, allocation));
+    }
+
+    /**
+     * Removes a query from the cloudlets at a simulated time.
+     * @param time Time at which the query is removed (in seconds).
+     * @param query Query to be removed.
+     */
+    public void removeQuery(double time, Query query) {
+        scheduleChange(time, CepSimTags.CEP_QUERY_REMOVE, query);
+    }
+
+    private void scheduleChange(double time, int tag, Object data) {
+        // events cannot be scheduled before the simulation starts
+        if (CloudSim.running()) {
+            schedule(getId(), Math.max(0.0, time - CloudSim.clock()), tag, data);
+        } else {
+            pendingChanges.add(new Object[] { time, tag, data });
+        }
+    }
+
+    @Override
+    public void startEntity() {
+        super.startEntity();
+        for (Object[] change : pendingChanges) {
+            schedule(getId(), (Double) change[0], (Integer) change[1], change[2]);
+        }
+        pendingChanges.clear();
+    }
+
+    private void processQueryAdd(CepQueryChange change) {
+        // each datacenter receives only the vertices allocated to its cloudlets
+        Map<Integer, Map<Vertex, CepQueryCloudlet>> datacenters = new LinkedHashMap<>();
+        for (Map.Entry<Vertex, CepQueryCloudlet> entry : change.getAllocation().entrySet()) {
+            Vm vm = VmList.getById(getVmsCreatedList(), entry.getValue().getVmId());
+            if (vm == null) {
+                throw new IllegalStateException("The cloudlet VM has not been created");
+            }
+            verticesToVm.put(entry.getKey(), vm);
+
+            Integer datacenterId = getVmsToDatacentersMap().get(vm.getId());
+            Map<Vertex, CepQueryCloudlet> allocation = datacenters.get(datacenterId);
+            if (allocation == null) {
+                allocation = new HashMap<>();
+                datacenters.put(datacenterId, allocation);
+            }
+            allocation.put(entry.getKey(), entry.getValue());
+        }
+
+        for (Map.Entry<Integer, Map<Vertex, CepQueryCloudlet>> entry : datacenters.entrySet()) {
+            sendNow(entry.getKey(), CepSimTags.CEP_QUERY_ADD, new CepQueryChange(change.getQuery(), entry.getValue()));
+        }
+    }
+
+    private void processQueryRemove(Query query) {
+        Set<Integer> datacenters = new LinkedHashSet<>();
+        for (Vertex v : JavaConversions.setAsJavaSet(query.vertices())) {
+            Vm vm = verticesToVm.remove(v);
+            if (vm != null) {
+                datacenters.add(getVmsToDatacentersMap().get(vm.getId()));
+            }
+        }
+        for (Integer datacenterId : datacenters) {
+            sendNow(datacenterId, CepSimTags.CEP_QUERY_REMOVE, query);
+        }
+    }
+
 	public void submitCloudlet(Vm vm, Cloudlet cloudlet) {
         sendNow(getVmsToDatacentersMap().get(vm.getId()), CloudSimTags.CLOUDLET_SUBMIT, cloudlet);
     }
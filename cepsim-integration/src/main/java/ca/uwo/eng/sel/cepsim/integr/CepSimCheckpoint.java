@@ -0,0 +1,152 @@
+package ca.uwo.eng.sel.cepsim.integr;
+
+import ca.uwo.eng.sel.cepsim.PlacementExecutor;
+import ca.uwo.eng.sel.cepsim.Snapshot;
+import ca.uwo.eng.sel.cepsim.metric.ConvergenceMonitor;
+import ca.uwo.eng.sel.cepsim.metric.LatencyMetric;
+import ca.uwo.eng.sel.cepsim.network.CepCreditEvent;
+import ca.uwo.eng.sel.cepsim.network.CepNetworkEvent;
+import ca.uwo.eng.sel.cepsim.network.NetworkInterface;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Checkpoint of a set of query cloudlets. Besides the state of the placement executors, it includes the network
+ * events and credits received by the cloudlets and not processed yet, and their execution time.
+ *
+ * A checkpoint can be restored in a new CloudSim simulation. The restored cloudlets are not executed until the
+ * simulation clock reaches the time at which the checkpoint has been taken, so that the timestamps of the
+ * restored state remain valid. Network events that are still in the CloudSim event queue at the checkpoint
+ * time and the execution history of the cloudlets are not included.
+ */
+public class CepSimCheckpoint {
+
+    /** State of a single cloudlet. */
+    static class CloudletState implements Serializable {
+
+        private int cloudletId;
+        private int pesNumber;
+        private boolean record;
+        private PlacementExecutor executor;
+        private ConvergenceMonitor convergenceMonitor;
+        private List<CepNetworkEvent> networkEvents;
+        private List<CepCreditEvent> creditEvents;
+        private double executionTime;
+        private double lastUpdateTime;
+        private boolean finished;
+
+        CloudletState(int cloudletId, int pesNumber, boolean record, PlacementExecutor executor,
+                      ConvergenceMonitor convergenceMonitor, List<CepNetworkEvent> networkEvents,
+                      List<CepCreditEvent> creditEvents, double executionTime, double lastUpdateTime,
+                      boolean finished) {
+            this.cloudletId = cloudletId;
+            this.pesNumber = pesNumber;
+            this.record = record;
+            this.executor = executor;
+            this.convergenceMonitor = convergenceMonitor;
+            this.networkEvents = networkEvents;
+            this.creditEvents = creditEvents;
+            this.executionTime = executionTime;
+            this.lastUpdateTime = lastUpdateTime;
+            this.finished = finished;
+        }
+
+        ConvergenceMonitor getConvergenceMonitor() {
+            return convergenceMonitor;
+        }
+
+        List<CepNetworkEvent> getNetworkEvents() {
+            return networkEvents;
+        }
+
+        List<CepCreditEvent> getCreditEvents() {
+            return creditEvents;
+        }
+
+        double getExecutionTime() {
+            return executionTime;
+        }
+
+        double getLastUpdateTime() {
+            return lastUpdateTime;
+        }
+
+        boolean hasFinished() {
+            return finished;
+        }
+    }
+
+
+    private Snapshot<ArrayList<CloudletState>> snapshot;
+
+    private CepSimCheckpoint(Snapshot<ArrayList<CloudletState>> snapshot) {
+        this.snapshot = snapshot;
+    }
+
+    /**
+     * Takes a checkpoint of a set of cloudlets. All cloudlets whose placements are connected must be included in
+     * the same checkpoint.
+     * @param cloudlets Cloudlets to be included in the checkpoint.
+     * @return the checkpoint.
+     */
+    public static CepSimCheckpoint take(Collection<CepQueryCloudlet> cloudlets) {
+        ArrayList<CloudletState> states = new ArrayList<>();
+        for (CepQueryCloudlet cloudlet : cloudlets) {
+            states.add(cloudlet.checkpoint());
+        }
+        return new CepSimCheckpoint(Snapshot.apply(states));
+    }
+
+    /**
+     * Reads a checkpoint previously written to a stream.
+     * @param in Stream from which the checkpoint is read.
+     * @return the checkpoint.
+     */
+    public static CepSimCheckpoint read(InputStream in) {
+        return new CepSimCheckpoint(Snapshot.<ArrayList<CloudletState>>read(in));
+    }
+
+    /**
+     * Writes the checkpoint to a stream.
+     * @param out Stream to which the checkpoint is written.
+     */
+    public void write(OutputStream out) {
+        snapshot.write(out);
+    }
+
+    /**
+     * Gets the size of the checkpoint.
+     * @return size (in bytes).
+     */
+    public int getSize() {
+        return snapshot.size();
+    }
+
+    /**
+     * Restores the cloudlets. Each invocation creates new independent cloudlets, so that the same checkpoint can
+     * be used to fork multiple simulations. The user id of the cloudlets must be set before they are submitted,
+     * and the executors can be modified to continue with different strategies or parameters.
+     * @param networkInterface Network interface of the new simulation.
+     * @return the restored cloudlets, in the same order as they have been included in the checkpoint.
+     */
+    public List<CepQueryCloudlet> restore(NetworkInterface networkInterface) {
+        List<CepQueryCloudlet> cloudlets = new ArrayList<>();
+        for (CloudletState state : snapshot.restore()) {
+            PlacementExecutor executor = state.executor;
+            executor.networkInterface_$eq(networkInterface);
+
+            // the calculators are already registered in the restored executor
+            CepQueryCloudlet cloudlet = new CepQueryCloudlet(state.cloudletId, executor, state.pesNumber,
+                    state.record, executor.calculator(LatencyMetric.ID()));
+            cloudlet.resume(state);
+            cloudlets.add(cloudlet);
+        }
+        return cloudlets;
+    }
+
+}
@@ -1,10 +1,26 @@
 package ca.uwo.eng.sel.cepsim.integr;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
+import ca.uwo.eng.sel.cepsim.network.BufferedNetworkInterface;
+import ca.uwo.eng.sel.cepsim.network.CepCreditEvent;
+import ca.uwo.eng.sel.cepsim.network.CepNetworkBatch;
 import ca.uwo.eng.sel.cepsim.network.CepNetworkEvent;
+import ca.uwo.eng.sel.cepsim.network.DeferredNetworkInterface;
+import ca.uwo.eng.sel.cepsim.network.NetworkInterface;
+import ca.uwo.eng.sel.cepsim.query.Query;
 import ca.uwo.eng.sel.cepsim.query.Vertex;
 import org.cloudbus.cloudsim.Cloudlet;
 import org.cloudbus.cloudsim.CloudletScheduler;
@@ -12,17 +28,37 @@ import org.cloudbus.cloudsim.Datacenter;
 import org.cloudbus.cloudsim.DatacenterCharacteristics;
 import org.cloudbus.cloudsim.Host;
 import org.cloudbus.cloudsim.Log;
+import org.cloudbus.cloudsim.ResCloudlet;
 import org.cloudbus.cloudsim.Storage;
 import org.cloudbus.cloudsim.Vm;
 import org.cloudbus.cloudsim.VmAllocationPolicy;
 import org.cloudbus.cloudsim.core.CloudSim;
 import org.cloudbus.cloudsim.core.CloudSimTags;
 import org.cloudbus.cloudsim.core.SimEvent;
+import scala.collection.JavaConversions;
 
 public class CepSimDatacenter extends Datacenter {
 
 
     private Map<Vertex, CepQueryCloudlet> vertexToCloudlet = new HashMap<>();
+    private Set<Vertex> removedVertices = new HashSet<>();
+    private Set<CepQueryCloudlet> cloudlets = new LinkedHashSet<>();
+
+    /** Indicates if the cloudlets are updated only when there are events to be processed. */
+    private boolean eventDriven = false;
+
+    /** Timestamp of the next update scheduled by the datacenter - used by the event-driven mode. */
+    private double nextUpdateTime = -1.0;
+
+    /** Controls the interval between cloudlet updates - if null, the scheduling interval is used. */
+    private AdaptiveIntervalController intervalController = null;
+
+    /** Indicates if the cloudlets are finished once the metrics of all monitored cloudlets have converged. */
+    private boolean stopOnConvergence = false;
+
+    /** Number of threads used to update the hosts - if 1, the hosts are updated sequentially. */
+    private int parallelism = 1;
+    private ForkJoinPool pool = null;
 
 	public CepSimDatacenter(String name,
 			DatacenterCharacteristics characteristics,
@@ -33,12 +69,106 @@ public class CepSimDatacenter extends Datacenter {
 	}
 
 
+    public boolean isEventDriven() {
+        return eventDriven;
+    }
+
+    /**
+     * Enables the event-driven mode. In this mode, the datacenter skips scheduling intervals on which no
+     * cloudlet has work to do, and it updates the cloudlets one scheduling interval after the last update
+     * when a network event is received. It should be used along with placement executors in the event-driven
+     * mode. Event producers are always ready, so intervals are only skipped if no cloudlet of the datacenter
+     * hosts a producer.
+     * @param eventDriven true to enable the event-driven mode.
+     */
+    public void setEventDriven(boolean eventDriven) {
+        this.eventDriven = eventDriven;
+    }
+
+    public AdaptiveIntervalController getIntervalController() {
+        return intervalController;
+    }
+
+    /**
+     * Sets the controller used to adapt the interval between cloudlet updates. The scheduling interval of the
+     * datacenter should not be larger than the controller minimum interval. The controller is not used in the
+     * event-driven mode, in which the intervals are already defined by the cloudlets.
+     * @param intervalController Interval controller, or null to use the fixed scheduling interval.
+     */
+    public void setIntervalController(AdaptiveIntervalController intervalController) {
+        this.intervalController = intervalController;
+    }
+
+    public boolean isStopOnConvergence() {
+        return stopOnConvergence;
+    }
+
+    /**
+     * Enables the early termination of the cloudlets. If it is enabled, all cloudlets are finished as soon as the
+     * latency and throughput of every cloudlet with a convergence monitor have converged, even if the query
+     * durations have not elapsed yet.
+     * @param stopOnConvergence true to enable the early termination.
+     */
+    public void setStopOnConvergence(boolean stopOnConvergence) {
+        this.stopOnConvergence = stopOnConvergence;
+    }
+
+    /**
+     * Gets the CEP cloudlets that have been submitted to the datacenter.
+     * @return set of cloudlets.
+     */
+    public Set<CepQueryCloudlet> getCepCloudlets() {
+        return Collections.unmodifiableSet(cloudlets);
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * Sets the number of threads used to update the hosts. If it is larger than 1, the hosts are updated on a
+     * work-stealing pool, and the network messages sent by the cloudlets are deferred and sent after all hosts
+     * have been updated, in the same order as in the sequential update. Therefore, the simulation results do
+     * not depend on the parallelism.
+     * @param parallelism Number of threads.
+     */
+    public void setParallelism(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be at least 1");
+        }
+        this.parallelism = parallelism;
+        if (pool != null) {
+            pool.shutdown();
+            pool = null;
+        }
+        if (parallelism > 1) {
+            for (CepQueryCloudlet cloudlet : cloudlets) {
+                cloudlet.deferNetworkMessages();
+            }
+        }
+    }
+
     @Override
     protected void processOtherEvent(SimEvent ev) {
         switch (ev.getTag()) {
             case CepSimTags.CEP_EVENT_SENT:
                 this.processCepEventSent(ev);
                 break;
+            case CepSimTags.CEP_CREDIT_SENT:
+                this.processCepCreditSent(ev);
+                break;
+            case CepSimTags.CEP_EVENT_BATCH_SENT:
+                this.processCepEventBatchSent(ev);
+                break;
+            case CepSimTags.CEP_CLOUDLET_MIGRATE:
+                this.processCepCloudletMigrate(ev);
+                break;
+            case CepSimTags.CEP_QUERY_ADD:
+                this.processCepQueryAdd(ev);
+                break;
+            case CepSimTags.CEP_QUERY_REMOVE:
+                this.processCepQueryRemove(ev);
+                break;
             default:
                 super.processOtherEvent(ev);
                 break;
@@ -47,13 +177,152 @@ public class CepSimDatacenter extends Datacenter {
 
     private void processCepEventSent(SimEvent ev) {
         CepNetworkEvent netEvent = (CepNetworkEvent) ev.getData();
+        this.enqueue(netEvent);
+    }
 
-        CepQueryCloudlet cloudlet = vertexToCloudlet.get(netEvent.getDest());
+    private void processCepEventBatchSent(SimEvent ev) {
+        CepNetworkBatch batch = (CepNetworkBatch) ev.getData();
+        for (CepNetworkEvent netEvent : batch.getEvents()) {
+            this.enqueue(netEvent);
+        }
+        for (CepCreditEvent creditEvent : batch.getCredits()) {
+            this.enqueue(creditEvent);
+        }
+    }
+
+    private void processCepCreditSent(SimEvent ev) {
+        CepCreditEvent creditEvent = (CepCreditEvent) ev.getData();
+        this.enqueue(creditEvent);
+    }
+
+    /**
+     * Moves a CEP cloudlet to another VM of the datacenter. The event data is an array containing the cloudlet
+     * id and the destination VM id. The cloudlet keeps its state, and it is updated up to the current time on
+     * the source VM before being moved.
+     * @param ev Simulation event.
+     */
+    private void processCepCloudletMigrate(SimEvent ev) {
+        int[] data = (int[]) ev.getData();
+        updateCloudletProcessing();
+
+        CepQueryCloudlet cloudlet = null;
+        for (CepQueryCloudlet cl : cloudlets) {
+            if (cl.getCloudletId() == data[0]) {
+                cloudlet = cl;
+            }
+        }
         if (cloudlet == null) {
+            throw new IllegalStateException("Cloudlet not found in the datacenter");
+        }
+
+        Vm source = getVmAllocationPolicy().getHost(cloudlet.getVmId(), cloudlet.getUserId())
+                .getVm(cloudlet.getVmId(), cloudlet.getUserId());
+        Host destHost = getVmAllocationPolicy().getHost(data[1], cloudlet.getUserId());
+        if (destHost == null) {
+            throw new IllegalStateException("Destination VM not found in the datacenter");
+        }
+        Vm dest = destHost.getVm(data[1], cloudlet.getUserId());
+
+        CepQueryCloudletScheduler scheduler = (CepQueryCloudletScheduler) source.getCloudletScheduler();
+        List<ResCloudlet> toRemove = new ArrayList<>();
+        for (ResCloudlet rcl : scheduler.getCloudletExecList()) {
+            if (rcl.getCloudlet() == cloudlet) {
+                toRemove.add(rcl);
+            }
+        }
+        scheduler.getCloudletExecList().removeAll(toRemove);
+
+        cloudlet.setVmId(dest.getId());
+        cloudlet.setVmRam(dest.getRam());
+        dest.getCloudletScheduler().cloudletSubmit(cloudlet, 0.0);
+    }
+
+    /**
+     * Adds a query to running cloudlets. The cloudlets are updated up to the current time before the query is
+     * added, so the new vertices start executing at the current time.
+     * @param ev Simulation event.
+     */
+    private void processCepQueryAdd(SimEvent ev) {
+        CepQueryChange change = (CepQueryChange) ev.getData();
+        updateCloudletProcessing();
+
+        for (Map.Entry<CepQueryCloudlet, Set<Vertex>> entry : change.getVerticesByCloudlet().entrySet()) {
+            entry.getKey().addQuery(change.getQuery(), entry.getValue(), CloudSim.clock());
+            for (Vertex v : entry.getValue()) {
+                vertexToCloudlet.put(v, entry.getKey());
+                removedVertices.remove(v);
+            }
+        }
+        if (eventDriven) {
+            wakeUp();
+        }
+    }
+
+    /**
+     * Removes a query from the cloudlets. Events that are still being sent to the removed vertices are discarded.
+     * @param ev Simulation event.
+     */
+    private void processCepQueryRemove(SimEvent ev) {
+        Query query = (Query) ev.getData();
+        updateCloudletProcessing();
+
+        Set<CepQueryCloudlet> affected = new LinkedHashSet<>();
+        for (Vertex v : JavaConversions.setAsJavaSet(query.vertices())) {
+            CepQueryCloudlet cloudlet = vertexToCloudlet.get(v);
+            if (cloudlet != null) {
+                affected.add(cloudlet);
+            }
+        }
+        for (CepQueryCloudlet cloudlet : affected) {
+            for (Vertex v : cloudlet.removeQuery(query)) {
+                vertexToCloudlet.remove(v);
+                removedVertices.add(v);
+            }
+        }
+    }
+
+    /**
+     * Schedules an update of the cloudlets after new work has been received in the event-driven mode. The
+     * update happens one scheduling interval after the last one, and it is shared by all work received until
+     * then, so that updates are never closer together than the scheduling interval.
+     */
+    private void wakeUp() {
+        double updateTime = Math.max(CloudSim.clock(), getLastProcessTime() + getSchedulingInterval());
+        if ((nextUpdateTime < CloudSim.clock()) || (nextUpdateTime > updateTime)) {
+            schedule(getId(), updateTime - CloudSim.clock(), CloudSimTags.VM_DATACENTER_EVENT);
+            nextUpdateTime = updateTime;
+        }
+    }
+
+    private void enqueue(CepNetworkEvent netEvent) {
+        CepQueryCloudlet cloudlet = vertexToCloudlet.get(netEvent.getDest());
+        if ((cloudlet == null) && (removedVertices.contains(netEvent.getDest()))) {
+            return;
+        } else if (cloudlet == null) {
             throw new IllegalStateException("Vertex not found in any cloudlet");
         }
 
         cloudlet.enqueue(netEvent);
+        if (intervalController != null) {
+            intervalController.notifyNetworkArrival();
+        }
+        if (eventDriven) {
+            wakeUp();
+        }
+    }
+
+    private void enqueue(CepCreditEvent creditEvent) {
+        CepQueryCloudlet cloudlet = vertexToCloudlet.get(creditEvent.getDest());
+        if ((cloudlet == null) && (removedVertices.contains(creditEvent.getDest()))) {
+            return;
+        } else if (cloudlet == null) {
+            throw new IllegalStateException("Vertex not found in any cloudlet");
+        }
+
+        cloudlet.enqueue(creditEvent);
+        if (eventDriven) {
+            wakeUp();
+        }
     }
 
 
@@ -119,9 +388,14 @@ public class CepSimDatacenter extends Datacenter {
 			send(getId(), this.getSchedulingInterval(), CloudSimTags.VM_DATACENTER_EVENT);
             if (cl instanceof CepQueryCloudlet) {
                 CepQueryCloudlet cepCl = (CepQueryCloudlet) cl;
+                cepCl.setVmRam(vm.getRam());
                 for (Vertex v : cepCl.getVertices()) {
                     this.vertexToCloudlet.put(v, cepCl);
                 }
+                this.cloudlets.add(cepCl);
+                if (parallelism > 1) {
+                    cepCl.deferNetworkMessages();
+                }
             }
             // -------------------------------------------------------------------------------
 			
@@ -155,27 +429,49 @@ public class CepSimDatacenter extends Datacenter {
 		if (CloudSim.clock() < 0.111 ||
 				CloudSim.clock() >= getLastProcessTime() + CloudSim.getMinTimeBetweenEvents()) {
 			
+			if (stopOnConvergence && hasConverged()) {
+				for (CepQueryCloudlet cloudlet : cloudlets) {
+					cloudlet.finish();
+				}
+			}
+
 			List<? extends Host> list = getVmAllocationPolicy().getHostList();
 			double smallestTime = Double.MAX_VALUE;
-						
-			// for each host...
-			for (int i = 0; i < list.size(); i++) {
-				Host host = list.get(i);				
-				// inform VMs to update processing
-				double time = host.updateVmsProcessing(CloudSim.clock());
-				
-				// what time do we expect that the next cloudlet will finish?
-				if (time < smallestTime) {
-					smallestTime = time;
+
+			if ((parallelism > 1) && (list.size() > 1)) {
+				smallestTime = updateHostsInParallel(list);
+
+			} else {
+				// for each host...
+				for (int i = 0; i < list.size(); i++) {
+					Host host = list.get(i);
+					// inform VMs to update processing
+					double time = host.updateVmsProcessing(CloudSim.clock());
+
+					// what time do we expect that the next cloudlet will finish?
+					if (time < smallestTime) {
+						smallestTime = time;
+					}
 				}
 			}
+			flushNetworkInterfaces();
 			
 			// smallestTime == Double.MAX_VALUE when there are no cloudlets to be executed
 			// (it happens in the beginning and at the end of simulation)
 			if (smallestTime != Double.MAX_VALUE) {
+				if (eventDriven) {
+					// intervals are never shorter than the scheduling interval, but empty ones are skipped - work
+					// received in between is coalesced into the next update (see wakeUp)
+					smallestTime = Math.max(smallestTime, CloudSim.clock() + this.getSchedulingInterval());
+					nextUpdateTime = smallestTime;
+
 				// guarantee that the next event is sent periodically
-				if (smallestTime > CloudSim.clock() + this.getSchedulingInterval()) {
-					smallestTime = CloudSim.clock() + this.getSchedulingInterval();
+				} else {
+					double interval = (intervalController == null) ? this.getSchedulingInterval() :
+							intervalController.nextInterval(CloudSim.clock(), this.cloudlets);
+					if (smallestTime > CloudSim.clock() + interval) {
+						smallestTime = CloudSim.clock() + interval;
+					}
 				}
 				
 				schedule(getId(), smallestTime - CloudSim.clock(), CloudSimTags.VM_DATACENTER_EVENT);				
@@ -185,4 +481,99 @@ public class CepSimDatacenter extends Datacenter {
 			setLastProcessTime(CloudSim.clock());
 		}
 	}
+
+	/**
+	 * Flushes the buffered network interfaces used by the cloudlets, so that the messages sent during the
+	 * update are delivered in a single batch per destination datacenter.
+	 */
+	private void flushNetworkInterfaces() {
+		Set<BufferedNetworkInterface> flushed = Collections.newSetFromMap(
+				new IdentityHashMap<BufferedNetworkInterface, Boolean>());
+		for (CepQueryCloudlet cloudlet : cloudlets) {
+			NetworkInterface networkInterface = cloudlet.getExecutor().networkInterface();
+			if (networkInterface instanceof DeferredNetworkInterface) {
+				networkInterface = ((DeferredNetworkInterface) networkInterface).getTarget();
+			}
+			if ((networkInterface instanceof BufferedNetworkInterface) &&
+					flushed.add((BufferedNetworkInterface) networkInterface)) {
+				((BufferedNetworkInterface) networkInterface).flush(CloudSim.clock() * 1000);
+			}
+		}
+	}
+
+	/**
+	 * Checks if the metrics of all monitored cloudlets have converged.
+	 * @return true if there is at least one monitored cloudlet and all of them have converged.
+	 */
+	private boolean hasConverged() {
+		boolean monitored = false;
+		for (CepQueryCloudlet cloudlet : cloudlets) {
+			if ((!cloudlet.hasFinished()) && cloudlet.isMonitored()) {
+				if (!cloudlet.hasConverged()) return false;
+				monitored = true;
+			}
+		}
+		return monitored;
+	}
+
+	/**
+	 * Updates the hosts on the work-stealing pool. The network messages sent by each host are recorded and
+	 * sent after all hosts have been updated, following the host order.
+	 * @param hosts List of hosts.
+	 * @return The time at which the next cloudlet event is expected.
+	 */
+	private double updateHostsInParallel(List<? extends Host> hosts) {
+		final double clock = CloudSim.clock();
+
+		List<Callable<Double>> tasks = new ArrayList<>(hosts.size());
+		List<List<Runnable>> deferred = new ArrayList<>(hosts.size());
+		for (final Host host : hosts) {
+			final List<Runnable> calls = new ArrayList<>();
+			deferred.add(calls);
+			tasks.add(new Callable<Double>() {
+				@Override
+				public Double call() {
+					DeferredNetworkInterface.bind(calls);
+					try {
+						return host.updateVmsProcessing(clock);
+					} finally {
+						DeferredNetworkInterface.unbind();
+					}
+				}
+			});
+		}
+
+		if (pool == null) {
+			pool = new ForkJoinPool(parallelism);
+		}
+
+		double smallestTime = Double.MAX_VALUE;
+		try {
+			for (Future<Double> result : pool.invokeAll(tasks)) {
+				double time = result.get();
+				if (time < smallestTime) {
+					smallestTime = time;
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while updating the hosts", e);
+		} catch (ExecutionException e) {
+			throw new IllegalStateException("Error while updating the hosts", e.getCause());
+		}
+
+		for (List<Runnable> calls : deferred) {
+			DeferredNetworkInterface.replay(calls);
+		}
+		return smallestTime;
+	}
+
+	@Override
+	public void shutdownEntity() {
+		if (pool != null) {
+			pool.shutdown();
+			pool = null;
+		}
+		super.shutdownEntity();
+	}
 }
@@ -6,5 +6,21 @@ public class CepSimTags {
 
     public static final int CEP_EVENT_SENT = BASE_VALUE + 10;
 
+    public static final int CEP_EVENT_BATCH_SENT = BASE_VALUE + 11;
+
+    public static final int CEP_CREDIT_SENT = BASE_VALUE + 12;
+
+    public static final int CEP_CLOUDLET_MIGRATE = BASE_VALUE + 13;
+
+    public static final int CEP_QUERY_ADD = BASE_VALUE + 14;
+
+    public static final int CEP_QUERY_REMOVE = BASE_VALUE + 15;
+
+    public static final int AUTOSCALE_SAMPLE = BASE_VALUE + 20;
+
+    public static final int AUTOSCALE_VM_READY = BASE_VALUE + 21;
+
+    public static final int AUTOSCALE_REBALANCE = BASE_VALUE + 22;
+
 
 }
@@ -0,0 +1,93 @@
+package ca.uwo.eng.sel.cepsim.integr;
+
+import java.util.LinkedList;
+
+/**
+ * Autoscaling policy that extrapolates the load instead of reacting to it. A least squares line is fitted
+ * to the utilization and to the backlog of the last samples, and both are predicted at the horizon, which
+ * should be at least the VM provisioning delay. The demand is the predicted utilization multiplied by the
+ * current number of VMs; enough VMs are requested to bring it below the target utilization, and an extra VM
+ * is requested if the backlog is predicted to exceed its limit. VMs are released one at a time, when the
+ * demand fits in fewer VMs and the backlog is predicted to stay within its limit.
+ */
+public class PredictiveAutoscalingPolicy implements AutoscalingPolicy {
+
+    private double targetUtilization;
+    private double maxBacklog; // in events
+    private double horizon;    // in seconds
+    private int window;        // in samples
+
+    private LinkedList<AutoscalingSample> history = new LinkedList<>();
+
+
+    /**
+     * Creates a new policy.
+     * @param targetUtilization Utilization that the VMs should have.
+     * @param maxBacklog Maximum number of queued events.
+     * @param horizon How far in the future the load is predicted (in seconds).
+     * @param window Number of samples used by the prediction.
+     */
+    public PredictiveAutoscalingPolicy(double targetUtilization, double maxBacklog, double horizon, int window) {
+        if ((targetUtilization <= 0) || (targetUtilization > 1)) {
+            throw new IllegalArgumentException("Target utilization must be in (0, 1]");
+        }
+        if (window < 2) {
+            throw new IllegalArgumentException("Window must contain at least two samples");
+        }
+        this.targetUtilization = targetUtilization;
+        this.maxBacklog = maxBacklog;
+        this.horizon = horizon;
+        this.window = window;
+    }
+
+    @Override
+    public int decide(AutoscalingSample sample) {
+        history.addLast(sample);
+        if (history.size() > window) {
+            history.removeFirst();
+        }
+        if (history.size() < window) {
+            return 0;
+        }
+
+        double time = sample.getTime() + horizon;
+        double utilization = Math.max(0.0, predict(time, true));
+        double backlog = Math.max(0.0, predict(time, false));
+
+        int provisioned = sample.getVms() + sample.getPendingVms();
+        int needed = (int) Math.ceil(utilization * sample.getVms() / targetUtilization);
+        if (backlog > maxBacklog) {
+            needed = Math.max(needed, sample.getVms()) + 1;
+        }
+
+        if (needed > provisioned) {
+            history.clear();
+            return needed - provisioned;
+        } else if ((needed < sample.getVms()) && (sample.getPendingVms() == 0) && (backlog <= maxBacklog)) {
+            history.clear();
+            return -1;
+        }
+        return 0;
+    }
+
+    private double predict(double time, boolean utilization) {
+        double n = history.size();
+        double sumX = 0.0, sumY = 0.0, sumXY = 0.0, sumXX = 0.0;
+        for (AutoscalingSample s : history) {
+            double y = (utilization) ? s.getUtilization() : s.getBacklog();
+            sumX += s.getTime();
+            sumY += y;
+            sumXY += s.getTime() * y;
+            sumXX += s.getTime() * s.getTime();
+        }
+
+        double denominator = n * sumXX - sumX * sumX;
+        if (denominator == 0.0) {
+            return sumY / n;
+        }
+        double slope = (n * sumXY - sumX * sumY) / denominator;
+        double intercept = (sumY - slope * sumX) / n;
+        return intercept + slope * time;
+    }
+
+}
@@ -0,0 +1,60 @@
+package ca.uwo.eng.sel.cepsim.integr;
+
+/**
+ * Reactive autoscaling policy. One VM is requested when the utilization is above the upper threshold, the
+ * latency is above its target, or the backlog is above its limit. One VM is released when the utilization is
+ * below the lower threshold and both latency and backlog are within their limits. No decision is made while
+ * VMs are being provisioned or during the cooldown period that follows the last decision.
+ */
+public class ThresholdAutoscalingPolicy implements AutoscalingPolicy {
+
+    private double upperUtilization;
+    private double lowerUtilization;
+    private double maxLatency;  // in ms
+    private double maxBacklog;  // in events
+    private double cooldown;    // in seconds
+
+    private double lastDecision = Double.NEGATIVE_INFINITY;
+
+
+    /**
+     * Creates a new policy.
+     * @param upperUtilization Utilization above which a VM is requested.
+     * @param lowerUtilization Utilization below which a VM is released.
+     * @param maxLatency Latency target (in ms).
+     * @param maxBacklog Maximum number of queued events.
+     * @param cooldown Minimum interval between two decisions (in seconds).
+     */
+    public ThresholdAutoscalingPolicy(double upperUtilization, double lowerUtilization, double maxLatency,
+                                      double maxBacklog, double cooldown) {
+        if ((lowerUtilization < 0) || (upperUtilization <= lowerUtilization)) {
+            throw new IllegalArgumentException("Invalid utilization thresholds");
+        }
+        this.upperUtilization = upperUtilization;
+        this.lowerUtilization = lowerUtilization;
+        this.maxLatency = maxLatency;
+        this.maxBacklog = maxBacklog;
+        this.cooldown = cooldown;
+    }
+
+    @Override
+    public int decide(AutoscalingSample sample) {
+        if ((sample.getPendingVms() > 0) || (sample.getTime() - lastDecision < cooldown)) {
+            return 0;
+        }
+
+        int delta = 0;
+        if ((sample.getUtilization() > upperUtilization) || (sample.getLatency() > maxLatency) ||
+                (sample.getBacklog() > maxBacklog)) {
+            delta = 1;
+        } else if (sample.getUtilization() < lowerUtilization) {
+            delta = -1;
+        }
+
+        if (delta != 0) {
+            lastDecision = sample.getTime();
+        }
+        return delta;
+    }
+
+}
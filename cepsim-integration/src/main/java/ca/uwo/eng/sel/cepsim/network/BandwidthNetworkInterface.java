@@ -0,0 +1,243 @@
+package ca.uwo.eng.sel.cepsim.network;
+
+import ca.uwo.eng.sel.cepsim.event.EventSet;
+import ca.uwo.eng.sel.cepsim.integr.CepSimBroker;
+import ca.uwo.eng.sel.cepsim.integr.CepSimTags;
+import ca.uwo.eng.sel.cepsim.query.InputVertex;
+import ca.uwo.eng.sel.cepsim.query.OutputVertex;
+import ca.uwo.eng.sel.cepsim.query.Vertex;
+import org.cloudbus.cloudsim.Vm;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Network interface that models bandwidth and contention. Each message is first transferred through the
+ * outgoing link of the origin VM, whose bandwidth is obtained from the VM definition (in Mbps). If the
+ * destination is located in a different datacenter, the message is also transferred through the outgoing
+ * link of the origin datacenter (if its bandwidth has been set), and the latency between the datacenters
+ * is added to the delivery time. Credits are small control messages, so they are only subject to the latency.
+ * <p>
+ * Under the FAIR policy, a message can be postponed by messages sent later that share the same links. In this
+ * case, the message scheduled for delivery is cancelled and a new one is scheduled with the updated timestamp.
+ * Only the finish time on the last link is tracked - the datacenter link transfer starts at the finish time
+ * projected for the VM link when the message is sent. Events created through the {@link NetworkEventFactory}
+ * interface are not tracked.
+ */
+public class BandwidthNetworkInterface implements NetworkInterface, NetworkEventFactory {
+
+    private CepSimBroker broker;
+    private double defaultEventSize; // in bytes
+    private double defaultLatency; // in seconds
+    private NetworkLink.SharingPolicy policy;
+
+    private Map<Vertex, Double> eventSizes = new HashMap<>();
+    private Map<Integer, Double> datacenterBandwidths = new HashMap<>();
+    private Map<Integer, Map<Integer, Double>> latencies = new HashMap<>();
+
+    private Map<Integer, NetworkLink> vmLinks = new HashMap<>();
+    private Map<Integer, NetworkLink> datacenterLinks = new HashMap<>();
+
+    /** Messages whose transfers are still pending - used by the FAIR policy. */
+    private List<Delivery> deliveries = new LinkedList<>();
+
+    /** Message scheduled for delivery and the transfer that determines its delivery time. */
+    private static class Delivery {
+        private NetworkLink.Transfer transfer;
+        private CepNetworkEvent netEvent;
+        private Integer destDatacenterId;
+        private double latency;
+
+        private Delivery(NetworkLink.Transfer transfer, CepNetworkEvent netEvent, Integer destDatacenterId,
+                         double latency) {
+            this.transfer = transfer;
+            this.netEvent = netEvent;
+            this.destDatacenterId = destDatacenterId;
+            this.latency = latency;
+        }
+    }
+
+
+    public BandwidthNetworkInterface(CepSimBroker broker, double defaultEventSize, double defaultLatency,
+                                     NetworkLink.SharingPolicy policy) {
+        this.broker = broker;
+        this.defaultEventSize = defaultEventSize;
+        this.defaultLatency = defaultLatency;
+        this.policy = policy;
+    }
+
+    public BandwidthNetworkInterface(CepSimBroker broker, double defaultEventSize, double defaultLatency) {
+        this(broker, defaultEventSize, defaultLatency, NetworkLink.SharingPolicy.FIFO);
+    }
+
+
+    /**
+     * Sets the size of the events emitted by a vertex.
+     * @param v Vertex.
+     * @param bytes Event size (in bytes).
+     */
+    public void setEventSize(Vertex v, double bytes) {
+        eventSizes.put(v, bytes);
+    }
+
+    public double getEventSize(Vertex v) {
+        Double size = eventSizes.get(v);
+        return (size == null) ? defaultEventSize : size;
+    }
+
+    /**
+     * Sets the bandwidth of the link connecting a datacenter to the other datacenters.
+     * @param datacenterId Datacenter id.
+     * @param bandwidth Link bandwidth (in Mbps).
+     */
+    public void setDatacenterBandwidth(int datacenterId, double bandwidth) {
+        datacenterBandwidths.put(datacenterId, bandwidth);
+        datacenterLinks.remove(datacenterId);
+    }
+
+    /**
+     * Sets the latency between two datacenters. Latencies are not symmetric, so both directions must be set.
+     * @param fromDatacenterId Origin datacenter id.
+     * @param toDatacenterId Destination datacenter id.
+     * @param latency Latency (in seconds).
+     */
+    public void setLatency(int fromDatacenterId, int toDatacenterId, double latency) {
+        Map<Integer, Double> row = latencies.get(fromDatacenterId);
+        if (row == null) {
+            row = new HashMap<>();
+            latencies.put(fromDatacenterId, row);
+        }
+        row.put(toDatacenterId, latency);
+    }
+
+    public double getLatency(int fromDatacenterId, int toDatacenterId) {
+        Map<Integer, Double> row = latencies.get(fromDatacenterId);
+        Double latency = (row == null) ? null : row.get(toDatacenterId);
+        return (latency == null) ? defaultLatency : latency;
+    }
+
+
+    @Override
+    public void sendMessage(double timestamp, OutputVertex orig, InputVertex dest, EventSet eventSet) {
+        Vm origVm = broker.getVmAllocation(orig);
+        Vm destVm = broker.getVmAllocation(dest);
+
+        Integer origDatacenterId = broker.getDatacenterId(origVm);
+        Integer destDatacenterId = broker.getDatacenterId(destVm);
+
+        double start = timestamp / 1000.0; // transform to seconds
+        double latency = getLatency(origDatacenterId, destDatacenterId);
+        NetworkLink.Transfer transfer = transfer(start, orig, dest, eventSet, origVm, origDatacenterId,
+                destDatacenterId);
+
+        CepNetworkEvent netEvent = new CepNetworkEvent(start, orig, transfer.getFinishTime() + latency, dest, eventSet);
+
+        // destination, delay, tag, content
+        broker.schedule(destDatacenterId, netEvent.getDestTimestamp() - netEvent.getOrigTimestamp(),
+                CepSimTags.CEP_EVENT_SENT, netEvent);
+
+        if (policy == NetworkLink.SharingPolicy.FAIR) {
+            reschedule(start);
+            deliveries.add(new Delivery(transfer, netEvent, destDatacenterId, latency));
+        }
+    }
+
+    @Override
+    public void sendCredits(double timestamp, InputVertex orig, OutputVertex dest, double credits) {
+        Vm destVm = broker.getVmAllocation(dest);
+        Integer destDatacenterId = broker.getDatacenterId(destVm);
+
+        CepCreditEvent creditEvent = createCreditEvent(timestamp, orig, dest, credits);
+        broker.schedule(destDatacenterId, creditEvent.getDestTimestamp() - creditEvent.getOrigTimestamp(),
+                CepSimTags.CEP_CREDIT_SENT, creditEvent);
+    }
+
+    @Override
+    public CepNetworkEvent createEvent(double timestamp, OutputVertex orig, InputVertex dest, EventSet eventSet) {
+        Vm origVm = broker.getVmAllocation(orig);
+        Vm destVm = broker.getVmAllocation(dest);
+
+        Integer origDatacenterId = broker.getDatacenterId(origVm);
+        Integer destDatacenterId = broker.getDatacenterId(destVm);
+
+        double start = timestamp / 1000.0; // transform to seconds
+        double end = transfer(start, orig, dest, eventSet, origVm, origDatacenterId, destDatacenterId).getFinishTime();
+        end += getLatency(origDatacenterId, destDatacenterId);
+
+        return new CepNetworkEvent(start, orig, end, dest, eventSet);
+    }
+
+    @Override
+    public CepCreditEvent createCreditEvent(double timestamp, InputVertex orig, OutputVertex dest, double credits) {
+        Integer origDatacenterId = broker.getDatacenterId(broker.getVmAllocation(orig));
+        Integer destDatacenterId = broker.getDatacenterId(broker.getVmAllocation(dest));
+
+        double start = timestamp / 1000.0; // transform to seconds
+        return new CepCreditEvent(start, orig, start + getLatency(origDatacenterId, destDatacenterId), dest, credits);
+    }
+
+
+    private NetworkLink.Transfer transfer(double start, OutputVertex orig, InputVertex dest, EventSet eventSet,
+                                          Vm origVm, Integer origDatacenterId, Integer destDatacenterId) {
+        // events of all query instances represented by the vertex are transferred
+        double bytes = eventSet.size() * Math.max(orig.multiplicity(), 1) * getEventSize(orig);
+        NetworkFlow flow = new NetworkFlow(orig, dest);
+
+        NetworkLink.Transfer transfer = getVmLink(origVm).submit(start, flow, bytes);
+        if (!origDatacenterId.equals(destDatacenterId)) {
+            NetworkLink datacenterLink = getDatacenterLink(origDatacenterId);
+            if (datacenterLink != null) {
+                transfer = datacenterLink.submit(transfer.getFinishTime(), flow, bytes);
+            }
+        }
+        return transfer;
+    }
+
+    /**
+     * Re-schedules the messages postponed by a new transfer, and discards the ones already transferred.
+     * @param timestamp Timestamp of the new transfer (in seconds).
+     */
+    private void reschedule(double timestamp) {
+        Iterator<Delivery> it = deliveries.iterator();
+        while (it.hasNext()) {
+            Delivery delivery = it.next();
+            double destTimestamp = delivery.transfer.getFinishTime() + delivery.latency;
+
+            if (destTimestamp != delivery.netEvent.getDestTimestamp()) {
+                CepNetworkEvent old = delivery.netEvent;
+                old.cancel();
+
+                delivery.netEvent = new CepNetworkEvent(old.getOrigTimestamp(), old.getOrig(), destTimestamp,
+                        old.getDest(), old.getEventSet());
+                broker.schedule(delivery.destDatacenterId, destTimestamp - timestamp, CepSimTags.CEP_EVENT_SENT,
+                        delivery.netEvent);
+            }
+            if (delivery.transfer.getFinishTime() <= timestamp) {
+                it.remove();
+            }
+        }
+    }
+
+    private NetworkLink getVmLink(Vm vm) {
+        NetworkLink link = vmLinks.get(vm.getId());
+        if (link == null) {
+            link = new NetworkLink(vm.getBw(), policy);
+            vmLinks.put(vm.getId(), link);
+        }
+        return link;
+    }
+
+    private NetworkLink getDatacenterLink(Integer datacenterId) {
+        NetworkLink link = datacenterLinks.get(datacenterId);
+        if ((link == null) && (datacenterBandwidths.containsKey(datacenterId))) {
+            link = new NetworkLink(datacenterBandwidths.get(datacenterId), policy);
+            datacenterLinks.put(datacenterId, link);
+        }
+        return link;
+    }
+
+
+}
@@ -0,0 +1,134 @@
+package ca.uwo.eng.sel.cepsim.network;
+
+import ca.uwo.eng.sel.cepsim.event.EventSet;
+import ca.uwo.eng.sel.cepsim.integr.CepSimBroker;
+import ca.uwo.eng.sel.cepsim.integr.CepSimTags;
+import ca.uwo.eng.sel.cepsim.query.InputVertex;
+import ca.uwo.eng.sel.cepsim.query.OutputVertex;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Network interface that batches the events sent during a simulation tick. Event sets sent between the
+ * same pair of vertices are coalesced into a single event set, and a single CloudSim event is scheduled for
+ * each destination datacenter when the interface is flushed by the datacenter at the end of the tick. The
+ * delivery time of each coalesced event set is calculated by a NetworkEventFactory, using the send timestamps
+ * averaged by the number of events sent, so that the average latency of the events is preserved.
+ * Credits sent between the same pair of vertices are also added up and sent in the same batches.
+ */
+public class BatchingNetworkInterface implements BufferedNetworkInterface {
+
+    private CepSimBroker broker;
+    private NetworkEventFactory factory;
+
+    private Map<NetworkFlow, EventSet> pending = new LinkedHashMap<>();
+    private Map<NetworkFlow, Double> sendTimestamps = new LinkedHashMap<>();
+
+    // credits are indexed by the flow of events they refer to, i.e., the flow origin receives the credits
+    private Map<NetworkFlow, Double> pendingCredits = new LinkedHashMap<>();
+    private Map<NetworkFlow, Double> creditTimestamps = new LinkedHashMap<>();
+
+
+    public BatchingNetworkInterface(CepSimBroker broker, NetworkEventFactory factory) {
+        this.broker = broker;
+        this.factory = factory;
+    }
+
+    @Override
+    public void sendMessage(double timestamp, OutputVertex orig, InputVertex dest, EventSet eventSet) {
+        NetworkFlow flow = new NetworkFlow(orig, dest);
+
+        EventSet coalesced = pending.get(flow);
+        if (coalesced == null) {
+            coalesced = EventSet.empty();
+            pending.put(flow, coalesced);
+        }
+        sendTimestamps.put(flow, average(sendTimestamps.get(flow), coalesced.size(), timestamp, eventSet.size()));
+        coalesced.add(eventSet, 1.0);
+    }
+
+    @Override
+    public void sendCredits(double timestamp, InputVertex orig, OutputVertex dest, double credits) {
+        NetworkFlow flow = new NetworkFlow(dest, orig);
+
+        Double total = pendingCredits.get(flow);
+        creditTimestamps.put(flow, average(creditTimestamps.get(flow), (total == null) ? 0.0 : total,
+                timestamp, credits));
+        pendingCredits.put(flow, (total == null) ? credits : total + credits);
+    }
+
+    @Override
+    public void flush(double timestamp) {
+        Map<Integer, CepNetworkBatch> batches = new LinkedHashMap<>();
+        Map<Integer, Double> firstArrivals = new LinkedHashMap<>();
+
+        for (Map.Entry<NetworkFlow, EventSet> entry : pending.entrySet()) {
+            NetworkFlow flow = entry.getKey();
+            CepNetworkEvent netEvent = factory.createEvent(sendTimestamps.get(flow), flow.getOrig(),
+                    flow.getDest(), entry.getValue());
+
+            Integer datacenterId = broker.getDatacenterId(broker.getVmAllocation(flow.getDest()));
+            getBatch(batches, datacenterId).getEvents().add(netEvent);
+            updateFirstArrival(firstArrivals, datacenterId, netEvent.getDestTimestamp());
+        }
+
+        for (Map.Entry<NetworkFlow, Double> entry : pendingCredits.entrySet()) {
+            NetworkFlow flow = entry.getKey();
+            CepCreditEvent creditEvent = factory.createCreditEvent(creditTimestamps.get(flow), flow.getDest(),
+                    flow.getOrig(), entry.getValue());
+
+            Integer datacenterId = broker.getDatacenterId(broker.getVmAllocation(flow.getOrig()));
+            getBatch(batches, datacenterId).getCredits().add(creditEvent);
+            updateFirstArrival(firstArrivals, datacenterId, creditEvent.getDestTimestamp());
+        }
+
+        pending.clear();
+        sendTimestamps.clear();
+        pendingCredits.clear();
+        creditTimestamps.clear();
+
+        // the batch is delivered when its first event arrives at the destination
+        double now = timestamp / 1000.0; // transform to seconds
+        for (Map.Entry<Integer, CepNetworkBatch> entry : batches.entrySet()) {
+            double first = firstArrivals.get(entry.getKey());
+
+            // destination, delay, tag, content
+            broker.schedule(entry.getKey(), Math.max(0.0, first - now), CepSimTags.CEP_EVENT_BATCH_SENT,
+                    entry.getValue());
+        }
+    }
+
+    /**
+     * Calculates the send timestamp of a coalesced event set, weighted by the amount sent at each timestamp.
+     * @param current Current send timestamp, or null if nothing has been sent.
+     * @param currentAmount Amount already coalesced.
+     * @param timestamp Timestamp of the new message.
+     * @param amount Amount sent in the new message.
+     * @return Weighted send timestamp.
+     */
+    private double average(Double current, double currentAmount, double timestamp, double amount) {
+        if ((current == null) || (currentAmount + amount <= 0)) {
+            return (current == null) ? timestamp : current;
+        }
+        return (current * currentAmount + timestamp * amount) / (currentAmount + amount);
+    }
+
+    private CepNetworkBatch getBatch(Map<Integer, CepNetworkBatch> batches, Integer datacenterId) {
+        CepNetworkBatch batch = batches.get(datacenterId);
+        if (batch == null) {
+            batch = new CepNetworkBatch(new ArrayList<CepNetworkEvent>(), new ArrayList<CepCreditEvent>());
+            batches.put(datacenterId, batch);
+        }
+        return batch;
+    }
+
+    private void updateFirstArrival(Map<Integer, Double> firstArrivals, Integer datacenterId, double arrival) {
+        Double first = firstArrivals.get(datacenterId);
+        if ((first == null) || (arrival < first)) {
+            firstArrivals.put(datacenterId, arrival);
+        }
+    }
+
+}
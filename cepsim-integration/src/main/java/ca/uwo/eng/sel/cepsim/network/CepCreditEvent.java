@@ -0,0 +1,93 @@
+package ca.uwo.eng.sel.cepsim.network;
+
+import ca.uwo.eng.sel.cepsim.query.InputVertex;
+import ca.uwo.eng.sel.cepsim.query.OutputVertex;
+
+import java.io.Serializable;
+
+/**
+ * Credits sent by a bounded vertex to a remote predecessor, indicating how many more events can be sent.
+ */
+public class CepCreditEvent implements Comparable<CepCreditEvent>, Serializable {
+
+    private double origTimestamp;
+    private double destTimestamp;
+    private InputVertex orig;
+    private OutputVertex dest;
+    private double credits;
+
+    public CepCreditEvent(double origTimestamp, InputVertex orig, double destTimestamp, OutputVertex dest,
+                          double credits) {
+        this.origTimestamp = origTimestamp;
+        this.destTimestamp = destTimestamp;
+        this.orig = orig;
+        this.dest = dest;
+        this.credits = credits;
+    }
+
+    public double getOrigTimestamp() {
+        return origTimestamp;
+    }
+
+    public InputVertex getOrig() {
+        return orig;
+    }
+
+    public double getDestTimestamp() {
+        return destTimestamp;
+    }
+
+    public OutputVertex getDest() {
+        return dest;
+    }
+
+    public double getCredits() {
+        return credits;
+    }
+
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        CepCreditEvent that = (CepCreditEvent) o;
+
+        if (Double.compare(that.destTimestamp, destTimestamp) != 0) return false;
+        if (Double.compare(that.origTimestamp, origTimestamp) != 0) return false;
+        if (Double.compare(that.credits, credits) != 0) return false;
+        if (!dest.equals(that.dest)) return false;
+        if (!orig.equals(that.orig)) return false;
+
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        int result;
+        long temp;
+        temp = Double.doubleToLongBits(origTimestamp);
+        result = (int) (temp ^ (temp >>> 32));
+        temp = Double.doubleToLongBits(destTimestamp);
+        result = 31 * result + (int) (temp ^ (temp >>> 32));
+        temp = Double.doubleToLongBits(credits);
+        result = 31 * result + (int) (temp ^ (temp >>> 32));
+        result = 31 * result + orig.hashCode();
+        result = 31 * result + dest.hashCode();
+        return result;
+    }
+
+    @Override
+    public int compareTo(CepCreditEvent o) {
+        int ret = Double.compare(this.destTimestamp, o.destTimestamp);
+        if (ret != 0) return ret;
+
+        ret =  Double.compare(this.origTimestamp, o.origTimestamp);
+        if (ret != 0) return ret;
+
+        ret = this.orig.compare(o.orig);
+        if (ret != 0) return ret;
+
+        return this.dest.compare(o.dest);
+    }
+}
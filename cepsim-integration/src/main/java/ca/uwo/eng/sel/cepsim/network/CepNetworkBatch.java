@@ -0,0 +1,44 @@
+package ca.uwo.eng.sel.cepsim.network;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Batch of network and credit events sent to the same datacenter.
+ */
+public class CepNetworkBatch {
+
+    private List<CepNetworkEvent> events;
+    private List<CepCreditEvent> credits;
+
+    public CepNetworkBatch(List<CepNetworkEvent> events, List<CepCreditEvent> credits) {
+        this.events = events;
+        this.credits = credits;
+    }
+
+    public CepNetworkBatch(List<CepNetworkEvent> events) {
+        this(events, Collections.<CepCreditEvent>emptyList());
+    }
+
+    public List<CepNetworkEvent> getEvents() {
+        return events;
+    }
+
+    public List<CepCreditEvent> getCredits() {
+        return credits;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        CepNetworkBatch that = (CepNetworkBatch) o;
+        return events.equals(that.events) && credits.equals(that.credits);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * events.hashCode() + credits.hashCode();
+    }
+}
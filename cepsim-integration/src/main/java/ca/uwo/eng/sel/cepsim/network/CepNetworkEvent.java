@@ -4,16 +4,19 @@ import ca.uwo.eng.sel.cepsim.event.EventSet;
 import ca.uwo.eng.sel.cepsim.query.InputVertex;
 import ca.uwo.eng.sel.cepsim.query.OutputVertex;
 
+import java.io.Serializable;
+
 /**
  * Created by virso on 2014-11-11.
  */
-public class CepNetworkEvent implements Comparable<CepNetworkEvent> {
+public class CepNetworkEvent implements Comparable<CepNetworkEvent>, Serializable {
 
     private double origTimestamp;
     private double destTimestamp;
     private OutputVertex orig;
     private InputVertex dest;
     private EventSet eventSet;
+    private boolean cancelled = false;
 
     public CepNetworkEvent(double origTimestamp, OutputVertex orig, double destTimestamp, InputVertex dest,
                            EventSet eventSet) {
@@ -44,6 +47,17 @@ public class CepNetworkEvent implements Comparable<CepNetworkEvent> {
         return eventSet;
     }
 
+    /**
+     * Marks the event as cancelled - it has been replaced by another event with a different delivery time.
+     */
+    public void cancel() {
+        this.cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
 
     @Override
     public boolean equals(Object o) {
@@ -0,0 +1,101 @@
+package ca.uwo.eng.sel.cepsim.network;
+
+import ca.uwo.eng.sel.cepsim.event.EventSet;
+import ca.uwo.eng.sel.cepsim.query.InputVertex;
+import ca.uwo.eng.sel.cepsim.query.OutputVertex;
+
+import java.util.List;
+
+/**
+ * Network interface that defers the messages sent by a placement executor while the cloudlets are updated in
+ * parallel. If a list of calls has been bound to the current thread, the messages, credits and flushes are
+ * recorded into it and applied to the wrapped interface only when the list is replayed. Otherwise, they are
+ * forwarded to the wrapped interface immediately.
+ */
+public class DeferredNetworkInterface implements BufferedNetworkInterface {
+
+    private static final ThreadLocal<List<Runnable>> CALLS = new ThreadLocal<>();
+
+    private NetworkInterface target;
+
+
+    public DeferredNetworkInterface(NetworkInterface target) {
+        this.target = target;
+    }
+
+    public NetworkInterface getTarget() {
+        return target;
+    }
+
+    /**
+     * Binds a list to the current thread. Calls made from this thread are recorded into the list until
+     * the unbind method is invoked.
+     * @param calls List that records the calls.
+     */
+    public static void bind(List<Runnable> calls) {
+        CALLS.set(calls);
+    }
+
+    /**
+     * Removes the list bound to the current thread.
+     */
+    public static void unbind() {
+        CALLS.remove();
+    }
+
+    /**
+     * Applies the recorded calls to their network interfaces, in the order they have been recorded.
+     * @param calls List of recorded calls.
+     */
+    public static void replay(List<Runnable> calls) {
+        for (Runnable call : calls) {
+            call.run();
+        }
+        calls.clear();
+    }
+
+
+    @Override
+    public void sendMessage(final double timestamp, final OutputVertex orig, final InputVertex dest,
+                            final EventSet eventSet) {
+        defer(new Runnable() {
+            @Override
+            public void run() {
+                target.sendMessage(timestamp, orig, dest, eventSet);
+            }
+        });
+    }
+
+    @Override
+    public void sendCredits(final double timestamp, final InputVertex orig, final OutputVertex dest,
+                            final double credits) {
+        defer(new Runnable() {
+            @Override
+            public void run() {
+                target.sendCredits(timestamp, orig, dest, credits);
+            }
+        });
+    }
+
+    @Override
+    public void flush(final double timestamp) {
+        if (target instanceof BufferedNetworkInterface) {
+            defer(new Runnable() {
+                @Override
+                public void run() {
+                    ((BufferedNetworkInterface) target).flush(timestamp);
+                }
+            });
+        }
+    }
+
+    private void defer(Runnable call) {
+        List<Runnable> calls = CALLS.get();
+        if (calls == null) {
+            call.run();
+        } else {
+            calls.add(call);
+        }
+    }
+
+}
@@ -10,7 +10,7 @@ import org.cloudbus.cloudsim.Vm;
 /**
  * Created by virso on 2014-11-10.
  */
-public class FixedDelayNetworkInterface implements NetworkInterface {
+public class FixedDelayNetworkInterface implements NetworkInterface, NetworkEventFactory {
 
     private CepSimBroker broker;
     private double delay; // in seconds
@@ -24,13 +24,32 @@ public class FixedDelayNetworkInterface implements NetworkInterface {
     @Override
     public void sendMessage(double timestamp, OutputVertex orig, InputVertex dest, EventSet eventSet) {
         Vm destVm = broker.getVmAllocation(dest);
-
         Integer datacenterId = broker.getDatacenterId(destVm);
-        double start = timestamp / 1000.0; // transform to seconds
 
         // destination, delay, tag, content
         broker.schedule(datacenterId, this.delay, CepSimTags.CEP_EVENT_SENT,
-                new CepNetworkEvent(start, orig, start + this.delay, dest, eventSet));
+                createEvent(timestamp, orig, dest, eventSet));
+    }
+
+    @Override
+    public void sendCredits(double timestamp, InputVertex orig, OutputVertex dest, double credits) {
+        Vm destVm = broker.getVmAllocation(dest);
+        Integer datacenterId = broker.getDatacenterId(destVm);
+
+        broker.schedule(datacenterId, this.delay, CepSimTags.CEP_CREDIT_SENT,
+                createCreditEvent(timestamp, orig, dest, credits));
+    }
+
+    @Override
+    public CepNetworkEvent createEvent(double timestamp, OutputVertex orig, InputVertex dest, EventSet eventSet) {
+        double start = timestamp / 1000.0; // transform to seconds
+        return new CepNetworkEvent(start, orig, start + this.delay, dest, eventSet);
+    }
+
+    @Override
+    public CepCreditEvent createCreditEvent(double timestamp, InputVertex orig, OutputVertex dest, double credits) {
+        double start = timestamp / 1000.0; // transform to seconds
+        return new CepCreditEvent(start, orig, start + this.delay, dest, credits);
     }
 
 }
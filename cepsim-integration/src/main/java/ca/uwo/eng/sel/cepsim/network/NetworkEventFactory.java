@@ -0,0 +1,31 @@
+package ca.uwo.eng.sel.cepsim.network;
+
+import ca.uwo.eng.sel.cepsim.event.EventSet;
+import ca.uwo.eng.sel.cepsim.query.InputVertex;
+import ca.uwo.eng.sel.cepsim.query.OutputVertex;
+
+/**
+ * Calculates the delivery time of the events sent to remote vertices.
+ */
+public interface NetworkEventFactory {
+
+    /**
+     * Creates the network event that represents events being sent to a remote vertex.
+     * @param timestamp Timestamp at which the events have been sent (in ms).
+     * @param orig Origin vertex.
+     * @param dest Destination vertex.
+     * @param eventSet Event set that has been sent.
+     * @return Network event containing the delivery time (in seconds).
+     */
+    CepNetworkEvent createEvent(double timestamp, OutputVertex orig, InputVertex dest, EventSet eventSet);
+
+    /**
+     * Creates the credit event that represents credits being sent to a remote vertex.
+     * @param timestamp Timestamp at which the credits have been sent (in ms).
+     * @param orig Origin (bounded) vertex.
+     * @param dest Destination vertex.
+     * @param credits Number of credits.
+     * @return Credit event containing the delivery time (in seconds).
+     */
+    CepCreditEvent createCreditEvent(double timestamp, InputVertex orig, OutputVertex dest, double credits);
+}
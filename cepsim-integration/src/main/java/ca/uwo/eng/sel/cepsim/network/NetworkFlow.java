@@ -0,0 +1,40 @@
+package ca.uwo.eng.sel.cepsim.network;
+
+import ca.uwo.eng.sel.cepsim.query.InputVertex;
+import ca.uwo.eng.sel.cepsim.query.OutputVertex;
+
+/**
+ * Identifies the flow of messages between two vertices.
+ */
+public class NetworkFlow {
+
+    private OutputVertex orig;
+    private InputVertex dest;
+
+    public NetworkFlow(OutputVertex orig, InputVertex dest) {
+        this.orig = orig;
+        this.dest = dest;
+    }
+
+    public OutputVertex getOrig() {
+        return orig;
+    }
+
+    public InputVertex getDest() {
+        return dest;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        NetworkFlow that = (NetworkFlow) o;
+        return orig.equals(that.orig) && dest.equals(that.dest);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * orig.hashCode() + dest.hashCode();
+    }
+}
@@ -0,0 +1,221 @@
+package ca.uwo.eng.sel.cepsim.network;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Simulated network link with limited bandwidth. Transfers are queued on the link and their completion
+ * time accounts for the serialization delay and for the time waiting behind other transfers.
+ */
+public class NetworkLink {
+
+    /** Policy used to share the link among concurrent transfers. */
+    public enum SharingPolicy {
+        /** Transfers are serialized in the order they are submitted. */
+        FIFO,
+        /**
+         * Processor sharing - the bandwidth is equally divided among the flows that have pending transfers.
+         * Transfers of the same flow are serialized. The finish times of the pending transfers are recalculated
+         * whenever a transfer is submitted or finishes, so they can be postponed by later submissions.
+         */
+        FAIR
+    }
+
+    /** A transfer submitted to the link. */
+    public static class Transfer {
+
+        private Object flow;
+        private double remaining; // in bits
+        private double finishTime; // in seconds
+
+        private Transfer(Object flow, double bits) {
+            this.flow = flow;
+            this.remaining = bits;
+        }
+
+        public Object getFlow() {
+            return flow;
+        }
+
+        /**
+         * Obtains the timestamp at which the transfer finishes. Under the FAIR policy, this is the finish time
+         * projected from the transfers submitted so far.
+         * @return Finish timestamp (in seconds).
+         */
+        public double getFinishTime() {
+            return finishTime;
+        }
+    }
+
+    /** Remaining amounts smaller than this (in bits) are considered transferred - avoids rounding residues. */
+    private static final double EPSILON = 1e-6;
+
+    private double bandwidth; // in Mbps
+    private SharingPolicy policy;
+
+    /** Timestamp (in seconds) at which the link becomes idle - used by the FIFO policy. */
+    private double busyUntil = 0.0;
+
+    /** Timestamp (in seconds) up to which the FAIR transfers have been advanced. */
+    private double clock = 0.0;
+
+    /** Pending transfers of each flow, in submission order - used by the FAIR policy. */
+    private Map<Object, LinkedList<Transfer>> flows = new LinkedHashMap<>();
+
+
+    public NetworkLink(double bandwidth, SharingPolicy policy) {
+        if (bandwidth <= 0) {
+            throw new IllegalArgumentException("Link bandwidth must be positive");
+        }
+        this.bandwidth = bandwidth;
+        this.policy = policy;
+    }
+
+    public double getBandwidth() {
+        return bandwidth;
+    }
+
+    public SharingPolicy getPolicy() {
+        return policy;
+    }
+
+    /**
+     * Submits a new transfer to the link.
+     * @param timestamp Timestamp at which the transfer is submitted (in seconds).
+     * @param flow Object that identifies the flow to which the transfer belongs.
+     * @param bytes Number of bytes to be transferred.
+     * @return Timestamp at which the transfer finishes (in seconds).
+     */
+    public double transfer(double timestamp, Object flow, double bytes) {
+        return submit(timestamp, flow, bytes).getFinishTime();
+    }
+
+    /**
+     * Submits a new transfer to the link. Under the FAIR policy, the finish times of the transfers that are
+     * still pending are updated to account for the new one. A transfer submitted before the last submission
+     * (out of order) starts at the timestamp of the last submission.
+     * @param timestamp Timestamp at which the transfer is submitted (in seconds).
+     * @param flow Object that identifies the flow to which the transfer belongs.
+     * @param bytes Number of bytes to be transferred.
+     * @return The submitted transfer.
+     */
+    public Transfer submit(double timestamp, Object flow, double bytes) {
+        Transfer transfer = new Transfer(flow, bytes * 8);
+
+        if (policy == SharingPolicy.FIFO) {
+            double start = Math.max(timestamp, busyUntil);
+            busyUntil = start + transfer.remaining / (bandwidth * 1000000);
+            transfer.remaining = 0;
+            transfer.finishTime = busyUntil;
+            return transfer;
+        }
+
+        advance(Math.max(timestamp, clock));
+
+        LinkedList<Transfer> pending = flows.get(flow);
+        if (pending == null) {
+            pending = new LinkedList<>();
+            flows.put(flow, pending);
+        }
+        pending.add(transfer);
+
+        project();
+        return transfer;
+    }
+
+    /**
+     * Obtains the transfers that are still pending at the last submission.
+     * @return List of pending transfers.
+     */
+    public List<Transfer> getPendingTransfers() {
+        List<Transfer> pending = new ArrayList<>();
+        for (LinkedList<Transfer> transfers : flows.values()) {
+            pending.addAll(transfers);
+        }
+        return pending;
+    }
+
+
+    /**
+     * Serves the pending transfers up to the informed timestamp. Between two completions, the bandwidth is
+     * equally divided among the flows, and only the first pending transfer of each flow is served.
+     * @param timestamp Timestamp (in seconds).
+     */
+    private void advance(double timestamp) {
+        while ((!flows.isEmpty()) && (clock < timestamp)) {
+            double rate = bandwidth * 1000000 / flows.size();
+            double served = Math.min(minHeadRemaining(), rate * (timestamp - clock));
+
+            clock = Math.min(timestamp, clock + served / rate);
+            serveHeads(served, null);
+        }
+        clock = timestamp;
+    }
+
+    /**
+     * Calculates the finish time of all pending transfers, assuming that no other transfer is submitted.
+     */
+    private void project() {
+        Map<Object, LinkedList<Transfer>> saved = new LinkedHashMap<>();
+        Map<Transfer, Double> remaining = new LinkedHashMap<>();
+        for (Map.Entry<Object, LinkedList<Transfer>> entry : flows.entrySet()) {
+            saved.put(entry.getKey(), new LinkedList<>(entry.getValue()));
+            for (Transfer transfer : entry.getValue()) {
+                remaining.put(transfer, transfer.remaining);
+            }
+        }
+
+        double time = clock;
+        while (!flows.isEmpty()) {
+            double rate = bandwidth * 1000000 / flows.size();
+            double served = minHeadRemaining();
+
+            time += served / rate;
+            serveHeads(served, time);
+        }
+
+        // restore the link state
+        flows = saved;
+        for (Map.Entry<Transfer, Double> entry : remaining.entrySet()) {
+            entry.getKey().remaining = entry.getValue();
+        }
+    }
+
+    private double minHeadRemaining() {
+        double min = Double.MAX_VALUE;
+        for (LinkedList<Transfer> pending : flows.values()) {
+            min = Math.min(min, pending.getFirst().remaining);
+        }
+        return min;
+    }
+
+    /**
+     * Serves the same amount of bits from the first pending transfer of each flow, removing the transfers
+     * that finish.
+     * @param bits Amount of bits served from each flow.
+     * @param finishTime Finish time set to the transfers that finish, or null to keep the projected one.
+     */
+    private void serveHeads(double bits, Double finishTime) {
+        Iterator<LinkedList<Transfer>> it = flows.values().iterator();
+        while (it.hasNext()) {
+            LinkedList<Transfer> pending = it.next();
+            Transfer head = pending.getFirst();
+            head.remaining -= bits;
+            if (head.remaining <= EPSILON) {
+                head.remaining = 0;
+                if (finishTime != null) {
+                    head.finishTime = finishTime;
+                }
+                pending.removeFirst();
+                if (pending.isEmpty()) {
+                    it.remove();
+                }
+            }
+        }
+    }
+
+}
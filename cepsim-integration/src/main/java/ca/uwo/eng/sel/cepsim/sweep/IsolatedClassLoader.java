@@ -0,0 +1,83 @@
+package ca.uwo.eng.sel.cepsim.sweep;
+
+import java.io.File;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Class loader that loads its own copy of the application classes instead of delegating to the parent class
+ * loader. Classes from the Java platform are still loaded by the parent. Each instance therefore has its own
+ * static state, which allows multiple CloudSim simulations to run concurrently in the same process.
+ */
+public class IsolatedClassLoader extends URLClassLoader {
+
+    private static final String[] SHARED_PACKAGES = { "java.", "javax.", "sun.", "com.sun.", "org.w3c.", "org.xml." };
+
+    public IsolatedClassLoader(URL[] urls, ClassLoader parent) {
+        super(urls, parent);
+    }
+
+    /**
+     * Creates a class loader that loads the classes from the class path of the current process.
+     * @param parent Class loader of the platform classes.
+     * @return the isolated class loader.
+     */
+    public static IsolatedClassLoader fromClassPath(ClassLoader parent) {
+        return new IsolatedClassLoader(classPath(), parent);
+    }
+
+    /**
+     * Gets the URLs of the class path of the current process. If the class loader of this class is an
+     * URLClassLoader, its URLs are used, otherwise the java.class.path property is parsed.
+     * @return URLs of the class path.
+     */
+    public static URL[] classPath() {
+        ClassLoader loader = IsolatedClassLoader.class.getClassLoader();
+        if (loader instanceof URLClassLoader) {
+            return ((URLClassLoader) loader).getURLs();
+        }
+
+        List<URL> urls = new ArrayList<>();
+        for (String entry : System.getProperty("java.class.path").split(File.pathSeparator)) {
+            try {
+                urls.add(new File(entry).toURI().toURL());
+            } catch (MalformedURLException e) {
+                throw new IllegalStateException("Invalid class path entry: " + entry, e);
+            }
+        }
+        return urls.toArray(new URL[urls.size()]);
+    }
+
+    @Override
+    protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+        if (isShared(name)) {
+            return super.loadClass(name, resolve);
+        }
+
+        synchronized (getClassLoadingLock(name)) {
+            Class<?> c = findLoadedClass(name);
+            if (c == null) {
+                try {
+                    c = findClass(name);
+                } catch (ClassNotFoundException e) {
+                    c = super.loadClass(name, false);
+                }
+            }
+            if (resolve) {
+                resolveClass(c);
+            }
+            return c;
+        }
+    }
+
+    private boolean isShared(String name) {
+        for (String prefix : SHARED_PACKAGES) {
+            if (name.startsWith(prefix)) return true;
+        }
+        return false;
+    }
+
+}
@@ -0,0 +1,119 @@
+package ca.uwo.eng.sel.cepsim.sweep;
+
+import ca.uwo.eng.sel.cepsim.metric.ConvergenceMonitor;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Aggregated results of the replications of one point of a parameter sweep. The values of each metric are
+ * summarized by their mean and the half-width of a Student t confidence interval.
+ */
+public class SweepResult {
+
+    private Map<String, String> parameters;
+    private double confidence;
+    private Map<String, List<Double>> values = new TreeMap<>();
+
+
+    public SweepResult(Map<String, String> parameters, double confidence) {
+        this.parameters = Collections.unmodifiableMap(new LinkedHashMap<>(parameters));
+        this.confidence = confidence;
+    }
+
+    public Map<String, String> getParameters() {
+        return parameters;
+    }
+
+    public double getConfidence() {
+        return confidence;
+    }
+
+    /**
+     * Adds the metrics obtained in one replication.
+     * @param metrics Map from metric names to their values.
+     */
+    void addReplication(Map<String, Double> metrics) {
+        for (Map.Entry<String, Double> entry : metrics.entrySet()) {
+            List<Double> list = values.get(entry.getKey());
+            if (list == null) {
+                list = new ArrayList<>();
+                values.put(entry.getKey(), list);
+            }
+            list.add(entry.getValue());
+        }
+    }
+
+    /**
+     * Gets the names of all metrics obtained in the replications.
+     * @return metric names.
+     */
+    public List<String> getMetrics() {
+        return new ArrayList<>(values.keySet());
+    }
+
+    /**
+     * Gets the values of a metric in all replications.
+     * @param metric Metric name.
+     * @return list of values.
+     */
+    public List<Double> getValues(String metric) {
+        List<Double> list = values.get(metric);
+        return (list == null) ? Collections.<Double>emptyList() : Collections.unmodifiableList(list);
+    }
+
+    /**
+     * Gets the number of replications in which a metric has been obtained.
+     * @param metric Metric name.
+     * @return number of replications.
+     */
+    public int getReplications(String metric) {
+        return getValues(metric).size();
+    }
+
+    /**
+     * Gets the mean of a metric over all replications.
+     * @param metric Metric name.
+     * @return the mean, or NaN if the metric has not been obtained.
+     */
+    public double getMean(String metric) {
+        List<Double> list = getValues(metric);
+        double sum = 0.0;
+        for (double value : list) {
+            sum += value;
+        }
+        return (list.isEmpty()) ? Double.NaN : sum / list.size();
+    }
+
+    /**
+     * Gets the half-width of the confidence interval of the mean of a metric.
+     * @param metric Metric name.
+     * @return the half-width, or infinity if there are less than two replications.
+     */
+    public double getHalfWidth(String metric) {
+        List<Double> list = getValues(metric);
+        int n = list.size();
+        if (n < 2) return Double.POSITIVE_INFINITY;
+
+        double mean = getMean(metric);
+        double sum = 0.0;
+        for (double value : list) {
+            sum += (value - mean) * (value - mean);
+        }
+        double t = ConvergenceMonitor.studentQuantile(1 - (1 - confidence) / 2, n - 1);
+        return t * Math.sqrt(sum / (n - 1) / n);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder(parameters.toString());
+        for (String metric : values.keySet()) {
+            sb.append(String.format(" %s=%.4f(+-%.4f)", metric, getMean(metric), getHalfWidth(metric)));
+        }
+        return sb.toString();
+    }
+}
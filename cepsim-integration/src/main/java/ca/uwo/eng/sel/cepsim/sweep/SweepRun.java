@@ -0,0 +1,24 @@
+package ca.uwo.eng.sel.cepsim.sweep;
+
+import java.util.Map;
+
+/**
+ * A single simulation run of a parameter sweep. Implementations must have a public no-argument constructor. Each
+ * run is executed by a SweepRunner in its own class loader, so the static state of CloudSim and of the
+ * implementation itself is not shared between runs. For the same reason, the parameters and the results can only
+ * use classes from the Java platform.
+ */
+public interface SweepRun {
+
+    /**
+     * Executes the simulation.
+     * @param parameters Map from parameter names to their values in this run.
+     * @param seed Seed of the random number generators used by the run. Replications of the same parameters
+     *             receive different seeds.
+     * @return Map from metric names to the values obtained in this run, such as the latency and throughput of
+     *         each consumer.
+     * @throws Exception if the simulation fails.
+     */
+    Map<String, Double> run(Map<String, String> parameters, long seed) throws Exception;
+
+}
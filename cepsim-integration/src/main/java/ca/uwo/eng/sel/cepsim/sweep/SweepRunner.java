@@ -0,0 +1,178 @@
+package ca.uwo.eng.sel.cepsim.sweep;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Executes the points of a parameter sweep and their replications in parallel. Each run is executed in its own
+ * IsolatedClassLoader, so that runs do not share the static state of CloudSim. The replications of all points
+ * receive the same sequence of seeds, so that the points are compared under the same random numbers.
+ */
+public class SweepRunner {
+
+    private String runClass;
+    private int threads;
+    private double confidence = 0.95;
+
+
+    /**
+     * Creates a runner that uses all available processors.
+     * @param runClass Class of the runs.
+     */
+    public SweepRunner(Class<? extends SweepRun> runClass) {
+        this(runClass, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Creates a runner.
+     * @param runClass Class of the runs.
+     * @param threads Number of runs executed concurrently.
+     */
+    public SweepRunner(Class<? extends SweepRun> runClass, int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("At least one thread is needed");
+        }
+        this.runClass = runClass.getName();
+        this.threads = threads;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public double getConfidence() {
+        return confidence;
+    }
+
+    /**
+     * Sets the confidence level of the intervals calculated for the metrics.
+     * @param confidence Confidence level (between 0 and 1).
+     */
+    public void setConfidence(double confidence) {
+        this.confidence = confidence;
+    }
+
+    /**
+     * Creates the cartesian product of the values of all parameters.
+     * @param parameters Map from parameter names to their values.
+     * @return list of sweep points, in which the first parameter varies the slowest.
+     */
+    public static List<Map<String, String>> grid(Map<String, List<String>> parameters) {
+        List<Map<String, String>> points = new ArrayList<>();
+        points.add(new LinkedHashMap<String, String>());
+        for (Map.Entry<String, List<String>> parameter : parameters.entrySet()) {
+            List<Map<String, String>> expanded = new ArrayList<>();
+            for (Map<String, String> point : points) {
+                for (String value : parameter.getValue()) {
+                    Map<String, String> newPoint = new LinkedHashMap<>(point);
+                    newPoint.put(parameter.getKey(), value);
+                    expanded.add(newPoint);
+                }
+            }
+            points = expanded;
+        }
+        return points;
+    }
+
+    /**
+     * Executes all points of a sweep.
+     * @param points List of sweep points.
+     * @param replications Number of replications of each point.
+     * @param seed Seed from which the seeds of the replications are generated.
+     * @return the aggregated results of each point, in the same order as the points.
+     * @throws InterruptedException if the runner is interrupted.
+     * @throws ExecutionException if any run fails.
+     */
+    public List<SweepResult> run(List<Map<String, String>> points, int replications, long seed)
+            throws InterruptedException, ExecutionException {
+
+        Random random = new Random(seed);
+        long[] seeds = new long[replications];
+        for (int i = 0; i < replications; i++) {
+            seeds[i] = random.nextLong();
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<List<Future<Map<String, Double>>>> futures = new ArrayList<>();
+            for (final Map<String, String> point : points) {
+                List<Future<Map<String, Double>>> pointFutures = new ArrayList<>();
+                for (final long replicationSeed : seeds) {
+                    pointFutures.add(pool.submit(new Callable<Map<String, Double>>() {
+                        @Override
+                        public Map<String, Double> call() throws Exception {
+                            return execute(point, replicationSeed);
+                        }
+                    }));
+                }
+                futures.add(pointFutures);
+            }
+
+            List<SweepResult> results = new ArrayList<>();
+            for (int i = 0; i < points.size(); i++) {
+                SweepResult result = new SweepResult(points.get(i), confidence);
+                for (Future<Map<String, Double>> future : futures.get(i)) {
+                    result.addReplication(future.get());
+                }
+                results.add(result);
+            }
+            return results;
+
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Executes a single run in a new class loader.
+     * @param parameters Parameters of the run.
+     * @param seed Seed of the run.
+     * @return the metrics obtained in the run.
+     * @throws Exception if the run fails.
+     */
+    @SuppressWarnings("unchecked")
+    public Map<String, Double> execute(Map<String, String> parameters, long seed) throws Exception {
+        // platform classes are shared, so the parent is the parent of the application class loader
+        IsolatedClassLoader loader = IsolatedClassLoader.fromClassPath(ClassLoader.getSystemClassLoader().getParent());
+
+        Thread thread = Thread.currentThread();
+        ClassLoader previous = thread.getContextClassLoader();
+        thread.setContextClassLoader(loader);
+        try {
+            Class<?> c = loader.loadClass(runClass);
+            Method method = c.getMethod("run", Map.class, long.class);
+            Object run = c.newInstance();
+            Map<String, Double> metrics = (Map<String, Double>) method.invoke(run,
+                    Collections.unmodifiableMap(new HashMap<>(parameters)), seed);
+            return new HashMap<>(metrics);
+
+        } catch (InvocationTargetException e) {
+            if (e.getCause() instanceof Exception) {
+                throw (Exception) e.getCause();
+            }
+            throw e;
+
+        } finally {
+            thread.setContextClassLoader(previous);
+            try {
+                loader.close();
+            } catch (IOException e) {
+                // the classes have already been loaded
+            }
+        }
+    }
+
+}
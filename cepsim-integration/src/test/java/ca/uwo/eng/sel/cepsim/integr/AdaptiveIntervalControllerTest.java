@@ -0,0 +1,129 @@
+package ca.uwo.eng.sel.cepsim.integr;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.when;
+
+public class AdaptiveIntervalControllerTest {
+
+    @Mock private CepQueryCloudlet cloudlet;
+
+    private List<CepQueryCloudlet> cloudlets;
+    private AdaptiveIntervalController controller;
+
+    @Before
+    public void setup() {
+        MockitoAnnotations.initMocks(this);
+        cloudlets = Collections.singletonList(cloudlet);
+        controller = new AdaptiveIntervalController(0.1, 1.0, 0.1);
+
+        when(cloudlet.getNextWindowBoundary()).thenReturn(Double.MAX_VALUE);
+    }
+
+    private void observe(double queued, double consumed) {
+        when(cloudlet.getQueuedEvents()).thenReturn(queued);
+        when(cloudlet.getConsumedEvents()).thenReturn(consumed);
+    }
+
+    @Test
+    public void testGrowWhenStable() {
+        observe(100.0, 0.0);
+        assertEquals(0.2, controller.nextInterval(0.0, cloudlets), 0.0001);
+
+        observe(100.0, 200.0);
+        assertEquals(0.4, controller.nextInterval(0.2, cloudlets), 0.0001);
+
+        observe(102.0, 400.0);
+        assertEquals(0.8, controller.nextInterval(0.4, cloudlets), 0.0001);
+
+        // limited by the maximum interval
+        observe(103.0, 800.0);
+        assertEquals(1.0, controller.nextInterval(0.8, cloudlets), 0.0001);
+
+        assertEquals(4, controller.getUpdates());
+        assertEquals(0.6, controller.getAverageInterval(), 0.0001);
+    }
+
+    @Test
+    public void testShrinkWhenQueuesDeviate() {
+        observe(100.0, 0.0);
+        controller.nextInterval(0.0, cloudlets);
+        observe(100.0, 200.0);
+        assertEquals(0.4, controller.nextInterval(0.2, cloudlets), 0.0001);
+
+        // 20% - larger than the error budget
+        observe(120.0, 400.0);
+        assertEquals(0.2, controller.nextInterval(0.4, cloudlets), 0.0001);
+
+        // 8.7% from the extrapolated queue - within the error budget, but not stable enough to grow
+        observe(129.6, 600.0);
+        assertEquals(0.2, controller.nextInterval(0.6, cloudlets), 0.0001);
+    }
+
+    @Test
+    public void testGrowWhenQueuesDrainSteadily() {
+        observe(1000.0, 0.0);
+        controller.nextInterval(0.0, cloudlets);
+        observe(980.0, 0.0);
+        assertEquals(0.4, controller.nextInterval(0.2, cloudlets), 0.0001);
+        observe(940.0, 0.0);
+        assertEquals(0.8, controller.nextInterval(0.6, cloudlets), 0.0001);
+
+        // the queue is empty before the extrapolated time
+        observe(0.0, 0.0);
+        assertEquals(0.4, controller.nextInterval(1.4, cloudlets), 0.0001);
+    }
+
+    @Test
+    public void testShrinkWhenThroughputChanges() {
+        observe(0.0, 0.0);
+        controller.nextInterval(0.0, cloudlets);
+        observe(0.0, 200.0);
+        controller.nextInterval(0.2, cloudlets);
+        observe(0.0, 400.0);
+        assertEquals(0.8, controller.nextInterval(0.4, cloudlets), 0.0001);
+
+        // consumption rate dropped from 1000 to 500 events per second
+        observe(0.0, 800.0);
+        assertEquals(0.4, controller.nextInterval(1.2, cloudlets), 0.0001);
+    }
+
+    @Test
+    public void testNetworkArrival() {
+        observe(100.0, 0.0);
+        controller.nextInterval(0.0, cloudlets);
+        assertEquals(0.4, controller.nextInterval(0.2, cloudlets), 0.0001);
+
+        controller.notifyNetworkArrival();
+        assertEquals(0.1, controller.nextInterval(0.6, cloudlets), 0.0001);
+        assertEquals(0.2, controller.nextInterval(0.7, cloudlets), 0.0001);
+    }
+
+    @Test
+    public void testWindowBoundary() {
+        observe(100.0, 0.0);
+        controller.nextInterval(0.0, cloudlets);
+        controller.nextInterval(0.2, cloudlets);
+
+        // the next update happens when the window closes
+        when(cloudlet.getNextWindowBoundary()).thenReturn(0.9);
+        assertEquals(0.3, controller.nextInterval(0.6, cloudlets), 0.0001);
+        assertEquals(0.8, controller.getInterval(), 0.0001);
+
+        // never shorter than the minimum interval
+        assertEquals(0.1, controller.nextInterval(0.88, cloudlets), 0.0001);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidBounds() {
+        new AdaptiveIntervalController(1.0, 0.1, 0.1);
+    }
+
+}
@@ -130,6 +130,31 @@ public class CepQueryCloudletTest {
     }
 
 
+    @Test
+    public void testUpdateCloudletEventDriven() {
+        when(placementExecutor.run(anyDouble(), anyDouble(), anyDouble())).thenReturn(new History<SimEvent>());
+        when(placementExecutor.eventDriven()).thenReturn(true);
+        when(placementExecutor.nextEventTime()).thenReturn(45_000.0);
+
+        CepQueryCloudlet cloudlet = new CepQueryCloudlet(1, placementExecutor, false, calculator);
+        cloudlet.updateQuery(30_000_000L, 30, 0, 1);
+
+        // the next event is the next time the placement is ready
+        assertEquals(15.0, cloudlet.getEstimatedTimeToFinish(), 0.0001);
+
+        // or the next network event
+        EventSet es1 = new EventSet(1000, 1.0, 0.0, Collections.<EventProducer, Object>singletonMap(p1, 1000.0));
+        CepNetworkEvent net1 = new CepNetworkEvent(30.0, p1, 35.0, f1, es1);
+        cloudlet.enqueue(net1);
+        assertEquals(5.0, cloudlet.getEstimatedTimeToFinish(), 0.0001);
+
+        // events received during the interval are enqueued
+        when(placementExecutor.nextEventTime()).thenReturn(Double.MAX_VALUE);
+        cloudlet.updateQuery(30_000_000L, 60, 30, 1);
+        verify(placementExecutor).enqueue(35000.0, p1, f1, es1);
+        assertEquals(40.0, cloudlet.getEstimatedTimeToFinish(), 0.0001);
+    }
+
     @Test
     public void testGetVertices() {
         CepQueryCloudlet cloudlet = new CepQueryCloudlet(1, placementExecutor, false, calculator);
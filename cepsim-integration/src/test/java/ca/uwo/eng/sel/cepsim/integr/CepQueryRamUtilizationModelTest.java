@@ -0,0 +1,39 @@
+package ca.uwo.eng.sel.cepsim.integr;
+
+import ca.uwo.eng.sel.cepsim.PlacementExecutor;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class CepQueryRamUtilizationModelTest {
+
+    @Mock private PlacementExecutor executor;
+
+    private CepQueryRamUtilizationModel model;
+
+    @Before
+    public void setup() {
+        MockitoAnnotations.initMocks(this);
+        model = new CepQueryRamUtilizationModel(executor);
+    }
+
+    @Test
+    public void testUtilization() {
+        when(executor.stateSize()).thenReturn(512.0 * 1024 * 1024);
+        assertEquals(0.0, model.getUtilization(1.0), 0.0001);
+
+        model.setRam(1024);
+        verify(executor).memoryLimit_$eq(1024.0 * 1024 * 1024);
+        assertEquals(0.5, model.getUtilization(1.0), 0.0001);
+
+        // the state does not fit in the VM memory
+        when(executor.stateSize()).thenReturn(2048.0 * 1024 * 1024);
+        assertEquals(2.0, model.getUtilization(2.0), 0.0001);
+    }
+
+}
@@ -0,0 +1,166 @@
+package ca.uwo.eng.sel.cepsim.integr;
+
+import ca.uwo.eng.sel.cepsim.PlacementExecutor;
+import ca.uwo.eng.sel.cepsim.gen.UniformGenerator;
+import ca.uwo.eng.sel.cepsim.network.FixedDelayNetworkInterface;
+import ca.uwo.eng.sel.cepsim.placement.Placement;
+import ca.uwo.eng.sel.cepsim.query.EventConsumer;
+import ca.uwo.eng.sel.cepsim.query.EventProducer;
+import ca.uwo.eng.sel.cepsim.query.InputVertex;
+import ca.uwo.eng.sel.cepsim.query.Operator;
+import ca.uwo.eng.sel.cepsim.query.OutputVertex;
+import ca.uwo.eng.sel.cepsim.query.Query;
+import ca.uwo.eng.sel.cepsim.query.Vertex;
+import ca.uwo.eng.sel.cepsim.sched.DynOpScheduleStrategy;
+import ca.uwo.eng.sel.cepsim.sched.alloc.UniformAllocationStrategy;
+import org.cloudbus.cloudsim.Cloudlet;
+import org.cloudbus.cloudsim.DatacenterCharacteristics;
+import org.cloudbus.cloudsim.Host;
+import org.cloudbus.cloudsim.Log;
+import org.cloudbus.cloudsim.Pe;
+import org.cloudbus.cloudsim.Storage;
+import org.cloudbus.cloudsim.Vm;
+import org.cloudbus.cloudsim.VmAllocationPolicySimple;
+import org.cloudbus.cloudsim.VmSchedulerTimeShared;
+import org.cloudbus.cloudsim.core.CloudSim;
+import org.cloudbus.cloudsim.provisioners.BwProvisionerSimple;
+import org.cloudbus.cloudsim.provisioners.PeProvisionerSimple;
+import org.cloudbus.cloudsim.provisioners.RamProvisionerSimple;
+import org.junit.Test;
+import scala.Tuple3;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+public class CepSimAutoscalerTest {
+
+    private static final double SIM_INTERVAL = 0.1;
+
+    private List<CepQueryCloudlet> cloudlets;
+
+    @Test
+    public void testScaleOutAndRebalance() throws Exception {
+        CepSimAutoscaler autoscaler = simulate(new ThresholdAutoscalingPolicy(0.9, 0.1, Double.MAX_VALUE,
+                Double.MAX_VALUE, 4.0));
+
+        // the initial VM is saturated, so a second VM is requested and one of the cloudlets is moved to it
+        assertEquals(2, autoscaler.getVms());
+        assertEquals(1, autoscaler.getMigrations());
+        assertNotEquals(cloudlets.get(0).getVmId(), cloudlets.get(1).getVmId());
+
+        // both cloudlets fit in their VMs after the rebalance
+        List<AutoscalingSample> samples = autoscaler.getSamples();
+        AutoscalingSample last = samples.get(samples.size() - 2);
+        assertEquals(2, last.getVms());
+        assertTrue(last.getUtilization() < 0.9);
+        assertTrue(autoscaler.getCost() > 0.0);
+    }
+
+    @Test
+    public void testPredictiveCostAndLatency() throws Exception {
+        CepSimAutoscaler autoscaler = simulate(new PredictiveAutoscalingPolicy(0.8, Double.MAX_VALUE, 2.0, 2));
+
+        // the backlog drained after the rebalance overprovisions a third VM, which is released once it stays idle
+        int peak = 0;
+        for (AutoscalingSample sample : autoscaler.getSamples()) {
+            peak = Math.max(peak, sample.getVms());
+        }
+        assertEquals(3, peak);
+        assertEquals(2, autoscaler.getVms());
+        assertEquals(1, autoscaler.getMigrations());
+
+        // one VM during the whole simulation, and the others since they have been provisioned
+        double duration = autoscaler.getSamples().get(autoscaler.getSamples().size() - 1).getTime();
+        assertTrue(autoscaler.getVmTime() > duration);
+        assertTrue(autoscaler.getVmTime() < 3 * duration);
+        assertEquals(autoscaler.getVmTime() * 0.1 / 3600, autoscaler.getCost(), 0.000001);
+        assertTrue(autoscaler.getAverageLatency() > 0.0);
+    }
+
+    @Test
+    public void testScaleInToMinimum() throws Exception {
+        CepSimAutoscaler autoscaler = simulate(new AutoscalingPolicy() {
+            @Override
+            public int decide(AutoscalingSample sample) {
+                return -1;
+            }
+        });
+
+        // never below the minimum number of VMs
+        assertEquals(1, autoscaler.getVms());
+        assertEquals(0, autoscaler.getMigrations());
+        assertEquals(cloudlets.get(0).getVmId(), cloudlets.get(1).getVmId());
+    }
+
+    /**
+     * Runs two queries on a single VM that cannot process the events of both, and returns the autoscaler.
+     */
+    private CepSimAutoscaler simulate(AutoscalingPolicy policy) throws Exception {
+        Log.disable();
+        CloudSim.init(1, Calendar.getInstance(), false, SIM_INTERVAL);
+
+        CepSimDatacenter datacenter = createDatacenter();
+        CepSimBroker broker = new CepSimBroker("CepBroker", 20, SIM_INTERVAL);
+        FixedDelayNetworkInterface network = new FixedDelayNetworkInterface(broker, 0.0);
+
+        cloudlets = new ArrayList<>();
+        for (int i = 1; i <= 2; i++) {
+            EventProducer p = new EventProducer("spout" + i, 1000, new UniformGenerator(1000), true);
+            Operator f = new Operator("f" + i, 1500000, 2048);
+            EventConsumer c = new EventConsumer("end" + i, 1000, 2048);
+
+            Set<Vertex> vertices = new HashSet<>();
+            vertices.add(p);
+            vertices.add(f);
+            vertices.add(c);
+
+            Set<Tuple3<OutputVertex, InputVertex, Object>> edges = new HashSet<>();
+            edges.add(new Tuple3<OutputVertex, InputVertex, Object>(p, f, 1.0));
+            edges.add(new Tuple3<OutputVertex, InputVertex, Object>(f, c, 1.0));
+            Query.apply("q" + i, vertices, edges, 10L);
+
+            PlacementExecutor executor = PlacementExecutor.apply("cl" + i, Placement.apply(vertices, 1),
+                    DynOpScheduleStrategy.apply(UniformAllocationStrategy.apply()), 1, network);
+            CepQueryCloudlet cloudlet = new CepQueryCloudlet(i, executor, false);
+            cloudlet.setUserId(broker.getId());
+            cloudlets.add(cloudlet);
+        }
+
+        Vm vm = new Vm(1, broker.getId(), 2500, 1, 2048, 100, 10000, "Xen", new CepQueryCloudletScheduler());
+        broker.submitVmList(Collections.singletonList(vm));
+        broker.submitCloudletList(new ArrayList<Cloudlet>(cloudlets));
+
+        CepSimAutoscaler autoscaler = new CepSimAutoscaler("Autoscaler", broker, datacenter, policy, vm,
+                1.0, 2.0, 0.1);
+        autoscaler.setVmLimits(1, 3);
+
+        CloudSim.startSimulation();
+        CloudSim.stopSimulation();
+        return autoscaler;
+    }
+
+    private CepSimDatacenter createDatacenter() throws Exception {
+        List<Pe> pes = new ArrayList<>();
+        for (int j = 0; j < 4; j++) {
+            pes.add(new Pe(j, new PeProvisionerSimple(2500)));
+        }
+        List<Host> hosts = new ArrayList<>();
+        hosts.add(new Host(0, new RamProvisionerSimple(16384), new BwProvisionerSimple(10000), 1000000, pes,
+                new VmSchedulerTimeShared(pes)));
+
+        DatacenterCharacteristics characteristics = new DatacenterCharacteristics("x86", "Linux", "Xen", hosts,
+                10.0, 3.0, 0.05, 0.001, 0.0);
+        return new CepSimDatacenter("Datacenter_0", characteristics, new VmAllocationPolicySimple(hosts),
+                new LinkedList<Storage>(), SIM_INTERVAL);
+    }
+
+}
@@ -0,0 +1,170 @@
+package ca.uwo.eng.sel.cepsim.integr;
+
+import ca.uwo.eng.sel.cepsim.PlacementExecutor;
+import ca.uwo.eng.sel.cepsim.gen.UniformGenerator;
+import ca.uwo.eng.sel.cepsim.network.FixedDelayNetworkInterface;
+import ca.uwo.eng.sel.cepsim.placement.Placement;
+import ca.uwo.eng.sel.cepsim.query.EventConsumer;
+import ca.uwo.eng.sel.cepsim.query.EventProducer;
+import ca.uwo.eng.sel.cepsim.query.InputVertex;
+import ca.uwo.eng.sel.cepsim.query.Operator;
+import ca.uwo.eng.sel.cepsim.query.OutputVertex;
+import ca.uwo.eng.sel.cepsim.query.Query;
+import ca.uwo.eng.sel.cepsim.query.Vertex;
+import ca.uwo.eng.sel.cepsim.sched.DefaultOpScheduleStrategy;
+import ca.uwo.eng.sel.cepsim.sched.DynOpScheduleStrategy;
+import ca.uwo.eng.sel.cepsim.sched.alloc.UniformAllocationStrategy;
+import org.cloudbus.cloudsim.DatacenterCharacteristics;
+import org.cloudbus.cloudsim.Host;
+import org.cloudbus.cloudsim.Log;
+import org.cloudbus.cloudsim.Pe;
+import org.cloudbus.cloudsim.Storage;
+import org.cloudbus.cloudsim.Vm;
+import org.cloudbus.cloudsim.VmAllocationPolicySimple;
+import org.cloudbus.cloudsim.VmSchedulerTimeShared;
+import org.cloudbus.cloudsim.core.CloudSim;
+import org.cloudbus.cloudsim.provisioners.BwProvisionerSimple;
+import org.cloudbus.cloudsim.provisioners.PeProvisionerSimple;
+import org.cloudbus.cloudsim.provisioners.RamProvisionerSimple;
+import org.junit.Before;
+import org.junit.Test;
+import scala.Tuple3;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+
+public class CepSimCheckpointTest {
+
+    private static final double SIM_INTERVAL = 0.1;
+    private static final double CHECKPOINT_TIME = 10.0;
+
+    private CepSimBroker broker;
+
+    @Before
+    public void setUp() {
+        Log.disable();
+    }
+
+    @Test
+    public void testRestoreContinuesTheSimulation() throws Exception {
+        CepQueryCloudlet full = createCloudlet();
+        simulate(full, 0.0);
+
+        CepQueryCloudlet original = createCloudlet();
+        simulate(original, CHECKPOINT_TIME);
+        CepSimCheckpoint checkpoint = CepSimCheckpoint.take(Collections.singletonList(original));
+        assertTrue(checkpoint.getSize() > 0);
+
+        CepQueryCloudlet restored = restore(checkpoint).get(0);
+        assertNotSame(original.getExecutor(), restored.getExecutor());
+        assertEquals(original.getConsumedEvents(), restored.getConsumedEvents(), 0.0);
+
+        simulate(restored, 0.0);
+        assertTrue(restored.hasFinished());
+        assertEquals(full.getConsumedEvents(), restored.getConsumedEvents(), 0.0);
+        assertEquals(full.getThroughput(consumer(full)), restored.getThroughput(consumer(restored)), 0.0);
+        assertEquals(full.getLatency(consumer(full)), restored.getLatency(consumer(restored)), 0.0001);
+
+        // the original cloudlet is not affected
+        assertTrue(original.getConsumedEvents() < restored.getConsumedEvents());
+    }
+
+    @Test
+    public void testForkWithDifferentStrategies() throws Exception {
+        CepQueryCloudlet original = createCloudlet();
+        simulate(original, CHECKPOINT_TIME);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        CepSimCheckpoint.take(Collections.singletonList(original)).write(out);
+        CepSimCheckpoint checkpoint = CepSimCheckpoint.read(new ByteArrayInputStream(out.toByteArray()));
+
+        CepQueryCloudlet fork1 = restore(checkpoint).get(0);
+        simulate(fork1, 0.0);
+
+        CepQueryCloudlet fork2 = restore(checkpoint).get(0);
+        fork2.getExecutor().opSchedStrategy_$eq(DefaultOpScheduleStrategy.weighted());
+        simulate(fork2, 0.0);
+
+        assertTrue(fork1.hasFinished());
+        assertTrue(fork2.hasFinished());
+        assertNotEquals(fork1.getLatency(consumer(fork1)), fork2.getLatency(consumer(fork2)), 0.0001);
+    }
+
+
+    private Vertex consumer(CepQueryCloudlet cloudlet) {
+        for (Vertex v : cloudlet.getVertices()) {
+            if (v instanceof EventConsumer) {
+                return v;
+            }
+        }
+        return null;
+    }
+
+    private void init() throws Exception {
+        CloudSim.init(1, Calendar.getInstance(), false, SIM_INTERVAL);
+
+        List<Pe> pes = Collections.singletonList(new Pe(0, new PeProvisionerSimple(2500)));
+        List<Host> hosts = Collections.singletonList(new Host(0, new RamProvisionerSimple(16384),
+                new BwProvisionerSimple(10000), 1000000, pes, new VmSchedulerTimeShared(pes)));
+        new CepSimDatacenter("Datacenter_0", new DatacenterCharacteristics("x86", "Linux", "Xen", hosts,
+                10.0, 3.0, 0.05, 0.001, 0.0), new VmAllocationPolicySimple(hosts), new LinkedList<Storage>(),
+                SIM_INTERVAL);
+        broker = new CepSimBroker("CepBroker", 20, SIM_INTERVAL);
+    }
+
+    private CepQueryCloudlet createCloudlet() throws Exception {
+        init();
+
+        EventProducer p = new EventProducer("spout", 1000, new UniformGenerator(1000), true);
+        Operator f = new Operator("f", 20000, 2048);
+        Operator g = new Operator("g", 50000, 2048);
+        EventConsumer c = new EventConsumer("end", 1000, 2048);
+
+        Set<Vertex> vertices = new HashSet<>();
+        vertices.add(p);
+        vertices.add(f);
+        vertices.add(g);
+        vertices.add(c);
+
+        Set<Tuple3<OutputVertex, InputVertex, Object>> edges = new HashSet<>();
+        edges.add(new Tuple3<OutputVertex, InputVertex, Object>(p, f, 1.0));
+        edges.add(new Tuple3<OutputVertex, InputVertex, Object>(f, g, 1.0));
+        edges.add(new Tuple3<OutputVertex, InputVertex, Object>(g, c, 1.0));
+        Query q = Query.apply("q", vertices, edges, 20L);
+
+        PlacementExecutor executor = PlacementExecutor.apply("cl1", Placement.apply(q, 1),
+                DynOpScheduleStrategy.apply(UniformAllocationStrategy.apply()), 1,
+                new FixedDelayNetworkInterface(broker, 0.1));
+        return new CepQueryCloudlet(1, executor, false);
+    }
+
+    private List<CepQueryCloudlet> restore(CepSimCheckpoint checkpoint) throws Exception {
+        init();
+        return checkpoint.restore(new FixedDelayNetworkInterface(broker, 0.1));
+    }
+
+    /** Runs the simulation of a cloudlet, stopping at the informed time if it is greater than 0. */
+    private void simulate(CepQueryCloudlet cloudlet, double terminateAt) {
+        cloudlet.setUserId(broker.getId());
+        broker.submitVmList(Collections.singletonList(
+                new Vm(1, broker.getId(), 100, 1, 2048, 1, 10000, "Xen", new CepQueryCloudletScheduler())));
+        broker.submitCloudletList(Collections.singletonList(cloudlet));
+
+        // the termination time is not reset by CloudSim.init
+        CloudSim.terminateSimulation((terminateAt > 0) ? terminateAt : Double.MAX_VALUE);
+        CloudSim.startSimulation();
+        CloudSim.stopSimulation();
+    }
+
+}
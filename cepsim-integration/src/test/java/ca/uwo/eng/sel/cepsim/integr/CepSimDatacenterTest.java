@@ -0,0 +1,264 @@
+package ca.uwo.eng.sel.cepsim.integr;
+
+import ca.uwo.eng.sel.cepsim.PlacementExecutor;
+import ca.uwo.eng.sel.cepsim.gen.UniformGenerator;
+import ca.uwo.eng.sel.cepsim.metric.ConvergenceMetric;
+import ca.uwo.eng.sel.cepsim.metric.LatencyMetric;
+import ca.uwo.eng.sel.cepsim.network.BandwidthNetworkInterface;
+import ca.uwo.eng.sel.cepsim.network.BatchingNetworkInterface;
+import ca.uwo.eng.sel.cepsim.placement.Placement;
+import ca.uwo.eng.sel.cepsim.query.EventConsumer;
+import ca.uwo.eng.sel.cepsim.query.EventProducer;
+import ca.uwo.eng.sel.cepsim.query.InputVertex;
+import ca.uwo.eng.sel.cepsim.query.Operator;
+import ca.uwo.eng.sel.cepsim.query.OutputVertex;
+import ca.uwo.eng.sel.cepsim.query.Query;
+import ca.uwo.eng.sel.cepsim.query.Vertex;
+import ca.uwo.eng.sel.cepsim.sched.DynOpScheduleStrategy;
+import ca.uwo.eng.sel.cepsim.sched.alloc.UniformAllocationStrategy;
+import org.cloudbus.cloudsim.Cloudlet;
+import org.cloudbus.cloudsim.DatacenterCharacteristics;
+import org.cloudbus.cloudsim.Host;
+import org.cloudbus.cloudsim.Log;
+import org.cloudbus.cloudsim.Pe;
+import org.cloudbus.cloudsim.Storage;
+import org.cloudbus.cloudsim.Vm;
+import org.cloudbus.cloudsim.VmAllocationPolicySimple;
+import org.cloudbus.cloudsim.VmSchedulerTimeShared;
+import org.cloudbus.cloudsim.core.CloudSim;
+import org.cloudbus.cloudsim.provisioners.BwProvisionerSimple;
+import org.cloudbus.cloudsim.provisioners.PeProvisionerSimple;
+import org.cloudbus.cloudsim.provisioners.RamProvisionerSimple;
+import org.junit.Test;
+import scala.Tuple3;
+import scala.collection.JavaConversions;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class CepSimDatacenterTest {
+
+    private static final int HOSTS = 4;
+    private static final int QUERIES = 4;
+    private static final double SIM_INTERVAL = 0.1;
+
+    @Test
+    public void testParallelUpdateIsDeterministic() throws Exception {
+        List<String> sequential = simulate(1);
+        List<String> parallel = simulate(4);
+
+        assertFalse(sequential.isEmpty());
+        assertEquals(sequential, parallel);
+    }
+
+    @Test
+    public void testAddAndRemoveQuery() throws Exception {
+        Log.disable();
+        CloudSim.init(1, Calendar.getInstance(), false, SIM_INTERVAL);
+
+        CepSimDatacenter datacenter = createDatacenter(1);
+        CepSimBroker broker = new CepSimBroker("CepBroker", 20, SIM_INTERVAL);
+        BatchingNetworkInterface network = new BatchingNetworkInterface(broker,
+                new BandwidthNetworkInterface(broker, 100.0, 0.001));
+
+        Query q1 = createQuery(1, 10L);
+        Query q2 = createQuery(2, 10L);
+        CepQueryCloudlet cloudlet = createCloudlet(1, Placement.apply(q1, 1), network, broker);
+
+        broker.submitVmList(Collections.singletonList(
+                new Vm(1, broker.getId(), 2500, 2, 2048, 1, 10000, "Xen", new CepQueryCloudletScheduler())));
+        broker.submitCloudletList(Collections.singletonList(cloudlet));
+
+        Map<Vertex, CepQueryCloudlet> allocation = new HashMap<>();
+        for (Vertex v : JavaConversions.setAsJavaSet(q2.vertices())) {
+            allocation.put(v, cloudlet);
+        }
+        broker.addQuery(2.0, q2, allocation);
+        broker.removeQuery(6.0, q2);
+
+        CloudSim.startSimulation();
+        CloudSim.stopSimulation();
+
+        Vertex c2 = consumer(q2);
+
+        // the query has only been executed while it was in the cloudlet (up to the update interval)
+        List<LatencyMetric> metrics = cloudlet.getLatencyMetrics(c2);
+        assertFalse(metrics.isEmpty());
+        for (LatencyMetric metric : metrics) {
+            assertTrue(metric.time() >= (2.0 - SIM_INTERVAL) * 1000);
+            assertTrue(metric.time() <= (6.0 + SIM_INTERVAL) * 1000);
+        }
+        assertFalse(cloudlet.getVertices().contains(c2));
+        assertEquals(1, cloudlet.getQueries().size());
+        assertTrue(cloudlet.hasFinished());
+    }
+
+    @Test
+    public void testStopOnConvergence() throws Exception {
+        Log.disable();
+        CloudSim.init(1, Calendar.getInstance(), false, SIM_INTERVAL);
+
+        CepSimDatacenter datacenter = createDatacenter(1);
+        datacenter.setStopOnConvergence(true);
+        CepSimBroker broker = new CepSimBroker("CepBroker", 20, SIM_INTERVAL);
+        BatchingNetworkInterface network = new BatchingNetworkInterface(broker,
+                new BandwidthNetworkInterface(broker, 100.0, 0.001));
+
+        Query q1 = createQuery(1, 300L);
+        CepQueryCloudlet cloudlet = createCloudlet(1, Placement.apply(q1, 1), network, broker);
+        cloudlet.monitorConvergence(1.0, 0.05);
+
+        broker.submitVmList(Collections.singletonList(
+                new Vm(1, broker.getId(), 2500, 2, 2048, 1, 10000, "Xen", new CepQueryCloudletScheduler())));
+        broker.submitCloudletList(Collections.singletonList(cloudlet));
+
+        CloudSim.startSimulation();
+        CloudSim.stopSimulation();
+
+        // the cloudlet finishes long before the query duration
+        assertTrue(cloudlet.hasFinished());
+        assertTrue(cloudlet.hasConverged());
+        assertTrue(cloudlet.getFinishTime() < 60.0);
+
+        Vertex c1 = consumer(q1);
+        ConvergenceMetric throughput = cloudlet.getThroughputConvergence(c1);
+        assertEquals(1000.0, throughput.value(), 50.0);
+        assertTrue(throughput.halfWidth() <= 0.05 * throughput.value());
+        assertTrue(throughput.batches() >= 5);
+    }
+
+    private Vertex consumer(Query query) {
+        for (Vertex v : JavaConversions.setAsJavaSet(query.vertices())) {
+            if (v instanceof EventConsumer) {
+                return v;
+            }
+        }
+        return null;
+    }
+
+    private Query createQuery(int i, long duration) {
+        EventProducer p = new EventProducer("spout" + i, 1000, new UniformGenerator(1000), true);
+        Operator f = new Operator("f" + i, 20000, 2048);
+        EventConsumer c = new EventConsumer("end" + i, 1000, 2048);
+
+        Set<Vertex> vertices = new HashSet<>();
+        vertices.add(p);
+        vertices.add(f);
+        vertices.add(c);
+
+        Set<Tuple3<OutputVertex, InputVertex, Object>> edges = new HashSet<>();
+        edges.add(new Tuple3<OutputVertex, InputVertex, Object>(p, f, 1.0));
+        edges.add(new Tuple3<OutputVertex, InputVertex, Object>(f, c, 1.0));
+        return Query.apply("q" + i, vertices, edges, duration);
+    }
+
+    /**
+     * Runs a simulation in which each query is split into two cloudlets allocated to different hosts, and
+     * returns the metrics of all consumers.
+     */
+    private List<String> simulate(int parallelism) throws Exception {
+        Log.disable();
+        CloudSim.init(1, Calendar.getInstance(), false, SIM_INTERVAL);
+
+        CepSimDatacenter datacenter = createDatacenter(parallelism);
+        CepSimBroker broker = new CepSimBroker("CepBroker", 20, SIM_INTERVAL);
+
+        // the links are saturated and keep their state between messages, so the results depend on their order
+        BatchingNetworkInterface network = new BatchingNetworkInterface(broker,
+                new BandwidthNetworkInterface(broker, 100.0, 0.001));
+
+        List<Vm> vms = new ArrayList<>();
+        List<Cloudlet> cloudlets = new ArrayList<>();
+        for (int i = 1; i <= QUERIES; i++) {
+            EventProducer p = new EventProducer("spout" + i, 1000, new UniformGenerator(1000 * i), true);
+            Operator f1 = new Operator("f" + i, 20000, 2048);
+            Operator f2 = new Operator("g" + i, 50000, 2048);
+            EventConsumer c = new EventConsumer("end" + i, 1000, 2048);
+
+            Set<Vertex> vertices = new HashSet<>();
+            vertices.add(p);
+            vertices.add(f1);
+            vertices.add(f2);
+            vertices.add(c);
+
+            Set<Tuple3<OutputVertex, InputVertex, Object>> edges = new HashSet<>();
+            edges.add(new Tuple3<OutputVertex, InputVertex, Object>(p, f1, 1.0));
+            edges.add(new Tuple3<OutputVertex, InputVertex, Object>(f1, f2, 0.5));
+            edges.add(new Tuple3<OutputVertex, InputVertex, Object>(f2, c, 1.0));
+            Query.apply("q" + i, vertices, edges, 20L);
+
+            Set<Vertex> v1 = new HashSet<>();
+            v1.add(p);
+            v1.add(f1);
+            Set<Vertex> v2 = new HashSet<>();
+            v2.add(f2);
+            v2.add(c);
+
+            int vm1 = 2 * i - 1;
+            int vm2 = 2 * i;
+            vms.add(new Vm(vm1, broker.getId(), 2500, 2, 2048, 1, 10000, "Xen", new CepQueryCloudletScheduler()));
+            vms.add(new Vm(vm2, broker.getId(), 2500, 2, 2048, 1, 10000, "Xen", new CepQueryCloudletScheduler()));
+
+            cloudlets.add(createCloudlet(vm1, Placement.apply(v1, vm1), network, broker));
+            cloudlets.add(createCloudlet(vm2, Placement.apply(v2, vm2), network, broker));
+        }
+
+        broker.submitVmList(vms);
+        broker.submitCloudletList(cloudlets);
+
+        CloudSim.startSimulation();
+        CloudSim.stopSimulation();
+
+        List<String> metrics = new ArrayList<>();
+        for (Cloudlet cl : cloudlets) {
+            CepQueryCloudlet cepCl = (CepQueryCloudlet) cl;
+            for (Vertex v : cepCl.getVertices()) {
+                if (v instanceof EventConsumer) {
+                    metrics.add(v.id() + " " + cepCl.getLatency(v) + " " + cepCl.getThroughput(v));
+                }
+            }
+        }
+        return metrics;
+    }
+
+    private CepQueryCloudlet createCloudlet(int id, Placement placement, BatchingNetworkInterface network,
+                                            CepSimBroker broker) {
+        PlacementExecutor executor = PlacementExecutor.apply("cl" + id, placement,
+                DynOpScheduleStrategy.apply(UniformAllocationStrategy.apply()), 1, network);
+        CepQueryCloudlet cloudlet = new CepQueryCloudlet(id, executor, false);
+        cloudlet.setUserId(broker.getId());
+        return cloudlet;
+    }
+
+    private CepSimDatacenter createDatacenter(int parallelism) throws Exception {
+        List<Host> hosts = new ArrayList<>();
+        for (int i = 0; i < HOSTS; i++) {
+            List<Pe> pes = new ArrayList<>();
+            for (int j = 0; j < 4; j++) {
+                pes.add(new Pe(j, new PeProvisionerSimple(2500)));
+            }
+            hosts.add(new Host(i, new RamProvisionerSimple(16384), new BwProvisionerSimple(10000), 1000000, pes,
+                    new VmSchedulerTimeShared(pes)));
+        }
+
+        DatacenterCharacteristics characteristics = new DatacenterCharacteristics("x86", "Linux", "Xen", hosts,
+                10.0, 3.0, 0.05, 0.001, 0.0);
+
+        CepSimDatacenter datacenter = new CepSimDatacenter("Datacenter_0", characteristics,
+                new VmAllocationPolicySimple(hosts), new LinkedList<Storage>(), SIM_INTERVAL);
+        datacenter.setParallelism(parallelism);
+        return datacenter;
+    }
+
+}
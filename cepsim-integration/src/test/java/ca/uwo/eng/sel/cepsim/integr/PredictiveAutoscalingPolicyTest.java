@@ -0,0 +1,55 @@
+package ca.uwo.eng.sel.cepsim.integr;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class PredictiveAutoscalingPolicyTest {
+
+    private PredictiveAutoscalingPolicy policy;
+
+    @Before
+    public void setup() {
+        policy = new PredictiveAutoscalingPolicy(0.8, 1000.0, 2.0, 3);
+    }
+
+    @Test
+    public void testScaleOutBeforeSaturation() {
+        assertEquals(0, policy.decide(new AutoscalingSample(1.0, 2, 0, 0.0, 0.5, 10.0)));
+        assertEquals(0, policy.decide(new AutoscalingSample(2.0, 2, 0, 0.0, 0.6, 10.0)));
+
+        // predicted utilization is 0.9 at time 5 - 1.8 VMs are needed at 80%, which rounds up to 3
+        assertEquals(1, policy.decide(new AutoscalingSample(3.0, 2, 0, 0.0, 0.7, 10.0)));
+
+        // the history is cleared after a decision
+        assertEquals(0, policy.decide(new AutoscalingSample(4.0, 3, 0, 0.0, 0.9, 10.0)));
+    }
+
+    @Test
+    public void testScaleOutOnBacklogTrend() {
+        policy.decide(new AutoscalingSample(1.0, 2, 0, 0.0, 0.5, 10.0));
+        policy.decide(new AutoscalingSample(2.0, 2, 0, 300.0, 0.5, 10.0));
+        assertEquals(1, policy.decide(new AutoscalingSample(3.0, 2, 0, 600.0, 0.5, 10.0)));
+    }
+
+    @Test
+    public void testPendingVmsAreCounted() {
+        policy.decide(new AutoscalingSample(1.0, 2, 1, 0.0, 0.5, 10.0));
+        policy.decide(new AutoscalingSample(2.0, 2, 1, 0.0, 0.6, 10.0));
+        assertEquals(0, policy.decide(new AutoscalingSample(3.0, 2, 1, 0.0, 0.7, 10.0)));
+    }
+
+    @Test
+    public void testScaleIn() {
+        policy.decide(new AutoscalingSample(1.0, 4, 0, 0.0, 0.3, 10.0));
+        policy.decide(new AutoscalingSample(2.0, 4, 0, 0.0, 0.3, 10.0));
+        assertEquals(-1, policy.decide(new AutoscalingSample(3.0, 4, 0, 0.0, 0.3, 10.0)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidWindow() {
+        new PredictiveAutoscalingPolicy(0.8, 1000.0, 2.0, 1);
+    }
+
+}
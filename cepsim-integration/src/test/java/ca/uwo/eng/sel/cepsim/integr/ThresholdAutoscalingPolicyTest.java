@@ -0,0 +1,51 @@
+package ca.uwo.eng.sel.cepsim.integr;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class ThresholdAutoscalingPolicyTest {
+
+    private ThresholdAutoscalingPolicy policy;
+
+    @Before
+    public void setup() {
+        policy = new ThresholdAutoscalingPolicy(0.8, 0.3, 100.0, 1000.0, 5.0);
+    }
+
+    @Test
+    public void testScaleOutOnUtilization() {
+        assertEquals(0, policy.decide(new AutoscalingSample(1.0, 2, 0, 0.0, 0.7, 10.0)));
+        assertEquals(1, policy.decide(new AutoscalingSample(2.0, 2, 0, 0.0, 0.9, 10.0)));
+    }
+
+    @Test
+    public void testScaleOutOnLatencyAndBacklog() {
+        assertEquals(1, policy.decide(new AutoscalingSample(1.0, 2, 0, 0.0, 0.5, 150.0)));
+        assertEquals(1, policy.decide(new AutoscalingSample(10.0, 3, 0, 2000.0, 0.5, 10.0)));
+    }
+
+    @Test
+    public void testScaleIn() {
+        assertEquals(-1, policy.decide(new AutoscalingSample(1.0, 2, 0, 0.0, 0.1, 10.0)));
+    }
+
+    @Test
+    public void testCooldownAndPendingVms() {
+        assertEquals(1, policy.decide(new AutoscalingSample(1.0, 2, 0, 0.0, 0.9, 10.0)));
+
+        // still in the cooldown period
+        assertEquals(0, policy.decide(new AutoscalingSample(3.0, 2, 0, 0.0, 0.9, 10.0)));
+
+        // waiting for a VM
+        assertEquals(0, policy.decide(new AutoscalingSample(7.0, 2, 1, 0.0, 0.9, 10.0)));
+        assertEquals(1, policy.decide(new AutoscalingSample(8.0, 3, 0, 0.0, 0.9, 10.0)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidThresholds() {
+        new ThresholdAutoscalingPolicy(0.3, 0.8, 100.0, 1000.0, 5.0);
+    }
+
+}
@@ -0,0 +1,114 @@
+package ca.uwo.eng.sel.cepsim.network;
+
+
+import ca.uwo.eng.sel.cepsim.event.EventSet;
+import ca.uwo.eng.sel.cepsim.integr.CepSimBroker;
+import ca.uwo.eng.sel.cepsim.integr.CepSimTags;
+import ca.uwo.eng.sel.cepsim.query.EventProducer;
+import ca.uwo.eng.sel.cepsim.query.InputVertex;
+import ca.uwo.eng.sel.cepsim.query.OutputVertex;
+import org.cloudbus.cloudsim.Vm;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class BandwidthNetworkInterfaceTest {
+
+    @Mock private EventProducer producer;
+    @Mock private OutputVertex orig;
+    @Mock private InputVertex dest;
+    @Mock private InputVertex dest2;
+    @Mock private Vm origVm;
+    @Mock private Vm destVm;
+    @Mock private CepSimBroker broker;
+
+    private EventSet es;
+
+    @Before
+    public void setup() {
+        MockitoAnnotations.initMocks(this);
+
+        when(origVm.getId()).thenReturn(1);
+        when(origVm.getBw()).thenReturn(8L); // 1 MB per second
+        when(destVm.getId()).thenReturn(2);
+
+        when(broker.getVmAllocation(orig)).thenReturn(origVm);
+        when(broker.getVmAllocation(dest)).thenReturn(destVm);
+        when(broker.getVmAllocation(dest2)).thenReturn(destVm);
+        when(broker.getDatacenterId(origVm)).thenReturn(1);
+        when(broker.getDatacenterId(destVm)).thenReturn(1);
+
+        Map<EventProducer, Object> totals = new HashMap<>();
+        totals.put(producer, 5000.0);
+        es = new EventSet(5000.0, 10.0, 1.0, totals);
+    }
+
+    @Test
+    public void testSendMessage() {
+        BandwidthNetworkInterface ni = new BandwidthNetworkInterface(broker, 100, 0.25);
+
+        // 5000 events * 100 bytes = 0.5 MB
+        ni.sendMessage(500, orig, dest, es);
+
+        CepNetworkEvent expected = new CepNetworkEvent(0.5, orig, 1.25, dest, es);
+        verify(broker).schedule(1, 0.75, CepSimTags.CEP_EVENT_SENT, expected);
+    }
+
+    @Test
+    public void testSendMessageWithEventSize() {
+        BandwidthNetworkInterface ni = new BandwidthNetworkInterface(broker, 100, 0.25);
+        ni.setEventSize(orig, 200);
+
+        ni.sendMessage(500, orig, dest, es);
+
+        CepNetworkEvent expected = new CepNetworkEvent(0.5, orig, 1.75, dest, es);
+        verify(broker).schedule(1, 1.25, CepSimTags.CEP_EVENT_SENT, expected);
+    }
+
+    @Test
+    public void testSendMessagesFifo() {
+        BandwidthNetworkInterface ni = new BandwidthNetworkInterface(broker, 100, 0.25);
+
+        ni.sendMessage(500, orig, dest, es);
+        ni.sendMessage(500, orig, dest2, es);
+
+        // the second message waits for the first one
+        verify(broker).schedule(1, 0.75, CepSimTags.CEP_EVENT_SENT, new CepNetworkEvent(0.5, orig, 1.25, dest, es));
+        verify(broker).schedule(1, 1.25, CepSimTags.CEP_EVENT_SENT, new CepNetworkEvent(0.5, orig, 1.75, dest2, es));
+    }
+
+    @Test
+    public void testSendMessagesFair() {
+        BandwidthNetworkInterface ni = new BandwidthNetworkInterface(broker, 100, 0.25, NetworkLink.SharingPolicy.FAIR);
+
+        ni.sendMessage(500, orig, dest, es);
+        ni.sendMessage(500, orig, dest2, es);
+
+        // the messages share the link - the first one is postponed and re-scheduled
+        verify(broker).schedule(1, 0.75, CepSimTags.CEP_EVENT_SENT, new CepNetworkEvent(0.5, orig, 1.25, dest, es));
+        verify(broker).schedule(1, 1.25, CepSimTags.CEP_EVENT_SENT, new CepNetworkEvent(0.5, orig, 1.75, dest2, es));
+        verify(broker).schedule(1, 1.25, CepSimTags.CEP_EVENT_SENT, new CepNetworkEvent(0.5, orig, 1.75, dest, es));
+    }
+
+    @Test
+    public void testSendMessageToOtherDatacenter() {
+        when(broker.getDatacenterId(destVm)).thenReturn(2);
+
+        BandwidthNetworkInterface ni = new BandwidthNetworkInterface(broker, 100, 0.25);
+        ni.setDatacenterBandwidth(1, 4.0);
+        ni.setLatency(1, 2, 0.5);
+
+        // 0.5s (VM link) + 1.0s (datacenter link) + 0.5s (latency)
+        ni.sendMessage(500, orig, dest, es);
+
+        CepNetworkEvent expected = new CepNetworkEvent(0.5, orig, 2.5, dest, es);
+        verify(broker).schedule(2, 2.0, CepSimTags.CEP_EVENT_SENT, expected);
+    }
+}
@@ -0,0 +1,145 @@
+package ca.uwo.eng.sel.cepsim.network;
+
+
+import ca.uwo.eng.sel.cepsim.event.EventSet;
+import ca.uwo.eng.sel.cepsim.integr.CepSimBroker;
+import ca.uwo.eng.sel.cepsim.integr.CepSimTags;
+import ca.uwo.eng.sel.cepsim.query.EventProducer;
+import ca.uwo.eng.sel.cepsim.query.InputVertex;
+import ca.uwo.eng.sel.cepsim.query.OutputVertex;
+import org.cloudbus.cloudsim.Vm;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyDouble;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyObject;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class BatchingNetworkInterfaceTest {
+
+    @Mock private EventProducer producer;
+    @Mock private OutputVertex orig;
+    @Mock private InputVertex dest1;
+    @Mock private InputVertex dest2;
+    @Mock private InputVertex dest3;
+    @Mock private Vm vm1;
+    @Mock private Vm vm2;
+    @Mock private CepSimBroker broker;
+
+    private BatchingNetworkInterface ni;
+
+    @Before
+    public void setup() {
+        MockitoAnnotations.initMocks(this);
+
+        when(broker.getVmAllocation(dest1)).thenReturn(vm1);
+        when(broker.getVmAllocation(dest2)).thenReturn(vm1);
+        when(broker.getVmAllocation(dest3)).thenReturn(vm2);
+        when(broker.getDatacenterId(vm1)).thenReturn(1);
+        when(broker.getDatacenterId(vm2)).thenReturn(2);
+
+        ni = new BatchingNetworkInterface(broker, new FixedDelayNetworkInterface(broker, 0.5));
+    }
+
+    private EventSet eventSet(double size, double ts) {
+        Map<EventProducer, Object> totals = new HashMap<>();
+        totals.put(producer, size);
+        return new EventSet(size, ts, 10.0, totals);
+    }
+
+    @Test
+    public void testBufferMessages() {
+        ni.sendMessage(250, orig, dest1, eventSet(100.0, 250.0));
+        ni.sendMessage(500, orig, dest1, eventSet(100.0, 500.0));
+
+        // nothing is sent before flushing
+        verify(broker, never()).schedule(anyInt(), anyDouble(), anyInt(), anyObject());
+    }
+
+    @Test
+    public void testFlush() {
+        ni.sendMessage(250, orig, dest1, eventSet(100.0, 250.0));
+        ni.sendMessage(250, orig, dest3, eventSet( 50.0, 250.0));
+        ni.sendMessage(500, orig, dest1, eventSet(300.0, 500.0));
+        ni.sendMessage(500, orig, dest2, eventSet(200.0, 500.0));
+        ni.flush(500);
+
+        // one batch per datacenter - dest1 events are sent at the event-weighted timestamp
+        CepNetworkBatch batch1 = new CepNetworkBatch(Arrays.asList(
+                new CepNetworkEvent(0.4375, orig, 0.9375, dest1, null),
+                new CepNetworkEvent(0.5, orig, 1.0, dest2, null)));
+        CepNetworkBatch batch2 = new CepNetworkBatch(Arrays.asList(
+                new CepNetworkEvent(0.25, orig, 0.75, dest3, null)));
+
+        ArgumentCaptor<CepNetworkBatch> captor = ArgumentCaptor.forClass(CepNetworkBatch.class);
+        verify(broker).schedule(eq(1), eq(0.4375), eq(CepSimTags.CEP_EVENT_BATCH_SENT), captor.capture());
+        verify(broker).schedule(2, 0.25, CepSimTags.CEP_EVENT_BATCH_SENT, batch2);
+        assertEquals(batch1, captor.getValue());
+
+        // event sets have been coalesced
+        EventSet coalesced = captor.getValue().getEvents().get(0).getEventSet();
+        assertEquals(400.0, coalesced.size(), 0.0001);
+        assertEquals(437.5, coalesced.ts(), 0.0001);
+        assertEquals(10.0, coalesced.latency(), 0.0001);
+        assertEquals(400.0, (Double) coalesced.totals().apply(producer), 0.0001);
+    }
+
+    @Test
+    public void testFlushCredits() {
+        when(broker.getVmAllocation(orig)).thenReturn(vm2);
+
+        ni.sendMessage(500, orig, dest1, eventSet(100.0, 500.0));
+        ni.sendCredits(250, dest1, orig, 100.0);
+        ni.sendCredits(500, dest1, orig, 150.0);
+        ni.sendCredits(250, dest2, orig,  50.0);
+        ni.flush(500);
+
+        // credits are sent to the datacenter of the origin vertex
+        CepNetworkBatch batch1 = new CepNetworkBatch(Arrays.asList(
+                new CepNetworkEvent(0.5, orig, 1.0, dest1, null)));
+        CepNetworkBatch batch2 = new CepNetworkBatch(Collections.<CepNetworkEvent>emptyList(), Arrays.asList(
+                new CepCreditEvent(0.4, dest1, 0.9, orig, 250.0),
+                new CepCreditEvent(0.25, dest2, 0.75, orig, 50.0)));
+
+        verify(broker).schedule(1, 0.5, CepSimTags.CEP_EVENT_BATCH_SENT, batch1);
+        verify(broker).schedule(2, 0.25, CepSimTags.CEP_EVENT_BATCH_SENT, batch2);
+    }
+
+    @Test
+    public void testFlushPreservesLatency() {
+        ni.sendMessage(100, orig, dest1, eventSet(300.0, 100.0));
+        ni.sendMessage(400, orig, dest1, eventSet(100.0, 400.0));
+        ni.sendMessage(900, orig, dest1, eventSet(100.0, 900.0));
+        ni.flush(1000);
+
+        ArgumentCaptor<CepNetworkBatch> captor = ArgumentCaptor.forClass(CepNetworkBatch.class);
+        verify(broker).schedule(eq(1), anyDouble(), eq(CepSimTags.CEP_EVENT_BATCH_SENT), captor.capture());
+
+        // the coalesced events spend the network delay (500 ms) on average
+        CepNetworkEvent netEvent = captor.getValue().getEvents().get(0);
+        assertEquals(500.0, netEvent.getDestTimestamp() * 1000 - netEvent.getEventSet().ts(), 0.0001);
+    }
+
+    @Test
+    public void testFlushEmptiesBuffer() {
+        ni.sendMessage(250, orig, dest1, eventSet(100.0, 250.0));
+        ni.flush(500);
+        ni.flush(1000);
+
+        verify(broker).schedule(anyInt(), anyDouble(), anyInt(), any(CepNetworkBatch.class));
+    }
+}
@@ -0,0 +1,91 @@
+package ca.uwo.eng.sel.cepsim.network;
+
+import ca.uwo.eng.sel.cepsim.event.EventSet;
+import ca.uwo.eng.sel.cepsim.query.InputVertex;
+import ca.uwo.eng.sel.cepsim.query.OutputVertex;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+
+public class DeferredNetworkInterfaceTest {
+
+    @Mock private OutputVertex orig;
+    @Mock private InputVertex dest;
+    @Mock private EventSet eventSet;
+    @Mock private BufferedNetworkInterface target;
+
+    private DeferredNetworkInterface ni;
+
+    @Before
+    public void setup() {
+        MockitoAnnotations.initMocks(this);
+        ni = new DeferredNetworkInterface(target);
+    }
+
+    @After
+    public void tearDown() {
+        DeferredNetworkInterface.unbind();
+    }
+
+    @Test
+    public void testForwardWhenNotBound() {
+        ni.sendMessage(100.0, orig, dest, eventSet);
+        ni.sendCredits(110.0, dest, orig, 10.0);
+        ni.flush(120.0);
+
+        InOrder order = inOrder(target);
+        order.verify(target).sendMessage(100.0, orig, dest, eventSet);
+        order.verify(target).sendCredits(110.0, dest, orig, 10.0);
+        order.verify(target).flush(120.0);
+    }
+
+    @Test
+    public void testDeferWhenBound() {
+        List<Runnable> calls = new ArrayList<>();
+        DeferredNetworkInterface.bind(calls);
+
+        ni.sendMessage(100.0, orig, dest, eventSet);
+        ni.sendCredits(110.0, dest, orig, 10.0);
+        ni.flush(120.0);
+        DeferredNetworkInterface.unbind();
+
+        assertEquals(3, calls.size());
+        verifyZeroInteractions(target);
+
+        DeferredNetworkInterface.replay(calls);
+
+        InOrder order = inOrder(target);
+        order.verify(target).sendMessage(100.0, orig, dest, eventSet);
+        order.verify(target).sendCredits(110.0, dest, orig, 10.0);
+        order.verify(target).flush(120.0);
+        assertEquals(0, calls.size());
+    }
+
+    @Test
+    public void testFlushNotBufferedTarget() {
+        NetworkInterface plain = mock(NetworkInterface.class);
+        DeferredNetworkInterface deferred = new DeferredNetworkInterface(plain);
+
+        List<Runnable> calls = new ArrayList<>();
+        DeferredNetworkInterface.bind(calls);
+        deferred.flush(120.0);
+        deferred.sendMessage(100.0, orig, dest, eventSet);
+
+        assertEquals(1, calls.size());
+        DeferredNetworkInterface.replay(calls);
+        verify(plain).sendMessage(100.0, orig, dest, eventSet);
+    }
+
+}
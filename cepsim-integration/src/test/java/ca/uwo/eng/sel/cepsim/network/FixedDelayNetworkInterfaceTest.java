@@ -28,6 +28,7 @@ public class FixedDelayNetworkInterfaceTest {
     @Mock private EventProducer producer;
     @Mock private OutputVertex orig;
     @Mock private InputVertex dest;
+    @Mock private Vm origVm;
     @Mock private Vm destVm;
     @Mock private CepSimBroker broker;
 
@@ -55,4 +56,16 @@ public class FixedDelayNetworkInterfaceTest {
         verify(broker).schedule(1, 0.5, CepSimTags.CEP_EVENT_SENT, expected);
 
     }
+
+    @Test
+    public void testSendCredits() {
+        when(broker.getVmAllocation(orig)).thenReturn(origVm);
+        when(broker.getDatacenterId(origVm)).thenReturn(2);
+
+        FixedDelayNetworkInterface ni = new FixedDelayNetworkInterface(broker, 0.5); // 500 ms
+        ni.sendCredits(100, dest, orig, 250.0);
+
+        CepCreditEvent expected = new CepCreditEvent(0.1, dest, 0.6, orig, 250.0);
+        verify(broker).schedule(2, 0.5, CepSimTags.CEP_CREDIT_SENT, expected);
+    }
 }
@@ -0,0 +1,66 @@
+package ca.uwo.eng.sel.cepsim.network;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class NetworkLinkTest {
+
+    @Test
+    public void testFifoTransfer() {
+        NetworkLink link = new NetworkLink(8.0, NetworkLink.SharingPolicy.FIFO);
+
+        assertEquals(1.5, link.transfer(1.0, "f1", 500000), 0.0001);
+        assertEquals(2.0, link.transfer(1.0, "f2", 500000), 0.0001);
+
+        // link is idle again
+        assertEquals(3.5, link.transfer(3.0, "f1", 500000), 0.0001);
+    }
+
+    @Test
+    public void testFairTransfer() {
+        NetworkLink link = new NetworkLink(8.0, NetworkLink.SharingPolicy.FAIR);
+
+        NetworkLink.Transfer t1 = link.submit(1.0, "f1", 500000);
+        assertEquals(1.5, t1.getFinishTime(), 0.0001);
+
+        // f1 and f2 share the link from 1.0 - f1 is postponed
+        NetworkLink.Transfer t2 = link.submit(1.0, "f2", 500000);
+        assertEquals(2.0, t1.getFinishTime(), 0.0001);
+        assertEquals(2.0, t2.getFinishTime(), 0.0001);
+
+        // f1 and f2 have 3 Mbits left - all flows get a third of the bandwidth until they finish
+        NetworkLink.Transfer t3 = link.submit(1.25, "f3", 500000);
+        assertEquals(2.375, t1.getFinishTime(), 0.0001);
+        assertEquals(2.375, t2.getFinishTime(), 0.0001);
+        assertEquals(2.5, t3.getFinishTime(), 0.0001);
+
+        // f1 transfers are serialized - the second one starts when the first finishes
+        NetworkLink.Transfer t4 = link.submit(1.25, "f1", 250000);
+        assertEquals(2.375, t1.getFinishTime(), 0.0001);
+        assertEquals(2.375, t2.getFinishTime(), 0.0001);
+        assertEquals(2.625, t3.getFinishTime(), 0.0001);
+        assertEquals(2.75, t4.getFinishTime(), 0.0001);
+        assertEquals(4, link.getPendingTransfers().size());
+
+        // link is idle again
+        assertEquals(3.25, link.transfer(3.0, "f5", 250000), 0.0001);
+        assertEquals(1, link.getPendingTransfers().size());
+    }
+
+    @Test
+    public void testFairTransferConservesBandwidth() {
+        NetworkLink link = new NetworkLink(8.0, NetworkLink.SharingPolicy.FAIR);
+
+        // 8 Mbits from 0.0 and 2 Mbits from 0.5 - the link is busy until all 10 Mbits are transferred
+        NetworkLink.Transfer t1 = link.submit(0.0, "f1", 1000000);
+        NetworkLink.Transfer t2 = link.submit(0.5, "f2", 250000);
+
+        assertEquals(1.0, t2.getFinishTime(), 0.0001);
+        assertEquals(1.25, t1.getFinishTime(), 0.0001);
+
+        double bits = (1000000 + 250000) * 8;
+        assertEquals(bits, link.getBandwidth() * 1000000 * t1.getFinishTime(), 0.0001);
+    }
+
+}
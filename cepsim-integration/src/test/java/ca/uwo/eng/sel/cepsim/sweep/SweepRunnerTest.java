@@ -0,0 +1,187 @@
+package ca.uwo.eng.sel.cepsim.sweep;
+
+import ca.uwo.eng.sel.cepsim.PlacementExecutor;
+import ca.uwo.eng.sel.cepsim.gen.UniformGenerator;
+import ca.uwo.eng.sel.cepsim.integr.CepQueryCloudlet;
+import ca.uwo.eng.sel.cepsim.integr.CepQueryCloudletScheduler;
+import ca.uwo.eng.sel.cepsim.integr.CepSimBroker;
+import ca.uwo.eng.sel.cepsim.integr.CepSimDatacenter;
+import ca.uwo.eng.sel.cepsim.placement.Placement;
+import ca.uwo.eng.sel.cepsim.query.EventConsumer;
+import ca.uwo.eng.sel.cepsim.query.EventProducer;
+import ca.uwo.eng.sel.cepsim.query.InputVertex;
+import ca.uwo.eng.sel.cepsim.query.Operator;
+import ca.uwo.eng.sel.cepsim.query.OutputVertex;
+import ca.uwo.eng.sel.cepsim.query.Query;
+import ca.uwo.eng.sel.cepsim.query.Vertex;
+import ca.uwo.eng.sel.cepsim.sched.DynOpScheduleStrategy;
+import ca.uwo.eng.sel.cepsim.sched.alloc.UniformAllocationStrategy;
+import org.cloudbus.cloudsim.DatacenterCharacteristics;
+import org.cloudbus.cloudsim.Host;
+import org.cloudbus.cloudsim.Log;
+import org.cloudbus.cloudsim.Pe;
+import org.cloudbus.cloudsim.Storage;
+import org.cloudbus.cloudsim.Vm;
+import org.cloudbus.cloudsim.VmAllocationPolicySimple;
+import org.cloudbus.cloudsim.VmSchedulerTimeShared;
+import org.cloudbus.cloudsim.core.CloudSim;
+import org.cloudbus.cloudsim.provisioners.BwProvisionerSimple;
+import org.cloudbus.cloudsim.provisioners.PeProvisionerSimple;
+import org.cloudbus.cloudsim.provisioners.RamProvisionerSimple;
+import org.junit.Test;
+import scala.Tuple3;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class SweepRunnerTest {
+
+    /** Run that counts how many times it has been executed in the same class loader. */
+    public static class CounterRun implements SweepRun {
+        private static int executions = 0;
+
+        @Override
+        public Map<String, Double> run(Map<String, String> parameters, long seed) throws Exception {
+            executions++;
+            Thread.sleep(10);
+
+            Map<String, Double> metrics = new HashMap<>();
+            metrics.put("executions", (double) executions);
+            // the class loader is an IsolatedClassLoader loaded by the application class loader, not its own copy
+            ClassLoader loader = CounterRun.class.getClassLoader();
+            metrics.put("isolated", (loader.getClass().getName().equals(IsolatedClassLoader.class.getName()) &&
+                    (loader.getClass() != IsolatedClassLoader.class)) ? 1.0 : 0.0);
+            return metrics;
+        }
+    }
+
+    /** Run that always fails. */
+    public static class FailingRun implements SweepRun {
+        @Override
+        public Map<String, Double> run(Map<String, String> parameters, long seed) throws Exception {
+            throw new IllegalStateException("failed");
+        }
+    }
+
+    /** Simulation of a single query whose producer rate is perturbed by the seed. */
+    public static class SimulationRun implements SweepRun {
+        @Override
+        public Map<String, Double> run(Map<String, String> parameters, long seed) throws Exception {
+            double rate = Double.parseDouble(parameters.get("rate")) * (1 + 0.01 * new Random(seed).nextGaussian());
+
+            Log.disable();
+            CloudSim.init(1, Calendar.getInstance(), false, 0.1);
+
+            List<Pe> pes = Collections.singletonList(new Pe(0, new PeProvisionerSimple(2500)));
+            List<Host> hosts = Collections.singletonList(new Host(0, new RamProvisionerSimple(16384),
+                    new BwProvisionerSimple(10000), 1000000, pes, new VmSchedulerTimeShared(pes)));
+            new CepSimDatacenter("Datacenter_0", new DatacenterCharacteristics("x86", "Linux", "Xen", hosts,
+                    10.0, 3.0, 0.05, 0.001, 0.0), new VmAllocationPolicySimple(hosts), new LinkedList<Storage>(), 0.1);
+            CepSimBroker broker = new CepSimBroker("CepBroker", 20, 0.1);
+
+            EventProducer p = new EventProducer("spout", 1000, new UniformGenerator(rate), true);
+            Operator f = new Operator("f", 20000, 2048);
+            EventConsumer c = new EventConsumer("end", 1000, 2048);
+            Set<Vertex> vertices = new HashSet<Vertex>(Arrays.asList(p, f, c));
+            Set<Tuple3<OutputVertex, InputVertex, Object>> edges = new HashSet<>();
+            edges.add(new Tuple3<OutputVertex, InputVertex, Object>(p, f, 1.0));
+            edges.add(new Tuple3<OutputVertex, InputVertex, Object>(f, c, 1.0));
+            Query q = Query.apply("q", vertices, edges, 10L);
+
+            PlacementExecutor executor = PlacementExecutor.apply("cl1", Placement.apply(q, 1),
+                    DynOpScheduleStrategy.apply(UniformAllocationStrategy.apply()), 1);
+            CepQueryCloudlet cloudlet = new CepQueryCloudlet(1, executor, false);
+            cloudlet.setUserId(broker.getId());
+
+            broker.submitVmList(Collections.singletonList(
+                    new Vm(1, broker.getId(), 2500, 1, 2048, 1, 10000, "Xen", new CepQueryCloudletScheduler())));
+            broker.submitCloudletList(Collections.singletonList(cloudlet));
+
+            CloudSim.startSimulation();
+            CloudSim.stopSimulation();
+
+            Map<String, Double> metrics = new HashMap<>();
+            metrics.put("end.latency", cloudlet.getLatency(c));
+            metrics.put("end.throughput", cloudlet.getThroughput(c));
+            return metrics;
+        }
+    }
+
+
+    @Test
+    public void testGrid() {
+        Map<String, List<String>> parameters = new LinkedHashMap<>();
+        parameters.put("a", Arrays.asList("1", "2"));
+        parameters.put("b", Arrays.asList("x", "y", "z"));
+
+        List<Map<String, String>> points = SweepRunner.grid(parameters);
+        assertEquals(6, points.size());
+        assertEquals("{a=1, b=x}", points.get(0).toString());
+        assertEquals("{a=1, b=z}", points.get(2).toString());
+        assertEquals("{a=2, b=x}", points.get(3).toString());
+    }
+
+    @Test
+    public void testRunsAreIsolated() throws Exception {
+        SweepRunner runner = new SweepRunner(CounterRun.class, 4);
+        List<Map<String, String>> points = new ArrayList<>();
+        points.add(Collections.singletonMap("a", "1"));
+        points.add(Collections.singletonMap("a", "2"));
+
+        List<SweepResult> results = runner.run(points, 4, 42L);
+        assertEquals(2, results.size());
+        for (SweepResult result : results) {
+            assertEquals(4, result.getReplications("executions"));
+            assertEquals(Collections.nCopies(4, 1.0), result.getValues("executions"));
+            assertEquals(1.0, result.getMean("isolated"), 0.0);
+            assertEquals(0.0, result.getHalfWidth("executions"), 0.0);
+        }
+        assertEquals("2", results.get(1).getParameters().get("a"));
+    }
+
+    @Test
+    public void testParallelSimulations() throws Exception {
+        Map<String, List<String>> parameters = new LinkedHashMap<>();
+        parameters.put("rate", Arrays.asList("500", "1000"));
+        List<Map<String, String>> points = SweepRunner.grid(parameters);
+
+        List<SweepResult> parallel = new SweepRunner(SimulationRun.class, 4).run(points, 3, 7L);
+        List<SweepResult> sequential = new SweepRunner(SimulationRun.class, 1).run(points, 3, 7L);
+
+        for (int i = 0; i < points.size(); i++) {
+            SweepResult result = parallel.get(i);
+            double rate = Double.parseDouble(points.get(i).get("rate"));
+
+            assertEquals(Arrays.asList("end.latency", "end.throughput"), result.getMetrics());
+            // the first and the last seconds of the simulation are not complete
+            assertEquals(rate, result.getMean("end.throughput"), rate * 0.15);
+            assertTrue(result.getHalfWidth("end.throughput") > 0.0);
+            assertTrue(result.getHalfWidth("end.throughput") < rate * 0.05);
+
+            // the results do not depend on the number of threads
+            assertEquals(sequential.get(i).getValues("end.throughput"), result.getValues("end.throughput"));
+            assertEquals(sequential.get(i).getValues("end.latency"), result.getValues("end.latency"));
+        }
+    }
+
+    @Test(expected = ExecutionException.class)
+    public void testFailure() throws Exception {
+        new SweepRunner(FailingRun.class, 2).run(Collections.singletonList(Collections.<String, String>emptyMap()),
+                2, 1L);
+    }
+
+}